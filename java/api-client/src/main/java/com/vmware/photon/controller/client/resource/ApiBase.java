@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.client.resource;
 
+import com.vmware.photon.controller.api.ResourceList;
 import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.client.RestClient;
 
@@ -27,6 +28,9 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 
 import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,6 +63,57 @@ public abstract class ApiBase {
     });
   }
 
+  /**
+   * Gets the first page of the paginated list at the path.
+   *
+   * @param path
+   * @param pageSize
+   * @param tr
+   * @return
+   * @throws IOException
+   */
+  public final <T> ResourceList<T> getResourceListPage(String path, int pageSize,
+                                                       TypeReference<ResourceList<T>> tr) throws IOException {
+    return getResourceList(appendQueryParam(path, "pageSize", Integer.toString(pageSize)), tr);
+  }
+
+  /**
+   * Gets the page of the paginated list at the path following the nextPageLink of the previous page.
+   *
+   * @param path
+   * @param pageLink
+   * @param tr
+   * @return
+   * @throws IOException
+   */
+  public final <T> ResourceList<T> getNextResourceListPage(String path, String pageLink,
+                                                           TypeReference<ResourceList<T>> tr) throws IOException {
+    return getResourceList(appendQueryParam(path, "pageLink", pageLink), tr);
+  }
+
+  /**
+   * Gets all the items of the paginated list at the path, fetching it page by page.
+   *
+   * @param path
+   * @param pageSize
+   * @param tr
+   * @return
+   * @throws IOException
+   */
+  public final <T> ResourceList<T> getAllResourceListPages(String path, int pageSize,
+                                                           TypeReference<ResourceList<T>> tr) throws IOException {
+    List<T> items = new ArrayList<>();
+    ResourceList<T> page = getResourceListPage(path, pageSize, tr);
+    items.addAll(page.getItems());
+
+    while (page.getNextPageLink() != null) {
+      page = getNextResourceListPage(path, page.getNextPageLink(), tr);
+      items.addAll(page.getItems());
+    }
+
+    return new ResourceList<>(items);
+  }
+
   /**
    * Creates an object as async.
    *
@@ -162,6 +217,17 @@ public abstract class ApiBase {
     );
   }
 
+  private <T> ResourceList<T> getResourceList(String path, TypeReference<ResourceList<T>> tr) throws IOException {
+    HttpResponse httpResponse = this.restClient.perform(RestClient.Method.GET, path, null);
+    this.restClient.checkResponse(httpResponse, HttpStatus.SC_OK);
+
+    return this.restClient.parseHttpResponse(httpResponse, tr);
+  }
+
+  private static String appendQueryParam(String path, String name, String value) throws IOException {
+    return String.format("%s%s%s=%s", path, path.contains("?") ? "&" : "?", name, URLEncoder.encode(value, "UTF-8"));
+  }
+
   public final <T> void getObjectByPathAsync(
       final String path,
       final FutureCallback<T> responseCallback,
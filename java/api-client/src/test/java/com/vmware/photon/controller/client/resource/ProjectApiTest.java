@@ -23,6 +23,7 @@ import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.api.VmCreateSpec;
 import com.vmware.photon.controller.api.base.FlavoredCompact;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.util.concurrent.FutureCallback;
 import org.apache.http.HttpStatus;
@@ -366,6 +367,29 @@ public class ProjectApiTest extends ApiTestBase {
 
   }
 
+  @Test
+  public void testGetVmsPage() throws IOException {
+    FlavoredCompact vm1 = new FlavoredCompact();
+    vm1.setId("vm1");
+    vm1.setKind("vm");
+
+    ResourceList<FlavoredCompact> vmSummaryList =
+        new ResourceList<>(Arrays.asList(vm1), null, null);
+
+    ObjectMapper mapper = new ObjectMapper();
+    String serializedTask = mapper.writeValueAsString(vmSummaryList);
+
+    setupMocks(serializedTask, HttpStatus.SC_OK);
+
+    ProjectApi projectApi = new ProjectApi(restClient);
+
+    ResourceList<FlavoredCompact> response = projectApi.getAllResourceListPages("/projects/foo/vms", 1,
+        new TypeReference<ResourceList<FlavoredCompact>>() {
+        });
+    assertEquals(response.getItems().size(), 1);
+    assertTrue(response.getItems().containsAll(vmSummaryList.getItems()));
+  }
+
   @Test
   public void testGetVms() throws IOException {
     FlavoredCompact vm1 = new FlavoredCompact();
@@ -78,6 +78,7 @@ import com.vmware.photon.controller.apife.config.ApiFeConfiguration;
 import com.vmware.photon.controller.apife.config.AuthConfig;
 import com.vmware.photon.controller.apife.config.ImageConfig;
 import com.vmware.photon.controller.apife.config.MaintenanceConfig;
+import com.vmware.photon.controller.apife.config.QuotaEscrowConfig;
 import com.vmware.photon.controller.apife.config.RootSchedulerConfig;
 import com.vmware.photon.controller.apife.config.StatusConfig;
 import com.vmware.photon.controller.apife.lib.ImageStore;
@@ -236,6 +237,12 @@ public class ApiFeModule extends AbstractModule {
     return this.configuration.getMaintenanceConfig();
   }
 
+  @Provides
+  @Singleton
+  public QuotaEscrowConfig getQuotaEscrowConfig() {
+    return this.configuration.getQuotaEscrowConfig();
+  }
+
   @Provides
   @Singleton
   @ApiFeServerSet
@@ -23,6 +23,7 @@ import com.vmware.photon.controller.api.common.providers.JsonProcessingException
 import com.vmware.photon.controller.api.common.providers.LoggingExceptionMapper;
 import com.vmware.photon.controller.api.common.providers.WebApplicationExceptionMapper;
 import com.vmware.photon.controller.apife.auth.AuthFilter;
+import com.vmware.photon.controller.apife.backends.QuotaEscrow;
 import com.vmware.photon.controller.apife.config.ApiFeConfiguration;
 import com.vmware.photon.controller.apife.config.AuthConfig;
 import com.vmware.photon.controller.apife.config.ConfigurationUtils;
@@ -232,6 +233,8 @@ public class ApiFeService extends Application<ApiFeConfiguration> {
     environment.servlets().addFilter("UrlTrailingSlashFilter", injector.getInstance(UrlTrailingSlashFilter.class))
         .addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), true, "/api");
 
+    environment.lifecycle().manage(injector.getInstance(QuotaEscrow.class));
+
     GraphiteConfig graphite = configuration.getGraphite();
     if (graphite != null) {
       graphite.enable();
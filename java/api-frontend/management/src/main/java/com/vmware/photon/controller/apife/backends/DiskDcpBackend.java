@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.apife.backends;
 
+import com.vmware.dcp.common.ServiceDocument;
 import com.vmware.photon.controller.api.AttachedDiskCreateSpec;
 import com.vmware.photon.controller.api.DiskCreateSpec;
 import com.vmware.photon.controller.api.DiskState;
@@ -30,7 +31,6 @@ import com.vmware.photon.controller.api.common.entities.base.BaseEntity;
 import com.vmware.photon.controller.api.common.entities.base.TagEntity;
 import com.vmware.photon.controller.api.common.exceptions.external.ExternalException;
 import com.vmware.photon.controller.apife.backends.clients.ApiFeDcpRestClient;
-import com.vmware.photon.controller.apife.entities.AttachedDiskEntity;
 import com.vmware.photon.controller.apife.entities.BaseDiskEntity;
 import com.vmware.photon.controller.apife.entities.DiskStateChecks;
 import com.vmware.photon.controller.apife.entities.EphemeralDiskEntity;
@@ -45,8 +45,11 @@ import com.vmware.photon.controller.apife.entities.VmEntity;
 import com.vmware.photon.controller.apife.exceptions.external.DiskNotFoundException;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidFlavorStateException;
 import com.vmware.photon.controller.apife.lib.QuotaCost;
+import com.vmware.photon.controller.cloudstore.dcp.entity.AttachedDiskService;
 import com.vmware.photon.controller.cloudstore.dcp.entity.DiskService;
 import com.vmware.photon.controller.cloudstore.dcp.entity.DiskServiceFactory;
+import com.vmware.photon.controller.cloudstore.dcp.entity.FlavorService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.FlavorServiceFactory;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
 import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundException;
 
@@ -57,11 +60,15 @@ import com.google.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -307,6 +314,10 @@ public class DiskDcpBackend implements DiskBackend {
   }
 
   private PersistentDisk toPersistentDisk(DiskService.State diskState) throws ExternalException {
+    return toPersistentDiskList(ImmutableList.of(diskState)).get(0);
+  }
+
+  private PersistentDisk toPersistentDisk(DiskService.State diskState, String flavorName, String vmId) {
     PersistentDisk persistentDisk = new PersistentDisk();
     String id = ServiceUtils.getIDFromDocumentSelfLink(diskState.documentSelfLink);
     persistentDisk.setId(id);
@@ -315,8 +326,7 @@ public class DiskDcpBackend implements DiskBackend {
     persistentDisk.setCapacityGb(diskState.capacityGb);
     persistentDisk.setProjectId(diskState.projectId);
 
-    FlavorEntity flavorEntity = flavorBackend.getEntityById(diskState.flavorId);
-    persistentDisk.setFlavor(flavorEntity.getName());
+    persistentDisk.setFlavor(flavorName);
     persistentDisk.setDatastore(diskState.datastore);
     persistentDisk.setCost(diskState.cost);
 
@@ -324,10 +334,8 @@ public class DiskDcpBackend implements DiskBackend {
       persistentDisk.setTags(new HashSet<>(diskState.tags));
     }
 
-    PersistentDiskEntity persistentDiskEntity = toPersistentDiskEntity(diskState);
-    AttachedDiskEntity attachedDiskEntity = attachedDiskBackend.findAttachedDisk(persistentDiskEntity);
-    if (attachedDiskEntity != null) {
-      persistentDisk.setVms(ImmutableList.of(attachedDiskEntity.getVmId()));
+    if (vmId != null) {
+      persistentDisk.setVms(ImmutableList.of(vmId));
     }
     return persistentDisk;
   }
@@ -354,10 +362,45 @@ public class DiskDcpBackend implements DiskBackend {
     return dcpClient.queryDocuments(DiskService.State.class, termsBuilder.build());
   }
 
+  /**
+   * Builds the API representation of the disks. The flavors and the attachments of all the disks are fetched
+   * with a few batched queries and joined in memory, instead of being looked up one disk at a time.
+   */
   private List<PersistentDisk> toPersistentDiskList(List<DiskService.State> diskDocuments) throws ExternalException {
-    List<PersistentDisk> persistentDiskList = new ArrayList<>();
+    List<PersistentDisk> persistentDiskList = new ArrayList<>(diskDocuments.size());
+    if (diskDocuments.isEmpty()) {
+      return persistentDiskList;
+    }
+
+    Set<String> diskIds = new HashSet<>();
+    Set<String> flavorLinks = new HashSet<>();
     for (DiskService.State state : diskDocuments) {
-      persistentDiskList.add(toPersistentDisk(state));
+      diskIds.add(ServiceUtils.getIDFromDocumentSelfLink(state.documentSelfLink));
+      flavorLinks.add(FlavorServiceFactory.SELF_LINK + "/" + state.flavorId);
+    }
+
+    Map<String, String> flavorNames = new HashMap<>();
+    for (FlavorService.State flavor : dcpClient.queryDocuments(
+        FlavorService.State.class, ServiceDocument.FIELD_NAME_SELF_LINK, flavorLinks)) {
+      flavorNames.put(ServiceUtils.getIDFromDocumentSelfLink(flavor.documentSelfLink), flavor.name);
+    }
+
+    Map<String, String> vmIds = new HashMap<>();
+    for (AttachedDiskService.State attachedDisk : dcpClient.queryDocuments(
+        AttachedDiskService.State.class, "persistentDiskId", diskIds)) {
+      checkArgument(vmIds.put(attachedDisk.persistentDiskId, attachedDisk.vmId) == null,
+          "Disk id should be unique.");
+    }
+
+    for (DiskService.State state : diskDocuments) {
+      String flavorName = flavorNames.get(state.flavorId);
+      if (flavorName == null) {
+        // the lookup reports a missing flavor
+        flavorName = flavorBackend.getEntityById(state.flavorId).getName();
+      }
+
+      String id = ServiceUtils.getIDFromDocumentSelfLink(state.documentSelfLink);
+      persistentDiskList.add(toPersistentDisk(state, flavorName, vmIds.get(id)));
     }
 
     return persistentDiskList;
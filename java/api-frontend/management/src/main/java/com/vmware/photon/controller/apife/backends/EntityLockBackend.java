@@ -18,6 +18,8 @@ import com.vmware.photon.controller.api.common.exceptions.external.ConcurrentTas
 import com.vmware.photon.controller.apife.entities.StepEntity;
 import com.vmware.photon.controller.apife.entities.TaskEntity;
 
+import java.util.Collection;
+
 /**
  * Entity Lock operation.
  */
@@ -29,6 +31,11 @@ public interface EntityLockBackend {
 
   void setTaskLock(String entityId, TaskEntity task) throws ConcurrentTaskException;
 
+  /**
+   * Acquires the locks of all the entities for the task, either all of them are acquired or none is.
+   */
+  void setTaskLocks(Collection<String> entityIds, TaskEntity task) throws ConcurrentTaskException;
+
   void clearTaskLocks(TaskEntity task);
 
   Boolean lockExistsForEntityId(String entityId);
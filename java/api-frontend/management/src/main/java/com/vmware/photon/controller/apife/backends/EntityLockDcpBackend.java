@@ -31,7 +31,12 @@ import org.slf4j.LoggerFactory;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Entity Lock operations using DCP cloud store.
@@ -64,61 +69,143 @@ public class EntityLockDcpBackend implements EntityLockBackend {
     checkNotNull(entityId, "Entity cannot be null.");
     checkNotNull(task, "TaskEntity cannot be null.");
 
-    EntityLockService.State state = new EntityLockService.State();
-    state.taskId = task.getId();
-    state.entityId = entityId;
-    state.documentSelfLink = entityId;
+    setTaskLocks(Collections.singletonList(entityId), task);
+  }
 
-    try {
-      dcpClient.postAndWait(EntityLockServiceFactory.SELF_LINK, state);
-      logger.info("Entity Lock with entityId : {} and taskId: {} has been set", state.entityId, state.taskId);
-    } catch (DcpRuntimeException e) {
-      //re-throw any exception other than a conflict which indicated the lock already exists
-      if (e.getOperationResult().completedOperation.getStatusCode() != Operation.STATUS_CODE_CONFLICT) {
-        throw e;
-      }
+  /**
+   * Sends the creation of all the locks at once and waits for them together. A conflicting lock that is owned by
+   * the task is treated as acquired. If any lock is owned by another task, or fails to be created, the locks
+   * created by this call are deleted again before the failure is thrown.
+   */
+  @Override
+  public void setTaskLocks(Collection<String> entityIds, TaskEntity task) throws ConcurrentTaskException {
+    checkNotNull(entityIds, "Entity ids cannot be null.");
+    checkNotNull(task, "TaskEntity cannot be null.");
+
+    for (String entityId : entityIds) {
+      checkNotNull(entityId, "Entity cannot be null.");
+    }
 
-      //creation failed since a lock for this entity already exists
+    Map<String, CompletableFuture<Operation>> creations = new LinkedHashMap<>();
+    for (String entityId : entityIds) {
+      EntityLockService.State state = new EntityLockService.State();
+      state.taskId = task.getId();
+      state.entityId = entityId;
+      state.documentSelfLink = entityId;
+      creations.put(entityId, dcpClient.postAsync(EntityLockServiceFactory.SELF_LINK, state));
+    }
 
-      //check if the lock is being re-acquired by the same task, if yes then nothing needs to be done
-      EntityLockService.State lock = null;
+    List<String> createdEntityIds = new ArrayList<>();
+    Map<String, CompletableFuture<Operation>> conflicts = new LinkedHashMap<>();
+    RuntimeException failure = null;
+    for (Map.Entry<String, CompletableFuture<Operation>> creation : creations.entrySet()) {
+      String entityId = creation.getKey();
       try {
-        lock = getByEntityId(entityId);
-      } catch (DocumentNotFoundException ex) {
-        String errorMessage = String.format(
-            "Failed to create lock for entityid {%s} and taskid {%s} because an existing lock was detected but it " +
-                "disappeared thereafter, throwing ConcurrentTaskException anyways so that client can re-try",
-            entityId,
-            task.getId());
-        logger.warn(errorMessage);
-        throw new ConcurrentTaskException();
+        dcpClient.awaitAsync(creation.getValue());
+        createdEntityIds.add(entityId);
+        logger.info("Entity Lock with entityId : {} and taskId: {} has been set", entityId, task.getId());
+      } catch (DcpRuntimeException e) {
+        if (!isConflict(e)) {
+          failure = (failure == null) ? e : failure;
+          continue;
+        }
+
+        //creation failed since a lock for this entity already exists, check the owner of the lock below
+        conflicts.put(entityId, dcpClient.getAsync(EntityLockServiceFactory.SELF_LINK + "/" + entityId));
+      } catch (DocumentNotFoundException e) {
+        failure = (failure == null) ? new DcpRuntimeException(e) : failure;
+      } catch (RuntimeException e) {
+        failure = (failure == null) ? e : failure;
       }
+    }
 
-      if (!lock.taskId.equals(task.getId())) {
-        logger.warn("Entity Lock with entityId: {} already acquired by taskId {}", entityId, lock.taskId);
-        throw new ConcurrentTaskException();
+    boolean concurrentTask = false;
+    for (Map.Entry<String, CompletableFuture<Operation>> conflict : conflicts.entrySet()) {
+      String entityId = conflict.getKey();
+      try {
+        EntityLockService.State lock = dcpClient.awaitAsync(conflict.getValue())
+            .getBody(EntityLockService.State.class);
+        if (!lock.taskId.equals(task.getId())) {
+          logger.warn("Entity Lock with entityId: {} already acquired by taskId {}", entityId, lock.taskId);
+          concurrentTask = true;
+          continue;
+        }
+
+        logger.info("Ignoring lock conflict for entityId : {} because task id : {} already owns the it",
+            entityId, task.getId());
+      } catch (DocumentNotFoundException e) {
+        logger.warn("Failed to create lock for entityid {} and taskid {} because an existing lock was " +
+            "detected but it disappeared thereafter, throwing ConcurrentTaskException anyways so that client can " +
+            "re-try", entityId, task.getId());
+        concurrentTask = true;
+      } catch (RuntimeException e) {
+        failure = (failure == null) ? e : failure;
       }
+    }
+
+    if (!concurrentTask && failure == null) {
+      return;
+    }
+
+    //all or nothing, release the locks acquired by this call before failing
+    List<String> failedToDeleteEntityIds = deleteLocks(createdEntityIds, task);
+    if (!failedToDeleteEntityIds.isEmpty()) {
+      logger.error("Failed to roll back entity locks {} of taskId {}", failedToDeleteEntityIds, task.getId());
+    }
 
-      logger.info("Ignoring lock conflict for entityId : {} because task id : {} already owns the it",
-          entityId, task.getId());
+    if (failure != null) {
+      throw failure;
     }
+
+    throw new ConcurrentTaskException();
   }
 
   @Override
   public void clearTaskLocks(TaskEntity task) {
     checkNotNull(task, "TaskEntity cannot be null.");
-    List<String> failedToDeleteLockableEntityIds = new ArrayList<>();
-    for (String lockableEntityId : task.getLockableEntityIds()) {
+    task.setLockableEntityIds(deleteLocks(task.getLockableEntityIds(), task));
+  }
+
+  /**
+   * Sends the deletion of all the locks at once and waits for them together.
+   *
+   * @return the entity ids whose lock could not be deleted
+   */
+  private List<String> deleteLocks(Collection<String> entityIds, TaskEntity task) {
+    Map<String, CompletableFuture<Operation>> deletions = new LinkedHashMap<>();
+    for (String lockableEntityId : entityIds) {
       String lockUrl = EntityLockServiceFactory.SELF_LINK + "/" + lockableEntityId;
       try {
-        dcpClient.deleteAndWait(lockUrl, new EntityLockService.State());
+        deletions.put(lockableEntityId, dcpClient.deleteAsync(lockUrl, new EntityLockService.State()));
+      } catch (Throwable swallowedException) {
+        deletions.put(lockableEntityId, failedFuture(swallowedException));
+      }
+    }
+
+    List<String> failedToDeleteLockableEntityIds = new ArrayList<>();
+    for (Map.Entry<String, CompletableFuture<Operation>> deletion : deletions.entrySet()) {
+      String lockUrl = EntityLockServiceFactory.SELF_LINK + "/" + deletion.getKey();
+      try {
+        dcpClient.awaitAsync(deletion.getValue());
         logger.info("Entity Lock with taskId : {} and url : {} has been cleared", task.getId(), lockUrl);
       } catch (Throwable swallowedException) {
-        failedToDeleteLockableEntityIds.add(lockableEntityId);
+        failedToDeleteLockableEntityIds.add(deletion.getKey());
         logger.error("Failed to delete entity lock with url: " + lockUrl, swallowedException);
       }
     }
-    task.setLockableEntityIds(failedToDeleteLockableEntityIds);
+
+    return failedToDeleteLockableEntityIds;
+  }
+
+  private static boolean isConflict(DcpRuntimeException e) {
+    return e.getOperationResult() != null
+        && e.getOperationResult().completedOperation.getStatusCode() == Operation.STATUS_CODE_CONFLICT;
+  }
+
+  private static CompletableFuture<Operation> failedFuture(Throwable failure) {
+    CompletableFuture<Operation> future = new CompletableFuture<>();
+    future.completeExceptionally(failure);
+    return future;
   }
 
   private EntityLockService.State getByEntityId(String entityId) throws DocumentNotFoundException {
@@ -45,6 +45,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -262,11 +263,11 @@ public class HostDcpBackend implements HostBackend {
     return hostEntity;
   }
 
-  private List<Host> toApiRepresentations(List<HostService.State> stateList) {
+  private List<Host> toApiRepresentations(Iterator<HostService.State> states) {
     List<Host> hostList = new ArrayList<>();
 
-    for (HostService.State state : stateList) {
-      hostList.add(toApiRepresentation(toHostEntity(state)));
+    while (states.hasNext()) {
+      hostList.add(toApiRepresentation(toHostEntity(states.next())));
     }
 
     return hostList;
@@ -288,13 +289,14 @@ public class HostDcpBackend implements HostBackend {
     return host;
   }
 
-  private List<HostService.State> findDocuments(Optional<UsageTag> usageTag) {
+  private Iterator<HostService.State> findDocuments(Optional<UsageTag> usageTag) {
     final ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<>();
     if (usageTag.isPresent()) {
       termsBuilder.put(HostService.State.USAGE_TAGS_KEY, usageTag.get().name());
     }
 
-    return dcpClient.queryDocuments(HostService.State.class, termsBuilder.build());
+    return dcpClient.queryDocumentsPaged(HostService.State.class, termsBuilder.build(),
+        ApiFeDcpRestClient.DOCUMENT_PAGE_SIZE);
   }
 
   private void updateHostDocument(String hostId, HostService.State state) throws HostNotFoundException {
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.apife.backends;
+
+import com.vmware.dcp.common.Operation;
+import com.vmware.photon.controller.api.QuotaLineItem;
+import com.vmware.photon.controller.apife.backends.clients.ApiFeDcpRestClient;
+import com.vmware.photon.controller.apife.config.QuotaEscrowConfig;
+import com.vmware.photon.controller.apife.entities.QuotaLineItemEntity;
+import com.vmware.photon.controller.apife.lib.QuotaCost;
+import com.vmware.photon.controller.cloudstore.dcp.entity.ResourceTicketService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.ResourceTicketServiceFactory;
+import com.vmware.photon.controller.common.dcp.exceptions.BadRequestException;
+import com.vmware.photon.controller.common.dcp.exceptions.DcpRuntimeException;
+import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * QuotaEscrow reserves resource ticket quota in blocks so that most quota consumption on this API frontend is
+ * accounted locally instead of with a patch to the single {@link ResourceTicketService} document.
+ * <p/>
+ * A block is consumed from the ticket with a regular USAGE_CONSUME patch, so the ticket usage includes the unspent
+ * escrow and the ticket limit is never exceeded. Quota returned for a ticket with an escrow is added back to the
+ * escrow. Unspent escrow is returned to the ticket every release interval and on shutdown, and before a new block
+ * is reserved, so that a cost this frontend consumes from the ticket never competes with its own escrow.
+ * <p/>
+ * A block holds the requested cost plus up to max_escrow_multiple extra copies of it, but never more than half of
+ * the remaining quota of any limited key, so that an escrow cannot starve other frontends near the limit. The escrow
+ * of other frontends still counts as ticket usage until they spend or release it, so a cost close to the limit can
+ * be rejected for up to one release interval while quota sits unspent on another frontend.
+ * <p/>
+ * No escrow monitor is held while the ticket is read or patched: an escrow is detached from the map before its
+ * unspent quota is returned, and a new block is added to whichever escrow the map holds once it is reserved.
+ */
+@Singleton
+public class QuotaEscrow implements Managed {
+
+  private static final Logger logger = LoggerFactory.getLogger(QuotaEscrow.class);
+
+  private final ApiFeDcpRestClient dcpClient;
+  private final QuotaEscrowConfig config;
+  private final ConcurrentMap<String, TicketEscrow> escrows = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduledThreadPool;
+
+  @Inject
+  public QuotaEscrow(ApiFeDcpRestClient dcpClient, QuotaEscrowConfig config) {
+    this.dcpClient = dcpClient;
+    this.config = config;
+    this.scheduledThreadPool = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("QuotaEscrow-%d").setDaemon(true).build());
+  }
+
+  @Override
+  public void start() {
+    if (!config.isEnabled()) {
+      return;
+    }
+
+    logger.info("Quota escrow is enabled, max escrow multiple {}, release interval {}",
+        config.getMaxEscrowMultiple(), config.getReleaseInterval());
+    scheduledThreadPool.scheduleAtFixedRate(this::releaseAll,
+        config.getReleaseInterval().getQuantity(),
+        config.getReleaseInterval().getQuantity(),
+        config.getReleaseInterval().getUnit());
+  }
+
+  @Override
+  public void stop() {
+    scheduledThreadPool.shutdownNow();
+    releaseAll();
+  }
+
+  public boolean isEnabled() {
+    return config.isEnabled();
+  }
+
+  /**
+   * Spends the cost from the escrow of the resource ticket, reserving a new block from the ticket when the escrow
+   * does not cover it. The unspent escrow is returned to the ticket first.
+   *
+   * @param resourceTicketId - id of the resource ticket
+   * @param cost             - the cost object representing how much will be consumed
+   * @return true if the cost was consumed, false if the caller must consume it from the ticket directly
+   */
+  public boolean consume(String resourceTicketId, QuotaCost cost) {
+    if (!isEnabled()) {
+      return false;
+    }
+
+    TicketEscrow escrow = escrows.get(resourceTicketId);
+    if (escrow != null) {
+      synchronized (escrow) {
+        if (!escrow.released && escrow.covers(cost)) {
+          escrow.subtract(cost, 1);
+          return true;
+        }
+      }
+    }
+
+    if (!release(resourceTicketId)) {
+      return false;
+    }
+
+    int multiple = reserve(resourceTicketId, cost);
+    if (multiple < 0) {
+      return false;
+    }
+
+    addToEscrow(resourceTicketId, cost, multiple);
+    return true;
+  }
+
+  /**
+   * Adds quota returned for the resource ticket to its escrow, if this frontend holds one.
+   *
+   * @param resourceTicketId - id of the resource ticket
+   * @param cost             - the cost object representing how much is returned
+   * @return true if the cost was added to the escrow, false if the caller must return it to the ticket directly
+   */
+  public boolean giveBack(String resourceTicketId, QuotaCost cost) {
+    if (!isEnabled()) {
+      return false;
+    }
+
+    TicketEscrow escrow = escrows.get(resourceTicketId);
+    if (escrow == null) {
+      return false;
+    }
+
+    synchronized (escrow) {
+      if (escrow.released) {
+        return false;
+      }
+
+      escrow.add(cost, 1);
+      return true;
+    }
+  }
+
+  /**
+   * Returns the unspent escrow of every resource ticket.
+   */
+  @VisibleForTesting
+  protected void releaseAll() {
+    for (String resourceTicketId : escrows.keySet()) {
+      release(resourceTicketId);
+    }
+  }
+
+  /**
+   * Detaches the escrow of the resource ticket and returns its unspent quota to the ticket. If the ticket cannot be
+   * patched the unspent quota is added back to the escrow, to be released later.
+   *
+   * @return true if this frontend holds no escrow for the ticket anymore
+   */
+  private boolean release(String resourceTicketId) {
+    TicketEscrow escrow = escrows.get(resourceTicketId);
+    if (escrow == null) {
+      return true;
+    }
+
+    synchronized (escrow) {
+      if (escrow.released) {
+        return true;
+      }
+
+      escrow.released = true;
+      escrows.remove(resourceTicketId, escrow);
+    }
+
+    // a released escrow is never modified, so it is safe to read without its monitor
+    if (!escrow.hasQuota()) {
+      return true;
+    }
+
+    QuotaCost unspent = new QuotaCost(new ArrayList<>(escrow.remaining.values()));
+    try {
+      dcpClient.patchAndWait(ResourceTicketServiceFactory.SELF_LINK + "/" + resourceTicketId,
+          ResourceTicketDcpBackend.buildPatch(ResourceTicketService.Patch.PatchType.USAGE_RETURN, unspent));
+      return true;
+    } catch (DocumentNotFoundException e) {
+      logger.info("Dropping escrow of deleted resource ticket {}", resourceTicketId);
+      return true;
+    } catch (Throwable t) {
+      logger.warn("Failed to release escrow of resource ticket {}, will retry", resourceTicketId, t);
+      addToEscrow(resourceTicketId, unspent, 1);
+      return false;
+    }
+  }
+
+  /**
+   * Adds copies of the cost to the escrow of the resource ticket, creating the escrow if this frontend holds none.
+   */
+  private void addToEscrow(String resourceTicketId, QuotaCost cost, int multiple) {
+    while (true) {
+      TicketEscrow escrow = escrows.computeIfAbsent(resourceTicketId, id -> new TicketEscrow());
+      synchronized (escrow) {
+        if (escrow.released) {
+          continue;
+        }
+
+        escrow.add(cost, multiple);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Consumes the cost plus as many extra copies of it as the ticket can spare from the resource ticket.
+   *
+   * @return the number of extra copies reserved, which are not added to the escrow yet, or -1 if nothing was
+   * consumed
+   */
+  private int reserve(String resourceTicketId, QuotaCost cost) {
+    String resourceTicketLink = ResourceTicketServiceFactory.SELF_LINK + "/" + resourceTicketId;
+    try {
+      Operation result = dcpClient.getAndWait(resourceTicketLink);
+      int multiple = getEscrowMultiple(result.getBody(ResourceTicketService.State.class), cost);
+      if (multiple == 0) {
+        return -1;
+      }
+
+      dcpClient.patchAndWait(resourceTicketLink, ResourceTicketDcpBackend.buildPatch(
+          ResourceTicketService.Patch.PatchType.USAGE_CONSUME, multiply(cost, multiple + 1)));
+      logger.debug("Reserved {} extra copies of cost for resource ticket {}", multiple, resourceTicketId);
+      return multiple;
+    } catch (DocumentNotFoundException e) {
+      return -1;
+    } catch (DcpRuntimeException e) {
+      if (e.getCause() instanceof BadRequestException) {
+        // another frontend took the quota since the ticket was read
+        return -1;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Computes how many extra copies of the cost can be reserved so that each limited key keeps at least half of the
+   * quota remaining after the cost itself.
+   */
+  @VisibleForTesting
+  protected int getEscrowMultiple(ResourceTicketService.State ticket, QuotaCost cost) {
+    int multiple = config.getMaxEscrowMultiple();
+    for (String key : cost.getCostKeys()) {
+      QuotaLineItem limit = ticket.limitMap.get(key);
+      if (limit == null) {
+        continue;
+      }
+
+      QuotaLineItemEntity zero = new QuotaLineItemEntity(key, 0.0, limit.getUnit());
+      QuotaLineItemEntity costItem = zero.add(cost.getCost(key));
+      if (costItem.getValue() <= 0.0) {
+        continue;
+      }
+
+      QuotaLineItemEntity headroom = new QuotaLineItemEntity(key, limit.getValue(), limit.getUnit());
+      QuotaLineItem usage = ticket.usageMap.get(key);
+      if (usage != null) {
+        headroom = headroom.subtract(new QuotaLineItemEntity(key, usage.getValue(), usage.getUnit()));
+      }
+      headroom = headroom.subtract(costItem);
+
+      multiple = Math.min(multiple, (int) Math.max(Math.floor(headroom.getValue() / 2 / costItem.getValue()), 0));
+    }
+
+    return multiple;
+  }
+
+  private static QuotaCost multiply(QuotaCost cost, int multiple) {
+    List<QuotaLineItemEntity> items = new ArrayList<>();
+    for (String key : cost.getCostKeys()) {
+      QuotaLineItemEntity item = cost.getCost(key);
+      items.add(new QuotaLineItemEntity(key, item.getValue() * multiple, item.getUnit()));
+    }
+    return new QuotaCost(items);
+  }
+
+  /**
+   * The unspent escrow of a single resource ticket. Guarded by its own monitor until released.
+   */
+  private static class TicketEscrow {
+
+    private final Map<String, QuotaLineItemEntity> remaining = new HashMap<>();
+
+    private boolean released;
+
+    private boolean hasQuota() {
+      for (QuotaLineItemEntity item : remaining.values()) {
+        if (item.getValue() > 0.0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean covers(QuotaCost cost) {
+      for (String key : cost.getCostKeys()) {
+        QuotaLineItemEntity item = remaining.get(key);
+        if (item == null || item.compareTo(cost.getCost(key)) < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void add(QuotaCost cost, int multiple) {
+      for (String key : cost.getCostKeys()) {
+        QuotaLineItemEntity item = cost.getCost(key);
+        QuotaLineItemEntity amount = new QuotaLineItemEntity(key, item.getValue() * multiple, item.getUnit());
+        QuotaLineItemEntity current = remaining.get(key);
+        remaining.put(key, current == null ? amount : current.add(amount));
+      }
+    }
+
+    private void subtract(QuotaCost cost, int multiple) {
+      for (String key : cost.getCostKeys()) {
+        QuotaLineItemEntity item = cost.getCost(key);
+        remaining.put(key, remaining.get(key).subtract(
+            new QuotaLineItemEntity(key, item.getValue() * multiple, item.getUnit())));
+      }
+    }
+  }
+}
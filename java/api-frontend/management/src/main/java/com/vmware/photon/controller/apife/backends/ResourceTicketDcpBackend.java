@@ -60,14 +60,17 @@ public class ResourceTicketDcpBackend implements ResourceTicketBackend {
   private final ApiFeDcpRestClient dcpClient;
   private final TenantBackend tenantBackend;
   private final TaskBackend taskBackend;
+  private final QuotaEscrow quotaEscrow;
 
   @Inject
   public ResourceTicketDcpBackend(ApiFeDcpRestClient dcpClient,
                                   TenantBackend tenantBackend,
-                                  TaskBackend taskBackend) {
+                                  TaskBackend taskBackend,
+                                  QuotaEscrow quotaEscrow) {
     this.dcpClient = dcpClient;
     this.tenantBackend = tenantBackend;
     this.taskBackend = taskBackend;
+    this.quotaEscrow = quotaEscrow;
 
     dcpClient.start();
   }
@@ -81,6 +84,9 @@ public class ResourceTicketDcpBackend implements ResourceTicketBackend {
    * can be set for a narrow set of metrics. Only these metrics are used
    * for limit enforcement. All metrics are tracked in usage.
    * <p/>
+   * When quota escrow is enabled the cost is spent from the escrow this frontend holds for the ticket if possible,
+   * see {@link QuotaEscrow}.
+   * <p/>
    *
    * @param resourceTicketId - id of the resource ticket
    * @param cost             - the cost object representing how much will be consumed
@@ -89,18 +95,17 @@ public class ResourceTicketDcpBackend implements ResourceTicketBackend {
   @Override
   public void consumeQuota(String resourceTicketId, QuotaCost cost)
       throws QuotaException, ResourceTicketNotFoundException {
-    ResourceTicketService.Patch patch = new ResourceTicketService.Patch();
-    patch.patchtype = ResourceTicketService.Patch.PatchType.USAGE_CONSUME;
-    patch.cost = new HashMap<>();
-
-    for (String key : cost.getCostKeys()) {
-      QuotaLineItem costItem = new QuotaLineItem();
-      costItem.setKey(key);
-      costItem.setValue(cost.getCost(key).getValue());
-      costItem.setUnit(cost.getCost(key).getUnit());
-      patch.cost.put(costItem.getKey(), costItem);
+    if (quotaEscrow.consume(resourceTicketId, cost)) {
+      return;
     }
 
+    consumeTicketQuota(resourceTicketId, cost);
+  }
+
+  private void consumeTicketQuota(String resourceTicketId, QuotaCost cost)
+      throws QuotaException, ResourceTicketNotFoundException {
+    ResourceTicketService.Patch patch = buildPatch(ResourceTicketService.Patch.PatchType.USAGE_CONSUME, cost);
+
     try {
       patchResourceTicketService(resourceTicketId, patch);
     } catch (DcpRuntimeException e) {
@@ -127,19 +132,12 @@ public class ResourceTicketDcpBackend implements ResourceTicketBackend {
    */
   @Override
   public void returnQuota(String resourceTicketId, QuotaCost cost) throws ResourceTicketNotFoundException {
-    ResourceTicketService.Patch patch = new ResourceTicketService.Patch();
-    patch.patchtype = ResourceTicketService.Patch.PatchType.USAGE_RETURN;
-    patch.cost = new HashMap<>();
-
-    for (String key : cost.getCostKeys()) {
-      QuotaLineItem costItem = new QuotaLineItem();
-      costItem.setKey(key);
-      costItem.setValue(cost.getCost(key).getValue());
-      costItem.setUnit(cost.getCost(key).getUnit());
-      patch.cost.put(costItem.getKey(), costItem);
+    if (quotaEscrow.giveBack(resourceTicketId, cost)) {
+      return;
     }
 
-    patchResourceTicketService(resourceTicketId, patch);
+    patchResourceTicketService(resourceTicketId,
+        buildPatch(ResourceTicketService.Patch.PatchType.USAGE_RETURN, cost));
   }
 
   /**
@@ -207,7 +205,7 @@ public class ResourceTicketDcpBackend implements ResourceTicketBackend {
     ResourceTicketService.State createdResourceTicket = result.getBody(ResourceTicketService.State.class);
 
     try {
-      consumeQuota(resourceTicketId, new QuotaCost(limits));
+      consumeTicketQuota(resourceTicketId, new QuotaCost(limits));
     } catch (QuotaException qe) {
       logger.warn("Subdivide of resource ticket id {} failed", resourceTicketId);
       // compensate by deleting the created ticket document
@@ -358,6 +356,22 @@ public class ResourceTicketDcpBackend implements ResourceTicketBackend {
     return convertToResourceTicketEntity(tickets.get(0));
   }
 
+  static ResourceTicketService.Patch buildPatch(ResourceTicketService.Patch.PatchType patchType, QuotaCost cost) {
+    ResourceTicketService.Patch patch = new ResourceTicketService.Patch();
+    patch.patchtype = patchType;
+    patch.cost = new HashMap<>();
+
+    for (String key : cost.getCostKeys()) {
+      QuotaLineItem costItem = new QuotaLineItem();
+      costItem.setKey(key);
+      costItem.setValue(cost.getCost(key).getValue());
+      costItem.setUnit(cost.getCost(key).getUnit());
+      patch.cost.put(costItem.getKey(), costItem);
+    }
+
+    return patch;
+  }
+
   private void patchResourceTicketService(String resourceTicketId, ResourceTicketService.Patch patch)
       throws ResourceTicketNotFoundException {
     try {
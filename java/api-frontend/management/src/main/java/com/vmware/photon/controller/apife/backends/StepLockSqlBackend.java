@@ -27,6 +27,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -73,6 +74,11 @@ public class StepLockSqlBackend implements EntityLockBackend {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void setTaskLocks(Collection<String> entityIds, TaskEntity task) throws ConcurrentTaskException {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void clearTaskLocks(TaskEntity task) {
     throw new UnsupportedOperationException();
@@ -14,6 +14,7 @@
 package com.vmware.photon.controller.apife.backends;
 
 import com.vmware.photon.controller.api.Operation;
+import com.vmware.photon.controller.api.ResourceList;
 import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.api.common.entities.base.BaseEntity;
 import com.vmware.photon.controller.api.common.exceptions.external.ExternalException;
@@ -41,8 +42,20 @@ public interface TaskBackend {
   List<Task> filter(Optional<String> entityId, Optional<String> entityKind, Optional<String> state)
       throws ExternalException;
 
+  ResourceList<Task> filter(Optional<String> entityId, Optional<String> entityKind, Optional<String> state,
+                            Optional<Integer> pageSize) throws ExternalException;
+
   List<Task> filterInProject(String projectId, Optional<String> state, Optional<String> kind);
 
+  ResourceList<Task> filterInProject(String projectId, Optional<String> state, Optional<String> kind,
+                                     Optional<Integer> pageSize) throws ExternalException;
+
+  ResourceList<Task> getTasksPage(String pageLink) throws ExternalException;
+
+  ResourceList<Task> getTasksPage(String entityId, String entityKind, String pageLink) throws ExternalException;
+
+  ResourceList<Task> getTasksInProjectPage(String projectId, String pageLink) throws ExternalException;
+
   TaskEntity createQueuedTask(BaseEntity entity, Operation operation);
 
   TaskEntity createCompletedTask(BaseEntity entity, Operation operation);
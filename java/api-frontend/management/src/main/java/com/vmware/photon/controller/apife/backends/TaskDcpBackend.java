@@ -13,7 +13,9 @@
 
 package com.vmware.photon.controller.apife.backends;
 
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
 import com.vmware.photon.controller.api.Operation;
+import com.vmware.photon.controller.api.ResourceList;
 import com.vmware.photon.controller.api.Step;
 import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.api.common.entities.base.BaseEntity;
@@ -28,14 +30,17 @@ import com.vmware.photon.controller.apife.entities.StepWarningEntity;
 import com.vmware.photon.controller.apife.entities.TaskEntity;
 import com.vmware.photon.controller.apife.entities.base.InfrastructureEntity;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidQueryParamsException;
+import com.vmware.photon.controller.apife.utils.PaginationUtils;
 import com.vmware.photon.controller.cloudstore.dcp.entity.TaskService;
 import com.vmware.photon.controller.cloudstore.dcp.entity.TaskServiceFactory;
+import com.vmware.photon.controller.common.dcp.QueryTaskUtils;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
 import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -50,6 +55,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -100,28 +106,72 @@ public class TaskDcpBackend implements TaskBackend, StepBackend {
   @Override
   public List<Task> filter(Optional<String> entityId, Optional<String> entityKind, Optional<String> state)
       throws ExternalException {
-    List<TaskEntity> tasks = getEntityTasks(entityId, entityKind, state);
+    Iterator<TaskService.State> tasksDocuments = getEntityDocuments(entityId, entityKind, state);
 
-    List<Task> result = new ArrayList<>();
+    return getTasksFromDocuments(tasksDocuments);
+  }
 
-    for (TaskEntity task : tasks) {
-      result.add(toApiRepresentation(task));
+  @Override
+  public ResourceList<Task> filter(Optional<String> entityId, Optional<String> entityKind, Optional<String> state,
+                                   Optional<Integer> pageSize) throws ExternalException {
+    if (!pageSize.isPresent()) {
+      return new ResourceList<>(filter(entityId, entityKind, state));
     }
 
-    return result;
+    int validPageSize = PaginationUtils.validatePageSize(pageSize);
+    ImmutableMap<String, String> terms = buildEntityTerms(entityId, entityKind, state);
+
+    return getTasksFromDocumentPage(dcpClient.queryDocumentPage(TaskService.State.class, terms, validPageSize));
   }
 
   @Override
   public List<Task> filterInProject(String projectId, Optional<String> state, Optional<String> entityKind) {
-    List<TaskEntity> tasks = getProjectTasks(projectId, state, entityKind);
+    Iterator<TaskService.State> tasksDocuments = getTaskDocumentsInProject(projectId, state, entityKind);
 
-    List<Task> result = new ArrayList<>();
+    return getTasksFromDocuments(tasksDocuments);
+  }
 
-    for (TaskEntity task : tasks) {
-      result.add(toApiRepresentation(task));
+  @Override
+  public ResourceList<Task> filterInProject(String projectId, Optional<String> state, Optional<String> entityKind,
+                                            Optional<Integer> pageSize) throws ExternalException {
+    if (!pageSize.isPresent()) {
+      return new ResourceList<>(filterInProject(projectId, state, entityKind));
     }
 
-    return result;
+    int validPageSize = PaginationUtils.validatePageSize(pageSize);
+    ImmutableMap<String, String> terms = buildProjectTerms(projectId, state, entityKind);
+
+    return getTasksFromDocumentPage(dcpClient.queryDocumentPage(TaskService.State.class, terms, validPageSize));
+  }
+
+  @Override
+  public ResourceList<Task> getTasksPage(String pageLink) throws ExternalException {
+    return getTasksFromDocumentPage(
+        PaginationUtils.queryDocumentPage(dcpClient, TaskService.State.class, pageLink));
+  }
+
+  @Override
+  public ResourceList<Task> getTasksPage(final String entityId, String entityKind, String pageLink)
+      throws ExternalException {
+    final String kind = entityKind.toLowerCase();
+    return getTasksFromDocumentPage(PaginationUtils.queryDocumentPage(dcpClient, TaskService.State.class, pageLink,
+        new Predicate<TaskService.State>() {
+          @Override
+          public boolean apply(TaskService.State task) {
+            return entityId.equals(task.entityId) && kind.equals(task.entityKind);
+          }
+        }));
+  }
+
+  @Override
+  public ResourceList<Task> getTasksInProjectPage(final String projectId, String pageLink) throws ExternalException {
+    return getTasksFromDocumentPage(PaginationUtils.queryDocumentPage(dcpClient, TaskService.State.class, pageLink,
+        new Predicate<TaskService.State>() {
+          @Override
+          public boolean apply(TaskService.State task) {
+            return projectId.equals(task.projectId);
+          }
+        }));
   }
 
   @Override
@@ -302,15 +352,11 @@ public class TaskDcpBackend implements TaskBackend, StepBackend {
   public List<TaskEntity> getEntityTasks(Optional<String> entityId, Optional<String> entityKind, Optional<String> state)
       throws InvalidQueryParamsException {
 
-    List<TaskEntity> taskEntityList = null;
-
-    List<TaskService.State> tasksDocuments = getEntityDocuments(entityId, entityKind, state);
+    Iterator<TaskService.State> tasksDocuments = getEntityDocuments(entityId, entityKind, state);
 
-    if (tasksDocuments != null) {
-      taskEntityList = new ArrayList<>(tasksDocuments.size());
-      for (TaskService.State taskState : tasksDocuments) {
-        taskEntityList.add(convertToTaskEntity(taskState));
-      }
+    List<TaskEntity> taskEntityList = new ArrayList<>();
+    while (tasksDocuments.hasNext()) {
+      taskEntityList.add(convertToTaskEntity(tasksDocuments.next()));
     }
 
     return taskEntityList;
@@ -333,29 +379,41 @@ public class TaskDcpBackend implements TaskBackend, StepBackend {
     }
   }
 
-  private List<TaskEntity> getProjectTasks(
-      String projectId, Optional<String> state, Optional<String> entityKind) {
+  /**
+   * Converts the task documents to their API representation as the result pages are received, so that neither
+   * the documents nor the intermediate task entities of the whole result set are held in memory.
+   */
+  private List<Task> getTasksFromDocuments(Iterator<TaskService.State> tasksDocuments) {
 
-    List<TaskService.State> tasksDocuments = getTaskDocumentsInProject(projectId, state, entityKind);
+    List<Task> result = new ArrayList<>();
 
-    return getTaskEntitiesFromDocuments(tasksDocuments);
+    while (tasksDocuments.hasNext()) {
+      result.add(toApiRepresentation(convertToTaskEntity(tasksDocuments.next())));
+    }
+
+    return result;
   }
 
-  private List<TaskEntity> getTaskEntitiesFromDocuments(List<TaskService.State> tasksDocuments) {
+  private ResourceList<Task> getTasksFromDocumentPage(ServiceDocumentQueryResult queryResult) {
 
-    List<TaskEntity> taskEntityList = null;
+    List<Task> result = new ArrayList<>();
 
-    if (tasksDocuments != null) {
-      taskEntityList = new ArrayList<>(tasksDocuments.size());
-      for (TaskService.State taskState : tasksDocuments) {
-        taskEntityList.add(convertToTaskEntity(taskState));
-      }
+    for (TaskService.State taskDocument : QueryTaskUtils.getQueryResultDocuments(TaskService.State.class,
+        queryResult)) {
+      result.add(toApiRepresentation(convertToTaskEntity(taskDocument)));
     }
 
-    return taskEntityList;
+    return new ResourceList<>(result, queryResult.nextPageLink, null);
   }
 
-  private List<TaskService.State> getEntityDocuments(
+  private Iterator<TaskService.State> getEntityDocuments(
+      Optional<String> entityId, Optional<String> entityKind, Optional<String> state)
+      throws InvalidQueryParamsException {
+    return dcpClient.queryDocumentsPaged(TaskService.State.class, buildEntityTerms(entityId, entityKind, state),
+        ApiFeDcpRestClient.DOCUMENT_PAGE_SIZE);
+  }
+
+  private ImmutableMap<String, String> buildEntityTerms(
       Optional<String> entityId, Optional<String> entityKind, Optional<String> state)
       throws InvalidQueryParamsException {
     final ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<>();
@@ -380,10 +438,16 @@ public class TaskDcpBackend implements TaskBackend, StepBackend {
       termsBuilder.put("state", state.get().toUpperCase());
     }
 
-    return dcpClient.queryDocuments(TaskService.State.class, termsBuilder.build());
+    return termsBuilder.build();
+  }
+
+  private Iterator<TaskService.State> getTaskDocumentsInProject(
+      String projectId, Optional<String> state, Optional<String> entityKind) {
+    return dcpClient.queryDocumentsPaged(TaskService.State.class, buildProjectTerms(projectId, state, entityKind),
+        ApiFeDcpRestClient.DOCUMENT_PAGE_SIZE);
   }
 
-  private List<TaskService.State> getTaskDocumentsInProject(
+  private ImmutableMap<String, String> buildProjectTerms(
       String projectId, Optional<String> state, Optional<String> entityKind) {
     final ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<>();
 
@@ -397,7 +461,7 @@ public class TaskDcpBackend implements TaskBackend, StepBackend {
       termsBuilder.put("state", state.get().toUpperCase());
     }
 
-    return dcpClient.queryDocuments(TaskService.State.class, termsBuilder.build());
+    return termsBuilder.build();
   }
 
   @Override
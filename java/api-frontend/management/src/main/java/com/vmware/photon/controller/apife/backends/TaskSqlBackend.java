@@ -14,6 +14,7 @@
 package com.vmware.photon.controller.apife.backends;
 
 import com.vmware.photon.controller.api.Operation;
+import com.vmware.photon.controller.api.ResourceList;
 import com.vmware.photon.controller.api.Step;
 import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.api.common.db.Transactional;
@@ -25,6 +26,7 @@ import com.vmware.photon.controller.apife.entities.StepEntity;
 import com.vmware.photon.controller.apife.entities.TaskEntity;
 import com.vmware.photon.controller.apife.entities.base.InfrastructureEntity;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidQueryParamsException;
+import com.vmware.photon.controller.apife.utils.PaginationUtils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Optional;
@@ -101,6 +103,19 @@ public class TaskSqlBackend implements TaskBackend {
     return result;
   }
 
+  /**
+   * The tasks are not paginated by the SQL backend, they are all returned in a single page.
+   */
+  @Transactional
+  public ResourceList<Task> filter(Optional<String> entityId, Optional<String> entityKind, Optional<String> state,
+                                   Optional<Integer> pageSize) throws ExternalException {
+    if (pageSize.isPresent()) {
+      PaginationUtils.validatePageSize(pageSize);
+    }
+
+    return new ResourceList<>(filter(entityId, entityKind, state));
+  }
+
   @Transactional
   public List<Task> filterInProject(String projectId, Optional<String> state, Optional<String> kind) {
     List<TaskEntity> tasks = taskDao.findInProject(projectId, state, kind);
@@ -114,6 +129,32 @@ public class TaskSqlBackend implements TaskBackend {
     return result;
   }
 
+  /**
+   * The tasks are not paginated by the SQL backend, they are all returned in a single page.
+   */
+  @Transactional
+  public ResourceList<Task> filterInProject(String projectId, Optional<String> state, Optional<String> kind,
+                                            Optional<Integer> pageSize) throws ExternalException {
+    if (pageSize.isPresent()) {
+      PaginationUtils.validatePageSize(pageSize);
+    }
+
+    return new ResourceList<>(filterInProject(projectId, state, kind));
+  }
+
+  public ResourceList<Task> getTasksPage(String pageLink) throws ExternalException {
+    throw new InvalidQueryParamsException(String.format("The page link %s is invalid or has expired", pageLink));
+  }
+
+  public ResourceList<Task> getTasksPage(String entityId, String entityKind, String pageLink)
+      throws ExternalException {
+    return getTasksPage(pageLink);
+  }
+
+  public ResourceList<Task> getTasksInProjectPage(String projectId, String pageLink) throws ExternalException {
+    return getTasksPage(pageLink);
+  }
+
   @Transactional
   public TaskEntity createQueuedTask(BaseEntity entity, Operation operation) {
     TaskEntity task = new TaskEntity();
@@ -13,6 +13,8 @@
 
 package com.vmware.photon.controller.apife.backends;
 
+import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
 import com.vmware.dcp.services.common.QueryTask;
 import com.vmware.photon.controller.api.AttachedDisk;
 import com.vmware.photon.controller.api.AttachedDiskCreateSpec;
@@ -27,6 +29,7 @@ import com.vmware.photon.controller.api.NetworkState;
 import com.vmware.photon.controller.api.Operation;
 import com.vmware.photon.controller.api.PersistentDisk;
 import com.vmware.photon.controller.api.QuotaLineItem;
+import com.vmware.photon.controller.api.ResourceList;
 import com.vmware.photon.controller.api.Tag;
 import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.api.Vm;
@@ -51,12 +54,12 @@ import com.vmware.photon.controller.apife.entities.ImageEntity;
 import com.vmware.photon.controller.apife.entities.IsoEntity;
 import com.vmware.photon.controller.apife.entities.LocalityEntity;
 import com.vmware.photon.controller.apife.entities.NetworkEntity;
-import com.vmware.photon.controller.apife.entities.ProjectEntity;
 import com.vmware.photon.controller.apife.entities.QuotaLineItemEntity;
 import com.vmware.photon.controller.apife.entities.StepEntity;
 import com.vmware.photon.controller.apife.entities.TaskEntity;
 import com.vmware.photon.controller.apife.entities.VmEntity;
 import com.vmware.photon.controller.apife.exceptions.external.DiskNotFoundException;
+import com.vmware.photon.controller.apife.exceptions.external.ImageNotFoundException;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidFlavorStateException;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidImageStateException;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidVmDisksSpecException;
@@ -64,14 +67,27 @@ import com.vmware.photon.controller.apife.exceptions.external.InvalidVmStateExce
 import com.vmware.photon.controller.apife.exceptions.external.IsoAlreadyAttachedException;
 import com.vmware.photon.controller.apife.exceptions.external.MoreThanOneIsoAttachedException;
 import com.vmware.photon.controller.apife.exceptions.external.PersistentDiskAttachedException;
+import com.vmware.photon.controller.apife.exceptions.external.ProjectNotFoundException;
 import com.vmware.photon.controller.apife.exceptions.external.VmNotFoundException;
 import com.vmware.photon.controller.apife.lib.QuotaCost;
+import com.vmware.photon.controller.apife.utils.PaginationUtils;
+import com.vmware.photon.controller.cloudstore.dcp.entity.AttachedDiskService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.DiskService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.DiskServiceFactory;
+import com.vmware.photon.controller.cloudstore.dcp.entity.FlavorService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.FlavorServiceFactory;
+import com.vmware.photon.controller.cloudstore.dcp.entity.ImageService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.ImageServiceFactory;
+import com.vmware.photon.controller.cloudstore.dcp.entity.ProjectService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.ProjectServiceFactory;
 import com.vmware.photon.controller.cloudstore.dcp.entity.VmService;
 import com.vmware.photon.controller.cloudstore.dcp.entity.VmServiceFactory;
+import com.vmware.photon.controller.common.dcp.QueryTaskUtils;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
 import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundException;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -83,12 +99,15 @@ import org.slf4j.LoggerFactory;
 import java.io.InputStream;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -164,15 +183,40 @@ public class VmDcpBackend implements VmBackend {
           Optional.<String>absent());
     }
 
-    List<Vm> result = new ArrayList<>();
+    return toApiRepresentations(vms);
+  }
 
-    if (vms != null) {
-      for (VmEntity vm : vms) {
-        result.add(toApiRepresentation(vm));
-      }
+  @Override
+  public ResourceList<Vm> filter(String projectId, Optional<String> name, Optional<Integer> pageSize)
+      throws ExternalException {
+    if (!pageSize.isPresent()) {
+      return new ResourceList<>(filter(projectId, name));
     }
 
-    return result;
+    int validPageSize = PaginationUtils.validatePageSize(pageSize);
+    projectBackend.findById(projectId);
+    ImmutableMap<String, String> terms = buildVmTerms(
+        Optional.of(projectId),
+        Optional.<String>absent(),
+        name,
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.<String>absent());
+
+    return toApiRepresentationPage(dcpClient.queryDocumentPage(VmService.State.class, terms, validPageSize));
+  }
+
+  @Override
+  public ResourceList<Vm> getVmsPage(final String projectId, String pageLink) throws ExternalException {
+    projectBackend.findById(projectId);
+    return toApiRepresentationPage(PaginationUtils.queryDocumentPage(dcpClient, VmService.State.class, pageLink,
+        new Predicate<VmService.State>() {
+          @Override
+          public boolean apply(VmService.State vm) {
+            return projectId.equals(vm.projectId);
+          }
+        }));
   }
 
   @Override
@@ -192,15 +236,7 @@ public class VmDcpBackend implements VmBackend {
         Optional.<String>absent(),
         Optional.<String>absent());
 
-    List<Vm> result = new ArrayList<>();
-
-    if (vms != null) {
-      for (VmEntity vm : vms) {
-        result.add(toApiRepresentation(vm));
-      }
-    }
-
-    return result;
+    return toApiRepresentations(vms);
   }
 
   @Override
@@ -214,15 +250,7 @@ public class VmDcpBackend implements VmBackend {
         Optional.<String>absent(),
         Optional.<String>absent());
 
-    List<Vm> result = new ArrayList<>();
-
-    if (vms != null) {
-      for (VmEntity vm : vms) {
-        result.add(toApiRepresentation(vm));
-      }
-    }
-
-    return result;
+    return toApiRepresentations(vms);
   }
 
   @Override
@@ -236,15 +264,7 @@ public class VmDcpBackend implements VmBackend {
         Optional.of(imageId),
         Optional.<String>absent());
 
-    List<Vm> result = new ArrayList<>();
-
-    if (vms != null) {
-      for (VmEntity vm : vms) {
-        result.add(toApiRepresentation(vm));
-      }
-    }
-
-    return result;
+    return toApiRepresentations(vms);
   }
 
   @Override
@@ -258,15 +278,7 @@ public class VmDcpBackend implements VmBackend {
         Optional.<String>absent(),
         Optional.of(networkId));
 
-    List<Vm> result = new ArrayList<>();
-
-    if (vms != null) {
-      for (VmEntity vm : vms) {
-        result.add(toApiRepresentation(vm));
-      }
-    }
-
-    return result;
+    return toApiRepresentations(vms);
   }
 
 
@@ -565,21 +577,59 @@ public class VmDcpBackend implements VmBackend {
         Optional.<String>absent(),
         Optional.<String>absent());
 
-    List<Vm> result = new ArrayList<>();
+    return toApiRepresentations(vmEntities);
+  }
 
-    for (VmEntity vmEntity : vmEntities) {
-      result.add(toApiRepresentation(vmEntity));
+  @Override
+  public ResourceList<Vm> getAllVmsOnHost(String hostId, Optional<Integer> pageSize) throws ExternalException {
+    if (!pageSize.isPresent()) {
+      return new ResourceList<>(getAllVmsOnHost(hostId));
     }
-    return result;
+
+    int validPageSize = PaginationUtils.validatePageSize(pageSize);
+    HostEntity hostEntity = hostBackend.findById(hostId);
+    ImmutableMap<String, String> terms = buildVmTerms(
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.of(hostEntity.getAddress()),
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.<String>absent());
+
+    return toApiRepresentationPage(dcpClient.queryDocumentPage(VmService.State.class, terms, validPageSize));
+  }
+
+  @Override
+  public ResourceList<Vm> getVmsOnHostPage(String hostId, String pageLink) throws ExternalException {
+    final String hostAddress = hostBackend.findById(hostId).getAddress();
+    return toApiRepresentationPage(PaginationUtils.queryDocumentPage(dcpClient, VmService.State.class, pageLink,
+        new Predicate<VmService.State>() {
+          @Override
+          public boolean apply(VmService.State vm) {
+            return hostAddress.equals(vm.host);
+          }
+        }));
   }
 
   @Override
   public int countVmsOnHost(HostEntity hostEntity) throws ExternalException {
-    List<Vm> vms = getAllVmsOnHost(hostEntity.getId());
-    if (vms != null) {
-      return vms.size();
+    // only the documents are counted, the VMs do not need to be rendered
+    Iterator<VmService.State> vms = filterVmDocuments(
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.of(hostEntity.getAddress()),
+        Optional.<String>absent(),
+        Optional.<String>absent(),
+        Optional.<String>absent());
+
+    int count = 0;
+    while (vms.hasNext()) {
+      vms.next();
+      count++;
     }
-    return 0;
+    return count;
   }
 
   @Override
@@ -703,7 +753,15 @@ public class VmDcpBackend implements VmBackend {
 
   private VmEntity create(String projectId, VmCreateSpec spec) throws ExternalException {
     Stopwatch createWatch = Stopwatch.createStarted();
-    ProjectEntity project = projectBackend.findById(projectId);
+
+    // the project and the image do not depend on each other nor on the flavor, fetch them while the flavor is
+    // queried instead of one after the other
+    CompletableFuture<com.vmware.dcp.common.Operation> projectFuture =
+        dcpClient.getAsync(ProjectServiceFactory.SELF_LINK + "/" + projectId);
+    CompletableFuture<com.vmware.dcp.common.Operation> imageFuture =
+        dcpClient.getAsync(ImageServiceFactory.SELF_LINK + "/" + spec.getSourceImageId());
+
+    ProjectService.State project = getProject(projectId, projectFuture);
     FlavorEntity flavorEntity = flavorBackend.getEntityByNameAndKind(spec.getFlavor(), Vm.KIND);
     if (!FlavorState.READY.equals(flavorEntity.getState())) {
       throw new InvalidFlavorStateException(
@@ -737,21 +795,22 @@ public class VmDcpBackend implements VmBackend {
 
     vm.networks = spec.getNetworks();
 
-    ImageEntity image = imageBackend.findById(spec.getSourceImageId());
+    ImageService.State image = getImage(spec.getSourceImageId(), imageFuture);
+    String imageId = ServiceUtils.getIDFromDocumentSelfLink(image.documentSelfLink);
 
-    if (!ImageState.READY.equals(image.getState())) {
+    if (!ImageState.READY.equals(image.state)) {
       throw new InvalidImageStateException(
-          String.format("Image %s is in %s state", image.getId(), image.getState()));
+          String.format("Image %s is in %s state", imageId, image.state));
     }
 
-    vm.imageId = image.getId();
+    vm.imageId = imageId;
     List<Throwable> warnings = new ArrayList<>();
-    updateBootDiskCapacity(spec.getAttachedDisks(), image, warnings);
+    updateBootDiskCapacity(spec.getAttachedDisks(), imageId, image.size, warnings);
 
-    vm.projectId = project.getId();
+    vm.projectId = ServiceUtils.getIDFromDocumentSelfLink(project.documentSelfLink);
     vm.vmState = VmState.CREATING;
 
-    String resourceTickedId = project.getResourceTicketId();
+    String resourceTickedId = project.resourceTicketId;
 
     Stopwatch resourceTicketWatch = Stopwatch.createStarted();
     resourceTicketBackend.consumeQuota(resourceTickedId, new QuotaCost(cost));
@@ -782,6 +841,24 @@ public class VmDcpBackend implements VmBackend {
     return vmEntity;
   }
 
+  private ProjectService.State getProject(String projectId, CompletableFuture<com.vmware.dcp.common.Operation> future)
+      throws ProjectNotFoundException {
+    try {
+      return dcpClient.awaitAsync(future).getBody(ProjectService.State.class);
+    } catch (DocumentNotFoundException documentNotFoundException) {
+      throw new ProjectNotFoundException(projectId);
+    }
+  }
+
+  private ImageService.State getImage(String imageId, CompletableFuture<com.vmware.dcp.common.Operation> future)
+      throws ImageNotFoundException {
+    try {
+      return dcpClient.awaitAsync(future).getBody(ImageService.State.class);
+    } catch (DocumentNotFoundException documentNotFoundException) {
+      throw new ImageNotFoundException(ImageNotFoundException.Type.ID, imageId);
+    }
+  }
+
   private TaskEntity createTask(VmEntity vm) throws ExternalException {
 
     List<StepEntity> stepEntities = new ArrayList<>();
@@ -817,21 +894,22 @@ public class VmDcpBackend implements VmBackend {
   /**
    * Find boot disk and update capacityGb to be image size.
    */
-  private void updateBootDiskCapacity(List<AttachedDiskCreateSpec> disks, ImageEntity image, List<Throwable> warnings)
+  private void updateBootDiskCapacity(List<AttachedDiskCreateSpec> disks, String imageId, Long imageSize,
+                                      List<Throwable> warnings)
       throws InvalidVmDisksSpecException, InvalidEntityException {
     for (AttachedDiskCreateSpec disk : disks) {
       if (disk.isBootDisk()) {
-        if (image.getSize() == null) {
+        if (imageSize == null) {
           throw new InvalidEntityException(
-              "Image " + image.getId() + " has null size",
-              ImmutableList.of("Image " + image.toString() + " has null size"));
+              "Image " + imageId + " has null size",
+              ImmutableList.of("Image " + imageId + " has null size"));
         }
 
         if (disk.getCapacityGb() != null) {
           warnings.add(new InvalidVmDisksSpecException("Specified boot disk capacityGb is not used"));
         }
 
-        disk.setCapacityGb((int) (image.getSize() / GB_TO_BYTE_CONVERSION_RATIO));
+        disk.setCapacityGb((int) (imageSize / GB_TO_BYTE_CONVERSION_RATIO));
         return;
       }
     }
@@ -840,54 +918,135 @@ public class VmDcpBackend implements VmBackend {
   }
 
   private Vm toApiRepresentation(VmEntity vmEntity) throws ExternalException {
-    Vm vm = new Vm();
+    return toApiRepresentations(ImmutableList.of(vmEntity)).get(0);
+  }
 
-    vm.setId(vmEntity.getId());
-    vm.setName(vmEntity.getName());
-    FlavorEntity flavorEntity = flavorBackend.getEntityById(vmEntity.getFlavorId());
-    vm.setFlavor(flavorEntity.getName());
+  /**
+   * Builds the API representation of the VMs. The flavors, attached disks and disks of all the VMs are fetched
+   * with a few batched queries and joined in memory, instead of being looked up one VM and one disk at a time.
+   */
+  private List<Vm> toApiRepresentations(List<VmEntity> vmEntities) throws ExternalException {
+    List<Vm> result = new ArrayList<>(vmEntities.size());
+    if (vmEntities.isEmpty()) {
+      return result;
+    }
 
-    if (StringUtils.isNotBlank(vmEntity.getImageId())) {
-      vm.setSourceImageId(vmEntity.getImageId());
+    Set<String> vmIds = new HashSet<>();
+    Set<String> flavorLinks = new HashSet<>();
+    for (VmEntity vmEntity : vmEntities) {
+      vmIds.add(vmEntity.getId());
+      flavorLinks.add(FlavorServiceFactory.SELF_LINK + "/" + vmEntity.getFlavorId());
     }
 
-    vm.setState(vmEntity.getState());
-    vm.setHost(vmEntity.getHost());
-    vm.setDatastore(vmEntity.getDatastore());
-    vm.setProjectId(vmEntity.getProjectId());
+    Map<String, String> flavorNames = new HashMap<>();
+    for (FlavorService.State flavor : dcpClient.queryDocuments(
+        FlavorService.State.class, ServiceDocument.FIELD_NAME_SELF_LINK, flavorLinks)) {
+      flavorNames.put(ServiceUtils.getIDFromDocumentSelfLink(flavor.documentSelfLink), flavor.name);
+    }
 
-    List<AttachedDisk> disks = new ArrayList<>();
-    Set<String> tags = new HashSet<>();
+    Map<String, List<AttachedDiskService.State>> attachedDisksByVmId = new HashMap<>();
+    Set<String> diskLinks = new HashSet<>();
+    for (AttachedDiskService.State attachedDisk : dcpClient.queryDocuments(
+        AttachedDiskService.State.class, "vmId", vmIds)) {
+      List<AttachedDiskService.State> attachedDisks = attachedDisksByVmId.get(attachedDisk.vmId);
+      if (attachedDisks == null) {
+        attachedDisks = new ArrayList<>();
+        attachedDisksByVmId.put(attachedDisk.vmId, attachedDisks);
+      }
+      attachedDisks.add(attachedDisk);
+      diskLinks.add(DiskServiceFactory.SELF_LINK + "/" + getUnderlyingDiskId(attachedDisk));
+    }
 
-    for (AttachedDiskEntity attachedDisk : attachedDiskBackend.findByVmId(vmEntity.getId())) {
-      AttachedDisk disk = new AttachedDisk();
+    Map<String, DiskService.State> disks = new HashMap<>();
+    for (DiskService.State disk : dcpClient.queryDocuments(
+        DiskService.State.class, ServiceDocument.FIELD_NAME_SELF_LINK, diskLinks)) {
+      disks.put(ServiceUtils.getIDFromDocumentSelfLink(disk.documentSelfLink), disk);
+    }
 
-      disk.setId(attachedDisk.getUnderlyingDiskId());
-      disk.setKind(attachedDisk.getKind());
-      BaseDiskEntity underlyingDisk = diskBackend.find(attachedDisk.getKind(), attachedDisk.getUnderlyingDiskId());
-      disk.setName(underlyingDisk.getName());
-      disk.setFlavor(underlyingDisk.getFlavorId());
-      disk.setCapacityGb(underlyingDisk.getCapacityGb());
-      disk.setBootDisk(attachedDisk.isBootDisk());
-      disk.setState(underlyingDisk.getState().toString());
+    for (VmEntity vmEntity : vmEntities) {
+      Vm vm = new Vm();
+
+      vm.setId(vmEntity.getId());
+      vm.setName(vmEntity.getName());
+      String flavorName = flavorNames.get(vmEntity.getFlavorId());
+      if (flavorName == null) {
+        // the lookup reports a missing flavor
+        flavorName = flavorBackend.getEntityById(vmEntity.getFlavorId()).getName();
+      }
+      vm.setFlavor(flavorName);
 
-      disks.add(disk);
-    }
+      if (StringUtils.isNotBlank(vmEntity.getImageId())) {
+        vm.setSourceImageId(vmEntity.getImageId());
+      }
 
-    for (TagEntity tag : vmEntity.getTags()) {
-      tags.add(tag.getValue());
+      vm.setState(vmEntity.getState());
+      vm.setHost(vmEntity.getHost());
+      vm.setDatastore(vmEntity.getDatastore());
+      vm.setProjectId(vmEntity.getProjectId());
+
+      List<AttachedDisk> attachedDisks = new ArrayList<>();
+      Set<String> tags = new HashSet<>();
+
+      List<AttachedDiskService.State> attachedDiskStates = attachedDisksByVmId.get(vmEntity.getId());
+      if (attachedDiskStates != null) {
+        for (AttachedDiskService.State attachedDisk : attachedDiskStates) {
+          attachedDisks.add(toAttachedDisk(attachedDisk, disks.get(getUnderlyingDiskId(attachedDisk))));
+        }
+      }
+
+      for (TagEntity tag : vmEntity.getTags()) {
+        tags.add(tag.getValue());
+      }
+
+      vm.setAttachedDisks(attachedDisks);
+      vm.setTags(tags);
+
+      vm.setMetadata(vmEntity.getMetadata());
+
+      for (IsoEntity isoEntity : vmEntity.getIsos()) {
+        vm.addAttachedIso(isoToApiRepresentation(isoEntity));
+      }
+
+      result.add(vm);
     }
 
-    vm.setAttachedDisks(disks);
-    vm.setTags(tags);
+    return result;
+  }
+
+  private AttachedDisk toAttachedDisk(AttachedDiskService.State attachedDisk, DiskService.State underlyingDisk)
+      throws ExternalException {
+    AttachedDisk disk = new AttachedDisk();
 
-    vm.setMetadata(vmEntity.getMetadata());
+    disk.setId(getUnderlyingDiskId(attachedDisk));
+    disk.setKind(attachedDisk.kind);
+    disk.setBootDisk(attachedDisk.bootDisk);
 
-    for (IsoEntity isoEntity : vmEntity.getIsos()) {
-      vm.addAttachedIso(isoToApiRepresentation(isoEntity));
+    if (underlyingDisk != null) {
+      disk.setName(underlyingDisk.name);
+      disk.setFlavor(underlyingDisk.flavorId);
+      disk.setCapacityGb(underlyingDisk.capacityGb);
+      disk.setState(underlyingDisk.state.toString());
+    } else {
+      // the lookup reports a missing disk
+      BaseDiskEntity diskEntity = diskBackend.find(attachedDisk.kind, disk.getId());
+      disk.setName(diskEntity.getName());
+      disk.setFlavor(diskEntity.getFlavorId());
+      disk.setCapacityGb(diskEntity.getCapacityGb());
+      disk.setState(diskEntity.getState().toString());
     }
 
-    return vm;
+    return disk;
+  }
+
+  private static String getUnderlyingDiskId(AttachedDiskService.State attachedDisk) {
+    switch (attachedDisk.kind) {
+      case PersistentDisk.KIND:
+        return attachedDisk.persistentDiskId;
+      case EphemeralDisk.KIND:
+        return attachedDisk.ephemeralDiskId;
+      default:
+        throw new IllegalStateException("Unknown disk kind: " + attachedDisk.kind);
+    }
   }
 
   private List<VmEntity> filterVmEntities(
@@ -895,16 +1054,32 @@ public class VmDcpBackend implements VmBackend {
       Optional<String> flavorId, Optional<String> imageId, Optional<String> networkId) {
 
     List<VmEntity> vmEntityList = new ArrayList<>();
-    List<VmService.State> vms = filterVmDocuments(projectId, tag, name, host, flavorId, imageId, networkId);
-    if (vms != null) {
-      for (VmService.State vm : vms) {
-        vmEntityList.add(toVmEntity(vm));
-      }
+    Iterator<VmService.State> vms = filterVmDocuments(projectId, tag, name, host, flavorId, imageId, networkId);
+    while (vms.hasNext()) {
+      vmEntityList.add(toVmEntity(vms.next()));
     }
     return vmEntityList;
   }
 
-  private List<VmService.State> filterVmDocuments(
+  private ResourceList<Vm> toApiRepresentationPage(ServiceDocumentQueryResult queryResult) throws ExternalException {
+    List<VmEntity> vmEntities = new ArrayList<>();
+    for (VmService.State vm : QueryTaskUtils.getQueryResultDocuments(VmService.State.class, queryResult)) {
+      vmEntities.add(toVmEntity(vm));
+    }
+
+    return new ResourceList<>(toApiRepresentations(vmEntities), queryResult.nextPageLink, null);
+  }
+
+  private Iterator<VmService.State> filterVmDocuments(
+      Optional<String> projectId, Optional<String> tag, Optional<String> name, Optional<String> host,
+      Optional<String> flavorId, Optional<String> imageId, Optional<String> networkId) {
+
+    return dcpClient.queryDocumentsPaged(VmService.State.class,
+        buildVmTerms(projectId, tag, name, host, flavorId, imageId, networkId),
+        ApiFeDcpRestClient.DOCUMENT_PAGE_SIZE);
+  }
+
+  private ImmutableMap<String, String> buildVmTerms(
       Optional<String> projectId, Optional<String> tag, Optional<String> name, Optional<String> host,
       Optional<String> flavorId, Optional<String> imageId, Optional<String> networkId) {
 
@@ -942,7 +1117,7 @@ public class VmDcpBackend implements VmBackend {
       termsBuilder.put(key, networkId.get());
     }
 
-    return dcpClient.queryDocuments(VmService.State.class, termsBuilder.build());
+    return termsBuilder.build();
   }
 
   private TaskEntity deleteTask(VmEntity vm) throws ExternalException {
@@ -22,6 +22,7 @@ import com.vmware.photon.controller.api.ImageCreateSpec;
 import com.vmware.photon.controller.api.ImageState;
 import com.vmware.photon.controller.api.Iso;
 import com.vmware.photon.controller.api.Operation;
+import com.vmware.photon.controller.api.ResourceList;
 import com.vmware.photon.controller.api.Tag;
 import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.api.Vm;
@@ -53,12 +54,14 @@ import com.vmware.photon.controller.apife.entities.VmEntity;
 import com.vmware.photon.controller.apife.exceptions.external.DiskNotFoundException;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidFlavorStateException;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidImageStateException;
+import com.vmware.photon.controller.apife.exceptions.external.InvalidQueryParamsException;
 import com.vmware.photon.controller.apife.exceptions.external.InvalidVmDisksSpecException;
 import com.vmware.photon.controller.apife.exceptions.external.IsoAlreadyAttachedException;
 import com.vmware.photon.controller.apife.exceptions.external.MoreThanOneIsoAttachedException;
 import com.vmware.photon.controller.apife.exceptions.external.PersistentDiskAttachedException;
 import com.vmware.photon.controller.apife.exceptions.external.VmNotFoundException;
 import com.vmware.photon.controller.apife.lib.QuotaCost;
+import com.vmware.photon.controller.apife.utils.PaginationUtils;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
@@ -160,6 +163,25 @@ public class VmSqlBackend implements VmBackend {
     return result;
   }
 
+  /**
+   * The VMs are not paginated by the SQL backend, they are all returned in a single page.
+   */
+  @Override
+  @Transactional
+  public ResourceList<Vm> filter(String projectId, Optional<String> name, Optional<Integer> pageSize)
+      throws ExternalException {
+    if (pageSize.isPresent()) {
+      PaginationUtils.validatePageSize(pageSize);
+    }
+
+    return new ResourceList<>(filter(projectId, name));
+  }
+
+  @Override
+  public ResourceList<Vm> getVmsPage(String projectId, String pageLink) throws ExternalException {
+    throw new InvalidQueryParamsException(String.format("The page link %s is invalid or has expired", pageLink));
+  }
+
   @Override
   @Transactional
   public List<Vm> filterByProject(String projectId) throws ExternalException {
@@ -445,6 +467,24 @@ public class VmSqlBackend implements VmBackend {
     return vms;
   }
 
+  /**
+   * The VMs are not paginated by the SQL backend, they are all returned in a single page.
+   */
+  @Override
+  @Transactional
+  public ResourceList<Vm> getAllVmsOnHost(String hostId, Optional<Integer> pageSize) throws ExternalException {
+    if (pageSize.isPresent()) {
+      PaginationUtils.validatePageSize(pageSize);
+    }
+
+    return new ResourceList<>(getAllVmsOnHost(hostId));
+  }
+
+  @Override
+  public ResourceList<Vm> getVmsOnHostPage(String hostId, String pageLink) throws ExternalException {
+    throw new InvalidQueryParamsException(String.format("The page link %s is invalid or has expired", pageLink));
+  }
+
   @Override
   @Transactional
   public int countVmsOnHost(HostEntity hostEntity) {
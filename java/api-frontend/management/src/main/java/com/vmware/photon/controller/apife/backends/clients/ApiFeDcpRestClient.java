@@ -15,6 +15,7 @@ package com.vmware.photon.controller.apife.backends.clients;
 
 import com.vmware.dcp.common.Operation;
 import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
 import com.vmware.dcp.services.common.QueryTask;
 import com.vmware.photon.controller.apife.BackendTaskExecutor;
 import com.vmware.photon.controller.common.CloudStoreServerSet;
@@ -31,7 +32,10 @@ import com.google.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeoutException;
 
@@ -42,6 +46,11 @@ import java.util.concurrent.TimeoutException;
 @Singleton
 public class ApiFeDcpRestClient extends DcpRestClient {
 
+  /**
+   * Number of documents fetched per result page by the paginated queries of the API-FE backends.
+   */
+  public static final int DOCUMENT_PAGE_SIZE = 1000;
+
   private static final Logger logger = LoggerFactory.getLogger(ApiFeDcpRestClient.class);
 
   @Inject
@@ -123,6 +132,20 @@ public class ApiFeDcpRestClient extends DcpRestClient {
     }
   }
 
+  @Override
+  public Operation awaitAsync(CompletableFuture<Operation> future) throws DocumentNotFoundException {
+    try {
+      return super.awaitAsync(future);
+    } catch (BadRequestException badRequestException) {
+      throw new DcpRuntimeException(badRequestException);
+    } catch (TimeoutException timeoutException) {
+      throw new RuntimeException(timeoutException);
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(interruptedException);
+    }
+  }
+
   @Override
   public <T extends ServiceDocument> List<T> queryDocuments(Class<T> documentType,
                                                             ImmutableMap<String, String> terms) {
@@ -137,6 +160,21 @@ public class ApiFeDcpRestClient extends DcpRestClient {
     }
   }
 
+  @Override
+  public <T extends ServiceDocument> List<T> queryDocuments(Class<T> documentType,
+                                                            String propertyName,
+                                                            Collection<String> values) {
+    try {
+      return super.queryDocuments(documentType, propertyName, values);
+    } catch (DocumentNotFoundException documentNotFoundException) {
+      throw new DcpRuntimeException(documentNotFoundException);
+    } catch (BadRequestException badRequestException) {
+      throw new DcpRuntimeException(badRequestException);
+    } catch (TimeoutException | InterruptedException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
   @Override
   public <T extends ServiceDocument> List<String> queryDocumentsForLinks(Class<T> documentType,
                                                                          ImmutableMap<String, String> terms) {
@@ -151,6 +189,47 @@ public class ApiFeDcpRestClient extends DcpRestClient {
     }
   }
 
+  @Override
+  public <T extends ServiceDocument> Iterator<T> queryDocumentsPaged(Class<T> documentType,
+                                                                     ImmutableMap<String, String> terms,
+                                                                     int pageSize) {
+    try {
+      return super.queryDocumentsPaged(documentType, terms, pageSize);
+    } catch (DocumentNotFoundException documentNotFoundException) {
+      throw new DcpRuntimeException(documentNotFoundException);
+    } catch (BadRequestException badRequestException) {
+      throw new DcpRuntimeException(badRequestException);
+    } catch (TimeoutException | InterruptedException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  @Override
+  public <T extends ServiceDocument> ServiceDocumentQueryResult queryDocumentPage(Class<T> documentType,
+                                                                                  ImmutableMap<String, String> terms,
+                                                                                  int pageSize) {
+    try {
+      return super.queryDocumentPage(documentType, terms, pageSize);
+    } catch (DocumentNotFoundException documentNotFoundException) {
+      throw new DcpRuntimeException(documentNotFoundException);
+    } catch (BadRequestException badRequestException) {
+      throw new DcpRuntimeException(badRequestException);
+    } catch (TimeoutException | InterruptedException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  @Override
+  public ServiceDocumentQueryResult queryDocumentPage(String pageLink) throws DocumentNotFoundException {
+    try {
+      return super.queryDocumentPage(pageLink);
+    } catch (BadRequestException badRequestException) {
+      throw new DcpRuntimeException(badRequestException);
+    } catch (TimeoutException | InterruptedException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
   @VisibleForTesting
   @Override
   protected void handleTimeoutException(Operation operation, TimeoutException timeoutException) {
@@ -27,6 +27,7 @@ import com.vmware.photon.controller.apife.commands.tasks.TaskCommand;
 import com.vmware.photon.controller.apife.commands.tasks.TaskCommandFactory;
 import com.vmware.photon.controller.apife.entities.TaskEntity;
 
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.slf4j.Logger;
@@ -121,8 +122,12 @@ public class HostFeClient {
     return new ResourceList<>(hostBackend.listAll());
   }
 
-  public ResourceList<Vm> listAllVms(String id) throws ExternalException {
-    return new ResourceList<>(vmBackend.getAllVmsOnHost(id));
+  public ResourceList<Vm> listAllVms(String id, Optional<Integer> pageSize) throws ExternalException {
+    return vmBackend.getAllVmsOnHost(id, pageSize);
+  }
+
+  public ResourceList<Vm> getVmsPage(String id, String pageLink) throws ExternalException {
+    return vmBackend.getVmsOnHostPage(id, pageLink);
   }
 
   public Host getHost(String id) throws ExternalException {
@@ -85,16 +85,36 @@ public class TaskFeClient {
     return new ResourceList<>(taskBackend.filter(entityId, entityKind, state));
   }
 
-  public ResourceList<Task> getTenantTasks(String tenantId, Optional<String> state)
+  public ResourceList<Task> find(Optional<String> entityId, Optional<String> entityKind, Optional<String> state,
+                                 Optional<Integer> pageSize) throws ExternalException {
+    return taskBackend.filter(entityId, entityKind, state, pageSize);
+  }
+
+  public ResourceList<Task> getTenantTasks(String tenantId, Optional<String> state, Optional<Integer> pageSize)
       throws ExternalException {
     tenantBackend.findById(tenantId);
-    return new ResourceList<>(taskBackend.filter(Optional.of(tenantId), Optional.of(TenantEntity.KIND), state));
+    return taskBackend.filter(Optional.of(tenantId), Optional.of(TenantEntity.KIND), state, pageSize);
   }
 
   public ResourceList<Task> getProjectTasks(String projectId, Optional<String> state,
-                                            Optional<String> kind) throws ExternalException {
+                                            Optional<String> kind, Optional<Integer> pageSize)
+      throws ExternalException {
+    projectBackend.findById(projectId);
+    return taskBackend.filterInProject(projectId, state, kind, pageSize);
+  }
+
+  public ResourceList<Task> getTasksPage(String pageLink) throws ExternalException {
+    return taskBackend.getTasksPage(pageLink);
+  }
+
+  public ResourceList<Task> getTenantTasksPage(String tenantId, String pageLink) throws ExternalException {
+    tenantBackend.findById(tenantId);
+    return taskBackend.getTasksPage(tenantId, TenantEntity.KIND, pageLink);
+  }
+
+  public ResourceList<Task> getProjectTasksPage(String projectId, String pageLink) throws ExternalException {
     projectBackend.findById(projectId);
-    return new ResourceList<>(taskBackend.filterInProject(projectId, state, kind));
+    return taskBackend.getTasksInProjectPage(projectId, pageLink);
   }
 
   public ResourceList<Task> getResourceTicketTasks(String resourceTicketId, Optional<String> state)
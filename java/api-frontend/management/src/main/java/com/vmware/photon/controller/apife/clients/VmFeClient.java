@@ -70,6 +70,15 @@ public class VmFeClient {
     return new ResourceList<>(vmBackend.filter(projectId, name));
   }
 
+  public ResourceList<Vm> find(String projectId, Optional<String> name, Optional<Integer> pageSize)
+      throws ExternalException {
+    return vmBackend.filter(projectId, name, pageSize);
+  }
+
+  public ResourceList<Vm> getVmsPage(String projectId, String pageLink) throws ExternalException {
+    return vmBackend.getVmsPage(projectId, pageLink);
+  }
+
   public Task create(String projectId, VmCreateSpec spec) throws ExternalException {
     TaskEntity taskEntity = vmBackend.prepareVmCreate(projectId, spec);
     Task task = taskBackend.getApiRepresentation(taskEntity);
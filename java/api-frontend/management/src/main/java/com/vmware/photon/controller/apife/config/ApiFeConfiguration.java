@@ -76,6 +76,10 @@ public class ApiFeConfiguration extends Configuration {
   @JsonProperty
   private MaintenanceConfig maintenance = new MaintenanceConfig();
 
+  @Valid
+  @JsonProperty("quota_escrow")
+  private QuotaEscrowConfig quotaEscrow = new QuotaEscrowConfig();
+
   public AuthConfig getAuth() {
     return this.auth;
   }
@@ -118,6 +122,10 @@ public class ApiFeConfiguration extends Configuration {
     return maintenance;
   }
 
+  public QuotaEscrowConfig getQuotaEscrowConfig() {
+    return quotaEscrow;
+  }
+
   public StatusConfig getStatusConfig() {
     return statusConfig;
   }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.apife.config;
+
+import com.codahale.dropwizard.util.Duration;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.validator.constraints.Range;
+
+/**
+ * Configuration for reserving resource ticket quota in blocks on this API frontend.
+ */
+public class QuotaEscrowConfig {
+
+  private static final Duration DEFAULT_RELEASE_INTERVAL = Duration.seconds(30);
+
+  @JsonProperty
+  private boolean enabled = false;
+
+  /**
+   * The largest number of extra copies of a cost reserved along with it.
+   */
+  @Range(min = 1, max = 1000)
+  @JsonProperty("max_escrow_multiple")
+  private int maxEscrowMultiple = 10;
+
+  /**
+   * How often unspent escrow is returned to the resource tickets. Quota escrowed on one frontend is counted as used
+   * by the others until it is returned, so this bounds how long a cost close to the limit can be rejected because
+   * of it.
+   */
+  @JsonProperty("release_interval")
+  private Duration releaseInterval = DEFAULT_RELEASE_INTERVAL;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getMaxEscrowMultiple() {
+    return maxEscrowMultiple;
+  }
+
+  public void setMaxEscrowMultiple(int maxEscrowMultiple) {
+    this.maxEscrowMultiple = maxEscrowMultiple;
+  }
+
+  public Duration getReleaseInterval() {
+    return releaseInterval;
+  }
+}
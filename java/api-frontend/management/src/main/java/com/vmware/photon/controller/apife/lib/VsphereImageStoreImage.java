@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -53,8 +54,16 @@ public class VsphereImageStoreImage implements Image {
       String imagePath = getImageFilePath(fileName);
       logger.info("write to {}", imagePath);
       try (NfcFileOutputStream outputStream = nfcClient.putFile(imagePath, fileSize)) {
-        for (int i = 0; i < fileSize; i++) {
-          outputStream.write(inputStream.read());
+        byte[] buffer = new byte[NfcClient.MAX_XFER_SIZE];
+        long remaining = fileSize;
+        while (remaining > 0) {
+          int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+          if (read < 0) {
+            throw new EOFException(String.format("%s ended after %d of %d bytes", fileName,
+                fileSize - remaining, fileSize));
+          }
+          outputStream.write(buffer, 0, read);
+          remaining -= read;
         }
       }
       return fileSize;
@@ -78,7 +87,7 @@ public class VsphereImageStoreImage implements Image {
     int singleExtentSize = VmdkMetadata.getSingleExtentSize(inputStream);
     String imagePath = getImageFilePath(fileName);
     logger.info("write to {}", imagePath);
-    nfcClient.putStreamOptimizedDisk(imagePath, inputStream);
+    nfcClient.putStreamOptimizedDisk(imagePath, inputStream, Runtime.getRuntime().availableProcessors());
     return singleExtentSize * 512L; // a sector is 512 bytes
   }
 
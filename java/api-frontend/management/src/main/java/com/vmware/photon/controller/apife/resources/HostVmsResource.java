@@ -21,6 +21,7 @@ import com.vmware.photon.controller.apife.resources.routes.HostResourceRoutes;
 import com.vmware.photon.controller.apife.resources.routes.VmResourceRoutes;
 import static com.vmware.photon.controller.api.common.Responses.generateResourceListResponse;
 
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
@@ -31,6 +32,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Request;
@@ -55,11 +57,21 @@ public class HostVmsResource {
   @GET
   @ApiOperation(value = "Find all Vms associated with the Host", response = Vm.class,
       responseContainer = ResourceList.CLASS_NAME)
-  public Response get(@Context Request request, @PathParam("id") String id)
+  public Response get(@Context Request request,
+                      @PathParam("id") String id,
+                      @QueryParam("pageSize") Optional<Integer> pageSize,
+                      @QueryParam("pageLink") Optional<String> pageLink)
       throws ExternalException {
+    ResourceList<Vm> resourceList;
+    if (pageLink.isPresent()) {
+      resourceList = hostFeClient.getVmsPage(id, pageLink.get());
+    } else {
+      resourceList = hostFeClient.listAllVms(id, pageSize);
+    }
+
     return generateResourceListResponse(
         Response.Status.OK,
-        hostFeClient.listAllVms(id),
+        resourceList,
         (ContainerRequest) request,
         VmResourceRoutes.VM_PATH);
   }
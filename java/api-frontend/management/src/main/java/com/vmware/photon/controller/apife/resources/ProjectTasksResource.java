@@ -65,10 +65,19 @@ public class ProjectTasksResource {
   public Response get(@Context Request request,
                       @PathParam("id") String id,
                       @QueryParam("state") Optional<String> state,
-                      @QueryParam("kind") Optional<String> kind) throws ExternalException {
+                      @QueryParam("kind") Optional<String> kind,
+                      @QueryParam("pageSize") Optional<Integer> pageSize,
+                      @QueryParam("pageLink") Optional<String> pageLink) throws ExternalException {
+    ResourceList<Task> resourceList;
+    if (pageLink.isPresent()) {
+      resourceList = taskFeClient.getProjectTasksPage(id, pageLink.get());
+    } else {
+      resourceList = taskFeClient.getProjectTasks(id, state, kind, pageSize);
+    }
+
     return generateResourceListResponse(
         Response.Status.OK,
-        taskFeClient.getProjectTasks(id, state, kind),
+        resourceList,
         (ContainerRequest) request,
         TaskResourceRoutes.TASK_PATH);
   }
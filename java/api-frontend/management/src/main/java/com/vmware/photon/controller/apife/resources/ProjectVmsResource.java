@@ -98,11 +98,20 @@ public class ProjectVmsResource {
       response = Vm.class, responseContainer = ResourceList.CLASS_NAME)
   @ApiResponses(value = {@ApiResponse(code = 200, message = "List of VMs in the project")})
   public Response find(@PathParam("id") String projectId,
-                       @QueryParam("name") Optional<String> name)
+                       @QueryParam("name") Optional<String> name,
+                       @QueryParam("pageSize") Optional<Integer> pageSize,
+                       @QueryParam("pageLink") Optional<String> pageLink)
       throws ExternalException {
+    ResourceList<Vm> resourceList;
+    if (pageLink.isPresent()) {
+      resourceList = vmFeClient.getVmsPage(projectId, pageLink.get());
+    } else {
+      resourceList = vmFeClient.find(projectId, name, pageSize);
+    }
+
     return generateResourceListResponse(
         Response.Status.OK,
-        vmFeClient.find(projectId, name));
+        resourceList);
   }
 
   private void validate(VmCreateSpec spec) throws InvalidVmNetworksSpecException, InvalidVmDisksSpecException,
@@ -61,10 +61,19 @@ public class TasksResource {
   public Response find(@Context Request request,
                        @QueryParam("entityId") Optional<String> entityId,
                        @QueryParam("entityKind") Optional<String> entityKind,
-                       @QueryParam("state") Optional<String> state) throws ExternalException {
+                       @QueryParam("state") Optional<String> state,
+                       @QueryParam("pageSize") Optional<Integer> pageSize,
+                       @QueryParam("pageLink") Optional<String> pageLink) throws ExternalException {
+    ResourceList<Task> resourceList;
+    if (pageLink.isPresent()) {
+      resourceList = taskFeClient.getTasksPage(pageLink.get());
+    } else {
+      resourceList = taskFeClient.find(entityId, entityKind, state, pageSize);
+    }
+
     return generateResourceListResponse(
         Response.Status.OK,
-        taskFeClient.find(entityId, entityKind, state),
+        resourceList,
         (ContainerRequest) request,
         TaskResourceRoutes.TASK_PATH);
 
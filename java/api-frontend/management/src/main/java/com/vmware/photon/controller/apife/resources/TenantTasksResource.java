@@ -64,10 +64,19 @@ public class TenantTasksResource {
   })
   public Response get(@Context Request request,
                       @PathParam("id") String id,
-                      @QueryParam("state") Optional<String> state) throws ExternalException {
+                      @QueryParam("state") Optional<String> state,
+                      @QueryParam("pageSize") Optional<Integer> pageSize,
+                      @QueryParam("pageLink") Optional<String> pageLink) throws ExternalException {
+    ResourceList<Task> resourceList;
+    if (pageLink.isPresent()) {
+      resourceList = taskFeClient.getTenantTasksPage(id, pageLink.get());
+    } else {
+      resourceList = taskFeClient.getTenantTasks(id, state, pageSize);
+    }
+
     return generateResourceListResponse(
         Response.Status.OK,
-        taskFeClient.getTenantTasks(id, state),
+        resourceList,
         (ContainerRequest) request,
         TaskResourceRoutes.TASK_PATH);
   }
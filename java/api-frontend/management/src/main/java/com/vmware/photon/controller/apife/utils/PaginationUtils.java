@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.apife.utils;
+
+import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
+import com.vmware.dcp.common.Utils;
+import com.vmware.photon.controller.apife.backends.clients.ApiFeDcpRestClient;
+import com.vmware.photon.controller.apife.exceptions.external.InvalidQueryParamsException;
+import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundException;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+/**
+ * Util methods for the paginated list API.
+ */
+public class PaginationUtils {
+
+  /**
+   * Largest number of items a client can request per page.
+   */
+  public static final int MAX_PAGE_SIZE = ApiFeDcpRestClient.DOCUMENT_PAGE_SIZE;
+
+  /**
+   * Validates the page size requested by a client.
+   *
+   * @param pageSize
+   * @return the page size
+   * @throws InvalidQueryParamsException if the page size is not between 1 and MAX_PAGE_SIZE
+   */
+  public static int validatePageSize(Optional<Integer> pageSize) throws InvalidQueryParamsException {
+    if (!pageSize.isPresent() || pageSize.get() < 1 || pageSize.get() > MAX_PAGE_SIZE) {
+      throw new InvalidQueryParamsException(
+          String.format("The page size %s is not between 1 and %d", pageSize.orNull(), MAX_PAGE_SIZE));
+    }
+
+    return pageSize.get();
+  }
+
+  /**
+   * Gets the page of documents of type T a client asked for with the nextPageLink of a previous page.
+   *
+   * @param dcpClient
+   * @param documentType
+   * @param pageLink
+   * @return
+   * @throws InvalidQueryParamsException if the page link is malformed, has expired or is not a link to documents of
+   *                                     type T
+   */
+  public static <T extends ServiceDocument> ServiceDocumentQueryResult queryDocumentPage(
+      ApiFeDcpRestClient dcpClient, Class<T> documentType, String pageLink) throws InvalidQueryParamsException {
+    return queryDocumentPage(dcpClient, documentType, pageLink, Predicates.<T>alwaysTrue());
+  }
+
+  /**
+   * Gets the page of documents of type T a client asked for with the nextPageLink of a previous page, where every
+   * document must belong to the entity the page is listed under, e.g. the project of a project VM list. A page link
+   * handed out for the documents of another entity is rejected.
+   *
+   * @param dcpClient
+   * @param documentType
+   * @param pageLink
+   * @param owned        tells whether a document belongs to the entity the page is listed under
+   * @return
+   * @throws InvalidQueryParamsException if the page link is malformed, has expired, is not a link to documents of
+   *                                     type T or is a link to documents of another entity
+   */
+  public static <T extends ServiceDocument> ServiceDocumentQueryResult queryDocumentPage(
+      ApiFeDcpRestClient dcpClient, Class<T> documentType, String pageLink, Predicate<T> owned)
+      throws InvalidQueryParamsException {
+    ServiceDocumentQueryResult queryResult;
+    try {
+      queryResult = dcpClient.queryDocumentPage(pageLink);
+    } catch (DocumentNotFoundException | IllegalArgumentException e) {
+      throw new InvalidQueryParamsException(String.format("The page link %s is invalid or has expired", pageLink));
+    }
+
+    String documentKind = Utils.buildKind(documentType);
+    for (Object value : queryResult.documents.values()) {
+      if (!documentKind.equals(Utils.fromJson(value, ServiceDocument.class).documentKind)
+          || !owned.apply(Utils.fromJson(value, documentType))) {
+        throw new InvalidQueryParamsException(String.format("The page link %s is invalid", pageLink));
+      }
+    }
+
+    return queryResult;
+  }
+}
@@ -42,6 +42,8 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -204,6 +206,87 @@ public class EntityLockDcpBackendTest {
     }
   }
 
+  /**
+   * Tests for setTaskLocks.
+   */
+  @Guice(modules = {DcpBackendTestModule.class, TestModule.class})
+  public static class SetTaskLocksTest {
+
+    @Inject
+    private BasicServiceHost basicServiceHost;
+
+    @Inject
+    private ApiFeDcpRestClient apiFeDcpRestClient;
+
+    @Inject
+    private EntityLockDcpBackend entityLockDcpBackend;
+
+    private TaskEntity taskEntity;
+
+    @BeforeMethod
+    public void setUp() throws Throwable {
+      commonHostAndClientSetup(basicServiceHost, apiFeDcpRestClient);
+
+      taskEntity = new TaskEntity();
+      taskEntity.setId("task-id");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Throwable {
+      commonHostDocumentsCleanup();
+    }
+
+    @AfterClass
+    public static void afterClassCleanup() throws Throwable {
+      commonHostAndClientTeardown();
+    }
+
+    @Test
+    public void testSetTaskLocksSuccess() throws Throwable {
+      List<String> entityIds = Arrays.asList("vm-id", "ephemeral-id", "iso-id");
+
+      entityLockDcpBackend.setTaskLock("vm-id", taskEntity);
+      entityLockDcpBackend.setTaskLocks(entityIds, taskEntity);
+      //acquiring locks on the same task should be no-op
+      entityLockDcpBackend.setTaskLocks(entityIds, taskEntity);
+
+      for (String entityId : entityIds) {
+        assertThat(entityLockDcpBackend.lockExistsForEntityId(entityId), is(true));
+      }
+    }
+
+    @Test
+    public void testSetTaskLocksIsAllOrNothing() throws Throwable {
+      TaskEntity taskEntityOther = new TaskEntity();
+      taskEntityOther.setId("task-id-other");
+      entityLockDcpBackend.setTaskLock("ephemeral-id", taskEntityOther);
+      entityLockDcpBackend.setTaskLock("iso-id", taskEntity);
+
+      try {
+        entityLockDcpBackend.setTaskLocks(Arrays.asList("vm-id", "ephemeral-id", "iso-id"), taskEntity);
+        fail("should have failed with ConcurrentTaskException");
+      } catch (ConcurrentTaskException e) {
+      }
+
+      assertThat(entityLockDcpBackend.lockExistsForEntityId("vm-id"), is(false));
+      assertThat(entityLockDcpBackend.lockExistsForEntityId("ephemeral-id"), is(true));
+      //a lock the task already owned before the call is not rolled back
+      assertThat(entityLockDcpBackend.lockExistsForEntityId("iso-id"), is(true));
+    }
+
+    @Test
+    public void testSetTaskLocksNullEntity() throws Throwable {
+      try {
+        entityLockDcpBackend.setTaskLocks(Arrays.asList("vm-id", null), taskEntity);
+        fail("should have failed with NullPointerException");
+      } catch (NullPointerException e) {
+        assertThat(e.getMessage(), is("Entity cannot be null."));
+      }
+
+      assertThat(entityLockDcpBackend.lockExistsForEntityId("vm-id"), is(false));
+    }
+  }
+
   /**
    * Tests for cleaning lock.
    */
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.apife.backends;
+
+import com.vmware.photon.controller.api.QuotaLineItem;
+import com.vmware.photon.controller.api.QuotaUnit;
+import com.vmware.photon.controller.api.ResourceTicketCreateSpec;
+import com.vmware.photon.controller.apife.Data;
+import com.vmware.photon.controller.apife.TestModule;
+import com.vmware.photon.controller.apife.backends.clients.ApiFeDcpRestClient;
+import com.vmware.photon.controller.apife.config.QuotaEscrowConfig;
+import com.vmware.photon.controller.apife.entities.QuotaLineItemEntity;
+import com.vmware.photon.controller.apife.lib.QuotaCost;
+import com.vmware.photon.controller.common.dcp.BasicServiceHost;
+import com.vmware.photon.controller.common.dcp.ServiceHostUtils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Guice;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link QuotaEscrow}.
+ */
+@Guice(modules = {DcpBackendTestModule.class, TestModule.class})
+public class QuotaEscrowTest {
+
+  @Inject
+  private BasicServiceHost basicServiceHost;
+
+  @Inject
+  private ApiFeDcpRestClient apiFeDcpRestClient;
+
+  @Inject
+  private ResourceTicketBackend resourceTicketBackend;
+
+  @Inject
+  private TenantDcpBackend tenantDcpBackend;
+
+  private QuotaEscrow quotaEscrow;
+
+  private String resourceTicketId;
+
+  @BeforeMethod
+  public void setUp() throws Throwable {
+    QuotaEscrowConfig config = new QuotaEscrowConfig();
+    config.setEnabled(true);
+    config.setMaxEscrowMultiple(10);
+    quotaEscrow = new QuotaEscrow(apiFeDcpRestClient, config);
+
+    String tenantId = DcpBackendTestHelper.createTenant(tenantDcpBackend, "t1");
+
+    ResourceTicketCreateSpec spec = new ResourceTicketCreateSpec();
+    spec.setName("rt1");
+
+    List<QuotaLineItem> baseLimits = new ArrayList<>();
+    for (QuotaLineItemEntity lineItemEntity : Data.baseLimits) {
+      baseLimits.add(new QuotaLineItem(
+          lineItemEntity.getKey(), lineItemEntity.getValue(), lineItemEntity.getUnit()));
+    }
+
+    spec.setLimits(baseLimits);
+    resourceTicketId = resourceTicketBackend.create(tenantId, spec).getId();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Throwable {
+    ServiceHostUtils.deleteAllDocuments(basicServiceHost, "test-host");
+  }
+
+  @Test
+  public void testConsumeFromEscrow() throws Throwable {
+    QuotaCost cost = new QuotaCost(Data.vm100Cost);
+
+    // vm.cost has a limit of 5, so half of the 4 remaining after the first VM is reserved
+    assertThat(quotaEscrow.consume(resourceTicketId, cost), is(true));
+    assertThat(getUsage("vm.cost"), is(3.0));
+
+    assertThat(quotaEscrow.consume(resourceTicketId, cost), is(true));
+    assertThat(quotaEscrow.consume(resourceTicketId, cost), is(true));
+    assertThat(getUsage("vm.cost"), is(3.0));
+
+    // only 1 remains, which is not enough for an escrow
+    assertThat(quotaEscrow.consume(resourceTicketId, cost), is(false));
+    assertThat(getUsage("vm.cost"), is(3.0));
+
+    quotaEscrow.releaseAll();
+    assertThat(getUsage("vm.cost"), is(3.0));
+  }
+
+  @Test
+  public void testReleaseReturnsUnspentEscrow() throws Throwable {
+    QuotaCost cost = new QuotaCost(Data.vm100Cost);
+
+    assertThat(quotaEscrow.consume(resourceTicketId, cost), is(true));
+    assertThat(getUsage("vm.cost"), is(3.0));
+
+    assertThat(quotaEscrow.giveBack(resourceTicketId, cost), is(true));
+    quotaEscrow.releaseAll();
+    assertThat(getUsage("vm.cost"), is(0.0));
+    assertThat(getUsage("vm"), is(0.0));
+
+    // the escrow was released, so returns go to the ticket
+    assertThat(quotaEscrow.giveBack(resourceTicketId, cost), is(false));
+  }
+
+  @Test
+  public void testConsumeReleasesUnspentEscrowBeforeFallingBack() throws Throwable {
+    QuotaCost cost = new QuotaCost(Data.vm100Cost);
+    assertThat(quotaEscrow.consume(resourceTicketId, cost), is(true));
+    assertThat(getUsage("vm.cost"), is(3.0));
+
+    // the escrow holds 2, which does not cover the cost, and the ticket cannot spare a block for it
+    QuotaCost largeCost = new QuotaCost(
+        ImmutableList.of(new QuotaLineItemEntity("vm.cost", 3.0, QuotaUnit.COUNT)));
+    assertThat(quotaEscrow.consume(resourceTicketId, largeCost), is(false));
+    assertThat(getUsage("vm.cost"), is(1.0));
+
+    // the ticket only counts the quota actually spent, so it accepts the cost
+    resourceTicketBackend.consumeQuota(resourceTicketId, largeCost);
+    assertThat(getUsage("vm.cost"), is(4.0));
+  }
+
+  @Test
+  public void testConsumeReservesNewBlockAfterReleasingEscrow() throws Throwable {
+    // vm has a limit of 10, so half of the 9 remaining after the first VM is reserved
+    assertThat(quotaEscrow.consume(resourceTicketId, vmCost(1.0)), is(true));
+    assertThat(getUsage("vm"), is(5.0));
+
+    // the 4 escrowed are returned, then the cost and one extra copy of it are reserved
+    assertThat(quotaEscrow.consume(resourceTicketId, vmCost(3.0)), is(true));
+    assertThat(getUsage("vm"), is(7.0));
+
+    quotaEscrow.releaseAll();
+    assertThat(getUsage("vm"), is(4.0));
+  }
+
+  @Test
+  public void testDisabled() throws Throwable {
+    quotaEscrow = new QuotaEscrow(apiFeDcpRestClient, new QuotaEscrowConfig());
+    QuotaCost cost = new QuotaCost(Data.vm100Cost);
+
+    assertThat(quotaEscrow.consume(resourceTicketId, cost), is(false));
+    assertThat(quotaEscrow.giveBack(resourceTicketId, cost), is(false));
+    assertThat(getUsage("vm.cost"), is(0.0));
+  }
+
+  private static QuotaCost vmCost(double value) {
+    return new QuotaCost(ImmutableList.of(new QuotaLineItemEntity("vm", value, QuotaUnit.COUNT)));
+  }
+
+  private double getUsage(String key) throws Throwable {
+    return resourceTicketBackend.findById(resourceTicketId).getUsage(key).getValue();
+  }
+}
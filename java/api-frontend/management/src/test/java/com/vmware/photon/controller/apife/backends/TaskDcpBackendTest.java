@@ -15,6 +15,7 @@ package com.vmware.photon.controller.apife.backends;
 
 import com.vmware.photon.controller.api.Operation;
 import com.vmware.photon.controller.api.PersistentDisk;
+import com.vmware.photon.controller.api.ResourceList;
 import com.vmware.photon.controller.api.Task;
 import com.vmware.photon.controller.api.Vm;
 import com.vmware.photon.controller.api.common.entities.base.BaseEntity;
@@ -56,7 +57,9 @@ import static org.mockito.Mockito.mock;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -600,6 +603,65 @@ public class TaskDcpBackendTest {
 
       assertThat(tasks.size(), is(initialTaskCount + createdTaskCount));
     }
+
+    @Test
+    public void testFilterInProjectPaged() throws Throwable {
+      String projectId = UUID.randomUUID().toString();
+
+      int createdTaskCount = 5;
+      for (int i = 0; i < createdTaskCount; i++) {
+        VmEntity vmEntity = new VmEntity();
+        vmEntity.setId(UUID.randomUUID().toString());
+        vmEntity.setProjectId(projectId);
+        taskBackend.createQueuedTask(vmEntity, Operation.CREATE_VM);
+      }
+
+      ResourceList<Task> page = taskBackend.filterInProject(projectId,
+          Optional.<String>absent(), Optional.<String>absent(), Optional.of(2));
+
+      Set<String> taskIds = new HashSet<>();
+      while (true) {
+        assertThat(page.getItems().size(), lessThanOrEqualTo(2));
+        for (Task task : page.getItems()) {
+          taskIds.add(task.getId());
+        }
+
+        if (page.getNextPageLink() == null) {
+          break;
+        }
+        page = taskBackend.getTasksInProjectPage(projectId, page.getNextPageLink());
+      }
+
+      assertThat(taskIds.size(), is(createdTaskCount));
+    }
+
+    @Test(expectedExceptions = InvalidQueryParamsException.class)
+    public void testGetTasksInProjectPageOfAnotherProject() throws Throwable {
+      String projectId = UUID.randomUUID().toString();
+      for (int i = 0; i < 3; i++) {
+        VmEntity vmEntity = new VmEntity();
+        vmEntity.setId(UUID.randomUUID().toString());
+        vmEntity.setProjectId(projectId);
+        taskBackend.createQueuedTask(vmEntity, Operation.CREATE_VM);
+      }
+
+      ResourceList<Task> page = taskBackend.filterInProject(projectId,
+          Optional.<String>absent(), Optional.<String>absent(), Optional.of(2));
+      assertThat(page.getNextPageLink(), notNullValue());
+
+      taskBackend.getTasksInProjectPage(UUID.randomUUID().toString(), page.getNextPageLink());
+    }
+
+    @Test(expectedExceptions = InvalidQueryParamsException.class)
+    public void testFilterWithInvalidPageSize() throws Throwable {
+      taskBackend.filter(Optional.<String>absent(), Optional.<String>absent(), Optional.<String>absent(),
+          Optional.of(0));
+    }
+
+    @Test(expectedExceptions = InvalidQueryParamsException.class)
+    public void testGetTasksPageWithInvalidPageLink() throws Throwable {
+      taskBackend.getTasksPage("invalid-page-link");
+    }
   }
 
   /**
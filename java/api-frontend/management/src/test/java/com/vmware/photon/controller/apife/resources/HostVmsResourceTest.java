@@ -20,6 +20,7 @@ import com.vmware.photon.controller.apife.clients.HostFeClient;
 import com.vmware.photon.controller.apife.resources.routes.HostResourceRoutes;
 import com.vmware.photon.controller.apife.resources.routes.VmResourceRoutes;
 
+import com.google.common.base.Optional;
 import org.mockito.Mock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,7 +72,7 @@ public class HostVmsResourceTest extends ResourceTest {
     vmList.add(vm1);
     vmList.add(vm2);
     ResourceList<Vm> resourceList = new ResourceList<>(new ArrayList<>(vmList));
-    doReturn(resourceList).when(hostFeClient).listAllVms(hostId);
+    doReturn(resourceList).when(hostFeClient).listAllVms(hostId, Optional.<Integer>absent());
 
     Response clientResponse = client()
         .target(vmsRoute)
@@ -28,6 +28,7 @@ import org.mockito.Mock;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.when;
 
 import javax.ws.rs.core.GenericType;
@@ -70,7 +71,8 @@ public class ProjectTasksResourceTest extends ResourceTest {
     Task task = new Task();
     task.setId(taskId);
 
-    when(client.getProjectTasks(projectId, Optional.<String>absent(), Optional.<String>absent()))
+    when(client.getProjectTasks(projectId, Optional.<String>absent(), Optional.<String>absent(),
+        Optional.<Integer>absent()))
         .thenReturn(new ResourceList<>(ImmutableList.of(task)));
 
     Response response = client().target(projectTasksRoutePath).request().get();
@@ -90,4 +92,36 @@ public class ProjectTasksResourceTest extends ResourceTest {
     }
   }
 
+  @Test
+  public void testGetProjectTasksPage() throws Exception {
+    Task task1 = new Task();
+    task1.setId("task1");
+
+    Task task2 = new Task();
+    task2.setId("task2");
+
+    when(client.getProjectTasks(projectId, Optional.<String>absent(), Optional.<String>absent(), Optional.of(1)))
+        .thenReturn(new ResourceList<>(ImmutableList.of(task1), "page2", null));
+    when(client.getProjectTasksPage(projectId, "page2"))
+        .thenReturn(new ResourceList<>(ImmutableList.of(task2)));
+
+    Response response = client().target(projectTasksRoutePath).queryParam("pageSize", 1).request().get();
+    assertThat(response.getStatus(), is(200));
+
+    ResourceList<Task> tasks = response.readEntity(new GenericType<ResourceList<Task>>() {
+    });
+    assertThat(tasks.getItems().size(), is(1));
+    assertThat(tasks.getItems().get(0), is(task1));
+    assertThat(tasks.getNextPageLink(), is("page2"));
+
+    response = client().target(projectTasksRoutePath).queryParam("pageLink", "page2").request().get();
+    assertThat(response.getStatus(), is(200));
+
+    tasks = response.readEntity(new GenericType<ResourceList<Task>>() {
+    });
+    assertThat(tasks.getItems().size(), is(1));
+    assertThat(tasks.getItems().get(0), is(task2));
+    assertThat(tasks.getNextPageLink(), nullValue());
+  }
+
 }
@@ -37,6 +37,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.when;
 
 import javax.ws.rs.client.Entity;
@@ -350,7 +351,7 @@ public class ProjectVmsResourceTest extends ResourceTest {
     vm1.setId("vm2");
     vm1.setName("vm2name");
 
-    when(vmFeClient.find("p1", Optional.<String>absent()))
+    when(vmFeClient.find("p1", Optional.<String>absent(), Optional.<Integer>absent()))
         .thenReturn(new ResourceList<>(ImmutableList.of(vm1, vm2)));
 
     ResourceList<Vm> vms = getVms(Optional.<String>absent());
@@ -366,7 +367,7 @@ public class ProjectVmsResourceTest extends ResourceTest {
     vm1.setId("vm1");
     vm1.setName("vm1name");
 
-    when(vmFeClient.find("p1", Optional.of("vm1name")))
+    when(vmFeClient.find("p1", Optional.of("vm1name"), Optional.<Integer>absent()))
         .thenReturn(new ResourceList<>(ImmutableList.of(vm1)));
 
     ResourceList<Vm> vms = getVms(Optional.of("vm1name"));
@@ -374,6 +375,36 @@ public class ProjectVmsResourceTest extends ResourceTest {
     assertThat(vms.getItems().get(0), is(vm1));
   }
 
+  @Test
+  public void testProjectVmsPage() throws Exception {
+    Vm vm1 = new Vm();
+    vm1.setId("vm1");
+    vm1.setName("vm1name");
+
+    Vm vm2 = new Vm();
+    vm2.setId("vm2");
+    vm2.setName("vm2name");
+
+    when(vmFeClient.find("p1", Optional.<String>absent(), Optional.of(1)))
+        .thenReturn(new ResourceList<>(ImmutableList.of(vm1), "page2", null));
+    when(vmFeClient.getVmsPage("p1", "page2"))
+        .thenReturn(new ResourceList<>(ImmutableList.of(vm2)));
+
+    ResourceList<Vm> vms = client().target(projectVmsRoutePath).queryParam("pageSize", 1).request()
+        .get(new GenericType<ResourceList<Vm>>() {
+        });
+    assertThat(vms.getItems().size(), is(1));
+    assertThat(vms.getItems().get(0), is(vm1));
+    assertThat(vms.getNextPageLink(), is("page2"));
+
+    vms = client().target(projectVmsRoutePath).queryParam("pageLink", vms.getNextPageLink()).request()
+        .get(new GenericType<ResourceList<Vm>>() {
+        });
+    assertThat(vms.getItems().size(), is(1));
+    assertThat(vms.getItems().get(0), is(vm2));
+    assertThat(vms.getNextPageLink(), nullValue());
+  }
+
   private Response createVm() {
     return client()
         .target(projectVmsRoutePath)
@@ -84,7 +84,8 @@ public class TasksResourceTest {
 
       tasks = ImmutableList.of(t1, t2);
       when(
-          taskFeClient.find(Optional.of(entity.getId()), Optional.of(entity.getKind()), Optional.of(state))
+          taskFeClient.find(Optional.of(entity.getId()), Optional.of(entity.getKind()), Optional.of(state),
+              Optional.<Integer>absent())
       ).thenReturn(new ResourceList<>(tasks));
     }
 
@@ -70,7 +70,7 @@ public class TenantTasksResourceTest extends ResourceTest {
     Task task = new Task();
     task.setId(taskId);
 
-    when(client.getTenantTasks(tenantId, Optional.<String>absent()))
+    when(client.getTenantTasks(tenantId, Optional.<String>absent(), Optional.<Integer>absent()))
         .thenReturn(new ResourceList<>(ImmutableList.of(task)));
 
     Response response = client().target(tenantTasksRoute).request().get();
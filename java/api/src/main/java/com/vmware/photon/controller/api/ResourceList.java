@@ -31,7 +31,8 @@ import java.util.List;
  */
 @ApiModel(value = "This class represents a type collection of objects. The by-name, by-tag, and unfiltered " +
     "enumeration entry points (e.g., /v1/project/{id}/vms) all return a collection of entities wrapped in this. " +
-    "When pagination is implemented, pagination related properties will live in this class.")
+    "When a page size is requested, nextPageLink holds the link to pass as pageLink to get the next page; " +
+    "it is null on the last page.")
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class ResourceList<T> {
   public static final String CLASS_NAME = "ResourceList";
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.vmware.photon.controller.gradle.plugins.jmh
+
+import org.gradle.api.Plugin
+import org.gradle.api.Project
+import org.gradle.api.tasks.JavaExec
+
+/**
+ * Adds a 'jmh' source set (src/jmh/java) for JMH micro benchmarks and a 'jmh' task running them.
+ *
+ * Benchmarks can use the main and test classes of the project. Arguments are passed to the JMH
+ * runner with -PjmhArgs, for example: gradle :root-scheduler:jmh -PjmhArgs="['-f', '1', 'Strategy']"
+ */
+class JmhPlugin implements Plugin<Project> {
+
+  static final String JMH_VERSION = '1.11.2'
+
+  @Override
+  void apply(Project project) {
+    project.apply plugin: 'java'
+
+    def jmh = project.sourceSets.create('jmh') {
+      java.srcDir 'src/jmh/java'
+      resources.srcDir 'src/jmh/resources'
+    }
+    jmh.compileClasspath += project.sourceSets.main.output + project.sourceSets.test.output +
+        project.configurations.testRuntime
+    jmh.runtimeClasspath += project.sourceSets.main.output + project.sourceSets.test.output +
+        project.configurations.testRuntime
+
+    project.dependencies {
+      jmhCompile "org.openjdk.jmh:jmh-core:${JMH_VERSION}"
+      jmhCompile "org.openjdk.jmh:jmh-generator-annprocess:${JMH_VERSION}"
+    }
+
+    project.tasks.create('jmh', JavaExec) {
+      description = 'Runs the JMH benchmarks.'
+      group = 'verification'
+      dependsOn project.tasks.getByName(jmh.classesTaskName)
+      main = 'org.openjdk.jmh.Main'
+      classpath = jmh.runtimeClasspath
+      if (project.hasProperty('jmhArgs')) {
+        args Eval.me(project.jmhArgs)
+      }
+    }
+  }
+}
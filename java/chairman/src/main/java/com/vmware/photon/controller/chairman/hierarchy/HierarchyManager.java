@@ -40,10 +40,10 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -75,6 +75,9 @@ public class HierarchyManager implements ServerSet.ChangeListener, HostChangeLis
   private final ZookeeperMissingHostMonitor zkMissingHostMonitor;
   private final Hierarchy hierarchy;
   private int hierarchyVersion;
+  // The serialized roles in /roles as of the last read or write, keyed by host id.
+  // A null value means that the content of the node is unknown.
+  private Map<String, byte[]> persistedRoles;
   private final HierarchyConfig config;
   private ScheduledFuture<?> periodicScan;
   private final ScheduledExecutorService executor;
@@ -112,8 +115,9 @@ public class HierarchyManager implements ServerSet.ChangeListener, HostChangeLis
 
     // Read the current hierarchy version
     hierarchyVersion = hierarchyUtils.getRolesDictVersion();
+    persistedRoles = hierarchyUtils.readRolesFromZk();
     Map<String, Host> hosts = hierarchyUtils.readHostsFromZk();
-    Map<String, Scheduler> leafSchedulers = hierarchyUtils.readSchedulersFromZk(hosts);
+    Map<String, Scheduler> leafSchedulers = hierarchyUtils.readSchedulersFromZk(hosts, persistedRoles);
 
     hierarchy.addHosts(hosts);
     hierarchy.addLeaves(leafSchedulers);
@@ -220,59 +224,84 @@ public class HierarchyManager implements ServerSet.ChangeListener, HostChangeLis
   }
 
   /* This method will scan the list of hosts in the hierarchy and check if
-   * there exists a dirty host. If there is a dirty host, then delete the existing
-   * hierarchy in zk /roles and write the new hierarchy, which includes the dirty
-   * hosts.
+   * there exists a dirty host. If there is a dirty host, then compute the roles
+   * of all the scheduler hosts and write only the nodes in zk /roles that differ
+   * from the persisted hierarchy, so that watchers are only triggered for the
+   * hosts whose roles actually changed.
    */
   private void persistDirtyHosts() throws Exception {
 
-    boolean isHierarchyDirty = false;
+    if (persistedRoles == null) {
+      // The persisted roles haven't been read, assume that every node in /roles
+      // is out of date.
+      persistedRoles = new HashMap<>();
+      for (String schedulerHost : hierarchyUtils.getSchedulerHosts()) {
+        persistedRoles.put(schedulerHost, null);
+      }
+    }
 
-    List<String> schedulerHosts = hierarchyUtils.getSchedulerHosts();
+    boolean isHierarchyDirty = false;
 
-    if ((hierarchy.getLeafSchedulers().size() == 0 && schedulerHosts.size() != 0)
+    if ((hierarchy.getLeafSchedulers().size() == 0 && persistedRoles.size() != 0)
         || hierarchy.getDirtyHosts().size() > 0) {
       isHierarchyDirty = true;
     }
 
     if (isHierarchyDirty) {
       // Only hosts that have a scheduler role are persisted in /roles with
-      // the host id as the node name.
-      LinkedHashMap<String, byte[]> changeSet;
-
-      // Remove all scheduler hosts in /roles
-      changeSet = new LinkedHashMap<>();
-
-      for (String schedulerHost : schedulerHosts) {
-        // Setting the key to null will result in deleting the key from the dictionary
-        changeSet.put(schedulerHost, null);
-      }
-
-      // Write the new hierarchy to zk
-      // Only persist hosts that own schedulers (not including root scheduler)
+      // the host id as the node name. Only persist hosts that own schedulers
+      // (not including root scheduler)
+      Map<String, byte[]> hierarchyRoles = new HashMap<>();
 
       for (Scheduler scheduler : hierarchy.getLeafSchedulers().values()) {
         Host schedulerHost = scheduler.getOwner();
-        byte[] serializedHostRoles;
         ConfigureRequest req = hierarchyUtils.getConfigureRequest(schedulerHost, false);
-        serializedHostRoles = serializer.serialize(req.getRoles());
-        // If the scheduler host id is already in the map as a result of pruning step (i.e.
-        // inserting (id, null) in the changeSet map) then  inserting the same id into
-        // the map with a serializedHostRole  will overwrite the delete operation with an
-        // overwrite data operation. For example, instead of deleting and creating the node,
-        // we will just overwrite it.
-        changeSet.put(schedulerHost.getId(), serializedHostRoles);
+        hierarchyRoles.put(schedulerHost.getId(), serializer.serialize(req.getRoles()));
+      }
+
+      LinkedHashMap<String, byte[]> changeSet = getRolesChangeSet(persistedRoles, hierarchyRoles);
+
+      if (changeSet.isEmpty()) {
+        logger.debug("Roles of {} scheduler hosts are unchanged, skipping /roles write", hierarchyRoles.size());
+        return;
       }
 
       // Write the change set to zk
+      logger.info("Writing roles of {} out of {} scheduler hosts", changeSet.size(), hierarchyRoles.size());
       hierarchyUtils.writeRolesToZk(changeSet, hierarchyVersion);
 
       // Since we just persisted a new change set to ZK
       // we need to bump up the hierarchy version.
       hierarchyVersion += 1;
+      persistedRoles = hierarchyRoles;
     }
   }
 
+  /*
+   * Computes the change set that turns the persisted roles into the hierarchy roles.
+   * Hosts that no longer own a scheduler are deleted (i.e. mapped to null) and hosts
+   * whose serialized roles differ from the persisted ones are (over)written.
+   */
+  private static LinkedHashMap<String, byte[]> getRolesChangeSet(Map<String, byte[]> persisted,
+                                                                 Map<String, byte[]> current) {
+    LinkedHashMap<String, byte[]> changeSet = new LinkedHashMap<>();
+
+    for (String schedulerHost : persisted.keySet()) {
+      if (!current.containsKey(schedulerHost)) {
+        // Setting the key to null will result in deleting the key from the dictionary
+        changeSet.put(schedulerHost, null);
+      }
+    }
+
+    for (Map.Entry<String, byte[]> entry : current.entrySet()) {
+      if (!Arrays.equals(persisted.get(entry.getKey()), entry.getValue())) {
+        changeSet.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    return changeSet;
+  }
+
   private Set<Network> getVmNetwork(Set<Network> networks) {
     Set<Network> vmNetworks = new HashSet();
 
@@ -137,6 +137,26 @@ public class HierarchyUtils {
     return rolesDict.getKeys();
   }
 
+  /**
+   * This function reads the serialized roles of all the scheduler hosts in /roles.
+   * Hosts whose roles can't be read are mapped to null.
+   *
+   * @return A Map of (host id, serialized Roles)
+   */
+  public Map<String, byte[]> readRolesFromZk() {
+    Map<String, byte[]> roles = new HashMap<>();
+    for (String key : rolesDict.getKeys()) {
+      byte[] data = null;
+      try {
+        data = rolesDict.read(key);
+      } catch (Exception e) {
+        logger.error("Error reading roles for host {}", key, e);
+      }
+      roles.put(key, data);
+    }
+    return roles;
+  }
+
   public void writeRolesToZk(Map<String, byte[]> delta, int dictVersion) throws Exception {
     if (dictVersion == INVALID_VERSION) {
       throw new IllegalStateException(String.format("Invalid dict version {}", dictVersion));
@@ -223,21 +243,31 @@ public class HierarchyUtils {
    * constructed leaf wouldn't know about it.
    */
   public Map<String, Scheduler> readSchedulersFromZk(Map<String, Host> hosts) {
+    return readSchedulersFromZk(hosts, readRolesFromZk());
+  }
+
+  /**
+   * Same as {@link #readSchedulersFromZk(Map)}, with the serialized roles already read from /roles by
+   * {@link #readRolesFromZk()}.
+   */
+  public Map<String, Scheduler> readSchedulersFromZk(Map<String, Host> hosts, Map<String, byte[]> serializedRoles) {
     Map<String, Scheduler> schedulers = new HashMap<>();
     Map<String, Roles> roles = new HashMap<>();
-    List<String> keys = rolesDict.getKeys();
 
-    // Read Roles from /roles
-    if (!keys.isEmpty()) {
-      for (String key : keys) {
-        try {
-          byte[] data = rolesDict.read(key);
-          Roles role = new Roles();
-          deserializer.deserialize(role, data);
-          roles.put(key, role);
-        } catch (Exception e) {
-          logger.error("Skipping schedulers for host {}", key, e);
-        }
+    // Deserialize the roles read from /roles
+    for (Map.Entry<String, byte[]> entry : serializedRoles.entrySet()) {
+      String key = entry.getKey();
+      if (entry.getValue() == null) {
+        logger.error("Skipping schedulers for host {}, its roles could not be read", key);
+        continue;
+      }
+
+      try {
+        Roles role = new Roles();
+        deserializer.deserialize(role, entry.getValue());
+        roles.put(key, role);
+      } catch (Exception e) {
+        logger.error("Skipping schedulers for host {}", key, e);
       }
     }
 
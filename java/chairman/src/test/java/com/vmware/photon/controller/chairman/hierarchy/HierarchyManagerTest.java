@@ -20,13 +20,20 @@ import com.vmware.photon.controller.chairman.service.ChairmanServiceTest;
 import com.vmware.photon.controller.chairman.service.Datastore;
 import com.vmware.photon.controller.chairman.service.Network;
 import com.vmware.photon.controller.common.thrift.ServerSet;
+import com.vmware.photon.controller.common.zookeeper.DataDictionary;
 import com.vmware.photon.controller.common.zookeeper.ZookeeperHostMonitor;
 import com.vmware.photon.controller.common.zookeeper.ZookeeperMissingHostMonitor;
 import com.vmware.photon.controller.resource.gen.DatastoreType;
 import com.vmware.photon.controller.resource.gen.NetworkType;
 import com.vmware.photon.controller.scheduler.gen.ConfigureRequest;
 
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.apache.curator.utils.ZKPaths;
 import org.apache.thrift.TException;
+import org.apache.zookeeper.data.Stat;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
@@ -66,6 +73,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -369,8 +378,11 @@ public class HierarchyManagerTest extends PowerMockTestCase {
     schedulers.put(sch1.getId(), sch1);
     schedulers.put(sch2.getId(), sch2);
 
+    Map<String, byte[]> roles = new HashMap<>();
+
     when(hierarchyUtils.readHostsFromZk()).thenReturn(hosts);
-    when(hierarchyUtils.readSchedulersFromZk(eq(hosts))).thenReturn(schedulers);
+    when(hierarchyUtils.readRolesFromZk()).thenReturn(roles);
+    when(hierarchyUtils.readSchedulersFromZk(eq(hosts), eq(roles))).thenReturn(schedulers);
     when(hierarchyUtils.getRolesDictVersion()).thenReturn(1);
 
     Future<?> future1 = mock(Future.class);
@@ -437,8 +449,11 @@ public class HierarchyManagerTest extends PowerMockTestCase {
     schedulers.put(sch1.getId(), sch1);
     schedulers.put(sch2.getId(), sch2);
 
+    Map<String, byte[]> roles = new HashMap<>();
+
     when(hierarchyUtils.readHostsFromZk()).thenReturn(hosts);
-    when(hierarchyUtils.readSchedulersFromZk(eq(hosts))).thenReturn(schedulers);
+    when(hierarchyUtils.readRolesFromZk()).thenReturn(roles);
+    when(hierarchyUtils.readSchedulersFromZk(eq(hosts), eq(roles))).thenReturn(schedulers);
     when(hierarchyUtils.getRolesDictVersion()).thenReturn(1);
 
     Future<?> future1 = mock(Future.class);
@@ -453,7 +468,8 @@ public class HierarchyManagerTest extends PowerMockTestCase {
 
     // Verify that init retried building the hierarchy
     verify(hierarchyUtils).readHostsFromZk();
-    verify(hierarchyUtils).readSchedulersFromZk(eq(hosts));
+    verify(hierarchyUtils).readRolesFromZk();
+    verify(hierarchyUtils).readSchedulersFromZk(eq(hosts), eq(roles));
     verify(hierarchyUtils).getRolesDictVersion();
     // Verify that the tree structure is correct
     Map<String, Host> tHosts = hierarchy.getHosts();
@@ -507,8 +523,11 @@ public class HierarchyManagerTest extends PowerMockTestCase {
     schedulers.put(sch1.getId(), sch1);
     schedulers.put(sch2.getId(), sch2);
 
+    Map<String, byte[]> roles = new HashMap<>();
+
     when(hierarchyUtils.readHostsFromZk()).thenReturn(hosts);
-    when(hierarchyUtils.readSchedulersFromZk(eq(hosts))).thenReturn(schedulers);
+    when(hierarchyUtils.readRolesFromZk()).thenReturn(roles);
+    when(hierarchyUtils.readSchedulersFromZk(eq(hosts), eq(roles))).thenReturn(schedulers);
     when(hierarchyUtils.getRolesDictVersion()).thenReturn(1);
 
     // Fire missing host events during the init stage
@@ -544,6 +563,87 @@ public class HierarchyManagerTest extends PowerMockTestCase {
     verify(future3).get();
   }
 
+  /**
+   * Test that a scan of a large hierarchy only writes the /roles nodes whose roles changed.
+   */
+  @Test
+  public void testPersistOnlyChangedRoles() throws Exception {
+    TestingServer zookeeper = new TestingServer();
+    CuratorFramework zkClient = CuratorFrameworkFactory.newClient(zookeeper.getConnectString(), new RetryOneTime(1));
+    zkClient.start();
+
+    ExecutorService zkExecutor = Executors.newCachedThreadPool();
+    try {
+      HierarchyUtils zkHierarchyUtils = new HierarchyUtils(new DataDictionary(zkClient, zkExecutor, "roles"),
+          new DataDictionary(zkClient, zkExecutor, "hosts"));
+      HierarchyManager manager = new HierarchyManager(hierarchyConfig, hostConfigurator, hostMonitor,
+          missingHostMonitor, rootSchedulerServerSet, zkHierarchyUtils, executor);
+      Mockito.doReturn(mock(Future.class)).when(hostConfigurator).configure(any(Host.class),
+          any(ConfigureRequest.class));
+      manager.init();
+
+      datastores.add(new Datastore("DS1", DatastoreType.SHARED_VMFS));
+      for (int i = 0; i < 1000; i++) {
+        String hostId = "host" + i;
+        RegisterHostRequest request = ChairmanServiceTest.createRegReq(hostId, availabilityZone.getId(),
+            datastores, networks, "addr", 1234, new HashSet<>(Arrays.asList("DS1")));
+        manager.onHostAdded(hostId, request.getConfig());
+      }
+      manager.onServerAdded(new InetSocketAddress("addr", 1234));
+
+      // The first scan writes the roles of all the scheduler hosts
+      manager.scan();
+      Map<String, Scheduler> leaves = manager.getHierarchy().getLeafSchedulers();
+      assertThat(leaves.size() > 1, is(true));
+      Map<String, Long> zxids = getRolesZxids(zkClient);
+      assertThat(zxids.size(), is(leaves.size()));
+      assertThat(zkHierarchyUtils.getRolesDictVersion(), is(1));
+
+      // A dirty host whose roles didn't change doesn't result in a write
+      Scheduler leaf = leaves.values().iterator().next();
+      leaf.getOwner().setDirty(true);
+      manager.scan();
+      assertThat(zkHierarchyUtils.getRolesDictVersion(), is(1));
+      assertThat(getRolesZxids(zkClient), is(zxids));
+
+      // Removing a child host only rewrites the roles of its leaf scheduler owner
+      Host removed = null;
+      for (Host child : leaf.getHosts().values()) {
+        if (child != leaf.getOwner()) {
+          removed = child;
+          break;
+        }
+      }
+      manager.onHostRemoved(removed.getId(), null);
+      manager.scan();
+      assertThat(zkHierarchyUtils.getRolesDictVersion(), is(2));
+
+      Map<String, Long> newZxids = getRolesZxids(zkClient);
+      assertThat(newZxids.keySet(), is(zxids.keySet()));
+      int writes = 0;
+      for (Map.Entry<String, Long> entry : newZxids.entrySet()) {
+        if (!entry.getValue().equals(zxids.get(entry.getKey()))) {
+          assertThat(entry.getKey(), is(leaf.getOwner().getId()));
+          writes++;
+        }
+      }
+      assertThat(writes, is(1));
+    } finally {
+      zkClient.close();
+      zkExecutor.shutdown();
+      zookeeper.close();
+    }
+  }
+
+  private Map<String, Long> getRolesZxids(CuratorFramework zkClient) throws Exception {
+    Map<String, Long> zxids = new HashMap<>();
+    for (String key : zkClient.getChildren().forPath("/roles")) {
+      Stat stat = zkClient.checkExists().forPath(ZKPaths.makePath("/roles", key));
+      zxids.put(key, stat.getMzxid());
+    }
+    return zxids;
+  }
+
   @Test
   public void testScanWaitsForConfigureRequests() throws Exception {
     datastores.add(new Datastore("DS1", DatastoreType.SHARED_VMFS));
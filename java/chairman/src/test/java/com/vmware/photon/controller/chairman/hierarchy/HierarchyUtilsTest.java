@@ -35,6 +35,9 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -334,6 +337,51 @@ public class HierarchyUtilsTest extends PowerMockTestCase {
     assertThat(leaf1.getHosts().containsKey(host1.getId()), is(true));
   }
 
+  @Test
+  public void testReadSchedulersFromRoles() throws Exception {
+    Host host1 = new Host("host1", new AvailabilityZone("az1"), datastores, networks, "adddr1", 1234);
+    Host host2 = new Host("host2", new AvailabilityZone("az1"), datastores, networks, "adddr2", 1235);
+
+    Scheduler sch1 = new Scheduler("sch1");
+    sch1.setOwner(host1);
+    sch1.addHost(host1);
+    sch1.addHost(host2);
+    rootScheduler.addChild(sch1);
+
+    Map<String, Host> hosts = new HashMap<>();
+    hosts.put(host1.getId(), host1);
+    hosts.put(host2.getId(), host2);
+
+    // The roles of host2 could not be read
+    Map<String, byte[]> roles = new HashMap<>();
+    roles.put(host1.getId(), serializeRoles(host1));
+    roles.put(host2.getId(), null);
+
+    Map<String, Scheduler> schedulers = hierarchyUtils.readSchedulersFromZk(hosts, roles);
+
+    assertThat(schedulers.size(), is(1));
+    assertThat(schedulers.get("sch1").getOwner(), is(host1));
+    assertThat(schedulers.get("sch1").getHosts().size(), is(2));
+    verify(rolesDict, never()).read(anyString());
+  }
+
+  @Test
+  public void testReadRolesFromZk() throws Exception {
+    List<String> keys = new ArrayList<>();
+    keys.add("host1");
+    keys.add("host2");
+    when(rolesDict.getKeys()).thenReturn(keys);
+    when(rolesDict.read("host1")).thenReturn("roles1".getBytes());
+    when(rolesDict.read("host2")).thenThrow(new Exception());
+
+    Map<String, byte[]> roles = hierarchyUtils.readRolesFromZk();
+
+    assertThat(roles.size(), is(2));
+    assertThat(roles.get("host1"), is("roles1".getBytes()));
+    assertThat(roles.containsKey("host2"), is(true));
+    assertThat(roles.get("host2"), nullValue());
+  }
+
   @Test
   public void testGetDatastoreWithTags() {
     Datastore ds1 = new Datastore("DS1", DatastoreType.SHARED_VMFS);
@@ -70,7 +70,7 @@ public class ResourceTicketService extends StatefulService {
   @Override
   public void handlePatch(Operation patchOperation) {
     try {
-      ServiceUtils.logInfo(this, "Patching service %s", getSelfLink());
+      ServiceUtils.logFine(this, "Patching service %s", getSelfLink());
       State currentState = getState(patchOperation);
       Patch patch = patchOperation.getBody(Patch.class);
 
@@ -88,7 +88,7 @@ public class ResourceTicketService extends StatefulService {
       }
 
       patchOperation.complete();
-      ServiceUtils.logInfo(this, "Patch of type {%s} successfully applied", patch.patchtype);
+      ServiceUtils.logFine(this, "Patch of type {%s} successfully applied", patch.patchtype);
     } catch (QuotaException quotaException) {
       ServiceUtils.logSevere(this, quotaException);
       if (!OperationUtils.isCompleted(patchOperation)) {
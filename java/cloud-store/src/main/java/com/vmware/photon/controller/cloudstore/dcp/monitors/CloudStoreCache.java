@@ -15,21 +15,27 @@ package com.vmware.photon.controller.cloudstore.dcp.monitors;
 
 import com.vmware.dcp.common.Operation;
 import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.Utils;
+import com.vmware.dcp.services.common.QueryTask;
 import com.vmware.photon.controller.common.dcp.DcpRestClient;
+import com.vmware.photon.controller.common.dcp.QueryTaskUtils;
 import com.vmware.photon.controller.common.dcp.exceptions.BadRequestException;
 import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundException;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -41,17 +47,38 @@ import java.util.concurrent.TimeoutException;
  *
  * Classes extending CloudStoreCache should not update the cache, in other words they should
  * only ready from currentData and not modify it.
+ *
+ * In incremental mode the cache is seeded with a full expand of every path, after that a refresh
+ * only retrieves the documents updated since the last refresh (plus an overlap to tolerate updates
+ * indexed out of order) and the document links, to detect the removed documents. The cost of a
+ * refresh then depends on the number of changed documents instead of the number of documents.
  */
 
 public abstract class CloudStoreCache {
     private static final Logger logger = LoggerFactory.getLogger(CloudStoreCache.class);
+    private static final String DOCUMENT_UPDATE_TIME_MICROS = "documentUpdateTimeMicros";
+    private static final long WATERMARK_OVERLAP_MICROS = TimeUnit.MINUTES.toMicros(1);
     protected final Gson gson = new Gson();
     private final DcpRestClient dcpRestClient;
+    private final boolean incremental;
     protected final Map<String, Map<String, CachedDocument>> currentData;
     protected final Map<String, Class> pathTypes;
 
+    /*
+     * Per path, the highest documentUpdateTimeMicros seen so far. A path only
+     * has a watermark once it has been seeded by a full refresh.
+     */
+    private final Map<String, Long> watermarks;
+
     public CloudStoreCache(DcpRestClient dcpRestClient, LinkedHashMap<String, Class> paths) {
+      this(dcpRestClient, paths, false);
+    }
+
+    public CloudStoreCache(DcpRestClient dcpRestClient, LinkedHashMap<String, Class> paths,
+                           boolean incremental) {
       this.dcpRestClient = dcpRestClient;
+      this.incremental = incremental;
+      this.watermarks = new HashMap();
 
       // The cache will multiple paths according to their order in paths
       // CloudStoreCache will update its cache according to the order of
@@ -96,11 +123,6 @@ public abstract class CloudStoreCache {
         return segments[segments.length - 1];
     }
 
-    private long getVersion(Object obj) {
-      JsonObject json = gson.fromJson((String) obj, JsonObject.class);
-      return json.get("documentVersion").getAsLong();
-    }
-
     /**
      * Given an expand query response and a path, this method will update the cache's
      * view for that particular path. As a side effect of the update, certain events will
@@ -121,6 +143,7 @@ public abstract class CloudStoreCache {
         Set<String> purgePaths = new HashSet(pathResources.keySet());
         purgePaths.removeAll(newPaths);
 
+        long watermark = 0;
         for (String uri : queryResponse.documents.keySet()) {
           String id = getResourceId(uri);
 
@@ -128,26 +151,12 @@ public abstract class CloudStoreCache {
           Operation op = new Operation();
           op.setBody(newJson);
           ServiceDocument document = (ServiceDocument) op.getBody(documentType);
-          CachedDocument newDocument = new CachedDocument(document, getVersion(newJson));
-
-          CachedDocument currentDocument = pathResources.get(id);
-          if (currentDocument == null) {
-            // First time seeing this path, add it to the current view and
-            // emit a notification
-            pathResources.put(id, newDocument);
-            onAdd(path, id, newDocument.getDocument());
-          } else {
-              if (currentDocument.getVersion() < newDocument.getVersion()) {
-                // There is a newer version of this path, update
-                // the current view
-                pathResources.put(id, newDocument);
-                onUpdate(path, id, newDocument.getDocument());
-              } else if (currentDocument.getVersion() > newDocument.getVersion()) {
-                logger.error("Ignoring event, resource {}/{} version decreased from {} to {}",
-                        path, id,
-                        currentDocument.getVersion(), newDocument.getVersion());
-              }
-          }
+          watermark = Math.max(watermark, document.documentUpdateTimeMicros);
+          processDocument(path, id, document);
+        }
+
+        if (incremental) {
+          watermarks.put(path, watermark);
         }
 
         // Only keep the paths that are in the intersection of
@@ -162,6 +171,89 @@ public abstract class CloudStoreCache {
         }
     }
 
+    /**
+     * Adds or updates a document in the cache view of a path, triggering the
+     * matching event.
+     *
+     * @param path              A path to the factory service
+     * @param id                The id of the document
+     * @param document          The retrieved document
+     */
+    private void processDocument(String path, String id, ServiceDocument document) {
+        Map<String, CachedDocument> pathResources = currentData.get(path);
+        CachedDocument newDocument = new CachedDocument(document, document.documentVersion);
+        CachedDocument currentDocument = pathResources.get(id);
+        if (currentDocument == null) {
+          // First time seeing this path, add it to the current view and
+          // emit a notification
+          pathResources.put(id, newDocument);
+          onAdd(path, id, newDocument.getDocument());
+        } else {
+            if (currentDocument.getVersion() < newDocument.getVersion()) {
+              // There is a newer version of this path, update
+              // the current view
+              pathResources.put(id, newDocument);
+              onUpdate(path, id, newDocument.getDocument());
+            } else if (currentDocument.getVersion() > newDocument.getVersion()) {
+              logger.error("Ignoring event, resource {}/{} version decreased from {} to {}",
+                      path, id,
+                      currentDocument.getVersion(), newDocument.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Updates the cache's view of a seeded path with the documents updated since
+     * its watermark, and removes the documents whose links are gone.
+     *
+     * @param path              A path to the factory service
+     */
+    private void refreshIncremental(String path) throws BadRequestException,
+            DocumentNotFoundException, InterruptedException, TimeoutException {
+        Class<? extends ServiceDocument> documentType = pathTypes.get(path);
+        long watermark = watermarks.get(path);
+
+        // The links are retrieved first, a document created after this query is
+        // still returned by the update query below and must not be purged
+        Set<String> currentIds = new HashSet();
+        for (String link : dcpRestClient.queryDocumentsForLinks(documentType, ImmutableMap.of())) {
+          currentIds.add(getResourceId(link));
+        }
+
+        QueryTask.Query kindClause = new QueryTask.Query()
+            .setTermPropertyName(ServiceDocument.FIELD_NAME_KIND)
+            .setTermMatchValue(Utils.buildKind(documentType));
+        QueryTask.Query updateTimeClause = new QueryTask.Query()
+            .setTermPropertyName(DOCUMENT_UPDATE_TIME_MICROS)
+            .setNumericRange(QueryTask.NumericRange.createGreaterThanRange(
+                watermark - WATERMARK_OVERLAP_MICROS));
+        QueryTask.QuerySpecification spec = new QueryTask.QuerySpecification();
+        spec.query.addBooleanClause(kindClause);
+        spec.query.addBooleanClause(updateTimeClause);
+        spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+
+        List<? extends ServiceDocument> documents = QueryTaskUtils.getQueryResultDocuments(documentType,
+                dcpRestClient.queryAndWait(spec));
+        for (ServiceDocument document : documents) {
+          String id = getResourceId(document.documentSelfLink);
+          currentIds.add(id);
+          watermark = Math.max(watermark, document.documentUpdateTimeMicros);
+          processDocument(path, id, document);
+        }
+        watermarks.put(path, watermark);
+
+        Map<String, CachedDocument> pathResources = currentData.get(path);
+        Set<String> purgeIds = new HashSet(pathResources.keySet());
+        purgeIds.removeAll(currentIds);
+        for (String oldId : purgeIds) {
+          CachedDocument document = pathResources.remove(oldId);
+          onRemove(path, oldId, document.getDocument());
+        }
+
+        logger.info("Refreshed {} incrementally, {} updated document(s), {} removed",
+                path, documents.size(), purgeIds.size());
+    }
+
     /**
      * This method will refresh the cache, as a result some events
      * might be triggered.
@@ -170,6 +262,11 @@ public abstract class CloudStoreCache {
 
         for (String prefixPath : currentData.keySet()) {
             try {
+              if (incremental && watermarks.containsKey(prefixPath)) {
+                refreshIncremental(prefixPath);
+                continue;
+              }
+
               StopWatch timer = new StopWatch();
               timer.start();
               Operation op = dcpRestClient.getAndWait(expand(prefixPath));
@@ -183,7 +280,7 @@ public abstract class CloudStoreCache {
               processQuery(resp, prefixPath);
             } catch (BadRequestException | DocumentNotFoundException |
                     InterruptedException | TimeoutException e) {
-              logger.error("Encountered an error while executing the expand query for {}",
+              logger.error("Encountered an error while executing the query for {}",
                       prefixPath, e);
               // Since the retrieval order matters, we shouldn't continue in the case of an
               // error occurring. Latter queries can have resources referencing prior queries
@@ -88,7 +88,7 @@ public class CloudStoreMonitor extends CloudStoreCache implements HostCloudMonit
     @Inject
     public CloudStoreMonitor(DcpRestClient dcpRestClient, ScheduledExecutorService executor,
                              int scanPeriodMs) {
-        super(dcpRestClient, paths);
+        super(dcpRestClient, paths, true);
         this.executor = executor;
         this.scanPeriodMs = scanPeriodMs;
         this.listenerSet = new HashSet();
@@ -27,6 +27,7 @@ import com.vmware.photon.controller.cloudstore.dcp.entity.TaskService;
 import com.vmware.photon.controller.cloudstore.dcp.entity.TombstoneService;
 import com.vmware.photon.controller.common.dcp.InitializationUtils;
 import com.vmware.photon.controller.common.dcp.PatchUtils;
+import com.vmware.photon.controller.common.dcp.QueryTaskUtils;
 import com.vmware.photon.controller.common.dcp.ServiceUriPaths;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
 import com.vmware.photon.controller.common.dcp.ValidationUtils;
@@ -38,13 +39,12 @@ import com.vmware.photon.controller.common.dcp.validation.NotNull;
 import com.vmware.photon.controller.common.dcp.validation.Positive;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Class implementing service to remove stale tombstones and associated tasks from the cloud store.
@@ -89,6 +89,10 @@ public class TombstoneCleanerService extends StatefulService {
   private void initializeState(State current) {
     InitializationUtils.initialize(current);
 
+    if (current.tombstoneTimeWatermarkMillis == null && current.tombstoneExpirationAgeMillis != null) {
+      current.tombstoneTimeWatermarkMillis = System.currentTimeMillis() - current.tombstoneExpirationAgeMillis;
+    }
+
     if (current.documentExpirationTimeMicros <= 0) {
       current.documentExpirationTimeMicros =
           ServiceUtils.computeExpirationTime(ServiceUtils.DEFAULT_DOC_EXPIRATION_TIME);
@@ -150,8 +154,7 @@ public class TombstoneCleanerService extends StatefulService {
     try {
       switch (current.taskState.stage) {
         case STARTED:
-          final State finishPatch = new State();
-          this.queryStaleTombstones(current, finishPatch);
+          this.queryStaleTombstonePage(current);
           break;
 
         case FAILED:
@@ -171,12 +174,12 @@ public class TombstoneCleanerService extends StatefulService {
   }
 
   /**
-   * Retrieves the stale tombstones and kicks of the subsequent processing.
+   * Retrieves the first page of stale tombstones and kicks of the processing of the page. The tombstones of a page
+   * are deleted once the page is processed, so the first page always holds the tombstones which are left to process.
    *
    * @param current
-   * @param finishPatch
    */
-  private void queryStaleTombstones(final State current, final State finishPatch) {
+  private void queryStaleTombstonePage(final State current) {
     Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
       public void handle(Operation completedOp, Throwable failure) {
@@ -186,18 +189,14 @@ public class TombstoneCleanerService extends StatefulService {
         }
 
         try {
-          List<TombstoneService.State> tombstoneList =
-              parseTombstoneQueryResults(completedOp.getBody(QueryTask.class));
-          if (tombstoneList.size() == 0) {
+          QueryTask result = completedOp.getBody(QueryTask.class);
+          if (result.results == null || result.results.nextPageLink == null) {
             ServiceUtils.logInfo(TombstoneCleanerService.this, "No stale tombstones found.");
-            finishTask(finishPatch);
+            finishTask(new State());
             return;
           }
 
-          ServiceUtils.logInfo(TombstoneCleanerService.this,
-              "Count of stale tombstones found = " + tombstoneList.size());
-          finishPatch.staleTombstones = tombstoneList.size();
-          queryStaleTasks(finishPatch, tombstoneList);
+          getStaleTombstonePage(current, result.results.nextPageLink);
         } catch (Throwable ex) {
           failTask(ex);
         }
@@ -213,115 +212,147 @@ public class TombstoneCleanerService extends StatefulService {
   }
 
   /**
-   * Retrieves the list of stale tasks.
+   * Retrieves the tombstones of a result page and kicks of the subsequent processing.
    *
-   * @param finishPatch
-   * @param tombstoneList
+   * @param current
+   * @param pageLink
    */
-  private void queryStaleTasks(final State finishPatch,
-                               List<TombstoneService.State> tombstoneList) {
-    OperationJoin.JoinedCompletionHandler handler = new OperationJoin.JoinedCompletionHandler() {
+  private void getStaleTombstonePage(final State current, String pageLink) {
+    Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
-      public void handle(Map<Long, Operation> ops, Map<Long, Throwable> failures) {
-        if (failures != null && !failures.isEmpty()) {
-          failTask(failures.values().iterator().next());
+      public void handle(Operation completedOp, Throwable failure) {
+        if (failure != null) {
+          failTask(failure);
           return;
         }
 
         try {
-          Set<String> taskSet = new HashSet<>();
-          for (Operation op : ops.values()) {
-            NodeGroupBroadcastResponse query = op.getBody(NodeGroupBroadcastResponse.class);
-            ServiceUtils.logInfo(TombstoneCleanerService.this, "Task broadcast query: %s", Utils.toJson(query));
-            if (!query.failures.isEmpty()) {
-              failTask(new RuntimeException("Failures in broadcast query for stale tasks."));
-              return;
-            }
-
-            for (Map.Entry<URI, String> entry : query.jsonResponses.entrySet()) {
-              QueryTask queryTask = Utils.fromJson(entry.getValue(), QueryTask.class);
-              if (queryTask != null && queryTask.results != null) {
-                taskSet.addAll(queryTask.results.documentLinks);
-              }
-            }
+          QueryTask result = completedOp.getBody(QueryTask.class);
+          List<TombstoneService.State> tombstoneList = parseTombstoneQueryResults(result);
+          if (tombstoneList.size() == 0) {
+            ServiceUtils.logInfo(TombstoneCleanerService.this, "No stale tombstones found.");
+            finishTask(new State());
+            return;
           }
 
-          finishPatch.staleTasks = taskSet.size();
-          if (taskSet.size() == 0) {
-            deleteTombstones(finishPatch, tombstoneList);
-          } else {
-            deleteTasks(finishPatch, tombstoneList, taskSet);
-          }
+          ServiceUtils.logInfo(TombstoneCleanerService.this,
+              "Count of stale tombstones found in page = " + tombstoneList.size());
+          State progressPatch = buildPatch(TaskState.TaskStage.STARTED, null);
+          progressPatch.staleTombstones = current.staleTombstones + tombstoneList.size();
+          progressPatch.staleTasks = current.staleTasks;
+          progressPatch.deletedTombstones = current.deletedTombstones;
+          progressPatch.deletedTasks = current.deletedTasks;
+
+          boolean isLastPage = result.results.nextPageLink == null;
+          queryStaleTasks(current, progressPatch, tombstoneList, isLastPage);
         } catch (Throwable ex) {
           failTask(ex);
         }
       }
     };
 
-    URI queryUri = UriUtils.buildBroadcastRequestUri(
-        UriUtils.buildUri(getHost(), com.vmware.dcp.services.common.ServiceUriPaths.CORE_LOCAL_QUERY_TASKS),
-        ServiceUriPaths.DEFAULT_NODE_SELECTOR);
-
-    Collection<Operation> posts = new LinkedList<>();
-    for (TombstoneService.State tombstone : tombstoneList) {
-      Operation post = Operation
-          .createPost(queryUri)
-          .setBody(buildTaskQuery(tombstone))
-          .setReferer(UriUtils.buildUri(getHost(), getSelfLink()))
-          .forceRemote();
-
-      posts.add(post);
-    }
+    Operation pageGet = Operation
+        .createGet(UriUtils.buildUri(getHost(), pageLink))
+        .setCompletion(handler);
 
-    OperationJoin join = OperationJoin.create(posts);
-    join.setCompletion(handler);
-    join.sendWith(this);
+    this.sendRequest(pageGet);
   }
 
   /**
-   * Deletes the stale task documents.
+   * Retrieves the stale tasks of all tombstones in the page with a single query.
    *
-   * @param finishPatch
+   * @param current
+   * @param progressPatch
    * @param tombstoneList
-   * @param taskSet
+   * @param isLastPage
    */
-  private void deleteTasks(final State finishPatch, List<TombstoneService.State> tombstoneList, Set<String> taskSet) {
-    OperationJoin.JoinedCompletionHandler handler = new OperationJoin.JoinedCompletionHandler() {
+  private void queryStaleTasks(final State current,
+                               final State progressPatch,
+                               List<TombstoneService.State> tombstoneList,
+                               boolean isLastPage) {
+    Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
-      public void handle(Map<Long, Operation> ops, Map<Long, Throwable> failures) {
-        if (failures != null && !failures.isEmpty()) {
-          failTask(failures.values().iterator().next());
+      public void handle(Operation completedOp, Throwable failure) {
+        if (failure != null) {
+          failTask(failure);
           return;
         }
 
-        finishPatch.deletedTasks = taskSet.size();
-        deleteTombstones(finishPatch, tombstoneList);
+        try {
+          NodeGroupBroadcastResponse query = completedOp.getBody(NodeGroupBroadcastResponse.class);
+          ServiceUtils.logInfo(TombstoneCleanerService.this, "Task broadcast query: %s", Utils.toJson(query));
+          if (!query.failures.isEmpty()) {
+            failTask(new RuntimeException("Failures in broadcast query for stale tasks."));
+            return;
+          }
+
+          List<String> taskLinks = new ArrayList<>(QueryTaskUtils.getBroadcastQueryResults(query));
+          progressPatch.staleTasks += taskLinks.size();
+
+          List<String> tombstoneLinks = new ArrayList<>();
+          for (TombstoneService.State tombstone : tombstoneList) {
+            tombstoneLinks.add(tombstone.documentSelfLink);
+          }
+
+          // tasks are deleted first so that a page which fails part way is found again by the next page query
+          deleteDocuments(current, taskLinks, () -> {
+            progressPatch.deletedTasks += taskLinks.size();
+            deleteDocuments(current, tombstoneLinks, () -> {
+              progressPatch.deletedTombstones += tombstoneLinks.size();
+              if (isLastPage) {
+                finishTask(progressPatch);
+              } else {
+                sendSelfPatch(progressPatch);
+              }
+            });
+          });
+        } catch (Throwable ex) {
+          failTask(ex);
+        }
       }
     };
 
-    Collection<Operation> deletes = new LinkedList<>();
-    for (String taskLink : taskSet) {
-      Operation delete = Operation
-          .createDelete(UriUtils.buildUri(getHost(), taskLink))
-          .setBody("{}")
-          .setReferer(UriUtils.buildUri(getHost(), getSelfLink()))
-          .forceRemote();
-
-      deletes.add(delete);
+    List<String> entityIds = new ArrayList<>();
+    for (TombstoneService.State tombstone : tombstoneList) {
+      entityIds.add(tombstone.entityId);
     }
 
-    OperationJoin join = OperationJoin.create(deletes);
-    join.setCompletion(handler);
-    join.sendWith(this);
+    QueryTask.QuerySpecification spec =
+        QueryTaskUtils.buildQuerySpec(TaskService.State.class, TaskService.State.FIELD_NAME_ENTITY_ID, entityIds);
+    QueryTask query = QueryTask.create(spec)
+        .setDirect(true);
+
+    URI queryUri = UriUtils.buildBroadcastRequestUri(
+        UriUtils.buildUri(getHost(), com.vmware.dcp.services.common.ServiceUriPaths.CORE_LOCAL_QUERY_TASKS),
+        ServiceUriPaths.DEFAULT_NODE_SELECTOR);
+
+    Operation post = Operation
+        .createPost(queryUri)
+        .setBody(query)
+        .setReferer(UriUtils.buildUri(getHost(), getSelfLink()))
+        .forceRemote()
+        .setCompletion(handler);
+
+    this.sendRequest(post);
   }
 
   /**
-   * Deletes the the stale tombstone entities.
+   * Deletes the documents in batches of at most maxConcurrentDeletes operations, a batch is only sent once the
+   * previous batch completed.
    *
-   * @param finishPatch
-   * @param tombstoneList
+   * @param current
+   * @param documentLinks
+   * @param next
    */
-  private void deleteTombstones(final State finishPatch, List<TombstoneService.State> tombstoneList) {
+  private void deleteDocuments(final State current, final List<String> documentLinks, final Runnable next) {
+    if (documentLinks.isEmpty()) {
+      next.run();
+      return;
+    }
+
+    final List<String> batch = documentLinks.subList(0, Math.min(current.maxConcurrentDeletes, documentLinks.size()));
+    final List<String> remaining = documentLinks.subList(batch.size(), documentLinks.size());
+
     OperationJoin.JoinedCompletionHandler handler = new OperationJoin.JoinedCompletionHandler() {
       @Override
       public void handle(Map<Long, Operation> ops, Map<Long, Throwable> failures) {
@@ -330,15 +361,18 @@ public class TombstoneCleanerService extends StatefulService {
           return;
         }
 
-        finishPatch.deletedTombstones = tombstoneList.size();
-        finishTask(finishPatch);
+        try {
+          deleteDocuments(current, remaining, next);
+        } catch (Throwable ex) {
+          failTask(ex);
+        }
       }
     };
 
     Collection<Operation> deletes = new LinkedList<>();
-    for (TombstoneService.State tombstone : tombstoneList) {
+    for (String documentLink : batch) {
       Operation delete = Operation
-          .createDelete(UriUtils.buildUri(getHost(), tombstone.documentSelfLink))
+          .createDelete(UriUtils.buildUri(getHost(), documentLink))
           .setBody("{}")
           .setReferer(UriUtils.buildUri(getHost(), getSelfLink()))
           .forceRemote();
@@ -355,6 +389,10 @@ public class TombstoneCleanerService extends StatefulService {
     ServiceUtils.logInfo(TombstoneCleanerService.this, "Tombstone query: %s", Utils.toJson(result));
 
     List<TombstoneService.State> tombstoneList = new LinkedList<>();
+    if (result.results == null || result.results.documents == null) {
+      return tombstoneList;
+    }
+
     for (Map.Entry<String, Object> doc : result.results.documents.entrySet()) {
       tombstoneList.add(
           Utils.fromJson(doc.getValue(), TombstoneService.State.class));
@@ -440,7 +478,7 @@ public class TombstoneCleanerService extends StatefulService {
   }
 
   /**
-   * Builds the query spec to retrieve all expired tombstones.
+   * Builds the query spec to retrieve the expired tombstones one page at a time.
    *
    * @param current
    * @return
@@ -450,8 +488,7 @@ public class TombstoneCleanerService extends StatefulService {
         .setTermPropertyName(ServiceDocument.FIELD_NAME_KIND)
         .setTermMatchValue(Utils.buildKind(TombstoneService.State.class));
 
-    QueryTask.NumericRange range = QueryTask.NumericRange.createLessThanRange(
-        System.currentTimeMillis() - current.tombstoneExpirationAgeMillis);
+    QueryTask.NumericRange range = QueryTask.NumericRange.createLessThanRange(current.tombstoneTimeWatermarkMillis);
     range.precisionStep = Integer.MAX_VALUE;
     QueryTask.Query ageClause = new QueryTask.Query()
         .setTermPropertyName(TombstoneService.State.FIELD_NAME_TOMBSTONE_TIME)
@@ -459,6 +496,7 @@ public class TombstoneCleanerService extends StatefulService {
 
     QueryTask.QuerySpecification spec = new QueryTask.QuerySpecification();
     spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+    spec.resultLimit = current.pageSize;
     spec.query
         .addBooleanClause(kindClause)
         .addBooleanClause(ageClause);
@@ -469,31 +507,6 @@ public class TombstoneCleanerService extends StatefulService {
     return task;
   }
 
-  private QueryTask buildTaskQuery(final TombstoneService.State tombstone) {
-    QueryTask.Query kindClause = new QueryTask.Query()
-        .setTermPropertyName(ServiceDocument.FIELD_NAME_KIND)
-        .setTermMatchValue(Utils.buildKind(TaskService.State.class));
-
-    QueryTask.Query entityIdClause = new QueryTask.Query()
-        .setTermPropertyName(TaskService.State.FIELD_NAME_ENTITY_ID)
-        .setTermMatchValue(tombstone.entityId);
-
-    QueryTask.Query entityKindClause = new QueryTask.Query()
-        .setTermPropertyName(TaskService.State.FIELD_NAME_ENTITY_KIND)
-        .setTermMatchValue(tombstone.entityKind);
-
-    QueryTask.QuerySpecification spec = new QueryTask.QuerySpecification();
-    spec.query
-        .addBooleanClause(kindClause)
-        .addBooleanClause(entityIdClause)
-        .addBooleanClause(entityKindClause);
-
-    QueryTask task = QueryTask.create(spec)
-        .setDirect(true);
-
-    return task;
-  }
-
   /**
    * Durable service state data.
    */
@@ -519,6 +532,30 @@ public class TombstoneCleanerService extends StatefulService {
     @Positive
     public Long tombstoneExpirationAgeMillis;
 
+    /**
+     * Tombstones older than this time are deleted by this run. It is computed when the service starts and persisted
+     * with its state, so that a run which resumes after a restart or an owner change keeps cleaning up the same
+     * tombstones. (milliseconds)
+     */
+    @Immutable
+    public Long tombstoneTimeWatermarkMillis;
+
+    /**
+     * The number of tombstones which are processed together.
+     */
+    @DefaultInteger(value = 100)
+    @Immutable
+    @Positive
+    public Integer pageSize;
+
+    /**
+     * The maximum number of delete operations in flight at any time.
+     */
+    @DefaultInteger(value = 50)
+    @Immutable
+    @Positive
+    public Integer maxConcurrentDeletes;
+
     /**
      * The number of tombstones to delete.
      */
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.cloudstore.dcp.monitors;
+
+import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.services.common.QueryTask;
+import com.vmware.photon.controller.cloudstore.dcp.entity.DatastoreService;
+import com.vmware.photon.controller.cloudstore.dcp.entity.DatastoreServiceFactory;
+import com.vmware.photon.controller.cloudstore.dcp.helpers.TestEnvironment;
+import com.vmware.photon.controller.common.dcp.DcpRestClient;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link CloudStoreCache} in incremental mode.
+ */
+public class CloudStoreCacheTest {
+
+  private static final long WATERMARK_OVERLAP_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private TestEnvironment cloudStoreMachine;
+  private DcpRestClient client;
+  private TestCache cache;
+
+  @BeforeMethod
+  public void setUpTest() throws Throwable {
+    cloudStoreMachine = TestEnvironment.create(1);
+    client = spy(new DcpRestClient(cloudStoreMachine.getServerSet(), Executors.newFixedThreadPool(1)));
+    client.start();
+
+    LinkedHashMap<String, Class> paths = new LinkedHashMap<>();
+    paths.put(DatastoreServiceFactory.SELF_LINK, DatastoreService.State.class);
+    cache = new TestCache(client, paths);
+  }
+
+  @AfterMethod
+  public void tearDownTest() throws Throwable {
+    if (null != cloudStoreMachine) {
+      cloudStoreMachine.stop();
+      cloudStoreMachine = null;
+    }
+
+    if (null != client) {
+      client.stop();
+      client = null;
+    }
+  }
+
+  @Test
+  public void testWatermarkAdvances() throws Throwable {
+    createDatastore("datastore1");
+    createDatastore("datastore2");
+
+    cache.refresh();
+    assertThat(cache.added, containsInAnyOrder("datastore1", "datastore2"));
+    long seedWatermark = Math.max(getUpdateTimeMicros("datastore1"), getUpdateTimeMicros("datastore2"));
+
+    DatastoreService.State patch = new DatastoreService.State();
+    patch.tags = new HashSet<>();
+    patch.tags.add("tag1");
+    client.patchAndWait(getDatastoreUri("datastore1"), patch);
+
+    cache.refresh();
+    assertThat(cache.updated, containsInAnyOrder("datastore1"));
+    assertThat(getUpdateTimeLowerBound(1), is(seedWatermark - WATERMARK_OVERLAP_MICROS));
+
+    cache.refresh();
+    assertThat(cache.updated, containsInAnyOrder("datastore1"));
+    assertThat(getUpdateTimeLowerBound(2),
+        is(getUpdateTimeMicros("datastore1") - WATERMARK_OVERLAP_MICROS));
+
+    // Only the seed expands the factory
+    verify(client, times(1)).getAndWait(DatastoreServiceFactory.SELF_LINK + "?expand");
+  }
+
+  @Test
+  public void testOverlapSkipsSeenDocuments() throws Throwable {
+    createDatastore("datastore1");
+    createDatastore("datastore2");
+
+    cache.refresh();
+    assertThat(cache.added, containsInAnyOrder("datastore1", "datastore2"));
+
+    // Both documents are inside the overlap window and are returned again
+    cache.refresh();
+    cache.refresh();
+
+    verify(client, times(2)).queryAndWait(any(QueryTask.QuerySpecification.class));
+    assertThat(cache.added, containsInAnyOrder("datastore1", "datastore2"));
+    assertThat(cache.updated, is(empty()));
+    assertThat(cache.removed, is(empty()));
+  }
+
+  @Test
+  public void testDeletedDocumentsAreRemoved() throws Throwable {
+    createDatastore("datastore1");
+    createDatastore("datastore2");
+
+    cache.refresh();
+    assertThat(cache.added, containsInAnyOrder("datastore1", "datastore2"));
+
+    client.deleteAndWait(getDatastoreUri("datastore2"), null);
+
+    cache.refresh();
+    assertThat(cache.removed, containsInAnyOrder("datastore2"));
+    assertThat(cache.updated, is(empty()));
+    assertThat(cache.currentData.get(DatastoreServiceFactory.SELF_LINK).keySet(),
+        containsInAnyOrder("datastore1"));
+
+    cache.refresh();
+    assertThat(cache.removed, containsInAnyOrder("datastore2"));
+    verify(client, times(1)).getAndWait(DatastoreServiceFactory.SELF_LINK + "?expand");
+  }
+
+  private void createDatastore(String id) throws Throwable {
+    DatastoreService.State datastore = new DatastoreService.State();
+    datastore.id = id;
+    datastore.name = id;
+    datastore.type = "SHARED_VMFS";
+    datastore.documentSelfLink = getDatastoreUri(id);
+    client.postAndWait(DatastoreServiceFactory.SELF_LINK, datastore);
+  }
+
+  private long getUpdateTimeMicros(String id) throws Throwable {
+    return client.getAndWait(getDatastoreUri(id)).getBody(DatastoreService.State.class).documentUpdateTimeMicros;
+  }
+
+  /**
+   * Returns the lower bound of the update time clause of the given incremental refresh query.
+   */
+  private long getUpdateTimeLowerBound(int refresh) throws Throwable {
+    ArgumentCaptor<QueryTask.QuerySpecification> captor = ArgumentCaptor.forClass(QueryTask.QuerySpecification.class);
+    verify(client, times(refresh)).queryAndWait(captor.capture());
+    QueryTask.QuerySpecification spec = captor.getAllValues().get(refresh - 1);
+    return spec.query.booleanClauses.get(1).term.range.min.longValue();
+  }
+
+  private String getDatastoreUri(String id) {
+    return DatastoreServiceFactory.SELF_LINK + "/" + id;
+  }
+
+  /**
+   * Records the ids of the documents the cache reports.
+   */
+  private static class TestCache extends CloudStoreCache {
+    private final List<String> added = new ArrayList<>();
+    private final List<String> updated = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+
+    private TestCache(DcpRestClient dcpRestClient, LinkedHashMap<String, Class> paths) {
+      super(dcpRestClient, paths, true);
+    }
+
+    @Override
+    protected void onAdd(String path, String id, ServiceDocument document) {
+      added.add(id);
+    }
+
+    @Override
+    protected void onUpdate(String path, String id, ServiceDocument document) {
+      updated.add(id);
+    }
+
+    @Override
+    protected void onRemove(String path, String id, ServiceDocument document) {
+      removed.add(id);
+    }
+  }
+}
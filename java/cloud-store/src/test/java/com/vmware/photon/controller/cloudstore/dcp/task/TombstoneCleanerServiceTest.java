@@ -128,6 +128,9 @@ public class TombstoneCleanerServiceTest {
       TombstoneCleanerService.State savedState = host.getServiceState(TombstoneCleanerService.State.class);
       assertThat(savedState.documentSelfLink, is(BasicServiceHost.SERVICE_URI));
       assertThat(savedState.tombstoneExpirationAgeMillis, is(startState.tombstoneExpirationAgeMillis));
+      assertThat(new BigDecimal(savedState.tombstoneTimeWatermarkMillis),
+          is(closeTo(new BigDecimal(System.currentTimeMillis() - startState.tombstoneExpirationAgeMillis),
+              new BigDecimal(TimeUnit.SECONDS.toMillis(10)))));
 
       assertThat(new BigDecimal(savedState.documentExpirationTimeMicros),
           is(closeTo(new BigDecimal(ServiceUtils.computeExpirationTime(ServiceUtils.DEFAULT_DOC_EXPIRATION_TIME)),
@@ -156,7 +159,11 @@ public class TombstoneCleanerServiceTest {
     public Object[][] getPositiveFieldsParams() {
       return new Object[][]{
           {"tombstoneExpirationAgeMillis", 0L},
-          {"tombstoneExpirationAgeMillis", -1L}
+          {"tombstoneExpirationAgeMillis", -1L},
+          {"pageSize", 0},
+          {"pageSize", -1},
+          {"maxConcurrentDeletes", 0},
+          {"maxConcurrentDeletes", -1}
       };
     }
 
@@ -195,7 +202,9 @@ public class TombstoneCleanerServiceTest {
           {"staleTombstones", 0},
           {"staleTasks", 0},
           {"deletedTombstones", 0},
-          {"deletedTasks", 0}
+          {"deletedTasks", 0},
+          {"pageSize", 100},
+          {"maxConcurrentDeletes", 50}
       };
     }
 
@@ -313,7 +322,10 @@ public class TombstoneCleanerServiceTest {
     @DataProvider(name = "ImmutableFields")
     public Object[][] getImmutableFieldsParams() {
       return new Object[][]{
-          {"tombstoneExpirationAgeMillis", 10L}
+          {"tombstoneExpirationAgeMillis", 10L},
+          {"tombstoneTimeWatermarkMillis", 10L},
+          {"pageSize", 10},
+          {"maxConcurrentDeletes", 10}
       };
     }
   }
@@ -408,6 +420,35 @@ public class TombstoneCleanerServiceTest {
       };
     }
 
+    /**
+     * Tests that stale tombstones spanning several pages are all cleaned up.
+     *
+     * @param hostCount
+     * @throws Throwable
+     */
+    @Test(dataProvider = "hostCount")
+    public void testSuccessWithMultiplePages(int hostCount) throws Throwable {
+      request.pageSize = 2;
+      request.maxConcurrentDeletes = 3;
+
+      machine = TestEnvironment.create(hostCount);
+      seedTestEnvironment(machine, 9, 7, 4);
+
+      TombstoneCleanerService.State response = machine.callServiceAndWaitForState(
+          TombstoneCleanerFactoryService.SELF_LINK,
+          request,
+          TombstoneCleanerService.State.class,
+          (TombstoneCleanerService.State state) -> state.taskState.stage == TaskState.TaskStage.FINISHED);
+
+      assertThat(response.staleTombstones, is(7));
+      assertThat(response.staleTasks, is(28));
+      assertThat(response.deletedTombstones, is(7));
+      assertThat(response.deletedTasks, is(28));
+
+      waitForReplication(machine, 2, TombstoneServiceFactory.SELF_LINK);
+      waitForReplication(machine, 8, TaskServiceFactory.SELF_LINK);
+    }
+
     private void seedTestEnvironment(TestEnvironment env,
                                      int totalTombstones,
                                      int staleTombstones,
@@ -15,6 +15,7 @@ package com.vmware.photon.controller.common.dcp;
 
 import com.vmware.dcp.common.Operation;
 import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
 import com.vmware.dcp.services.common.QueryTask;
 import com.vmware.photon.controller.common.dcp.exceptions.BadRequestException;
 import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundException;
@@ -22,7 +23,9 @@ import com.vmware.photon.controller.common.dcp.exceptions.DocumentNotFoundExcept
 import com.google.common.collect.ImmutableMap;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -52,11 +55,39 @@ public interface DcpClient {
   Operation patchAndWait(String serviceSelfLink, ServiceDocument body)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
 
+  CompletableFuture<Operation> postAsync(String serviceSelfLink, ServiceDocument body);
+
+  CompletableFuture<Operation> getAsync(String documentSelfLink);
+
+  CompletableFuture<Operation> queryAsync(QueryTask.QuerySpecification spec);
+
+  CompletableFuture<Operation> deleteAsync(String documentSelfLink, ServiceDocument body);
+
+  CompletableFuture<Operation> patchAsync(String serviceSelfLink, ServiceDocument body);
+
   <T extends ServiceDocument> List<T> queryDocuments(Class<T> documentType,
                                                      ImmutableMap<String, String> terms)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
 
+  <T extends ServiceDocument> List<T> queryDocuments(Class<T> documentType,
+                                                     String propertyName,
+                                                     Collection<String> values)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
+
   <T extends ServiceDocument> List<String> queryDocumentsForLinks(Class<T> documentType,
                                                                   ImmutableMap<String, String> terms)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
+
+  <T extends ServiceDocument> Iterator<T> queryDocumentsPaged(Class<T> documentType,
+                                                              ImmutableMap<String, String> terms,
+                                                              int pageSize)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
+
+  <T extends ServiceDocument> ServiceDocumentQueryResult queryDocumentPage(Class<T> documentType,
+                                                                           ImmutableMap<String, String> terms,
+                                                                           int pageSize)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
+
+  ServiceDocumentQueryResult queryDocumentPage(String pageLink)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
 }
@@ -16,9 +16,13 @@ package com.vmware.photon.controller.common.dcp;
 import com.vmware.dcp.common.Operation;
 import com.vmware.dcp.common.OperationJoin;
 import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
 import com.vmware.dcp.common.UriUtils;
 import com.vmware.dcp.common.Utils;
 import com.vmware.dcp.common.http.netty.NettyHttpServiceClient;
+import com.vmware.dcp.services.common.NodeGroupBroadcastResponse;
+import com.vmware.dcp.services.common.NodeGroupService;
+import com.vmware.dcp.services.common.NodeState;
 import com.vmware.dcp.services.common.QueryTask;
 import com.vmware.photon.controller.common.dcp.exceptions.BadRequestException;
 import com.vmware.photon.controller.common.dcp.exceptions.DcpRuntimeException;
@@ -28,23 +32,38 @@ import com.vmware.photon.controller.common.thrift.ServerSet;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 /**
  * REST client to access DCP services.
@@ -62,6 +81,10 @@ public class DcpRestClient implements DcpClient {
   private static final long PATCH_OPERATION_EXPIRATION_MICROS = TimeUnit.SECONDS.toMicros(60);
   private long patchOperationExpirationMicros = PATCH_OPERATION_EXPIRATION_MICROS;
   private static final long DEFAULT_OPERATION_LATCH_TIMEOUT_MICROS = TimeUnit.SECONDS.toMicros(90);
+  // keeps the boolean clauses of a query well below the lucene limit of 1024
+  private static final int MAX_QUERY_VALUES = 256;
+  // page cursors come back from clients, only the query pages of the nodes may be followed
+  private static final Pattern QUERY_PAGE_LINK_PATTERN = Pattern.compile("^/core/query-page/[\\w-]+$");
   private static final Logger logger = LoggerFactory.getLogger(DcpRestClient.class);
   private NettyHttpServiceClient client;
   private ServerSet serverSet;
@@ -100,31 +123,23 @@ public class DcpRestClient implements DcpClient {
   @Override
   public Operation postAndWait(String serviceSelfLink, ServiceDocument body)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = createUriUsingRandomAddress(serviceSelfLink);
-
-    Operation postOperation = Operation
-        .createPost(serviceUri)
-        .setUri(serviceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getPostOperationExpirationMicros())
-        .setBody(body)
-        .setReferer(this.localHostAddress);
+    return sendAndWait(createPostOperation(serviceSelfLink, body));
+  }
 
-    return sendAndWait(postOperation);
+  @Override
+  public CompletableFuture<Operation> postAsync(String serviceSelfLink, ServiceDocument body) {
+    return sendAsync(createPostOperation(serviceSelfLink, body));
   }
 
   @Override
   public Operation getAndWait(String documentSelfLink)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = createUriUsingRandomAddress(documentSelfLink);
-
-    Operation getOperation = Operation
-        .createGet(serviceUri)
-        .setUri(serviceUri)
-        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
-        .setExpiration(Utils.getNowMicrosUtc() + getGetOperationExpirationMicros())
-        .setReferer(this.localHostAddress);
+    return sendAndWait(createGetOperation(documentSelfLink));
+  }
 
-    return sendAndWait(getOperation);
+  @Override
+  public CompletableFuture<Operation> getAsync(String documentSelfLink) {
+    return sendAsync(createGetOperation(documentSelfLink));
   }
 
   @Override
@@ -132,16 +147,7 @@ public class DcpRestClient implements DcpClient {
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
     List<Operation> opList = new ArrayList<>(documentSelfLinks.size());
     for (String documentSelfLink : documentSelfLinks) {
-      URI serviceUri = createUriUsingRandomAddress(documentSelfLink);
-
-      Operation getOperation = Operation
-          .createGet(serviceUri)
-          .setUri(serviceUri)
-          .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
-          .setExpiration(Utils.getNowMicrosUtc() + getGetOperationExpirationMicros())
-          .setReferer(this.localHostAddress);
-
-      opList.add(getOperation);
+      opList.add(createGetOperation(documentSelfLink));
     }
 
     OperationJoin join = OperationJoin.create(opList);
@@ -152,53 +158,61 @@ public class DcpRestClient implements DcpClient {
   @Override
   public Operation deleteAndWait(String documentSelfLink, ServiceDocument body)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = createUriUsingRandomAddress(documentSelfLink);
-
-    Operation deleteOperation = Operation
-        .createDelete(serviceUri)
-        .setUri(serviceUri)
-        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
-        .setExpiration(Utils.getNowMicrosUtc() + getDeleteOperationExpirationMicros())
-        .setReferer(this.localHostAddress)
-        .setBody(body);
+    return sendAndWait(createDeleteOperation(documentSelfLink, body));
+  }
 
-    return sendAndWait(deleteOperation);
+  @Override
+  public CompletableFuture<Operation> deleteAsync(String documentSelfLink, ServiceDocument body) {
+    return sendAsync(createDeleteOperation(documentSelfLink, body));
   }
 
   @Override
   public Operation queryAndWait(QueryTask.QuerySpecification spec)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = UriUtils.buildBroadcastRequestUri(
-        createUriUsingRandomAddress(ServiceUriPaths.CORE_LOCAL_QUERY_TASKS),
-        ServiceUriPaths.DEFAULT_NODE_SELECTOR);
-
-    QueryTask query = QueryTask.create(spec)
-        .setDirect(true);
-
-    Operation queryOperation = Operation
-        .createPost(serviceUri)
-        .setUri(serviceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getQueryOperationExpirationMicros())
-        .setBody(query)
-        .setReferer(this.localHostAddress);
+    return sendAndWait(createQueryOperation(spec));
+  }
 
-    return sendAndWait(queryOperation);
+  @Override
+  public CompletableFuture<Operation> queryAsync(QueryTask.QuerySpecification spec) {
+    return sendAsync(createQueryOperation(spec));
   }
 
   @Override
   public Operation patchAndWait(String serviceSelfLink, ServiceDocument body)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = createUriUsingRandomAddress(serviceSelfLink);
+    return sendAndWait(createPatchOperation(serviceSelfLink, body));
+  }
 
-    Operation patchOperation = Operation
-        .createPatch(serviceUri)
-        .setUri(serviceUri)
-        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
-        .setExpiration(Utils.getNowMicrosUtc() + getPatchOperationExpirationMicros())
-        .setBody(body)
-        .setReferer(this.localHostAddress);
+  @Override
+  public CompletableFuture<Operation> patchAsync(String serviceSelfLink, ServiceDocument body) {
+    return sendAsync(createPatchOperation(serviceSelfLink, body));
+  }
 
-    return sendAndWait(patchOperation);
+  /**
+   * Waits for the result of one of the asynchronous operations, failures are thrown as they would be thrown by
+   * the corresponding blocking method.
+   *
+   * @param future
+   * @return
+   * @throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException
+   */
+  public Operation awaitAsync(CompletableFuture<Operation> future)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
+    try {
+      return future.get(DEFAULT_OPERATION_LATCH_TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+    } catch (ExecutionException executionException) {
+      Throwable cause = executionException.getCause();
+      if (cause instanceof BadRequestException) {
+        throw (BadRequestException) cause;
+      } else if (cause instanceof DocumentNotFoundException) {
+        throw (DocumentNotFoundException) cause;
+      } else if (cause instanceof TimeoutException) {
+        throw (TimeoutException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new DcpRuntimeException(cause);
+    }
   }
 
   /**
@@ -226,6 +240,45 @@ public class DcpRestClient implements DcpClient {
     return QueryTaskUtils.getQueryResultDocuments(documentType, result);
   }
 
+  /**
+   * Executes DCP queries which will query for documents of type T whose propertyName field matches any of the
+   * values, e.g. to fetch the documents referenced by a batch of other documents without querying them one by one.
+   * The values are split in batches which are queried concurrently.
+   * This also expands the content of the resulting documents.
+   *
+   * @param documentType
+   * @param propertyName
+   * @param values
+   * @param <T>
+   * @return
+   * @throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException
+   */
+  @Override
+  public <T extends ServiceDocument> List<T> queryDocuments(Class<T> documentType,
+                                                            String propertyName,
+                                                            Collection<String> values)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
+    checkNotNull(documentType, "Cannot query documents with null documentType");
+    checkNotNull(values, "Cannot query documents with null values");
+
+    List<CompletableFuture<Operation>> futures = new ArrayList<>();
+    for (List<String> batch : Iterables.partition(ImmutableSet.copyOf(values), MAX_QUERY_VALUES)) {
+      QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(documentType, propertyName, batch);
+      spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+      futures.add(queryAsync(spec));
+    }
+
+    List<T> documents = new ArrayList<>();
+    for (CompletableFuture<Operation> future : futures) {
+      Operation result = awaitAsync(future);
+      if (result != null) {
+        documents.addAll(QueryTaskUtils.getQueryResultDocuments(documentType, result));
+      }
+    }
+
+    return documents;
+  }
+
   /**
    * Executes a DCP query which will query for documents of type T.
    * Any other filter clauses are optional.
@@ -255,6 +308,133 @@ public class DcpRestClient implements DcpClient {
     return ImmutableList.copyOf(documentLinks);
   }
 
+  /**
+   * Executes a paginated DCP query which will query for documents of type T.
+   * Any other filter clauses are optional.
+   * This also expands the content of the resulting documents.
+   *
+   * Unlike queryDocuments the documents are not materialized in a list: the returned iterator fetches the result
+   * pages of every node one at a time, holding at most the page being consumed and the next page, which is
+   * requested in the background. Result pages expire on the nodes, so the iterator should be consumed promptly.
+   * Failures while fetching a page are thrown by the iterator as DcpRuntimeException or RuntimeException.
+   *
+   * @param documentType
+   * @param terms
+   * @param pageSize
+   * @param <T>
+   * @return
+   * @throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException
+   */
+  @Override
+  public <T extends ServiceDocument> Iterator<T> queryDocumentsPaged(Class<T> documentType,
+                                                                     ImmutableMap<String, String> terms,
+                                                                     int pageSize)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
+    checkNotNull(documentType, "Cannot query documents with null documentType");
+    checkArgument(pageSize > 0, "pageSize must be greater than 0");
+
+    QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(documentType, terms);
+    spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+    spec.resultLimit = pageSize;
+    Operation result = queryAndWait(spec);
+    if (result == null) {
+      return Collections.emptyIterator();
+    }
+
+    NodeGroupBroadcastResponse response = result.getBody(NodeGroupBroadcastResponse.class);
+    if (!response.failures.isEmpty()) {
+      throw new DcpRuntimeException("Failures detected in query task response: " + Utils.toJsonHtml(response));
+    }
+
+    return new DocumentPageIterator<>(documentType, getPageLinks(response));
+  }
+
+  /**
+   * Executes a paginated DCP query which will query for documents of type T and returns the first result page.
+   * Any other filter clauses are optional.
+   * This also expands the content of the resulting documents.
+   *
+   * The nextPageLink of the returned page is an opaque link to the following page which can be passed to
+   * queryDocumentPage(String), possibly by another client, or null if there are no more documents. A page holds at
+   * most pageSize documents but can hold fewer even if it is followed by another page. Result pages expire on the
+   * nodes, following an expired link fails with DocumentNotFoundException.
+   *
+   * @param documentType
+   * @param terms
+   * @param pageSize
+   * @param <T>
+   * @return
+   * @throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException
+   */
+  @Override
+  public <T extends ServiceDocument> ServiceDocumentQueryResult queryDocumentPage(Class<T> documentType,
+                                                                                  ImmutableMap<String, String> terms,
+                                                                                  int pageSize)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
+    checkNotNull(documentType, "Cannot query documents with null documentType");
+    checkArgument(pageSize > 0, "pageSize must be greater than 0");
+
+    QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(documentType, terms);
+    spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+    spec.resultLimit = pageSize;
+    Operation result = queryAndWait(spec);
+    if (result == null) {
+      return getDocumentPage(new ArrayDeque<PageLink>());
+    }
+
+    NodeGroupBroadcastResponse response = result.getBody(NodeGroupBroadcastResponse.class);
+    if (!response.failures.isEmpty()) {
+      throw new DcpRuntimeException("Failures detected in query task response: " + Utils.toJsonHtml(response));
+    }
+
+    return getDocumentPage(getPageLinks(response));
+  }
+
+  /**
+   * Returns the result page of a paginated DCP query following the nextPageLink of the previous page.
+   *
+   * The link only names the nodes by their id, the nodes are looked up in the node group so that the client only
+   * sends requests to members of the node group. The link is handed out to clients, so the client only follows
+   * links to query pages and never to other services of the node. A malformed link, a link to anything but a query
+   * page, or a link to a node which left the node group, is rejected with IllegalArgumentException.
+   *
+   * @param pageLink
+   * @return
+   * @throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException
+   */
+  @Override
+  public ServiceDocumentQueryResult queryDocumentPage(String pageLink)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
+    checkNotNull(pageLink, "Cannot query documents with null pageLink");
+
+    String[][] nodePageLinks;
+    try {
+      nodePageLinks = Utils.fromJson(
+          new String(Base64.getUrlDecoder().decode(pageLink), StandardCharsets.UTF_8), String[][].class);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed page link " + pageLink, e);
+    }
+    checkArgument(nodePageLinks != null && nodePageLinks.length > 0, "Malformed page link %s", pageLink);
+
+    Operation nodeGroupOperation = sendAndWait(createGetOperation(ServiceUriPaths.DEFAULT_NODE_GROUP));
+    if (nodeGroupOperation == null) {
+      return getDocumentPage(new ArrayDeque<PageLink>());
+    }
+    NodeGroupService.NodeGroupState nodeGroup = nodeGroupOperation.getBody(NodeGroupService.NodeGroupState.class);
+
+    Deque<PageLink> pageLinks = new ArrayDeque<>();
+    for (String[] nodePageLink : nodePageLinks) {
+      checkArgument(nodePageLink != null && nodePageLink.length == 2, "Malformed page link %s", pageLink);
+      NodeState node = nodeGroup.nodes.get(nodePageLink[0]);
+      checkArgument(node != null, "Page link %s refers to unknown node %s", pageLink, nodePageLink[0]);
+      checkArgument(nodePageLink[1] != null && QUERY_PAGE_LINK_PATTERN.matcher(nodePageLink[1]).matches(),
+          "Page link %s refers to %s which is not a query page", pageLink, nodePageLink[1]);
+      pageLinks.add(new PageLink(node.groupReference, nodePageLink[1], nodePageLink[0]));
+    }
+
+    return getDocumentPage(pageLinks);
+  }
+
   /**
    * This method sifts through errors from DCP operations into checked and unchecked(RuntimeExceptions)
    * This is the default handling but it can be overridden by different clients based on their needs.
@@ -358,6 +538,68 @@ public class DcpRestClient implements DcpClient {
 //    Thread.currentThread().interrupt();
   }
 
+  private Operation createPostOperation(String serviceSelfLink, ServiceDocument body) {
+    URI serviceUri = createUriUsingRandomAddress(serviceSelfLink);
+
+    return Operation
+        .createPost(serviceUri)
+        .setUri(serviceUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getPostOperationExpirationMicros())
+        .setBody(body)
+        .setReferer(this.localHostAddress);
+  }
+
+  private Operation createGetOperation(String documentSelfLink) {
+    URI serviceUri = createUriUsingRandomAddress(documentSelfLink);
+
+    return Operation
+        .createGet(serviceUri)
+        .setUri(serviceUri)
+        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
+        .setExpiration(Utils.getNowMicrosUtc() + getGetOperationExpirationMicros())
+        .setReferer(this.localHostAddress);
+  }
+
+  private Operation createDeleteOperation(String documentSelfLink, ServiceDocument body) {
+    URI serviceUri = createUriUsingRandomAddress(documentSelfLink);
+
+    return Operation
+        .createDelete(serviceUri)
+        .setUri(serviceUri)
+        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
+        .setExpiration(Utils.getNowMicrosUtc() + getDeleteOperationExpirationMicros())
+        .setReferer(this.localHostAddress)
+        .setBody(body);
+  }
+
+  private Operation createQueryOperation(QueryTask.QuerySpecification spec) {
+    URI serviceUri = UriUtils.buildBroadcastRequestUri(
+        createUriUsingRandomAddress(ServiceUriPaths.CORE_LOCAL_QUERY_TASKS),
+        ServiceUriPaths.DEFAULT_NODE_SELECTOR);
+
+    QueryTask query = QueryTask.create(spec)
+        .setDirect(true);
+
+    return Operation
+        .createPost(serviceUri)
+        .setUri(serviceUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getQueryOperationExpirationMicros())
+        .setBody(query)
+        .setReferer(this.localHostAddress);
+  }
+
+  private Operation createPatchOperation(String serviceSelfLink, ServiceDocument body) {
+    URI serviceUri = createUriUsingRandomAddress(serviceSelfLink);
+
+    return Operation
+        .createPatch(serviceUri)
+        .setUri(serviceUri)
+        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
+        .setExpiration(Utils.getNowMicrosUtc() + getPatchOperationExpirationMicros())
+        .setBody(body)
+        .setReferer(this.localHostAddress);
+  }
+
   @VisibleForTesting
   protected OperationLatch createOperationLatch(Operation operation) {
     return new OperationLatch(operation);
@@ -371,6 +613,11 @@ public class DcpRestClient implements DcpClient {
 
     client.send(operation);
 
+    return awaitOperation(operation, operationLatch);
+  }
+
+  private Operation awaitOperation(Operation operation, OperationLatch operationLatch)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
     Operation completedOperation = null;
     try {
       OperationLatch.OperationResult operationResult =
@@ -386,6 +633,38 @@ public class DcpRestClient implements DcpClient {
     return completedOperation;
   }
 
+  /**
+   * Sends the operation without blocking the calling thread. The returned future is completed from the completion
+   * handler of the operation, with the same results and failures as sendAndWait. Dependent stages which block
+   * should therefore be run with one of the asynchronous CompletableFuture methods.
+   *
+   * @param operation
+   * @return
+   */
+  @VisibleForTesting
+  protected CompletableFuture<Operation> sendAsync(final Operation operation) {
+    logger.info("sendAsync: STARTED {}", createLogMessageWithBody(operation));
+    final CompletableFuture<Operation> future = new CompletableFuture<>();
+
+    operation.setCompletion(new Operation.CompletionHandler() {
+      @Override
+      public void handle(Operation completedOperation, Throwable failure) {
+        OperationLatch.OperationResult operationResult = new OperationLatch.OperationResult();
+        operationResult.completedOperation = completedOperation;
+        operationResult.operationFailure = failure;
+        try {
+          logCompletedOperation(completedOperation);
+          future.complete(handleOperationResult(operation, operationResult));
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        }
+      }
+    });
+
+    client.send(operation);
+    return future;
+  }
+
   protected OperationJoin sendAndWait(OperationJoin join)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
 
@@ -538,4 +817,203 @@ public class DcpRestClient implements DcpClient {
         operation.getReferer(),
         Utils.toJson(operation.getBodyRaw()));
   }
+
+  private static Deque<PageLink> getPageLinks(NodeGroupBroadcastResponse response) {
+    Deque<PageLink> pageLinks = new ArrayDeque<>();
+    for (Map.Entry<URI, String> entry : response.jsonResponses.entrySet()) {
+      QueryTask queryTask = Utils.fromJson(entry.getValue(), QueryTask.class);
+      if (null != queryTask.results && null != queryTask.results.nextPageLink) {
+        pageLinks.add(new PageLink(entry.getKey(), queryTask.results.nextPageLink, queryTask.documentOwner));
+      }
+    }
+    return pageLinks;
+  }
+
+  private Operation createPageOperation(PageLink pageLink) {
+    URI pageUri = UriUtils.buildUri(pageLink.nodeUri.getHost(), pageLink.nodeUri.getPort(), pageLink.pageLink,
+        null);
+
+    return Operation
+        .createGet(pageUri)
+        .setUri(pageUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getQueryOperationExpirationMicros())
+        .setReferer(this.localHostAddress);
+  }
+
+  /**
+   * Fetches the next result page of the page links. Pages holding no document owned by their node are skipped, so
+   * that only the last page of a query can be empty.
+   *
+   * @param pageLinks
+   * @return
+   * @throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException
+   */
+  private ServiceDocumentQueryResult getDocumentPage(Deque<PageLink> pageLinks)
+      throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
+    ServiceDocumentQueryResult documentPage = new ServiceDocumentQueryResult();
+    documentPage.documentLinks = new ArrayList<>();
+    documentPage.documents = new LinkedHashMap<>();
+
+    while (documentPage.documentLinks.isEmpty() && !pageLinks.isEmpty()) {
+      PageLink pageLink = pageLinks.poll();
+      Operation completedOperation = sendAndWait(createPageOperation(pageLink));
+      if (completedOperation == null) {
+        // the failure was handled by a subclass, end the query
+        pageLinks.clear();
+        break;
+      }
+
+      QueryTask page = completedOperation.getBody(QueryTask.class);
+      if (null == page.results) {
+        continue;
+      }
+
+      if (null != page.results.nextPageLink) {
+        pageLinks.addFirst(new PageLink(pageLink.nodeUri, page.results.nextPageLink, pageLink.documentOwner));
+      }
+
+      if (null != page.results.documents) {
+        for (Map.Entry<String, Object> entry : page.results.documents.entrySet()) {
+          ServiceDocument document = Utils.fromJson(entry.getValue(), ServiceDocument.class);
+          if (pageLink.documentOwner.equals(document.documentOwner)) {
+            documentPage.documentLinks.add(entry.getKey());
+            documentPage.documents.put(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+    }
+
+    documentPage.documentCount = (long) documentPage.documentLinks.size();
+    if (!pageLinks.isEmpty()) {
+      String[][] nodePageLinks = new String[pageLinks.size()][];
+      int i = 0;
+      for (PageLink pageLink : pageLinks) {
+        nodePageLinks[i++] = new String[]{pageLink.documentOwner, pageLink.pageLink};
+      }
+      documentPage.nextPageLink = Base64.getUrlEncoder().withoutPadding().encodeToString(
+          Utils.toJson(nodePageLinks).getBytes(StandardCharsets.UTF_8));
+    }
+
+    return documentPage;
+  }
+
+  /**
+   * Link to the next result page of one of the nodes which executed a paginated broadcast query.
+   */
+  private static class PageLink {
+    private final URI nodeUri;
+    private final String pageLink;
+    private final String documentOwner;
+
+    private PageLink(URI nodeUri, String pageLink, String documentOwner) {
+      this.nodeUri = nodeUri;
+      this.pageLink = pageLink;
+      this.documentOwner = documentOwner;
+    }
+  }
+
+  /**
+   * Iterates over the documents returned by a paginated broadcast query.
+   *
+   * Every node returns its own chain of result pages, the chains are walked one after the other and only the
+   * documents owned by the node are kept, as in QueryTaskUtils.getBroadcastQueryDocuments. As soon as a page is
+   * received the following page is requested, so that it is fetched while the current page is consumed.
+   *
+   * @param <T>
+   */
+  private class DocumentPageIterator<T extends ServiceDocument> implements Iterator<T> {
+
+    private final Class<T> documentType;
+    private final Deque<PageLink> pageLinks;
+    private Iterator<T> documents;
+    private PageLink pendingPageLink;
+    private Operation pendingOperation;
+    private OperationLatch pendingOperationLatch;
+
+    private DocumentPageIterator(Class<T> documentType, Deque<PageLink> pageLinks) {
+      this.documentType = documentType;
+      this.pageLinks = pageLinks;
+      this.documents = Collections.emptyIterator();
+
+      fetchNextPage();
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!documents.hasNext()) {
+        if (pendingOperation == null) {
+          return false;
+        }
+        documents = awaitPage();
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return documents.next();
+    }
+
+    private void fetchNextPage() {
+      PageLink pageLink = pageLinks.poll();
+      if (pageLink == null) {
+        return;
+      }
+
+      Operation getOperation = createPageOperation(pageLink);
+      logger.info("queryDocumentsPaged: STARTED {}", createLogMessageWithoutStatusAndBody(getOperation));
+      pendingPageLink = pageLink;
+      pendingOperation = getOperation;
+      pendingOperationLatch = createOperationLatch(getOperation);
+      client.send(getOperation);
+    }
+
+    private Iterator<T> awaitPage() {
+      PageLink pageLink = pendingPageLink;
+      Operation operation = pendingOperation;
+      OperationLatch operationLatch = pendingOperationLatch;
+      pendingPageLink = null;
+      pendingOperation = null;
+      pendingOperationLatch = null;
+
+      Operation completedOperation;
+      try {
+        completedOperation = awaitOperation(operation, operationLatch);
+      } catch (BadRequestException | DocumentNotFoundException dcpException) {
+        pageLinks.clear();
+        throw new DcpRuntimeException(dcpException);
+      } catch (TimeoutException | InterruptedException exception) {
+        pageLinks.clear();
+        throw new RuntimeException(exception);
+      }
+
+      if (completedOperation == null) {
+        // the failure was handled by a subclass, stop the iteration
+        pageLinks.clear();
+        return Collections.emptyIterator();
+      }
+
+      QueryTask page = completedOperation.getBody(QueryTask.class);
+      if (null != page.results && null != page.results.nextPageLink) {
+        pageLinks.addFirst(new PageLink(pageLink.nodeUri, page.results.nextPageLink, pageLink.documentOwner));
+      }
+      fetchNextPage();
+
+      if (null == page.results || null == page.results.documents) {
+        return Collections.emptyIterator();
+      }
+
+      List<T> pageDocuments = new ArrayList<>(page.results.documents.size());
+      for (Object value : page.results.documents.values()) {
+        T document = Utils.fromJson(value, documentType);
+        if (pageLink.documentOwner.equals(document.documentOwner)) {
+          pageDocuments.add(document);
+        }
+      }
+      return pageDocuments.iterator();
+    }
+  }
 }
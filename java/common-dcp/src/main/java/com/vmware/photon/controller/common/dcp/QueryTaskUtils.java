@@ -16,6 +16,7 @@ package com.vmware.photon.controller.common.dcp;
 import com.vmware.dcp.common.Operation;
 import com.vmware.dcp.common.Service;
 import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
 import com.vmware.dcp.common.TaskState;
 import com.vmware.dcp.common.Utils;
 import com.vmware.dcp.services.common.NodeGroupBroadcastResponse;
@@ -163,6 +164,24 @@ public class QueryTaskUtils {
     return getBroadcastQueryDocuments(documentType, queryResponse);
   }
 
+  /**
+   * Get the documents from a page of query results.
+   *
+   * @param result
+   * @return
+   */
+  public static <T extends ServiceDocument> List<T> getQueryResultDocuments(
+      Class<T> documentType, ServiceDocumentQueryResult result) {
+    List<T> documents = new ArrayList<>();
+    if (null != result.documents) {
+      for (Object value : result.documents.values()) {
+        documents.add(Utils.fromJson(value, documentType));
+      }
+    }
+
+    return documents;
+  }
+
   /**
    * Get the documents from a broadcast response.
    *
@@ -251,6 +270,41 @@ public class QueryTaskUtils {
     return spec;
   }
 
+  /**
+   * Builds a QueryTask.QuerySpecification which will query for documents of type T
+   * whose propertyName field matches any of the values.
+   * This allows to fetch a batch of documents, e.g. by their documentSelfLink, with a single query.
+   *
+   * @param documentType
+   * @param propertyName
+   * @param values
+   * @return
+   */
+  public static QueryTask.QuerySpecification buildQuerySpec(Class documentType, String propertyName,
+                                                            Collection<String> values) {
+    checkNotNull(documentType, "Cannot build query spec for unspecified documentType");
+    checkNotNull(propertyName, "Cannot build query spec for unspecified propertyName");
+    checkArgument(values != null && !values.isEmpty(), "values cannot be empty");
+
+    QueryTask.Query valuesClause;
+    if (values.size() == 1) {
+      valuesClause = new QueryTask.Query()
+          .setTermPropertyName(propertyName)
+          .setTermMatchValue(values.iterator().next());
+    } else {
+      valuesClause = new QueryTask.Query();
+      for (String value : values) {
+        QueryTask.Query valueClause = new QueryTask.Query()
+            .setTermPropertyName(propertyName)
+            .setTermMatchValue(value);
+        valueClause.occurance = QueryTask.Query.Occurance.SHOULD_OCCUR;
+        valuesClause.addBooleanClause(valueClause);
+      }
+    }
+
+    return buildQuerySpec(documentType, valuesClause);
+  }
+
   /**
    * Builds a QueryTask.QuerySpecification instance using the passed in arguments.
    *
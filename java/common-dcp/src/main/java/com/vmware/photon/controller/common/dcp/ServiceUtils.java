@@ -59,6 +59,10 @@ public class ServiceUtils {
     state.failure = Utils.toServiceErrorResponse(e);
   }
 
+  public static void logFine(Service service, String fmt, Object... args) {
+    LoggerFactory.getLogger(service.getClass()).debug(getFmtMsg(service, fmt, args));
+  }
+
   public static void logInfo(Service service, String fmt, Object... args) {
     LoggerFactory.getLogger(service.getClass()).info(getFmtMsg(service, fmt, args));
   }
@@ -23,8 +23,11 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.FutureCallback;
 
+import java.net.URI;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class implements utility functions for tasks.
@@ -105,6 +108,193 @@ public class TaskUtils {
     service.sendRequest(get);
   }
 
+  /**
+   * This function starts a task and waits for it to satisfy the predicate the same way as
+   * {@link #startTaskAsync}, but is driven by state change notifications from the task instead of
+   * fixed-interval polling. It falls back to polling every taskPollDelay ms if the subscription
+   * cannot be created.
+   *
+   * @param service       Supplies the service starting the task.
+   * @param factoryLink   Supplies the link of the task factory.
+   * @param startState    Supplies the start state of the task.
+   * @param predicate     Supplies the predicate which the task state must satisfy.
+   * @param type          Supplies the type of the task state.
+   * @param taskPollDelay Supplies the poll interval used if the subscription fails.
+   * @param callback      Supplies the callback invoked once with the final result.
+   * @param <T>           Supplies the type of the task state.
+   */
+  public static <T extends ServiceDocument> void startTaskAsyncWithSubscription(
+      final Service service,
+      String factoryLink,
+      ServiceDocument startState,
+      final Predicate<T> predicate,
+      final Class<T> type,
+      final int taskPollDelay,
+      final FutureCallback<T> callback) {
+
+    Operation.CompletionHandler completionHandler = new Operation.CompletionHandler() {
+      @Override
+      public void handle(Operation operation, Throwable throwable) {
+        if (null != throwable) {
+          callback.onFailure(throwable);
+          return;
+        }
+
+        String serviceLink = operation.getBody(ServiceDocument.class).documentSelfLink;
+        subscribeToProgress(service, serviceLink, predicate, type, taskPollDelay, callback);
+      }
+    };
+
+    Operation post = Operation
+        .createPost(UriUtils.buildUri(service.getHost(), factoryLink, null))
+        .setBody(startState)
+        .setCompletion(completionHandler);
+    service.sendRequest(post);
+  }
+
+  /**
+   * This function subscribes to state change notifications of the specified service and invokes
+   * the callback once with the first state satisfying the predicate. The state is read once after
+   * the subscription is created, so a change which happened before it is not missed, and once per
+   * notification afterwards. If the subscription cannot be created, this falls back to
+   * {@link #checkProgress}.
+   *
+   * @param service       Supplies the service waiting for the task.
+   * @param serviceLink   Supplies the link of the task.
+   * @param predicate     Supplies the predicate which the task state must satisfy.
+   * @param type          Supplies the type of the task state.
+   * @param taskPollDelay Supplies the poll interval used if the subscription fails.
+   * @param callback      Supplies the callback invoked once with the final result.
+   * @param <T>           Supplies the type of the task state.
+   */
+  public static <T extends ServiceDocument> void subscribeToProgress(
+      final Service service,
+      final String serviceLink,
+      final Predicate<T> predicate,
+      final Class<T> type,
+      final int taskPollDelay,
+      final FutureCallback<T> callback) {
+
+    final URI subscriptionUri = UriUtils.buildSubscriptionUri(UriUtils.buildUri(service.getHost(), serviceLink));
+    final AtomicBoolean done = new AtomicBoolean(false);
+    final AtomicReference<URI> notificationTarget = new AtomicReference<>();
+
+    final FutureCallback<T> subscriptionCallback = new FutureCallback<T>() {
+      @Override
+      public void onSuccess(T result) {
+        if (done.compareAndSet(false, true)) {
+          unsubscribe(service, subscriptionUri, notificationTarget);
+          callback.onSuccess(result);
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        if (done.compareAndSet(false, true)) {
+          unsubscribe(service, subscriptionUri, notificationTarget);
+          callback.onFailure(t);
+        }
+      }
+    };
+
+    Operation.CompletionHandler subscribeCompletionHandler = new Operation.CompletionHandler() {
+      @Override
+      public void handle(Operation operation, Throwable throwable) {
+        if (null != throwable) {
+          ServiceUtils.logWarning(service, "Failed to subscribe to %s, falling back to polling: %s",
+              serviceLink, throwable.toString());
+          checkProgress(service, serviceLink, predicate, type, taskPollDelay, callback);
+          return;
+        }
+
+        checkState(service, serviceLink, predicate, type, done, subscriptionCallback);
+      }
+    };
+
+    Operation subscribe = Operation
+        .createPost(subscriptionUri)
+        .setReferer(service.getUri())
+        .setCompletion(subscribeCompletionHandler);
+
+    try {
+      notificationTarget.set(service.getHost().startSubscriptionService(subscribe,
+          (notification) -> {
+            notification.complete();
+            if (notification.getAction() == Service.Action.DELETE) {
+              subscriptionCallback.onFailure(
+                  new IllegalStateException("Service " + serviceLink + " was deleted"));
+              return;
+            }
+
+            checkState(service, serviceLink, predicate, type, done, subscriptionCallback);
+          }));
+
+      if (done.get()) {
+        unsubscribe(service, subscriptionUri, notificationTarget);
+      }
+    } catch (Throwable t) {
+      ServiceUtils.logWarning(service, "Failed to subscribe to %s, falling back to polling: %s",
+          serviceLink, t.toString());
+      checkProgress(service, serviceLink, predicate, type, taskPollDelay, callback);
+    }
+  }
+
+  private static <T extends ServiceDocument> void checkState(
+      final Service service,
+      final String serviceLink,
+      final Predicate<T> predicate,
+      final Class<T> type,
+      final AtomicBoolean done,
+      final FutureCallback<T> callback) {
+
+    if (done.get()) {
+      return;
+    }
+
+    Operation get = Operation
+        .createGet(UriUtils.buildUri(service.getHost(), serviceLink))
+        .setCompletion(new Operation.CompletionHandler() {
+          @Override
+          public void handle(Operation operation, Throwable throwable) {
+            if (null != throwable) {
+              callback.onFailure(throwable);
+              return;
+            }
+
+            try {
+              T state = operation.getBody(type);
+              if (predicate.apply(state)) {
+                callback.onSuccess(state);
+              }
+            } catch (Throwable t) {
+              callback.onFailure(t);
+            }
+          }
+        });
+    service.sendRequest(get);
+  }
+
+  private static void unsubscribe(final Service service, URI subscriptionUri, AtomicReference<URI> notificationTarget) {
+    URI target = notificationTarget.getAndSet(null);
+    if (null == target) {
+      return;
+    }
+
+    Operation unsubscribe = Operation
+        .createDelete(subscriptionUri)
+        .setReferer(service.getUri())
+        .setCompletion(new Operation.CompletionHandler() {
+          @Override
+          public void handle(Operation operation, Throwable throwable) {
+            if (null != throwable) {
+              ServiceUtils.logWarning(service, "Failed to unsubscribe from %s: %s", subscriptionUri,
+                  throwable.toString());
+            }
+          }
+        });
+    service.getHost().stopSubscriptionService(unsubscribe, target);
+  }
+
   /**
    * This function sends a self-patch to the specified service.
    *
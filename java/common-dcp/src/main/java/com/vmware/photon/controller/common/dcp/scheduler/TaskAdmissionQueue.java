@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.dcp.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Class TaskAdmissionQueue: queue of the services waiting to be started by a {@link TaskSchedulerService}.
+ * Services with a higher priority are polled first, services with the same priority are polled round-robin across
+ * their owners and in insertion order for the same owner. This class is not thread safe.
+ */
+class TaskAdmissionQueue {
+
+  /**
+   * Owners by priority, highest priority first. The owners of a priority are kept in round-robin order, the owner
+   * whose service was polled last is moved to the end.
+   */
+  private final TreeMap<Integer, LinkedHashMap<String, Deque<String>>> owners =
+      new TreeMap<>(Collections.reverseOrder());
+
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  /**
+   * Adds a service to the queue, unless it is already queued.
+   *
+   * @param documentLink
+   * @param priority
+   * @param owner
+   * @return true if the service was added
+   */
+  public boolean add(String documentLink, int priority, String owner) {
+    if (entries.containsKey(documentLink)) {
+      return false;
+    }
+
+    entries.put(documentLink, new Entry(priority, owner));
+    owners.computeIfAbsent(priority, p -> new LinkedHashMap<>())
+        .computeIfAbsent(owner, o -> new ArrayDeque<>())
+        .add(documentLink);
+    return true;
+  }
+
+  /**
+   * Removes and returns the next service to start.
+   *
+   * @return the link of the service, or null if the queue is empty
+   */
+  public String poll() {
+    if (owners.isEmpty()) {
+      return null;
+    }
+
+    Map.Entry<Integer, LinkedHashMap<String, Deque<String>>> priorityEntry = owners.firstEntry();
+    LinkedHashMap<String, Deque<String>> priorityOwners = priorityEntry.getValue();
+    Iterator<Map.Entry<String, Deque<String>>> iterator = priorityOwners.entrySet().iterator();
+    Map.Entry<String, Deque<String>> ownerEntry = iterator.next();
+    iterator.remove();
+
+    String documentLink = ownerEntry.getValue().poll();
+    if (!ownerEntry.getValue().isEmpty()) {
+      priorityOwners.put(ownerEntry.getKey(), ownerEntry.getValue());
+    } else if (priorityOwners.isEmpty()) {
+      owners.remove(priorityEntry.getKey());
+    }
+
+    entries.remove(documentLink);
+    return documentLink;
+  }
+
+  /**
+   * Removes the services which are not in the given set of links.
+   *
+   * @param documentLinks
+   */
+  public void retainAll(Set<String> documentLinks) {
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Entry> entry = iterator.next();
+      if (documentLinks.contains(entry.getKey())) {
+        continue;
+      }
+
+      iterator.remove();
+      LinkedHashMap<String, Deque<String>> priorityOwners = owners.get(entry.getValue().priority);
+      Deque<String> ownerLinks = priorityOwners.get(entry.getValue().owner);
+      ownerLinks.remove(entry.getKey());
+      if (ownerLinks.isEmpty()) {
+        priorityOwners.remove(entry.getValue().owner);
+        if (priorityOwners.isEmpty()) {
+          owners.remove(entry.getValue().priority);
+        }
+      }
+    }
+  }
+
+  public boolean contains(String documentLink) {
+    return entries.containsKey(documentLink);
+  }
+
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Position of a queued service.
+   */
+  private static class Entry {
+    private final int priority;
+    private final String owner;
+
+    private Entry(int priority, String owner) {
+      this.priority = priority;
+      this.owner = owner;
+    }
+  }
+}
@@ -28,21 +28,49 @@ import com.vmware.photon.controller.common.dcp.OperationUtils;
 import com.vmware.photon.controller.common.dcp.PatchUtils;
 import com.vmware.photon.controller.common.dcp.QueryTaskUtils;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
+import com.vmware.photon.controller.common.dcp.TaskUtils;
 import com.vmware.photon.controller.common.dcp.ValidationUtils;
 import com.vmware.photon.controller.common.dcp.validation.NotBlank;
 import com.vmware.photon.controller.common.dcp.validation.NotNull;
 import com.vmware.photon.controller.common.dcp.validation.Positive;
 
+import com.google.common.util.concurrent.FutureCallback;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Class TaskSchedulerService: periodically starts new services based on the threshold of how many services
+ * Class TaskSchedulerService: starts new services based on the threshold of how many services
  * can be running simultaneously.
+ * <p/>
+ * The services in CREATED stage wait in an in-memory {@link TaskAdmissionQueue}, which orders them by priority and
+ * round-robin across their owners. The scheduler subscribes to every service it counts as running and starts the
+ * next queued service as soon as one of them reaches a final stage. The periodic maintenance re-syncs the queue and
+ * the running services with the service documents, which picks up newly created services and recovers from lost
+ * notifications or owner changes.
  */
 public class TaskSchedulerService extends StatefulService {
 
   private static final long OWNER_SELECTION_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
 
+  private final Object admissionLock = new Object();
+
+  /**
+   * Links of the services counted against the tasks limit. Guarded by admissionLock.
+   */
+  private final Set<String> runningServices = new HashSet<>();
+
+  /**
+   * Services waiting to be started. Guarded by admissionLock.
+   */
+  private final TaskAdmissionQueue admissionQueue = new TaskAdmissionQueue();
+
   /**
    * Default constructor.
    */
@@ -101,7 +129,15 @@ public class TaskSchedulerService extends StatefulService {
   @Override
   public void handleMaintenance(Operation post) {
     post.complete();
+    runIfOwner(() -> sendSelfPatch(new State()));
+  }
 
+  /**
+   * Runs the runnable if this host is the owner of the scheduler.
+   *
+   * @param runnable
+   */
+  private void runIfOwner(final Runnable runnable) {
     Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
       public void handle(Operation op, Throwable failure) {
@@ -119,8 +155,7 @@ public class TaskSchedulerService extends StatefulService {
           return;
         }
 
-        State state = new State();
-        sendSelfPatch(state);
+        runnable.run();
       }
     };
 
@@ -131,7 +166,6 @@ public class TaskSchedulerService extends StatefulService {
     getHost().selectOwner(null, getSelfLink(), selectOwnerOp);
   }
 
-
   /**
    * Initialize state with defaults.
    *
@@ -172,9 +206,9 @@ public class TaskSchedulerService extends StatefulService {
   }
 
   /**
-   * Process patch. Triggers a query task for started service, and if the count of services in STARTED is less than
-   * the pre-defined threshold, it will move the services in CREATED stage to STARTED stage, until the count
-   * reached the threshold.
+   * Process patch. Triggers query tasks for the services in STARTED and CREATED stage, re-syncs the running services
+   * and the admission queue with their results, and moves queued services to STARTED stage until the count of
+   * running services reaches the threshold.
    */
   private void processPatch(final State current) {
     Operation.CompletionHandler handler = new Operation.CompletionHandler() {
@@ -187,23 +221,18 @@ public class TaskSchedulerService extends StatefulService {
           return;
         }
 
-        int serviceCount = completedOp.getBody(QueryTask.class).results.documentLinks.size();
-        int runningTasksLimit = current.tasksLimits;
-        if (serviceCount >= runningTasksLimit) {
-          return;
-        }
-
-        startServices(current, runningTasksLimit - serviceCount);
+        List<String> startedLinks = completedOp.getBody(QueryTask.class).results.documentLinks;
+        queryCreatedServices(current, new HashSet<>(startedLinks));
       }
     };
 
-    sendTaskStateQuery(current, TaskState.TaskStage.STARTED, handler);
+    sendTaskStateQuery(current, TaskState.TaskStage.STARTED, false, handler);
   }
 
   /**
-   * Triggers a query task for started service in CREATED stage and moves servicesToStartCount service to STARTED stage.
+   * Triggers a query task for services in CREATED stage and re-syncs the running services and the admission queue.
    */
-  private void startServices(final State current, final int servicesToStartCount) {
+  private void queryCreatedServices(final State current, final Set<String> startedLinks) {
     Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
       public void handle(Operation completedOp, Throwable failure) {
@@ -212,21 +241,138 @@ public class TaskSchedulerService extends StatefulService {
           return;
         }
 
-        ServiceDocumentQueryResult results = completedOp.getBody(QueryTask.class).results;
-        if (results.documentLinks.size() == 0) {
-          return;
+        try {
+          List<ServiceDocument> createdServices = new ArrayList<>();
+          ServiceDocumentQueryResult results = completedOp.getBody(QueryTask.class).results;
+          if (results.documents != null) {
+            Class<?> stateClass = getStateClass(current);
+            for (Object document : results.documents.values()) {
+              createdServices.add((ServiceDocument) Utils.fromJson(document, stateClass));
+            }
+          }
+
+          // older services are queued first
+          createdServices.sort(Comparator.comparingLong(document -> document.documentUpdateTimeMicros));
+          Set<String> createdLinks = new HashSet<>();
+          for (ServiceDocument document : createdServices) {
+            createdLinks.add(document.documentSelfLink);
+          }
+
+          List<String> servicesToWatch = new ArrayList<>();
+          synchronized (admissionLock) {
+            // services which are neither running nor waiting anymore, e.g. because they finished while no
+            // notification was received, do not count against the limit
+            runningServices.removeIf(link -> !startedLinks.contains(link) && !createdLinks.contains(link));
+            for (String link : startedLinks) {
+              if (runningServices.add(link)) {
+                servicesToWatch.add(link);
+              }
+            }
+
+            admissionQueue.retainAll(createdLinks);
+            for (ServiceDocument document : createdServices) {
+              if (!runningServices.contains(document.documentSelfLink)) {
+                admissionQueue.add(document.documentSelfLink, getPriority(current, document),
+                    getOwner(current, document));
+              }
+            }
+          }
+
+          for (String link : servicesToWatch) {
+            watchService(current, link);
+          }
+
+          startServices(current);
+        } catch (Throwable t) {
+          logFailure(t);
         }
+      }
+    };
+
+    sendTaskStateQuery(current, TaskState.TaskStage.CREATED, true, handler);
+  }
+
+  /**
+   * Moves queued services to STARTED stage until the count of running services reaches the threshold.
+   */
+  private void startServices(final State current) {
+    List<String> servicesToStart = new ArrayList<>();
+    synchronized (admissionLock) {
+      while (runningServices.size() < current.tasksLimits && !admissionQueue.isEmpty()) {
+        String link = admissionQueue.poll();
+        runningServices.add(link);
+        servicesToStart.add(link);
+      }
+    }
+
+    if (servicesToStart.isEmpty()) {
+      return;
+    }
+
+    ServiceUtils.logInfo(TaskSchedulerService.this,
+        "Host[%s]: Services to start: %s", getHost().getId(), Utils.toJson(servicesToStart));
+    for (String link : servicesToStart) {
+      sendStartPatch(current, link);
+      watchService(current, link);
+    }
+  }
+
+  /**
+   * Subscribes to the state changes of a running service, the next queued service is started once it reaches a
+   * final stage or is deleted.
+   *
+   * @param docSelfLink
+   */
+  @SuppressWarnings("unchecked")
+  private void watchService(final State current, final String docSelfLink) {
+    try {
+      int pollDelay = (int) TimeUnit.MICROSECONDS.toMillis(getMaintenanceIntervalMicros());
+      TaskUtils.subscribeToProgress(
+          this,
+          docSelfLink,
+          (ServiceDocument state) -> isFinalStage(state),
+          (Class<ServiceDocument>) getStateClass(current),
+          pollDelay,
+          new FutureCallback<ServiceDocument>() {
+            @Override
+            public void onSuccess(ServiceDocument result) {
+              onServiceCompleted(current, docSelfLink);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              ServiceUtils.logInfo(TaskSchedulerService.this, "Host[%s]: Stopped watching service %s: %s",
+                  getHost().getId(), docSelfLink, t.toString());
+              onServiceCompleted(current, docSelfLink);
+            }
+          });
+    } catch (Throwable t) {
+      logFailure(t);
+    }
+  }
 
-        ServiceUtils.logInfo(TaskSchedulerService.this,
-            "Host[%s]: Services to start: %s", getHost().getId(), Utils.toJson(results.documentLinks));
-        for (int count = 0; count < Math.min(servicesToStartCount, results.documentLinks.size()); count++) {
-          String docLink = results.documentLinks.get(count);
-          sendStartPatch(current, docLink);
+  /**
+   * Frees the slot of a service which left the STARTED stage and starts the next queued service. If no service is
+   * queued the services are re-queried, since services may have been created since the last query.
+   *
+   * @param docSelfLink
+   */
+  private void onServiceCompleted(final State current, final String docSelfLink) {
+    runIfOwner(() -> {
+      boolean queueIsEmpty;
+      synchronized (admissionLock) {
+        if (!runningServices.remove(docSelfLink)) {
+          return;
         }
+        queueIsEmpty = admissionQueue.isEmpty();
       }
-    };
 
-    sendTaskStateQuery(current, TaskState.TaskStage.CREATED, handler);
+      if (queueIsEmpty) {
+        sendSelfPatch(new State());
+      } else {
+        startServices(current);
+      }
+    });
   }
 
   /**
@@ -255,14 +401,17 @@ public class TaskSchedulerService extends StatefulService {
    * Triggers a query task with the spec passed as parameters and calls the handler param on success.
    *
    * @param stage
+   * @param expandContent
    * @param handler
    */
-  private void sendTaskStateQuery(final State current, final TaskState.TaskStage stage,
+  private void sendTaskStateQuery(final State current, final TaskState.TaskStage stage, boolean expandContent,
                                   final Operation.CompletionHandler handler) {
     try {
       QueryTask.QuerySpecification spec =
-          QueryTaskUtils.buildTaskStatusQuerySpec(Class.forName(current.schedulerServiceClassName)
-              .getDeclaredClasses()[0], stage);
+          QueryTaskUtils.buildTaskStatusQuerySpec(getStateClass(current), stage);
+      if (expandContent) {
+        spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+      }
 
       QueryTask query = QueryTask.create(spec).setDirect(true);
       Operation queryPost = Operation
@@ -275,6 +424,42 @@ public class TaskSchedulerService extends StatefulService {
     }
   }
 
+  private static Class<?> getStateClass(State current) throws ClassNotFoundException {
+    return Class.forName(current.schedulerServiceClassName).getDeclaredClasses()[0];
+  }
+
+  private static String getOwner(State current, ServiceDocument document) throws ReflectiveOperationException {
+    if (null == current.ownerFieldName) {
+      return "";
+    }
+
+    return String.valueOf(document.getClass().getField(current.ownerFieldName).get(document));
+  }
+
+  private static int getPriority(State current, ServiceDocument document) throws ReflectiveOperationException {
+    if (null == current.priorityFieldName) {
+      return 0;
+    }
+
+    Object priority = document.getClass().getField(current.priorityFieldName).get(document);
+    return priority instanceof Number ? ((Number) priority).intValue() : 0;
+  }
+
+  private static boolean isFinalStage(ServiceDocument document) {
+    try {
+      for (Field field : document.getClass().getFields()) {
+        if (TaskState.class.isAssignableFrom(field.getType())) {
+          TaskState taskState = (TaskState) field.get(document);
+          return null != taskState && TaskUtils.finalTaskStages.contains(taskState.stage);
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+
+    return false;
+  }
+
   /**
    * Send a patch message to ourselves to update the execution stage.
    *
@@ -310,5 +495,18 @@ public class TaskSchedulerService extends StatefulService {
     @NotNull
     @Positive
     public Integer tasksLimits;
+
+    /**
+     * The name of the field of the scheduled service documents which identifies the owner of a service, e.g. the
+     * workflow which created it. Services are started round-robin across owners. All services have the same owner
+     * if it is not set.
+     */
+    public String ownerFieldName;
+
+    /**
+     * The name of the numeric field of the scheduled service documents which holds the priority of a service.
+     * Services with a higher priority are started first. All services have priority 0 if it is not set.
+     */
+    public String priorityFieldName;
   }
 }
@@ -41,6 +41,8 @@ public class TaskSchedulerServiceStateBuilder implements TaskStateBuilder {
     TaskSchedulerService.State state = new TaskSchedulerService.State();
     state.schedulerServiceClassName = ((Config) config).getService().getName();
     state.tasksLimits = ((Config) config).getTasksLimit();
+    state.ownerFieldName = ((Config) config).getOwnerFieldName();
+    state.priorityFieldName = ((Config) config).getPriorityFieldName();
 
     return state;
   }
@@ -68,6 +70,21 @@ public class TaskSchedulerServiceStateBuilder implements TaskStateBuilder {
       throw new RuntimeException("checkServiceOptions failed for config.");
     }
 
+    Class<?> stateClass = ((Config) config).getService().getDeclaredClasses()[0];
+    checkField(stateClass, ((Config) config).getOwnerFieldName());
+    checkField(stateClass, ((Config) config).getPriorityFieldName());
+  }
+
+  private static void checkField(Class<?> stateClass, String fieldName) {
+    if (null == fieldName) {
+      return;
+    }
+
+    try {
+      stateClass.getField(fieldName);
+    } catch (NoSuchFieldException e) {
+      throw new IllegalArgumentException(String.format("%s does not have a field %s", stateClass, fieldName));
+    }
   }
 
   private static void checkConfig(TaskStateBuilderConfig config) {
@@ -84,9 +101,20 @@ public class TaskSchedulerServiceStateBuilder implements TaskStateBuilder {
 
     private int tasksLimit;
 
+    private String ownerFieldName;
+
+    private String priorityFieldName;
+
     public Config(Class<? extends StatefulService> service, int tasksLimit) {
+      this(service, tasksLimit, null, null);
+    }
+
+    public Config(Class<? extends StatefulService> service, int tasksLimit, String ownerFieldName,
+                  String priorityFieldName) {
       this.service = service;
       this.tasksLimit = tasksLimit;
+      this.ownerFieldName = ownerFieldName;
+      this.priorityFieldName = priorityFieldName;
     }
 
     public Class<? extends StatefulService> getService() {
@@ -97,5 +125,13 @@ public class TaskSchedulerServiceStateBuilder implements TaskStateBuilder {
       return tasksLimit;
     }
 
+    public String getOwnerFieldName() {
+      return ownerFieldName;
+    }
+
+    public String getPriorityFieldName() {
+      return priorityFieldName;
+    }
+
   }
 }
@@ -15,6 +15,7 @@ package com.vmware.photon.controller.common.dcp;
 
 import com.vmware.dcp.common.Operation;
 import com.vmware.dcp.common.ServiceDocument;
+import com.vmware.dcp.common.ServiceDocumentQueryResult;
 import com.vmware.dcp.common.Utils;
 import com.vmware.dcp.services.common.ExampleFactoryService;
 import com.vmware.dcp.services.common.ExampleService;
@@ -32,6 +33,8 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
@@ -41,12 +44,20 @@ import static org.mockito.Mockito.spy;
 import java.net.InetSocketAddress;
 import java.net.ProtocolException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -267,6 +278,98 @@ public class DcpRestClientTest {
     }
   }
 
+  /**
+   * Tests for the asynchronous operations.
+   */
+  public class AsyncTest {
+
+    @BeforeMethod
+    public void setUp() throws Throwable {
+      setUpHostAndClient();
+      dcpRestClient.start();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Throwable {
+      if (host != null) {
+        host.destroy();
+      }
+
+      if (dcpRestClient != null) {
+        dcpRestClient.stop();
+      }
+    }
+
+    @Test
+    public void testPostPatchGetAndDelete() throws Throwable {
+      ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+      exampleServiceState.name = UUID.randomUUID().toString();
+
+      Operation result = dcpRestClient.awaitAsync(
+          dcpRestClient.postAsync(ExampleFactoryService.SELF_LINK, exampleServiceState));
+      assertThat(result.getStatusCode(), is(200));
+      String documentSelfLink = result.getBody(ExampleService.ExampleServiceState.class).documentSelfLink;
+
+      ExampleService.ExampleServiceState patchState = new ExampleService.ExampleServiceState();
+      patchState.name = UUID.randomUUID().toString();
+      result = dcpRestClient.awaitAsync(dcpRestClient.patchAsync(documentSelfLink, patchState));
+      assertThat(result.getStatusCode(), is(200));
+
+      result = dcpRestClient.awaitAsync(dcpRestClient.getAsync(documentSelfLink));
+      assertThat(result.getBody(ExampleService.ExampleServiceState.class).name, is(equalTo(patchState.name)));
+
+      result = dcpRestClient.awaitAsync(dcpRestClient.deleteAsync(documentSelfLink, null));
+      assertThat(result.getStatusCode(), is(200));
+    }
+
+    @Test
+    public void testConcurrentGets() throws Throwable {
+      String[] documentSelfLinks = createDocuments(5);
+
+      List<CompletableFuture<Operation>> futures = new ArrayList<>();
+      for (String documentSelfLink : documentSelfLinks) {
+        futures.add(dcpRestClient.getAsync(documentSelfLink));
+      }
+
+      for (int i = 0; i < documentSelfLinks.length; i++) {
+        Operation result = dcpRestClient.awaitAsync(futures.get(i));
+        assertThat(result.getBody(ExampleService.ExampleServiceState.class).documentSelfLink,
+            is(equalTo(documentSelfLinks[i])));
+      }
+    }
+
+    @Test
+    public void testQuery() throws Throwable {
+      String[] documentSelfLinks = createDocuments(3);
+
+      QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(
+          ExampleService.ExampleServiceState.class, null);
+      Operation result = dcpRestClient.awaitAsync(dcpRestClient.queryAsync(spec));
+
+      assertThat(QueryTaskUtils.getQueryResultDocumentLinks(result).size(), is(documentSelfLinks.length));
+    }
+
+    @Test
+    public void testGetOfNonExistingDocument() throws Throwable {
+      CompletableFuture<Operation> future =
+          dcpRestClient.getAsync(ExampleFactoryService.SELF_LINK + "/" + UUID.randomUUID().toString());
+
+      try {
+        future.get();
+        Assert.fail("getAsync for a non-existing document should have failed");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause() instanceof DocumentNotFoundException, is(true));
+      }
+
+      try {
+        dcpRestClient.awaitAsync(future);
+        Assert.fail("awaitAsync for a non-existing document should have failed");
+      } catch (DocumentNotFoundException e) {
+        assertThat(e.getRequestedOperation(), is(notNullValue()));
+      }
+    }
+  }
+
   /**
    * Tests for the sendAndWait operation.
    */
@@ -376,6 +479,27 @@ public class DcpRestClientTest {
       assertThat(results.get(0).name, is(equalTo(exampleServiceState.name)));
     }
 
+    @Test
+    public void testPagedQueryOfCreatedDocumentsWithDifferentHosts() throws Throwable {
+      Set<String> documentSelfLinks = new HashSet<>();
+      for (int i = 0; i < MAX_ITERATIONS; i++) {
+        ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+        exampleServiceState.name = UUID.randomUUID().toString();
+        documentSelfLinks.add(createDocument(dcpRestClients[i % dcpRestClients.length], exampleServiceState));
+      }
+
+      for (DcpRestClient dcpRestClient : dcpRestClients) {
+        Iterator<ExampleService.ExampleServiceState> documentIterator = dcpRestClient.queryDocumentsPaged(
+            ExampleService.ExampleServiceState.class, null, 3);
+
+        Set<String> documentLinks = new HashSet<>();
+        while (documentIterator.hasNext()) {
+          assertThat(documentLinks.add(documentIterator.next().documentSelfLink), is(true));
+        }
+        assertThat(documentLinks, is(equalTo(documentSelfLinks)));
+      }
+    }
+
     @Test
     public void testQueryWhenNoDocumentsExist() throws Throwable {
       QueryTask.Query kindClause = new QueryTask.Query()
@@ -610,6 +734,128 @@ public class DcpRestClientTest {
       Collection<String> documentLinks = dcpRestClient.queryDocumentsForLinks(
           ExampleService.ExampleServiceState.class, null);
       assertThat(documentLinks.size(), is(0));
+      Iterator<ExampleService.ExampleServiceState> documentIterator = dcpRestClient.queryDocumentsPaged(
+          ExampleService.ExampleServiceState.class, null, 2);
+      assertThat(documentIterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void testQueryOfDocumentsMatchingValues() throws Throwable {
+      Map<String, ExampleService.ExampleServiceState> exampleServiceStateMap = new HashMap<>();
+      for (int i = 0; i < 5; i++) {
+        ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+        exampleServiceState.name = UUID.randomUUID().toString();
+        String documentSelfLink = createDocument(exampleServiceState);
+
+        exampleServiceStateMap.put(documentSelfLink, exampleServiceState);
+      }
+
+      Set<String> documentSelfLinks = new HashSet<>(exampleServiceStateMap.keySet());
+      String excludedLink = documentSelfLinks.iterator().next();
+      documentSelfLinks.remove(excludedLink);
+      documentSelfLinks.add(ExampleFactoryService.SELF_LINK + "/" + UUID.randomUUID().toString());
+
+      List<ExampleService.ExampleServiceState> documentList = dcpRestClient.queryDocuments(
+          ExampleService.ExampleServiceState.class, ServiceDocument.FIELD_NAME_SELF_LINK, documentSelfLinks);
+
+      assertThat(documentList.size(), is(4));
+      for (ExampleService.ExampleServiceState document : documentList) {
+        assertThat(document.documentSelfLink, is(not(equalTo(excludedLink))));
+        assertThat(document.name, is(equalTo(exampleServiceStateMap.get(document.documentSelfLink).name)));
+      }
+
+      documentList = dcpRestClient.queryDocuments(
+          ExampleService.ExampleServiceState.class, ServiceDocument.FIELD_NAME_SELF_LINK, new HashSet<String>());
+      assertThat(documentList.size(), is(0));
+    }
+
+    @Test
+    public void testPagedQueryOfMultipleCreatedDocuments() throws Throwable {
+      Map<String, ExampleService.ExampleServiceState> exampleServiceStateMap = new HashMap<>();
+      for (int i = 0; i < 5; i++) {
+        ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+        exampleServiceState.name = UUID.randomUUID().toString();
+        String documentSelfLink = createDocument(exampleServiceState);
+
+        exampleServiceStateMap.put(documentSelfLink, exampleServiceState);
+      }
+
+      Iterator<ExampleService.ExampleServiceState> documentIterator = dcpRestClient.queryDocumentsPaged(
+          ExampleService.ExampleServiceState.class, null, 2);
+
+      Set<String> documentLinks = new HashSet<>();
+      while (documentIterator.hasNext()) {
+        ExampleService.ExampleServiceState document = documentIterator.next();
+        assertThat(document.name, is(equalTo(exampleServiceStateMap.get(document.documentSelfLink).name)));
+        assertThat(documentLinks.add(document.documentSelfLink), is(true));
+      }
+      assertThat(documentLinks, is(equalTo(exampleServiceStateMap.keySet())));
+
+      ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<String, String>();
+      Map.Entry<String, ExampleService.ExampleServiceState> entry = exampleServiceStateMap.entrySet().iterator().next();
+      termsBuilder.put("name", entry.getValue().name);
+
+      documentIterator = dcpRestClient.queryDocumentsPaged(
+          ExampleService.ExampleServiceState.class, termsBuilder.build(), 2);
+
+      assertThat(documentIterator.hasNext(), is(true));
+      assertThat(documentIterator.next().documentSelfLink, is(equalTo(entry.getKey())));
+      assertThat(documentIterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void testQueryOfDocumentPages() throws Throwable {
+      Map<String, ExampleService.ExampleServiceState> exampleServiceStateMap = new HashMap<>();
+      for (int i = 0; i < 5; i++) {
+        ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+        exampleServiceState.name = UUID.randomUUID().toString();
+        String documentSelfLink = createDocument(exampleServiceState);
+
+        exampleServiceStateMap.put(documentSelfLink, exampleServiceState);
+      }
+
+      ServiceDocumentQueryResult page = dcpRestClient.queryDocumentPage(
+          ExampleService.ExampleServiceState.class, null, 2);
+
+      Set<String> documentLinks = new HashSet<>();
+      while (true) {
+        List<ExampleService.ExampleServiceState> documentList =
+            QueryTaskUtils.getQueryResultDocuments(ExampleService.ExampleServiceState.class, page);
+        assertThat(documentList.size(), is(lessThanOrEqualTo(2)));
+        for (ExampleService.ExampleServiceState document : documentList) {
+          assertThat(document.name, is(equalTo(exampleServiceStateMap.get(document.documentSelfLink).name)));
+          assertThat(documentLinks.add(document.documentSelfLink), is(true));
+        }
+
+        if (page.nextPageLink == null) {
+          break;
+        }
+        page = dcpRestClient.queryDocumentPage(page.nextPageLink);
+      }
+      assertThat(documentLinks, is(equalTo(exampleServiceStateMap.keySet())));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQueryOfDocumentPageWithMalformedPageLink() throws Throwable {
+      dcpRestClient.queryDocumentPage("malformed");
+    }
+
+    @Test
+    public void testQueryOfDocumentPageWithForgedPageLink() throws Throwable {
+      ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+      exampleServiceState.name = UUID.randomUUID().toString();
+      String documentSelfLink = createDocument(exampleServiceState);
+
+      String[][] nodePageLinks = {{host.getId(), documentSelfLink}};
+      String pageLink = Base64.getUrlEncoder().encodeToString(
+          Utils.toJson(nodePageLinks).getBytes(StandardCharsets.UTF_8));
+
+      try {
+        dcpRestClient.queryDocumentPage(pageLink);
+        Assert.fail("queryDocumentPage should have failed with IllegalArgumentException");
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage(), containsString("not a query page"));
+      }
     }
 
     private void setUpHostAndClient() throws Throwable {
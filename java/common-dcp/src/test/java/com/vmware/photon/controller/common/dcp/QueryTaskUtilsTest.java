@@ -18,6 +18,7 @@ import com.vmware.dcp.common.TaskState;
 import com.vmware.dcp.common.Utils;
 import com.vmware.dcp.services.common.QueryTask;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -28,6 +29,7 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 import static org.testng.Assert.fail;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -418,5 +420,41 @@ public class QueryTaskUtilsTest {
       termsBuilder.put("key1", UUID.randomUUID().toString());
       QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(null, termsBuilder.build());
     }
+
+    @Test
+    public void testWithMultipleValues() {
+      List<String> values = ImmutableList.of(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+
+      QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(Object.class, "key1", values);
+
+      assertThat(spec.query.booleanClauses.size(), is(2));
+      assertThat(spec.query.booleanClauses.get(0).term.propertyName, is("documentKind"));
+      assertThat(spec.query.booleanClauses.get(0).term.matchValue, is(equalTo(Utils.buildKind(Object.class))));
+
+      QueryTask.Query valuesClause = spec.query.booleanClauses.get(1);
+      assertThat(valuesClause.term, nullValue());
+      assertThat(valuesClause.booleanClauses.size(), is(2));
+      for (int i = 0; i < values.size(); i++) {
+        assertThat(valuesClause.booleanClauses.get(i).term.propertyName, is("key1"));
+        assertThat(valuesClause.booleanClauses.get(i).term.matchValue, is(values.get(i)));
+        assertThat(valuesClause.booleanClauses.get(i).occurance, is(QueryTask.Query.Occurance.SHOULD_OCCUR));
+      }
+    }
+
+    @Test
+    public void testWithSingleValue() {
+      String value = UUID.randomUUID().toString();
+
+      QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(Object.class, "key1", ImmutableList.of(value));
+
+      assertThat(spec.query.booleanClauses.size(), is(2));
+      assertThat(spec.query.booleanClauses.get(1).term.propertyName, is("key1"));
+      assertThat(spec.query.booleanClauses.get(1).term.matchValue, is(value));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWithNoValues() {
+      QueryTaskUtils.buildQuerySpec(Object.class, "key1", ImmutableList.<String>of());
+    }
   }
 }
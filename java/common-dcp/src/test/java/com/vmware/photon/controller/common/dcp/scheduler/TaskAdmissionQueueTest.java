@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.dcp.scheduler;
+
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link TaskAdmissionQueue}.
+ */
+public class TaskAdmissionQueueTest {
+
+  private TaskAdmissionQueue queue;
+
+  @BeforeMethod
+  public void setUp() {
+    queue = new TaskAdmissionQueue();
+  }
+
+  @Test
+  public void testEmpty() {
+    assertThat(queue.isEmpty(), is(true));
+    assertThat(queue.poll(), nullValue());
+  }
+
+  @Test
+  public void testRoundRobinAcrossOwners() {
+    queue.add("a1", 0, "a");
+    queue.add("a2", 0, "a");
+    queue.add("a3", 0, "a");
+    queue.add("b1", 0, "b");
+    queue.add("c1", 0, "c");
+    queue.add("c2", 0, "c");
+
+    assertThat(pollAll(), contains("a1", "b1", "c1", "a2", "c2", "a3"));
+  }
+
+  @Test
+  public void testHigherPriorityFirst() {
+    queue.add("a1", 0, "a");
+    queue.add("a2", 5, "a");
+    queue.add("b1", 1, "b");
+    queue.add("b2", 5, "b");
+
+    assertThat(pollAll(), contains("a2", "b2", "b1", "a1"));
+  }
+
+  @Test
+  public void testAddIgnoresQueuedService() {
+    assertThat(queue.add("a1", 0, "a"), is(true));
+    assertThat(queue.add("a1", 1, "b"), is(false));
+    assertThat(queue.size(), is(1));
+  }
+
+  @Test
+  public void testRetainAll() {
+    queue.add("a1", 0, "a");
+    queue.add("a2", 0, "a");
+    queue.add("b1", 0, "b");
+    queue.add("c1", 1, "c");
+
+    queue.retainAll(ImmutableSet.of("a2", "b1"));
+
+    assertThat(queue.size(), is(2));
+    assertThat(queue.contains("a1"), is(false));
+    assertThat(queue.contains("c1"), is(false));
+    assertThat(pollAll(), contains("a2", "b1"));
+  }
+
+  private List<String> pollAll() {
+    List<String> links = new ArrayList<>();
+    while (!queue.isEmpty()) {
+      links.add(queue.poll());
+    }
+    return links;
+  }
+}
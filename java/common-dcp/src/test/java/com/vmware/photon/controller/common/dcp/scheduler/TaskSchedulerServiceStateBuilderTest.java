@@ -20,6 +20,7 @@ import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * Tests {@link TaskSchedulerServiceStateBuilder}.
@@ -64,6 +65,34 @@ public class TaskSchedulerServiceStateBuilderTest {
       TaskSchedulerService.State state = builder.build(config);
       assertThat(state.schedulerServiceClassName, is(TestServiceWithStage.class.getTypeName()));
       assertThat(state.tasksLimits, is(10));
+      assertThat(state.ownerFieldName, nullValue());
+      assertThat(state.priorityFieldName, nullValue());
+    }
+
+    /**
+     * Tests that the owner and priority fields are passed to the scheduler.
+     *
+     * @throws Throwable
+     */
+    @Test
+    public void testSuccessWithOwnerAndPriority() throws Throwable {
+      config = new TaskSchedulerServiceStateBuilder.Config(
+          TestServiceWithStage.class, 10, "documentOwner", "documentVersion");
+
+      TaskSchedulerService.State state = builder.build(config);
+      assertThat(state.ownerFieldName, is("documentOwner"));
+      assertThat(state.priorityFieldName, is("documentVersion"));
+    }
+
+    /**
+     * Tests that an owner field which is not a field of the service state will throw exception.
+     *
+     * @throws Throwable
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = ".* does not have a field unknownField")
+    public void testUnknownOwnerField() throws Throwable {
+      builder.build(new TaskSchedulerServiceStateBuilder.Config(TestServiceWithStage.class, 10, "unknownField", null));
     }
 
     /**
@@ -278,7 +278,52 @@ public class TaskSchedulerServiceTest {
       assertThat(response.results.documentLinks.size(), is(tasksLimit + 3));
     }
 
+    /**
+     * Tests that a service reaching a final stage makes room for a queued service without waiting for the
+     * next maintenance.
+     *
+     * @throws Throwable
+     */
+    @Test
+    public void testFinishedServiceStartsQueuedService() throws Throwable {
+      initEnvironment(1, TimeUnit.HOURS.toMicros(1));
+      startDummyServices(tasksLimit + 2, 0);
+
+      // the maintenance interval is too long to kick in, so trigger the scheduler with a patch
+      environment.sendPatchAndWait(selfLink, new TaskSchedulerService.State());
+      QueryTask startedQuery = QueryTask.create(
+          QueryTaskUtils.buildTaskStatusQuerySpec(
+              TestServiceWithStage.State.class,
+              TaskState.TaskStage.STARTED))
+          .setDirect(true);
+      QueryTask response = environment.waitForQuery(startedQuery,
+          (QueryTask queryTask) -> queryTask.results.documentLinks.size() == tasksLimit);
+
+      String finishedLink = response.results.documentLinks.get(0);
+      TestServiceWithStage.State finishPatch = new TestServiceWithStage.State();
+      finishPatch.taskInfo = new TaskState();
+      finishPatch.taskInfo.stage = TaskState.TaskStage.FINISHED;
+      environment.sendPatchAndWait(finishedLink, finishPatch);
+
+      // the queued service is started once the finished service is noticed
+      QueryTask createdQuery = QueryTask.create(
+          QueryTaskUtils.buildTaskStatusQuerySpec(
+              TestServiceWithStage.State.class,
+              TaskState.TaskStage.CREATED))
+          .setDirect(true);
+      environment.waitForQuery(createdQuery,
+          (QueryTask queryTask) -> queryTask.results.documentLinks.size() == 1);
+
+      response = environment.waitForQuery(startedQuery,
+          (QueryTask queryTask) -> queryTask.results.documentLinks.size() == tasksLimit);
+      assertThat(response.results.documentLinks.contains(finishedLink), is(false));
+    }
+
     private void initEnvironment(int count) throws Throwable {
+      initEnvironment(count, testInterval);
+    }
+
+    private void initEnvironment(int count, long maintenanceInterval) throws Throwable {
       BasicServiceHost[] hosts = new BasicServiceHost[count];
       for (int i = 0; i < count; i++) {
         hosts[i] = BasicServiceHost.create();
@@ -289,7 +334,7 @@ public class TaskSchedulerServiceTest {
           TestServiceWithStageFactory.SELF_LINK);
       for (BasicServiceHost host : hosts) {
         service = spy(new TaskSchedulerService());
-        service.setMaintenanceIntervalMicros(testInterval);
+        service.setMaintenanceIntervalMicros(maintenanceInterval);
         host.startServiceSynchronously(service, buildValidStartupState(), selfLink, false);
       }
     }
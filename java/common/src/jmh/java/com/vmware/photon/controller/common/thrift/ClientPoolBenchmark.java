@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.example.echo.Echoer;
+import com.google.common.util.concurrent.Futures;
+import com.google.inject.TypeLiteral;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.mockito.Mockito.mock;
+
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the acquire/release throughput of {@link ClientPoolImpl} and {@link ConcurrentClientPool} with many
+ * threads sharing a pool, with and without more threads than pooled clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(16)
+public class ClientPoolBenchmark {
+
+  @Param({"default", "concurrent"})
+  private String implementation;
+
+  @Param({"4", "32"})
+  private int maxClients;
+
+  private TAsyncClientManager clientManager;
+  private ScheduledExecutorService executor;
+  private TimerWheel timerWheel;
+  private ClientPool<Echoer.AsyncClient> pool;
+
+  @Setup
+  public void setUp() throws Exception {
+    clientManager = new TAsyncClientManager();
+    executor = Executors.newScheduledThreadPool(1);
+    timerWheel = new TimerWheel(ThriftModule.CLIENT_POOL_TIMER_TICK_MS, ThriftModule.CLIENT_POOL_TIMER_WHEEL_SIZE);
+    timerWheel.start(executor);
+
+    TAsyncClientFactory<Echoer.AsyncClient> clientFactory =
+        new TAsyncClientFactory<>(new TypeLiteral<Echoer.AsyncClient>() {
+        }, clientManager);
+    ServerSet serverSet = new StaticServerSet(
+        new InetSocketAddress("127.0.0.1", 18000),
+        new InetSocketAddress("127.0.0.1", 18001),
+        new InetSocketAddress("127.0.0.1", 18002),
+        new InetSocketAddress("127.0.0.1", 18003));
+    ClientPoolOptions options = new ClientPoolOptions()
+        .setMaxClients(maxClients)
+        .setMaxWaiters(1000)
+        .setTimeout(10, TimeUnit.SECONDS);
+
+    switch (implementation) {
+      case "default":
+        pool = new ClientPoolImpl<>(new SecureRandom(), clientFactory, new TBinaryProtocol.Factory(),
+            mock(ThriftFactory.class), executor, serverSet, options);
+        break;
+      case "concurrent":
+        pool = new ConcurrentClientPool<>(clientFactory, new TBinaryProtocol.Factory(),
+            mock(ThriftFactory.class), timerWheel, serverSet, options);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown pool implementation: " + implementation);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.close();
+    executor.shutdownNow();
+    clientManager.stop();
+  }
+
+  @Benchmark
+  public Echoer.AsyncClient acquireRelease() {
+    Echoer.AsyncClient client = Futures.getUnchecked(pool.acquire());
+    pool.release(client, true);
+    return client;
+  }
+}
@@ -44,9 +44,6 @@ import com.vmware.photon.controller.common.clients.exceptions.SweepInProgressExc
 import com.vmware.photon.controller.common.clients.exceptions.SystemErrorException;
 import com.vmware.photon.controller.common.clients.exceptions.VmNotFoundException;
 import com.vmware.photon.controller.common.clients.exceptions.VmNotPoweredOffException;
-import com.vmware.photon.controller.common.thrift.ClientPool;
-import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
-import com.vmware.photon.controller.common.thrift.ClientPoolOptions;
 import com.vmware.photon.controller.common.thrift.ClientProxyFactory;
 import com.vmware.photon.controller.common.thrift.ServerSet;
 import com.vmware.photon.controller.common.zookeeper.ZookeeperServerSetFactory;
@@ -124,7 +121,6 @@ import com.vmware.photon.controller.scheduler.gen.PlaceRequest;
 import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.thrift.TException;
@@ -134,7 +130,6 @@ import org.slf4j.LoggerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -143,7 +138,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Host Client Facade that hides the zookeeper/async interactions.
@@ -152,11 +146,6 @@ import java.util.concurrent.TimeUnit;
 @RpcClient
 public class HostClient {
 
-  protected static final ClientPoolOptions CLIENT_POOL_OPTIONS = new ClientPoolOptions()
-      .setMaxClients(1)
-      .setMaxWaiters(100)
-      .setTimeout(30, TimeUnit.SECONDS)
-      .setServiceName("Host");
   private static final int DEFAULT_PORT_NUMBER = 8835;
   private static final int MAX_RESERVED_PORT_NUMBER = 1023;
 
@@ -189,7 +178,7 @@ public class HostClient {
   private static final long PROVISION_TIMEOUT_MS = 60000;
   private static final long RESERVE_TIMEOUT_MS = 60000;
   private final ClientProxyFactory<Host.AsyncClient> clientProxyFactory;
-  private final ClientPoolFactory<Host.AsyncClient> clientPoolFactory;
+  private final HostClientPoolRegistry clientPoolRegistry;
   private ZookeeperServerSetFactory serverSetFactory;
   /**
    * clientProxy acquires a new client from ClientPool for every thrift call.
@@ -198,16 +187,20 @@ public class HostClient {
   private Host.AsyncClient clientProxy;
   private String hostIp;
   private int port;
-  private ClientPool<Host.AsyncClient> clientPool;
   private String agentId;
+  /**
+   * Shared pool of clients for the current target, the pool and the ZooKeeper server set for agent ids are
+   * reference counted by {@link HostClientPoolRegistry} so retargeting the client does not tear them down.
+   */
+  private HostClientPoolRegistry.Lease clientPoolLease;
   private ServerSet serverSet;
 
   @Inject
   public HostClient(ClientProxyFactory<Host.AsyncClient> clientProxyFactory,
-                    ClientPoolFactory<Host.AsyncClient> clientPoolFactory,
+                    HostClientPoolRegistry clientPoolRegistry,
                     ZookeeperServerSetFactory serverSetFactory) {
     this.clientProxyFactory = clientProxyFactory;
-    this.clientPoolFactory = clientPoolFactory;
+    this.clientPoolRegistry = clientPoolRegistry;
     this.serverSetFactory = serverSetFactory;
   }
 
@@ -1658,19 +1651,11 @@ public class HostClient {
 
   public void close() {
     clientProxy = null;
+    serverSet = null;
 
-    if (clientPool != null) {
-      clientPool.close();
-      clientPool = null;
-    }
-
-    if (serverSet != null) {
-      try {
-        serverSet.close();
-      } catch (IOException e) {
-        logger.warn("Exception closing server set", e);
-      }
-      serverSet = null;
+    if (clientPoolLease != null) {
+      clientPoolRegistry.release(clientPoolLease);
+      clientPoolLease = null;
     }
   }
 
@@ -1736,18 +1721,15 @@ public class HostClient {
 
   private void createClientProxyWithAgentId() {
     logger.info("Creating host async client of agentId {}", this.getAgentId());
-    checkNotNull(serverSetFactory, "serverSetFactory should not be null to create serverSet");
-    serverSet = serverSetFactory.createHostServerSet(agentId);
-    clientPool = clientPoolFactory.create(serverSet, CLIENT_POOL_OPTIONS);
-    clientProxy = clientProxyFactory.create(clientPool).get();
+    clientPoolLease = clientPoolRegistry.acquire(agentId, serverSetFactory);
+    serverSet = clientPoolLease.getServerSet();
+    clientProxy = clientProxyFactory.create(clientPoolLease.getClientPool()).get();
   }
 
   private void createClientProxyWithIpAndPort() {
     logger.info("Creating host async client of hostIp {} and port {}", this.getHostIp(), this.getPort());
-    this.clientPool = this.clientPoolFactory.create(
-        ImmutableSet.of(new InetSocketAddress(this.getHostIp(), this.getPort())),
-        CLIENT_POOL_OPTIONS);
-    this.clientProxy = clientProxyFactory.create(clientPool).get();
+    this.clientPoolLease = clientPoolRegistry.acquire(new InetSocketAddress(this.getHostIp(), this.getPort()));
+    this.clientProxy = clientProxyFactory.create(clientPoolLease.getClientPool()).get();
   }
 
   /**
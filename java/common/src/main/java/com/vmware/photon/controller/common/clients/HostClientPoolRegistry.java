@@ -0,0 +1,269 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.clients;
+
+import com.vmware.photon.controller.common.thrift.ClientPool;
+import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
+import com.vmware.photon.controller.common.thrift.ClientPoolOptions;
+import com.vmware.photon.controller.common.thrift.ServerSet;
+import com.vmware.photon.controller.common.thrift.StaticServerSet;
+import com.vmware.photon.controller.common.zookeeper.ZookeeperServerSetFactory;
+import com.vmware.photon.controller.host.gen.Host;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide registry of the client pools used to talk to the hosts.
+ * <p/>
+ * Pools are keyed by host address or by agent id and are reference counted, every {@link HostClient} targeting
+ * the same host shares the same pool (and for agent ids the same ZooKeeper server set) instead of creating
+ * and closing its own every time it is retargeted. A pool that is no longer referenced is kept around, with
+ * its connections open, until it has been idle for {@link #IDLE_TIMEOUT_MS} or until there are more than
+ * {@link #MAX_IDLE_POOLS} idle pools. Idle pools are evicted lazily when pools are acquired or released.
+ */
+@Singleton
+public class HostClientPoolRegistry {
+
+  private static final ClientPoolOptions CLIENT_POOL_OPTIONS = new ClientPoolOptions()
+      .setMaxClients(32)
+      .setMaxWaiters(100)
+      .setTimeout(30, TimeUnit.SECONDS)
+      .setServiceName("Host")
+      .setConcurrent(true);
+
+  private static final Logger logger = LoggerFactory.getLogger(HostClientPoolRegistry.class);
+
+  private static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+  private static final int MAX_IDLE_POOLS = 64;
+
+  private final ClientPoolFactory<Host.AsyncClient> clientPoolFactory;
+  private final Map<String, Lease> leases;
+  private final LinkedHashMap<String, Lease> idleLeases;
+
+  @Inject
+  public HostClientPoolRegistry(ClientPoolFactory<Host.AsyncClient> clientPoolFactory) {
+    this.clientPoolFactory = clientPoolFactory;
+    this.leases = new HashMap<>();
+    this.idleLeases = new LinkedHashMap<>();
+  }
+
+  /**
+   * Acquires the pool of clients connected to a host address.
+   *
+   * @param address
+   * @return a lease that must be released once the caller is done with the pool
+   */
+  public Lease acquire(InetSocketAddress address) {
+    String key = "address:" + address;
+    Lease lease = retain(key);
+    if (lease == null) {
+      logger.info("Creating host client pool for {}", address);
+      lease = register(key, new StaticServerSet(address));
+    }
+    return lease;
+  }
+
+  /**
+   * Acquires the pool of clients connected to the host registered in ZooKeeper with an agent id.
+   * The server set is created without holding the registry lock, so acquiring the pool of a new agent
+   * doesn't block the callers acquiring or releasing the pools of other hosts while ZooKeeper is read.
+   *
+   * @param agentId
+   * @param serverSetFactory factory used to create the server set if there is no pool for the agent yet
+   * @return a lease that must be released once the caller is done with the pool
+   */
+  public Lease acquire(String agentId, ZookeeperServerSetFactory serverSetFactory) {
+    String key = "agent:" + agentId;
+    Lease lease = retain(key);
+    if (lease == null) {
+      logger.info("Creating host client pool for agent {}", agentId);
+      checkNotNull(serverSetFactory, "serverSetFactory should not be null to create serverSet");
+      lease = register(key, serverSetFactory.createHostServerSet(agentId));
+    }
+    return lease;
+  }
+
+  /**
+   * Releases a lease, the pool is closed once it has been idle for long enough.
+   *
+   * @param lease
+   */
+  public void release(Lease lease) {
+    List<Lease> evicted;
+    synchronized (this) {
+      checkState(lease.refCount > 0, "Lease %s already released", lease.key);
+      lease.refCount--;
+      if (lease.refCount == 0) {
+        lease.idleSince = System.currentTimeMillis();
+        idleLeases.put(lease.key, lease);
+      }
+      evicted = evictIdle();
+    }
+    closeAll(evicted);
+  }
+
+  @VisibleForTesting
+  synchronized int getPoolCount() {
+    return leases.size();
+  }
+
+  @VisibleForTesting
+  synchronized int getIdlePoolCount() {
+    return idleLeases.size();
+  }
+
+  private Lease retain(String key) {
+    List<Lease> evicted;
+    Lease lease;
+    synchronized (this) {
+      evicted = evictIdle();
+      lease = retainLocked(key);
+    }
+    closeAll(evicted);
+    return lease;
+  }
+
+  /**
+   * Registers a pool for a server set created outside of the registry lock. If another caller registered
+   * a pool for the same key in the meantime, that pool is retained and the server set is closed.
+   *
+   * @param key
+   * @param serverSet
+   * @return
+   */
+  private Lease register(String key, ServerSet serverSet) {
+    List<Lease> evicted;
+    Lease lease;
+    boolean created = false;
+    synchronized (this) {
+      evicted = evictIdle();
+      lease = retainLocked(key);
+      if (lease == null) {
+        lease = new Lease(key, clientPoolFactory.create(serverSet, CLIENT_POOL_OPTIONS), serverSet);
+        leases.put(key, lease);
+        created = true;
+      }
+    }
+    closeAll(evicted);
+
+    if (!created) {
+      logger.info("Host client pool {} was created concurrently, closing duplicate server set", key);
+      try {
+        serverSet.close();
+      } catch (IOException e) {
+        logger.warn("Exception closing server set", e);
+      }
+    }
+    return lease;
+  }
+
+  private Lease retainLocked(String key) {
+    Lease lease = leases.get(key);
+    if (lease == null) {
+      return null;
+    }
+
+    if (lease.refCount == 0) {
+      idleLeases.remove(key);
+    }
+    lease.refCount++;
+    return lease;
+  }
+
+  /**
+   * Removes the idle leases that expired, they are returned so that they can be closed once the registry
+   * lock is released.
+   *
+   * @return
+   */
+  private List<Lease> evictIdle() {
+    List<Lease> evicted = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    Iterator<Lease> iterator = idleLeases.values().iterator();
+    while (iterator.hasNext()) {
+      Lease lease = iterator.next();
+      if (idleLeases.size() <= MAX_IDLE_POOLS && now - lease.idleSince < IDLE_TIMEOUT_MS) {
+        // Idle leases are ordered by idle time, the remaining ones are more recent
+        break;
+      }
+
+      iterator.remove();
+      leases.remove(lease.key);
+      evicted.add(lease);
+    }
+    return evicted;
+  }
+
+  private static void closeAll(List<Lease> leases) {
+    for (Lease lease : leases) {
+      lease.close();
+    }
+  }
+
+  /**
+   * Reference to a shared pool of host clients.
+   */
+  public static class Lease {
+
+    private final String key;
+    private final ClientPool<Host.AsyncClient> clientPool;
+    private final ServerSet serverSet;
+    private int refCount;
+    private long idleSince;
+
+    private Lease(String key, ClientPool<Host.AsyncClient> clientPool, ServerSet serverSet) {
+      this.key = key;
+      this.clientPool = clientPool;
+      this.serverSet = serverSet;
+      this.refCount = 1;
+    }
+
+    public ClientPool<Host.AsyncClient> getClientPool() {
+      return clientPool;
+    }
+
+    public ServerSet getServerSet() {
+      return serverSet;
+    }
+
+    private void close() {
+      logger.info("Closing idle host client pool {}", key);
+      if (!clientPool.isClosed()) {
+        clientPool.close();
+      }
+
+      try {
+        serverSet.close();
+      } catch (IOException e) {
+        logger.warn("Exception closing server set", e);
+      }
+    }
+  }
+}
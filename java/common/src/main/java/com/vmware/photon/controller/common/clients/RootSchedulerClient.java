@@ -33,8 +33,11 @@ import com.vmware.photon.controller.resource.gen.Resource;
 import com.vmware.photon.controller.resource.gen.VmLocator;
 import com.vmware.photon.controller.scheduler.gen.FindRequest;
 import com.vmware.photon.controller.scheduler.gen.FindResponse;
+import com.vmware.photon.controller.scheduler.gen.PlaceBatchRequest;
+import com.vmware.photon.controller.scheduler.gen.PlaceBatchResponse;
 import com.vmware.photon.controller.scheduler.gen.PlaceRequest;
 import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
+import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
 import com.vmware.photon.controller.scheduler.root.gen.RootScheduler;
 import com.vmware.photon.controller.status.gen.GetStatusRequest;
 import com.vmware.photon.controller.status.gen.Status;
@@ -45,6 +48,9 @@ import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Root Scheduler Client Facade that hides the zookeeper/async interactions and provides some simpler interfaces.
  */
@@ -183,6 +189,59 @@ public class RootSchedulerClient implements StatusProvider {
     }
   }
 
+  /**
+   * Places a batch of resources, unlike {@link #place(Resource)} the result of every placement is
+   * returned as is and it is up to the caller to handle the placements that failed.
+   *
+   * @param resources
+   * @return one place response per resource, in the order of the resources
+   * @throws RpcException
+   * @throws InterruptedException
+   */
+  @RpcMethod
+  public List<PlaceResponse> placeBatch(List<Resource> resources) throws RpcException, InterruptedException {
+    try {
+      RootScheduler.AsyncClient client = proxy.get();
+
+      SyncHandler<PlaceBatchResponse, RootScheduler.AsyncClient.place_batch_call> handler = new SyncHandler<>();
+      client.setTimeout(getPlaceBatchTimeout(resources.size()));
+      List<PlaceRequest> requests = new ArrayList<>(resources.size());
+      for (Resource resource : resources) {
+        requests.add(new PlaceRequest(resource));
+      }
+      PlaceBatchRequest placeBatchRequest = new PlaceBatchRequest(requests);
+      client.place_batch(placeBatchRequest, handler);
+      handler.await();
+      logger.info("Place batch request: {}", placeBatchRequest);
+
+      List<PlaceResponse> responses = handler.getResponse().getResponses();
+      if (responses.size() != resources.size()) {
+        throw new RpcException(String.format("Expected %d place responses, got %d",
+            resources.size(), responses.size()));
+      }
+      for (PlaceResponse response : responses) {
+        if (response.getResult() == PlaceResultCode.NOT_LEADER) {
+          throw new NotLeaderException();
+        }
+      }
+
+      return responses;
+    } catch (TException e) {
+      throw new RpcException(e);
+    }
+  }
+
+  /**
+   * Returns the timeout of a batch placement, the resources of a batch that can't be placed together are
+   * placed one after the other, each one taking up to the timeout of a single placement.
+   *
+   * @param batchSize
+   * @return
+   */
+  private static long getPlaceBatchTimeout(int batchSize) {
+    return PLACE_TIMEOUT_MS * Math.max(batchSize, 1);
+  }
+
   @Override
   public Status getStatus() {
     try {
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.google.inject.name.Named;
+import org.apache.thrift.async.TAsyncClient;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+/**
+ * Creates the {@link ClientPool} implementations, {@link OptionsClientPoolFactory} picks one of them
+ * based on the {@link ClientPoolOptions}.
+ *
+ * @param <C> thrift async client type
+ */
+interface ClientPoolImplementations<C extends TAsyncClient> {
+
+  @Named("Default")
+  ClientPool<C> createDefault(ServerSet serverSet, ClientPoolOptions options);
+
+  @Named("Concurrent")
+  ClientPool<C> createConcurrent(ServerSet serverSet, ClientPoolOptions options);
+
+  @Named("Basic")
+  ClientPool<C> createBasic(Set<InetSocketAddress> servers, ClientPoolOptions options);
+}
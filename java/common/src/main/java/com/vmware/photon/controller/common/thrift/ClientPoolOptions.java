@@ -24,6 +24,7 @@ public class ClientPoolOptions {
   private int maxWaiters = 1;
   private long timeoutMs = 0;
   private String serviceName;
+  private boolean concurrent;
 
   public ClientPoolOptions() {
   }
@@ -33,6 +34,7 @@ public class ClientPoolOptions {
     this.maxWaiters = other.maxWaiters;
     this.timeoutMs = other.timeoutMs;
     this.serviceName = other.serviceName;
+    this.concurrent = other.concurrent;
   }
 
   public int getMaxClients() {
@@ -70,4 +72,19 @@ public class ClientPoolOptions {
     this.serviceName = serviceName;
     return this;
   }
+
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+
+  /**
+   * Selects the lock-free {@link ConcurrentClientPool} instead of the default pool for server sets.
+   *
+   * @param concurrent
+   * @return the options
+   */
+  public ClientPoolOptions setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+    return this;
+  }
 }
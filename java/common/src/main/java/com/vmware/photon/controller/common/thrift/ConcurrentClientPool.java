@@ -0,0 +1,389 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import org.apache.thrift.async.TAsyncClient;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free implementation of {@link ClientPool}, selected with {@link ClientPoolOptions#setConcurrent(boolean)}.
+ * <p/>
+ * Idle clients are kept in a lock-free stack per server, so a release followed by an acquire reuses the most
+ * recently used connection. Waiters are kept in a bounded lock-free queue and are handed clients by a single
+ * drainer at a time (whoever triggers the drain while another thread is draining makes it run one more pass),
+ * and acquire timeouts are tracked by a shared {@link TimerWheel} instead of one scheduled task per waiter.
+ *
+ * @param <C> thrift async client type
+ */
+class ConcurrentClientPool<C extends TAsyncClient> implements ClientPool<C>, ServerSet.ChangeListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConcurrentClientPool.class);
+
+  private final TAsyncClientFactory<C> clientFactory;
+  private final TProtocolFactory protocolFactory;
+  private final ThriftFactory thriftFactory;
+  private final TimerWheel timerWheel;
+  private final ServerSet serverSet;
+  private final ClientPoolOptions options;
+  private final ConcurrentMap<InetSocketAddress, Deque<C>> idleClients;
+  private final ConcurrentMap<C, InetSocketAddress> acquiredClients;
+  private final ConcurrentMap<C, TNonblockingTransport> clientTransportMap;
+  private final Deque<Promise<C>> promises;
+  private final AtomicInteger promiseCount;
+  private final AtomicInteger clientCount;
+  private final AtomicInteger drainRequests;
+  private volatile InetSocketAddress[] availableServers;
+  private volatile boolean closed;
+
+  @Inject
+  public ConcurrentClientPool(TAsyncClientFactory<C> clientFactory,
+                              TProtocolFactory protocolFactory,
+                              ThriftFactory thriftFactory,
+                              TimerWheel timerWheel,
+                              @Assisted ServerSet serverSet,
+                              @Assisted ClientPoolOptions options) {
+    this.clientFactory = clientFactory;
+    this.protocolFactory = protocolFactory;
+    this.thriftFactory = thriftFactory;
+    this.timerWheel = timerWheel;
+    this.serverSet = serverSet;
+    this.options = new ClientPoolOptions(options);
+    this.idleClients = new ConcurrentHashMap<>();
+    this.acquiredClients = new ConcurrentHashMap<>();
+    this.clientTransportMap = new ConcurrentHashMap<>();
+    this.promises = new ConcurrentLinkedDeque<>();
+    this.promiseCount = new AtomicInteger();
+    this.clientCount = new AtomicInteger();
+    this.drainRequests = new AtomicInteger();
+    this.availableServers = new InetSocketAddress[0];
+    this.closed = false;
+
+    // Must be last since it can start firing events immediately
+    this.serverSet.addChangeListener(this);
+  }
+
+  @Override
+  public synchronized void onServerAdded(InetSocketAddress address) {
+    // Server set changes are rare, the lock only orders them with each other
+    logger.debug("Server {} added", address);
+    idleClients.putIfAbsent(address, new ConcurrentLinkedDeque<C>());
+    availableServers = addServer(availableServers, address);
+    drain();
+  }
+
+  @Override
+  public synchronized void onServerRemoved(InetSocketAddress address) {
+    logger.debug("Server {} removed", address);
+    availableServers = removeServer(availableServers, address);
+    Deque<C> clients = idleClients.remove(address);
+    if (clients != null) {
+      C client;
+      while ((client = clients.poll()) != null) {
+        removeClient(client);
+      }
+    }
+  }
+
+  @Override
+  public ListenableFuture<C> acquire() {
+    if (closed) {
+      return Futures.immediateFailedFuture(new ClientPoolException("Client pool closed"));
+    }
+
+    // Fast path, do not barge ahead of the waiters
+    if (promises.isEmpty()) {
+      try {
+        C client = pollIdleClient();
+        if (client == null) {
+          client = createClient();
+        }
+        if (client != null) {
+          return Futures.immediateFuture(client);
+        }
+      } catch (IOException ex) {
+        logger.error("createNewClient has IOException", ex);
+        return Futures.immediateFailedFuture(ex);
+      }
+    }
+
+    if (promiseCount.incrementAndGet() > options.getMaxWaiters()) {
+      promiseCount.decrementAndGet();
+      return Futures.immediateFailedFuture(new ClientPoolException("Too many waiters"));
+    }
+
+    SettableFuture<C> future = SettableFuture.create();
+    final Promise<C> promise = new Promise<>(future);
+    promises.add(promise);
+    if (options.getTimeoutMs() > 0) {
+      final TimerWheel.Timeout timeout = timerWheel.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (promise.setException(new ClientPoolException(String.format("Timeout acquiring client: %s",
+              serverSet)))) {
+            removePromise(promise);
+          }
+        }
+      }, options.getTimeoutMs());
+      future.addListener(new Runnable() {
+        @Override
+        public void run() {
+          timeout.cancel();
+        }
+      }, MoreExecutors.sameThreadExecutor());
+    }
+
+    // A client might have been released between the fast path and the promise being queued
+    drain();
+    return future;
+  }
+
+  @Override
+  public void close() {
+    logger.info("{}, closing client pool {}", options.getServiceName(), System.identityHashCode(this));
+    Preconditions.checkState(!closed);
+    closed = true;
+
+    serverSet.removeChangeListener(this);
+
+    Promise<C> promise;
+    while ((promise = promises.poll()) != null) {
+      promiseCount.decrementAndGet();
+      promise.setException(new ClientPoolException("Client pool closing"));
+    }
+
+    for (Deque<C> clients : idleClients.values()) {
+      C client;
+      while ((client = clients.poll()) != null) {
+        removeClient(client);
+      }
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public void release(C client, boolean healthy) {
+    logger.debug("{}, client pool {}, releasing: {} healthy: {}",
+        options.getServiceName(), System.identityHashCode(this), client, healthy);
+    InetSocketAddress address = acquiredClients.remove(client);
+    if (address == null) {
+      throw new IllegalArgumentException("Client is not currently acquired by the pool: " + client);
+    }
+
+    Deque<C> clients = idleClients.get(address);
+    if (!closed && healthy && clients != null) {
+      clients.push(client);
+      if (closed || idleClients.get(address) != clients) {
+        // Lost a race with close or with the server removal, make sure the client does not leak
+        if (clients.remove(client)) {
+          removeClient(client);
+        }
+      }
+    } else {
+      logger.debug("{}, client pool {}, closing transport for client: {}, healthy: {}",
+          options.getServiceName(), System.identityHashCode(this), client, healthy);
+      removeClient(client);
+    }
+
+    drain();
+  }
+
+  @Override
+  public int getWaiters() {
+    return promiseCount.get();
+  }
+
+  @VisibleForTesting
+  int getIdleClientCount() {
+    int count = 0;
+    for (Deque<C> clients : idleClients.values()) {
+      count += clients.size();
+    }
+    return count;
+  }
+
+  @VisibleForTesting
+  int getClientCount() {
+    return clientCount.get();
+  }
+
+  /**
+   * Hands out clients to the waiters. Only one thread drains at a time, a thread requesting a drain while
+   * another one is draining makes the draining thread do one more pass instead of waiting for it.
+   */
+  private void drain() {
+    if (drainRequests.getAndIncrement() != 0) {
+      return;
+    }
+
+    int requests = 1;
+    do {
+      Promise<C> promise;
+      while ((promise = promises.poll()) != null) {
+        promiseCount.decrementAndGet();
+        if (promise.isDone()) {
+          continue;
+        }
+
+        C client = pollIdleClient();
+        if (client == null) {
+          try {
+            client = createClient();
+          } catch (IOException ex) {
+            logger.error("createNewClient has IOException", ex);
+            promise.setException(ex);
+            continue;
+          }
+        }
+
+        if (client == null) {
+          promises.addFirst(promise);
+          promiseCount.incrementAndGet();
+          break;
+        }
+
+        if (!promise.set(client)) {
+          // The promise timed out in the meantime
+          returnIdleClient(client);
+        }
+      }
+
+      requests = drainRequests.addAndGet(-requests);
+    } while (requests != 0);
+  }
+
+  private void removePromise(Promise<C> promise) {
+    if (promises.removeFirstOccurrence(promise)) {
+      promiseCount.decrementAndGet();
+    }
+  }
+
+  private C pollIdleClient() {
+    InetSocketAddress[] servers = availableServers;
+    if (servers.length == 0) {
+      return null;
+    }
+
+    int start = ThreadLocalRandom.current().nextInt(servers.length);
+    for (int i = 0; i < servers.length; i++) {
+      InetSocketAddress address = servers[(start + i) % servers.length];
+      Deque<C> clients = idleClients.get(address);
+      if (clients == null) {
+        continue;
+      }
+
+      C client;
+      while ((client = clients.poll()) != null) {
+        if (client.hasError()) {
+          logger.warn("service {} available client {} has error", options.getServiceName(), client, client.getError());
+          removeClient(client);
+          continue;
+        }
+
+        acquiredClients.put(client, address);
+        return client;
+      }
+    }
+
+    return null;
+  }
+
+  private C createClient() throws IOException {
+    InetSocketAddress[] servers = availableServers;
+    if (closed || servers.length == 0) {
+      return null;
+    }
+
+    int count;
+    do {
+      count = clientCount.get();
+      if (count >= options.getMaxClients()) {
+        return null;
+      }
+    } while (!clientCount.compareAndSet(count, count + 1));
+
+    InetSocketAddress address = servers[ThreadLocalRandom.current().nextInt(servers.length)];
+    try {
+      C client = ClientPoolUtils.createNewClient(address, protocolFactory, options, thriftFactory, clientFactory,
+          clientTransportMap);
+      acquiredClients.put(client, address);
+      return client;
+    } catch (IOException ex) {
+      clientCount.decrementAndGet();
+      throw ex;
+    }
+  }
+
+  private void returnIdleClient(C client) {
+    InetSocketAddress address = acquiredClients.remove(client);
+    Deque<C> clients = address == null ? null : idleClients.get(address);
+    if (clients == null || closed) {
+      removeClient(client);
+      return;
+    }
+    clients.push(client);
+  }
+
+  private void removeClient(C client) {
+    logger.debug("remove client {}", client);
+    TNonblockingTransport transport = clientTransportMap.remove(client);
+    if (transport != null) {
+      transport.close();
+      clientCount.decrementAndGet();
+    }
+  }
+
+  private static InetSocketAddress[] addServer(InetSocketAddress[] servers, InetSocketAddress address) {
+    for (InetSocketAddress server : servers) {
+      if (server.equals(address)) {
+        return servers;
+      }
+    }
+    InetSocketAddress[] result = Arrays.copyOf(servers, servers.length + 1);
+    result[servers.length] = address;
+    return result;
+  }
+
+  private static InetSocketAddress[] removeServer(InetSocketAddress[] servers, InetSocketAddress address) {
+    List<InetSocketAddress> result = new ArrayList<>(Arrays.asList(servers));
+    result.remove(address);
+    return result.toArray(new InetSocketAddress[result.size()]);
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.google.inject.Inject;
+import org.apache.thrift.async.TAsyncClient;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+/**
+ * {@link ClientPoolFactory} selecting the pool implementation with {@link ClientPoolOptions#isConcurrent()}.
+ *
+ * @param <C> thrift async client type
+ */
+class OptionsClientPoolFactory<C extends TAsyncClient> implements ClientPoolFactory<C> {
+
+  private final ClientPoolImplementations<C> implementations;
+
+  @Inject
+  OptionsClientPoolFactory(ClientPoolImplementations<C> implementations) {
+    this.implementations = implementations;
+  }
+
+  @Override
+  public ClientPool<C> create(ServerSet serverSet, ClientPoolOptions options) {
+    if (options.isConcurrent()) {
+      return implementations.createConcurrent(serverSet, options);
+    }
+    return implementations.createDefault(serverSet, options);
+  }
+
+  @Override
+  public ClientPool<C> create(Set<InetSocketAddress> servers, ClientPoolOptions options) {
+    return implementations.createBasic(servers, options);
+  }
+}
@@ -35,6 +35,10 @@ import java.util.concurrent.ScheduledExecutorService;
  * Guice module for Thrift.
  */
 public class ThriftModule extends AbstractModule {
+
+  static final long CLIENT_POOL_TIMER_TICK_MS = 100;
+  static final int CLIENT_POOL_TIMER_WHEEL_SIZE = 512;
+
   @Override
   protected void configure() {
     install(new FactoryModuleBuilder()
@@ -50,6 +54,14 @@ public class ThriftModule extends AbstractModule {
     return Executors.newScheduledThreadPool(1);
   }
 
+  @Provides
+  @Singleton
+  TimerWheel getClientPoolTimerWheel(@ClientPoolTimer ScheduledExecutorService clientPoolTimer) {
+    TimerWheel timerWheel = new TimerWheel(CLIENT_POOL_TIMER_TICK_MS, CLIENT_POOL_TIMER_WHEEL_SIZE);
+    timerWheel.start(clientPoolTimer);
+    return timerWheel;
+  }
+
   @Provides
   @Singleton
   public SecureRandom getSecureRandom() {
@@ -57,12 +57,16 @@ public class ThriftServiceModule<C extends TAsyncClient> extends AbstractModule
   @SuppressWarnings("unchecked")
   private void bindClientPoolFactory() {
     TypeLiteral clientPoolFactory = getTypeLiteral(ClientPoolFactory.class, client.getType());
+    TypeLiteral implementations = getTypeLiteral(ClientPoolImplementations.class, client.getType());
     TypeLiteral source = getTypeLiteral(ClientPool.class, client.getType());
     TypeLiteral serverSetTarget = getTypeLiteral(ClientPoolImpl.class, client.getType());
+    TypeLiteral concurrentTarget = getTypeLiteral(ConcurrentClientPool.class, client.getType());
     TypeLiteral serversTarget = getTypeLiteral(BasicClientPool.class, client.getType());
     install(new FactoryModuleBuilder()
-        .implement(source, serverSetTarget)
+        .implement(source, Names.named("Default"), serverSetTarget)
+        .implement(source, Names.named("Concurrent"), concurrentTarget)
         .implement(source, Names.named("Basic"), serversTarget)
-        .build(clientPoolFactory));
+        .build(implementations));
+    bind(clientPoolFactory).to(getTypeLiteral(OptionsClientPoolFactory.class, client.getType()));
   }
 }
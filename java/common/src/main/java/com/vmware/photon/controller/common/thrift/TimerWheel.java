@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel used by {@link ConcurrentClientPool} for acquire timeouts.
+ * <p/>
+ * Scheduling a timeout only appends it to a lock-free queue, the single ticking thread moves the new timeouts
+ * to their bucket and expires the timeouts of the current bucket on every tick. Timeouts never fire early and
+ * fire at most two ticks late, which is plenty for client acquisition timeouts measured in seconds, and
+ * scheduling or cancelling a timeout never contends with the other threads.
+ */
+class TimerWheel {
+
+  private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+  private final long tickMs;
+  private final Queue<Timeout>[] buckets;
+  private final Queue<Timeout> pending;
+  private long currentTick;
+
+  @SuppressWarnings("unchecked")
+  TimerWheel(long tickMs, int wheelSize) {
+    this.tickMs = tickMs;
+    this.buckets = new Queue[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      buckets[i] = new ArrayDeque<>();
+    }
+    this.pending = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Starts ticking the wheel with the given executor.
+   *
+   * @param executor
+   */
+  void start(ScheduledExecutorService executor) {
+    executor.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          tick();
+        } catch (Throwable t) {
+          logger.error("Timer wheel tick failed", t);
+        }
+      }
+    }, tickMs, tickMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Schedules a task to run once the delay expired.
+   *
+   * @param task
+   * @param delayMs
+   * @return the timeout, that can be cancelled
+   */
+  Timeout schedule(Runnable task, long delayMs) {
+    Timeout timeout = new Timeout(task, Math.max(1, (delayMs + tickMs - 1) / tickMs));
+    pending.add(timeout);
+    return timeout;
+  }
+
+  @VisibleForTesting
+  synchronized void tick() {
+    // Only one thread ticks the wheel, the lock is uncontended and only protects against an overlapping test tick
+    Timeout timeout;
+    while ((timeout = pending.poll()) != null) {
+      if (!timeout.cancelled) {
+        // The timeout was scheduled during the current tick, add one so that it never fires early
+        timeout.deadline = currentTick + timeout.ticks + 1;
+        buckets[(int) (timeout.deadline % buckets.length)].add(timeout);
+      }
+    }
+
+    currentTick++;
+    Iterator<Timeout> iterator = buckets[(int) (currentTick % buckets.length)].iterator();
+    while (iterator.hasNext()) {
+      timeout = iterator.next();
+      if (timeout.cancelled) {
+        iterator.remove();
+      } else if (timeout.deadline <= currentTick) {
+        iterator.remove();
+        try {
+          timeout.task.run();
+        } catch (Throwable t) {
+          logger.error("Timeout task failed", t);
+        }
+      }
+    }
+  }
+
+  /**
+   * Handle of a scheduled task.
+   */
+  static class Timeout {
+
+    private final Runnable task;
+    private final long ticks;
+    private long deadline;
+    private volatile boolean cancelled;
+
+    private Timeout(Runnable task, long ticks) {
+      this.task = task;
+      this.ticks = ticks;
+    }
+
+    void cancel() {
+      cancelled = true;
+    }
+  }
+}
@@ -18,6 +18,9 @@ import com.vmware.photon.controller.common.thrift.StaticServerSet;
 import com.vmware.photon.controller.host.gen.HostConfig;
 import com.vmware.photon.controller.resource.gen.Datastore;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.ChildData;
@@ -28,7 +31,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
@@ -40,6 +46,10 @@ import java.util.concurrent.ExecutorService;
  * during the registration of the callback, addEvent will be triggered for every node that is
  * being tracked. No update or delete events will be triggered unless they happen after the
  * listener registration.
+ * <p/>
+ * The host configs are deserialized once per child event into an immutable {@link HostSnapshot}, which indexes them
+ * by host and datastore. Lookups read the current snapshot without locking or deserializing, so the returned
+ * configs and sets are shared and must not be modified.
  */
 public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonitor {
   static final String ZK_HOST_PATH = "hosts";
@@ -47,12 +57,27 @@ public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonito
   private final Set<HostChangeListener> listeners;
   private TDeserializer deserializer = new TDeserializer();
 
+  /**
+   * The current view of the hosts, replaced as a whole on every child event.
+   */
+  private volatile HostSnapshot snapshot;
+
   @Inject
   public ZookeeperHostMonitor(CuratorFramework zkClient,
                               @ServicePathCacheFactory PathChildrenCacheFactory childrenCacheFactory,
                               ExecutorService executor) throws Exception {
     super(zkClient, ZK_HOST_PATH, childrenCacheFactory, executor);
     this.listeners = new HashSet<>();
+
+    // Child events that race with the constructor are already part of the cache data.
+    synchronized (this) {
+      Map<String, HostConfig> hosts = new HashMap<>();
+      for (ChildData child : childrenCache.getCurrentData()) {
+        String hostId = ZKPaths.getNodeFromPath(child.getPath());
+        hosts.put(hostId, deserialize(hostId, child.getData()));
+      }
+      this.snapshot = new HostSnapshot(hosts);
+    }
   }
 
 
@@ -68,20 +93,26 @@ public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonito
   }
 
   protected void onAdd(String hostId, byte[] data) {
+    HostConfig config = deserialize(hostId, data);
+    snapshot = snapshot.withHost(hostId, config);
     for (HostChangeListener listener : listeners) {
-      listener.onHostAdded(hostId, deserialize(hostId, data));
+      listener.onHostAdded(hostId, config);
     }
   }
 
   protected void onUpdate(String hostId, byte[] data) {
+    HostConfig config = deserialize(hostId, data);
+    snapshot = snapshot.withHost(hostId, config);
     for (HostChangeListener listener : listeners) {
-      listener.onHostUpdated(hostId, deserialize(hostId, data));
+      listener.onHostUpdated(hostId, config);
     }
   }
 
   protected void onRemove(String hostId, byte[] data) {
+    HostConfig config = deserialize(hostId, data);
+    snapshot = snapshot.withoutHost(hostId);
     for (HostChangeListener listener : listeners) {
-      listener.onHostRemoved(hostId, deserialize(hostId, data));
+      listener.onHostRemoved(hostId, config);
     }
   }
 
@@ -91,14 +122,24 @@ public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonito
    * is just added.
    */
   private void propagateCurrentNodes(HostChangeListener listener) {
-    for (ChildData child : childrenCache.getCurrentData()) {
-      String hostId = ZKPaths.getNodeFromPath(child.getPath());
-      HostConfig config = deserialize(hostId, child.getData());
-      listener.onHostAdded(hostId, config);
+    for (Map.Entry<String, HostConfig> host : snapshot.hosts.entrySet()) {
+      listener.onHostAdded(host.getKey(), host.getValue());
+    }
+  }
+
+  public ServerSet createStaticServerSet(String hostId) throws HostNotFoundException {
+    HostConfig host = snapshot.hosts.get(hostId);
+
+    if (host == null) {
+      host = loadHost(hostId);
     }
+
+    InetSocketAddress addr = new InetSocketAddress(host.getAddress().getHost(),
+        host.getAddress().getPort());
+    return new StaticServerSet(addr);
   }
 
-  public synchronized ServerSet createStaticServerSet(String hostId) throws HostNotFoundException {
+  private synchronized HostConfig loadHost(String hostId) throws HostNotFoundException {
     String hostPath = ZKPaths.makePath(ZK_HOST_PATH, hostId);
 
     ChildData data = childrenCache.getCurrentData(hostPath);
@@ -120,10 +161,7 @@ public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonito
       }
     }
 
-    HostConfig host = deserialize(hostId, data.getData());
-    InetSocketAddress addr = new InetSocketAddress(host.getAddress().getHost(),
-        host.getAddress().getPort());
-    return new StaticServerSet(addr);
+    return deserialize(hostId, data.getData());
   }
 
   @Override
@@ -143,30 +181,8 @@ public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonito
    *
    * @return a set of Datastore objects
    */
-  public synchronized Set<Datastore> getImageDatastores() {
-    Set<Datastore> imageDatastores = new HashSet<>();
-
-    for (ChildData child : childrenCache.getCurrentData()) {
-      String hostId = ZKPaths.getNodeFromPath(child.getPath());
-      HostConfig config = deserialize(hostId, child.getData());
-
-      String imageDs = config.getImage_datastore_id();
-      Datastore tmpDs = null;
-      for (Datastore ds : config.getDatastores()) {
-        if (ds.getId().equals(imageDs)) {
-          tmpDs = ds;
-          break;
-        }
-      }
-
-      if (tmpDs == null) {
-        logger.warn("Image datastore id {} is specified, but doesn't exist in datastores", imageDs);
-      } else {
-        imageDatastores.add(tmpDs);
-      }
-    }
-
-    return imageDatastores;
+  public Set<Datastore> getImageDatastores() {
+    return snapshot.imageDatastores;
   }
 
   /**
@@ -175,22 +191,9 @@ public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonito
    *
    * @return a set of HostConfig objects
    */
-  public synchronized Set<HostConfig> getHostsForDatastore(String datastoreId) {
-    Set<HostConfig> hostConfigs = new HashSet<>();
-
-    for (ChildData child : childrenCache.getCurrentData()) {
-      String hostId = ZKPaths.getNodeFromPath(child.getPath());
-      HostConfig config = deserialize(hostId, child.getData());
-
-      for (Datastore ds : config.getDatastores()) {
-        if (ds.getId().equals(datastoreId)) {
-          hostConfigs.add(config);
-          break;
-        }
-      }
-    }
-
-    return hostConfigs;
+  public Set<HostConfig> getHostsForDatastore(String datastoreId) {
+    Set<HostConfig> hostConfigs = snapshot.hostsByDatastore.get(datastoreId);
+    return hostConfigs != null ? hostConfigs : ImmutableSet.of();
   }
 
 
@@ -199,17 +202,64 @@ public class ZookeeperHostMonitor extends ZookeeperMonitor implements HostMonito
    *
    * @return a list of Datastores
    */
-  public synchronized Set<Datastore> getAllDatastores() {
-    Set<Datastore> datastores = new HashSet<>();
+  public Set<Datastore> getAllDatastores() {
+    return snapshot.allDatastores;
+  }
 
-    for (ChildData child : childrenCache.getCurrentData()) {
-      String hostId = ZKPaths.getNodeFromPath(child.getPath());
-      HostConfig config = deserialize(hostId, child.getData());
+  /**
+   * Immutable view of the registered hosts, indexed by host id and datastore.
+   */
+  private static class HostSnapshot {
+    private final ImmutableMap<String, HostConfig> hosts;
+    private final ImmutableMap<String, ImmutableSet<HostConfig>> hostsByDatastore;
+    private final ImmutableSet<Datastore> imageDatastores;
+    private final ImmutableSet<Datastore> allDatastores;
+
+    private HostSnapshot(Map<String, HostConfig> hosts) {
+      Map<String, ImmutableSet.Builder<HostConfig>> hostsByDatastore = new HashMap<>();
+      ImmutableSet.Builder<Datastore> imageDatastores = ImmutableSet.builder();
+      ImmutableSet.Builder<Datastore> allDatastores = ImmutableSet.builder();
+
+      for (HostConfig config : hosts.values()) {
+        List<Datastore> datastores = config.getDatastores() != null ? config.getDatastores() : ImmutableList.of();
+        String imageDs = config.getImage_datastore_id();
+        Datastore tmpDs = null;
+        for (Datastore ds : datastores) {
+          hostsByDatastore.computeIfAbsent(ds.getId(), id -> ImmutableSet.builder()).add(config);
+          allDatastores.add(ds);
+          if (tmpDs == null && ds.getId().equals(imageDs)) {
+            tmpDs = ds;
+          }
+        }
+
+        if (tmpDs == null) {
+          logger.warn("Image datastore id {} is specified, but doesn't exist in datastores", imageDs);
+        } else {
+          imageDatastores.add(tmpDs);
+        }
+      }
 
-      for (Datastore ds : config.getDatastores()) {
-        datastores.add(ds);
+      ImmutableMap.Builder<String, ImmutableSet<HostConfig>> hostsByDatastoreBuilder = ImmutableMap.builder();
+      for (Map.Entry<String, ImmutableSet.Builder<HostConfig>> entry : hostsByDatastore.entrySet()) {
+        hostsByDatastoreBuilder.put(entry.getKey(), entry.getValue().build());
       }
+
+      this.hosts = ImmutableMap.copyOf(hosts);
+      this.hostsByDatastore = hostsByDatastoreBuilder.build();
+      this.imageDatastores = imageDatastores.build();
+      this.allDatastores = allDatastores.build();
+    }
+
+    private HostSnapshot withHost(String hostId, HostConfig config) {
+      Map<String, HostConfig> hosts = new HashMap<>(this.hosts);
+      hosts.put(hostId, config);
+      return new HostSnapshot(hosts);
+    }
+
+    private HostSnapshot withoutHost(String hostId) {
+      Map<String, HostConfig> hosts = new HashMap<>(this.hosts);
+      hosts.remove(hostId);
+      return new HostSnapshot(hosts);
     }
-    return datastores;
   }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.clients;
+
+import com.vmware.photon.controller.common.thrift.ClientPool;
+import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
+import com.vmware.photon.controller.common.thrift.ClientPoolOptions;
+import com.vmware.photon.controller.common.thrift.ServerSet;
+import com.vmware.photon.controller.common.zookeeper.ZookeeperServerSetFactory;
+import com.vmware.photon.controller.host.gen.Host;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link HostClientPoolRegistry}.
+ */
+public class HostClientPoolRegistryTest {
+
+  private ClientPoolFactory<Host.AsyncClient> clientPoolFactory;
+  private ZookeeperServerSetFactory serverSetFactory;
+  private HostClientPoolRegistry registry;
+
+  @BeforeMethod
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    clientPoolFactory = mock(ClientPoolFactory.class);
+    when(clientPoolFactory.create(any(ServerSet.class), any(ClientPoolOptions.class))).thenAnswer(
+        new Answer<ClientPool<Host.AsyncClient>>() {
+          @Override
+          public ClientPool<Host.AsyncClient> answer(InvocationOnMock invocation) {
+            return mock(ClientPool.class);
+          }
+        });
+    serverSetFactory = mock(ZookeeperServerSetFactory.class);
+    when(serverSetFactory.createHostServerSet(any(String.class))).thenReturn(mock(ServerSet.class));
+    registry = new HostClientPoolRegistry(clientPoolFactory);
+  }
+
+  @Test
+  public void testAcquireSharesPool() {
+    HostClientPoolRegistry.Lease lease1 = registry.acquire(new InetSocketAddress("127.0.0.1", 8835));
+    HostClientPoolRegistry.Lease lease2 = registry.acquire(new InetSocketAddress("127.0.0.1", 8835));
+    HostClientPoolRegistry.Lease lease3 = registry.acquire(new InetSocketAddress("127.0.0.1", 8836));
+
+    assertThat(lease1, sameInstance(lease2));
+    assertThat(lease1, not(sameInstance(lease3)));
+    assertThat(registry.getPoolCount(), is(2));
+    verify(clientPoolFactory, times(2)).create(any(ServerSet.class), any(ClientPoolOptions.class));
+  }
+
+  @Test
+  public void testAcquireAgentSharesServerSet() {
+    HostClientPoolRegistry.Lease lease1 = registry.acquire("agent-id", serverSetFactory);
+    HostClientPoolRegistry.Lease lease2 = registry.acquire("agent-id", serverSetFactory);
+
+    assertThat(lease1, sameInstance(lease2));
+    verify(serverSetFactory, times(1)).createHostServerSet("agent-id");
+  }
+
+  @Test
+  public void testAcquireAgentDoesNotBlockOtherHosts() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ZookeeperServerSetFactory slowFactory = mock(ZookeeperServerSetFactory.class);
+      when(slowFactory.createHostServerSet("agent-id")).thenAnswer(new Answer<ServerSet>() {
+        @Override
+        public ServerSet answer(InvocationOnMock invocation) throws Exception {
+          // Another host can be acquired while the server set of the agent is being created
+          executor.submit(new Callable<HostClientPoolRegistry.Lease>() {
+            @Override
+            public HostClientPoolRegistry.Lease call() {
+              return registry.acquire(new InetSocketAddress("127.0.0.1", 8835));
+            }
+          }).get(5, TimeUnit.SECONDS);
+          return mock(ServerSet.class);
+        }
+      });
+
+      registry.acquire("agent-id", slowFactory);
+      assertThat(registry.getPoolCount(), is(2));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testAcquireAgentConcurrentlyClosesDuplicateServerSet() throws Exception {
+    final ServerSet duplicate = mock(ServerSet.class);
+    ZookeeperServerSetFactory racingFactory = mock(ZookeeperServerSetFactory.class);
+    when(racingFactory.createHostServerSet("agent-id")).thenAnswer(new Answer<ServerSet>() {
+      @Override
+      public ServerSet answer(InvocationOnMock invocation) {
+        // Another caller registers the pool of the agent first
+        registry.acquire("agent-id", serverSetFactory);
+        return duplicate;
+      }
+    });
+
+    HostClientPoolRegistry.Lease lease = registry.acquire("agent-id", racingFactory);
+
+    assertThat(lease.getServerSet(), not(sameInstance(duplicate)));
+    assertThat(registry.getPoolCount(), is(1));
+    verify(duplicate).close();
+    verify(clientPoolFactory, times(1)).create(any(ServerSet.class), any(ClientPoolOptions.class));
+
+    // Both callers hold a reference to the shared pool
+    registry.release(lease);
+    registry.release(lease);
+    assertThat(registry.getIdlePoolCount(), is(1));
+  }
+
+  @Test
+  public void testReleaseKeepsIdlePool() throws Exception {
+    HostClientPoolRegistry.Lease lease = registry.acquire("agent-id", serverSetFactory);
+    registry.release(lease);
+
+    assertThat(registry.getIdlePoolCount(), is(1));
+    verify(lease.getClientPool(), never()).close();
+    verify(lease.getServerSet(), never()).close();
+
+    // The idle pool is reused
+    assertThat(registry.acquire("agent-id", serverSetFactory), sameInstance(lease));
+    assertThat(registry.getIdlePoolCount(), is(0));
+    verify(serverSetFactory, times(1)).createHostServerSet("agent-id");
+  }
+
+  @Test
+  public void testEvictIdlePools() throws Exception {
+    HostClientPoolRegistry.Lease first = registry.acquire(new InetSocketAddress("127.0.0.1", 2000));
+    registry.release(first);
+    for (int i = 1; i <= 64; i++) {
+      registry.release(registry.acquire(new InetSocketAddress("127.0.0.1", 2000 + i)));
+    }
+
+    // Only the oldest idle pool is evicted
+    assertThat(registry.getIdlePoolCount(), is(64));
+    assertThat(registry.getPoolCount(), is(64));
+    verify(first.getClientPool()).close();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testReleaseTwice() {
+    HostClientPoolRegistry.Lease lease = registry.acquire(new InetSocketAddress("127.0.0.1", 8835));
+    registry.release(lease);
+    registry.release(lease);
+  }
+}
@@ -36,7 +36,6 @@ import com.vmware.photon.controller.common.clients.exceptions.RpcException;
 import com.vmware.photon.controller.common.clients.exceptions.StaleGenerationException;
 import com.vmware.photon.controller.common.clients.exceptions.SystemErrorException;
 import com.vmware.photon.controller.common.clients.exceptions.VmNotFoundException;
-import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
 import com.vmware.photon.controller.common.thrift.ClientProxyFactory;
 import com.vmware.photon.controller.common.thrift.ModuleFactory;
 import com.vmware.photon.controller.common.thrift.ThriftModule;
@@ -176,7 +175,7 @@ public class HostClientTest {
 
   private void setUp() {
     hostClient = spy(new HostClient(
-        mock(ClientProxyFactory.class), mock(ClientPoolFactory.class), mock(ZookeeperServerSetFactory.class)));
+        mock(ClientProxyFactory.class), mock(HostClientPoolRegistry.class), mock(ZookeeperServerSetFactory.class)));
     clientProxy = mock(Host.AsyncClient.class);
   }
 
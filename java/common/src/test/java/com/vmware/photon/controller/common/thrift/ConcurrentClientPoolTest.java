@@ -0,0 +1,242 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.example.echo.Echoer;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.fail;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link ConcurrentClientPool}.
+ */
+public class ConcurrentClientPoolTest extends PowerMockTestCase {
+
+  @Mock
+  private TAsyncClientFactory<Echoer.AsyncClient> factory;
+
+  @Mock
+  private TProtocolFactory protocolFactory;
+
+  @Mock
+  private ThriftFactory thriftFactory;
+
+  private TimerWheel timerWheel;
+
+  private TestServerSet serverSet;
+
+  private ConcurrentClientPool<Echoer.AsyncClient> pool;
+
+  private List<Echoer.AsyncClient> clients;
+
+  @BeforeMethod
+  public void setUp() throws Throwable {
+    timerWheel = new TimerWheel(100, 16);
+    serverSet = new TestServerSet();
+    serverSet.addServer(InetSocketAddress.createUnresolved("127.0.0.1", 80));
+    clients = new ArrayList<>();
+
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        Echoer.AsyncClient client = mock(Echoer.AsyncClient.class);
+        when(client.toString()).thenReturn("client-" + clients.size());
+        clients.add(client);
+        return client;
+      }
+    }).when(factory).create(any(TProtocolFactory.class), any(TNonblockingSocket.class));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    if (!pool.isClosed()) {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testReleasedClientIsReused() throws Throwable {
+    createPool(2, 2, 0);
+
+    Echoer.AsyncClient client = pool.acquire().get();
+    pool.release(client, true);
+    assertThat(pool.getIdleClientCount(), is(1));
+
+    assertThat(pool.acquire().get(), sameInstance(client));
+    assertThat(pool.getClientCount(), is(1));
+    assertThat(clients.size(), is(1));
+  }
+
+  @Test
+  public void testUnhealthyClientIsClosed() throws Throwable {
+    createPool(2, 2, 0);
+
+    Echoer.AsyncClient client = pool.acquire().get();
+    pool.release(client, false);
+    assertThat(pool.getIdleClientCount(), is(0));
+    assertThat(pool.getClientCount(), is(0));
+
+    assertThat(pool.acquire().get(), is(clients.get(1)));
+  }
+
+  @Test
+  public void testWaiterGetsReleasedClient() throws Throwable {
+    createPool(1, 2, 0);
+
+    Echoer.AsyncClient client = pool.acquire().get();
+    ListenableFuture<Echoer.AsyncClient> waiter = pool.acquire();
+    assertThat(waiter.isDone(), is(false));
+    assertThat(pool.getWaiters(), is(1));
+
+    pool.release(client, true);
+    assertThat(waiter.get(), sameInstance(client));
+    assertThat(pool.getWaiters(), is(0));
+    assertThat(pool.getIdleClientCount(), is(0));
+  }
+
+  @Test
+  public void testWaiterGetsNewClientAfterUnhealthyRelease() throws Throwable {
+    createPool(1, 2, 0);
+
+    Echoer.AsyncClient client = pool.acquire().get();
+    ListenableFuture<Echoer.AsyncClient> waiter = pool.acquire();
+
+    pool.release(client, false);
+    assertThat(waiter.get(), is(clients.get(1)));
+    assertThat(pool.getClientCount(), is(1));
+  }
+
+  @Test
+  public void testTooManyWaiters() throws Throwable {
+    createPool(1, 1, 0);
+
+    pool.acquire().get();
+    ListenableFuture<Echoer.AsyncClient> waiter = pool.acquire();
+    assertThat(waiter.isDone(), is(false));
+
+    assertFailure(pool.acquire(), "Too many waiters");
+    assertThat(pool.getWaiters(), is(1));
+  }
+
+  @Test
+  public void testAcquireTimeout() throws Throwable {
+    createPool(1, 2, 200);
+
+    pool.acquire().get();
+    ListenableFuture<Echoer.AsyncClient> waiter = pool.acquire();
+
+    timerWheel.tick();
+    timerWheel.tick();
+    assertThat(waiter.isDone(), is(false));
+
+    timerWheel.tick();
+    assertFailure(waiter, "Timeout acquiring client");
+    assertThat(pool.getWaiters(), is(0));
+  }
+
+  @Test
+  public void testCloseFailsWaiters() throws Throwable {
+    createPool(1, 2, 0);
+
+    Echoer.AsyncClient client = pool.acquire().get();
+    ListenableFuture<Echoer.AsyncClient> waiter = pool.acquire();
+
+    pool.close();
+    assertFailure(waiter, "Client pool closing");
+    assertFailure(pool.acquire(), "Client pool closed");
+
+    // Clients released after the pool is closed are not pooled
+    pool.release(client, true);
+    assertThat(pool.getIdleClientCount(), is(0));
+    assertThat(pool.getClientCount(), is(0));
+  }
+
+  @Test
+  public void testServerRemovedClosesIdleClients() throws Throwable {
+    createPool(2, 2, 0);
+
+    InetSocketAddress server = serverSet.getServers().iterator().next();
+    Echoer.AsyncClient client1 = pool.acquire().get();
+    Echoer.AsyncClient client2 = pool.acquire().get();
+    pool.release(client1, true);
+    assertThat(pool.getIdleClientCount(), is(1));
+
+    pool.onServerRemoved(server);
+    assertThat(pool.getIdleClientCount(), is(0));
+    assertThat(pool.getClientCount(), is(1));
+
+    // Waiters are served once a server is available again
+    ListenableFuture<Echoer.AsyncClient> waiter = pool.acquire();
+    assertThat(waiter.isDone(), is(false));
+    pool.release(client2, true);
+    assertThat(pool.getClientCount(), is(0));
+    assertThat(waiter.isDone(), is(false));
+
+    serverSet.addServer(InetSocketAddress.createUnresolved("127.0.0.1", 81));
+    assertThat(waiter.get(), is(clients.get(2)));
+  }
+
+  @Test
+  public void testReleaseUnknownClient() throws Throwable {
+    createPool(1, 1, 0);
+
+    try {
+      pool.release(mock(Echoer.AsyncClient.class), true);
+      fail("releasing a client that was not acquired should fail");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage().startsWith("Client is not currently acquired by the pool"), is(true));
+    }
+  }
+
+  private void createPool(int maxClients, int maxWaiters, long timeoutMs) {
+    ClientPoolOptions options = new ClientPoolOptions()
+        .setMaxClients(maxClients)
+        .setMaxWaiters(maxWaiters)
+        .setTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    pool = new ConcurrentClientPool<>(factory, protocolFactory, thriftFactory, timerWheel, serverSet, options);
+  }
+
+  private void assertFailure(ListenableFuture<Echoer.AsyncClient> future, String message) throws Throwable {
+    assertThat(future.isDone(), is(true));
+    try {
+      future.get();
+      fail("acquire should have failed");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(ClientPoolException.class));
+      assertThat(e.getCause().getMessage().startsWith(message), is(true));
+    }
+  }
+}
@@ -45,5 +45,8 @@ public class ThriftServiceModuleTest {
 
     clientPool = poolFactory.create(ImmutableSet.of(new InetSocketAddress("127.0.0.1", 80)), clientPoolOptions);
     assertThat(clientPool.getClass().toString(), is(BasicClientPool.class.toString()));
+
+    clientPool = poolFactory.create(new TestServerSet(), new ClientPoolOptions(clientPoolOptions).setConcurrent(true));
+    assertThat(clientPool.getClass().toString(), is(ConcurrentClientPool.class.toString()));
   }
 }
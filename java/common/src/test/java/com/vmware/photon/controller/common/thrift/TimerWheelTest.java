@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link TimerWheel}.
+ */
+public class TimerWheelTest {
+
+  private TimerWheel timerWheel;
+  private AtomicInteger fired;
+  private Runnable task;
+
+  @BeforeMethod
+  public void setUp() {
+    timerWheel = new TimerWheel(100, 4);
+    fired = new AtomicInteger();
+    task = new Runnable() {
+      @Override
+      public void run() {
+        fired.incrementAndGet();
+      }
+    };
+  }
+
+  @Test
+  public void testFiresAfterDelay() {
+    timerWheel.schedule(task, 250);
+
+    // 250ms is rounded up to 3 ticks, plus the tick the timeout was scheduled in
+    for (int i = 0; i < 3; i++) {
+      timerWheel.tick();
+      assertThat(fired.get(), is(0));
+    }
+
+    timerWheel.tick();
+    assertThat(fired.get(), is(1));
+
+    timerWheel.tick();
+    assertThat(fired.get(), is(1));
+  }
+
+  @Test
+  public void testFiresAfterWrappingAround() {
+    timerWheel.schedule(task, 1000);
+
+    for (int i = 0; i < 10; i++) {
+      timerWheel.tick();
+      assertThat(fired.get(), is(0));
+    }
+
+    timerWheel.tick();
+    assertThat(fired.get(), is(1));
+  }
+
+  @Test
+  public void testCancel() {
+    TimerWheel.Timeout timeout = timerWheel.schedule(task, 100);
+    timerWheel.tick();
+    timeout.cancel();
+
+    for (int i = 0; i < 8; i++) {
+      timerWheel.tick();
+    }
+    assertThat(fired.get(), is(0));
+  }
+
+  @Test
+  public void testFailingTaskDoesNotStopWheel() {
+    timerWheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        throw new RuntimeException("failure");
+      }
+    }, 100);
+    timerWheel.schedule(task, 100);
+
+    timerWheel.tick();
+    timerWheel.tick();
+    assertThat(fired.get(), is(1));
+  }
+}
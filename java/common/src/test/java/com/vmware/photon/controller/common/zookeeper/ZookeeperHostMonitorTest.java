@@ -36,6 +36,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.powermock.api.mockito.PowerMockito.mock;
@@ -45,6 +46,7 @@ import static org.testng.Assert.fail;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -339,6 +341,40 @@ public class ZookeeperHostMonitorTest {
     assertThat(datastores.contains(new Datastore("ds3")), is(true));
   }
 
+  @Test
+  public void testDatastoresFollowChildEvents() throws Exception {
+    HostConfig host1 = getHostConfig("host1", Arrays.asList("ds1", "image1"), "image1");
+    HostConfig host2 = getHostConfig("host2", Arrays.asList("ds1"), "");
+    HostConfig updatedHost2 = getHostConfig("host2", Arrays.asList("ds2", "image2"), "image2");
+
+    ZookeeperHostMonitor hostMonitor = new ZookeeperHostMonitor(zkClient, pathCache, executer);
+    assertThat(hostMonitor.getAllDatastores().isEmpty(), is(true));
+    assertThat(hostMonitor.getHostsForDatastore("ds1").isEmpty(), is(true));
+
+    hostMonitor.childEvent(zkClient, getMockedEvent("host1", host1, Type.CHILD_ADDED));
+    hostMonitor.childEvent(zkClient, getMockedEvent("host2", host2, Type.CHILD_ADDED));
+    assertThat(hostMonitor.getHostsForDatastore("ds1").size(), is(2));
+    assertThat(hostMonitor.getImageDatastores().size(), is(1));
+    assertThat(hostMonitor.getImageDatastores().contains(new Datastore("image1")), is(true));
+    assertThat(hostMonitor.getAllDatastores().size(), is(2));
+
+    hostMonitor.childEvent(zkClient, getMockedEvent("host2", updatedHost2, Type.CHILD_UPDATED));
+    assertThat(hostMonitor.getHostsForDatastore("ds1").size(), is(1));
+    assertThat(hostMonitor.getHostsForDatastore("ds2").iterator().next(), is(updatedHost2));
+    assertThat(hostMonitor.getImageDatastores().size(), is(2));
+    assertThat(hostMonitor.getAllDatastores().size(), is(4));
+
+    hostMonitor.childEvent(zkClient, getMockedEvent("host1", host1, Type.CHILD_REMOVED));
+    assertThat(hostMonitor.getHostsForDatastore("ds1").isEmpty(), is(true));
+    assertThat(hostMonitor.getImageDatastores().size(), is(1));
+    assertThat(hostMonitor.getImageDatastores().contains(new Datastore("image2")), is(true));
+    assertThat(hostMonitor.getAllDatastores().size(), is(2));
+
+    // The host is served from the snapshot without reading the cache
+    hostMonitor.createStaticServerSet("host2");
+    verify(mockCache, never()).getCurrentData(eq("/hosts/host2"));
+  }
+
   private List<ChildData> getChildDataFromEvents(PathChildrenCacheEvent... events) {
     List<ChildData> currEvents = new ArrayList();
     for (PathChildrenCacheEvent event : events) {
@@ -56,6 +56,12 @@ public class DeployerDefaults {
    */
   public static final int DEFAULT_TASK_POLL_DELAY = 1000;
 
+  /**
+   * This value represents the maximum number of factories whose state is
+   * copied at once during a deployment migration.
+   */
+  public static final int MAX_CONCURRENT_COPY_STATE_TASKS = 4;
+
 
   /**
    * Maximum memory to be assigned to docker VM.
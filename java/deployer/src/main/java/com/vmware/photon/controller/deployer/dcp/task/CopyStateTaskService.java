@@ -15,7 +15,6 @@ package com.vmware.photon.controller.deployer.dcp.task;
 
 import com.vmware.dcp.common.FactoryService;
 import com.vmware.dcp.common.Operation;
-import com.vmware.dcp.common.OperationJoin;
 import com.vmware.dcp.common.Service;
 import com.vmware.dcp.common.ServiceDocument;
 import com.vmware.dcp.common.ServiceDocumentQueryResult;
@@ -30,7 +29,6 @@ import com.vmware.photon.controller.cloudstore.dcp.CloudStoreDcpHost;
 import com.vmware.photon.controller.common.dcp.InitializationUtils;
 import com.vmware.photon.controller.common.dcp.OperationUtils;
 import com.vmware.photon.controller.common.dcp.PatchUtils;
-import com.vmware.photon.controller.common.dcp.QueryTaskUtils;
 import com.vmware.photon.controller.common.dcp.ServiceHostUtils;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
 import com.vmware.photon.controller.common.dcp.TaskUtils;
@@ -49,15 +47,29 @@ import javax.annotation.Nullable;
 
 import java.net.URI;
 import java.util.EnumSet;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class moves DCP state between two DCP clusters.
+ * <p/>
+ * Query result pages are copied one after the other, while the next page is retrieved from the source concurrently
+ * with the writes of the current page. Each document is posted to the destination factory and replaced with a PUT
+ * if it already exists there.
  */
 public class CopyStateTaskService extends StatefulService {
 
   private static final String DOCUMENT_UPDATE_TIME_MICROS = "documentUpdateTimeMicros";
 
+  /**
+   * Destination state types by service class name, so that documents with renamed fields are converted without
+   * loading and instantiating the service class for every document.
+   */
+  private static final ConcurrentMap<String, Class<? extends ServiceDocument>> destinationStateTypes =
+      new ConcurrentHashMap<>();
+
   /**
    * This class defines the document state associated with a single
    * {@link CopyStateTaskService} instance.
@@ -130,6 +142,17 @@ public class CopyStateTaskService extends StatefulService {
 
     @WriteOnce
     public Long lastDocumentUpdateTimeEpoc;
+
+    /**
+     * This value represents the number of documents copied to the destination so far.
+     */
+    @DefaultLong(value = 0)
+    public Long documentsCopied;
+
+    /**
+     * This value represents the number of documents copied per second so far.
+     */
+    public Double documentsPerSecond;
   }
 
   public CopyStateTaskService() {
@@ -183,6 +206,7 @@ public class CopyStateTaskService extends StatefulService {
     State currentState = getState(patchOperation);
     State patchState = patchOperation.getBody(State.class);
     validatePatchState(currentState, patchState);
+    TaskState.TaskStage previousStage = currentState.taskState.stage;
     PatchUtils.patchState(currentState, patchState);
     validateState(currentState);
     patchOperation.complete();
@@ -194,6 +218,10 @@ public class CopyStateTaskService extends StatefulService {
     if (currentState.taskState.stage != TaskState.TaskStage.STARTED) {
       return;
     }
+    if (previousStage == TaskState.TaskStage.STARTED) {
+      // Progress patches keep the task in the STARTED stage, the copy is already running
+      return;
+    }
     try {
       retrieveDocuments(currentState);
     } catch (Throwable t) {
@@ -223,6 +251,8 @@ public class CopyStateTaskService extends StatefulService {
         .addBooleanClause(timeClause);
     querySpec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
 
+    final CopyProgress progress = new CopyProgress();
+
     Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
       public void handle(Operation operation, Throwable throwable) {
@@ -230,7 +260,12 @@ public class CopyStateTaskService extends StatefulService {
           failTask(throwable);
           return;
         }
-        continueWithNextPage(operation.getBody(QueryTask.class).results, currentState, 0);
+        ServiceDocumentQueryResult results = operation.getBody(QueryTask.class).results;
+        if (results.nextPageLink == null) {
+          finishTask(progress);
+          return;
+        }
+        retrieveFirstPage(currentState, results.nextPageLink, progress);
       }
     };
 
@@ -241,100 +276,133 @@ public class CopyStateTaskService extends StatefulService {
     sendRequest(post);
   }
 
-  private void continueWithNextPage(ServiceDocumentQueryResult results, State currentState, long lastUpdateTime) {
-    if (results.nextPageLink != null) {
-      retrieveNextPage(currentState, results.nextPageLink, lastUpdateTime);
-    } else {
-      State patch = new State();
-      patch.taskState = new TaskState();
-      patch.taskState.stage = TaskState.TaskStage.FINISHED;
-      patch.lastDocumentUpdateTimeEpoc = lastUpdateTime;
-      TaskUtils.sendSelfPatch(this, patch);
-    }
+  private void retrieveFirstPage(final State currentState, String nextPageLink, final CopyProgress progress) {
+    Operation get = buildPageGetOperation(currentState, nextPageLink)
+        .setCompletion((operation, throwable) -> {
+          if (throwable != null) {
+            failTask(throwable);
+            return;
+          }
+          copyPage(currentState, operation.getBody(QueryTask.class).results, progress);
+        });
+    sendRequest(get);
   }
 
-  private void retrieveNextPage(final State currentState, String nextPageLink, long lastUpdateTime) {
-    Operation.CompletionHandler handler = new Operation.CompletionHandler() {
-      @Override
-      public void handle(Operation operation, Throwable throwable) {
-        if (throwable != null) {
-          failTask(throwable);
-          return;
-        }
-        storeDocuments(currentState, operation.getBody(QueryTask.class).results, lastUpdateTime);
+  /**
+   * Writes the documents of a page to the destination while retrieving the next page from the source, and continues
+   * with the next page once both are done.
+   */
+  private void copyPage(final State currentState, final ServiceDocumentQueryResult results,
+                        final CopyProgress progress) {
+    int documentCount = results.documents != null ? results.documents.size() : 0;
+    boolean hasNextPage = results.nextPageLink != null;
+    if (documentCount == 0 && !hasNextPage) {
+      finishTask(progress);
+      return;
+    }
+
+    final AtomicInteger pendingOperations = new AtomicInteger(documentCount + (hasNextPage ? 1 : 0));
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final AtomicReference<ServiceDocumentQueryResult> nextPage = new AtomicReference<>();
+
+    Runnable onOperationCompleted = () -> {
+      if (pendingOperations.decrementAndGet() != 0) {
+        return;
+      }
+      if (failure.get() != null) {
+        failTask(failure.get());
+        return;
+      }
+
+      progress.add(results);
+      ServiceUtils.logInfo(this, "Copied %d documents, %d in total at %.1f documents per second",
+          documentCount, progress.documentsCopied, progress.getDocumentsPerSecond());
+      if (!hasNextPage) {
+        finishTask(progress);
+        return;
       }
+      TaskUtils.sendSelfPatch(this, buildProgressPatch(TaskState.TaskStage.STARTED, progress));
+      copyPage(currentState, nextPage.get(), progress);
     };
 
-    Operation get = Operation
-        .createGet(UriUtils.buildUri(currentState.sourceIp, currentState.sourcePort, nextPageLink, null))
-        .setCompletion(handler);
-    sendRequest(get);
-  }
+    if (hasNextPage) {
+      Operation get = buildPageGetOperation(currentState, results.nextPageLink)
+          .setCompletion((operation, throwable) -> {
+            if (throwable != null) {
+              failure.compareAndSet(null, throwable);
+            } else {
+              nextPage.set(operation.getBody(QueryTask.class).results);
+            }
+            onOperationCompleted.run();
+          });
+      sendRequest(get);
+    }
 
-  private void storeDocuments(final State currentState, final ServiceDocumentQueryResult results, long lastUpdateTime) {
-    if (results.documents.isEmpty() || results.documents.isEmpty() || results.documentCount == 0) {
-      continueWithNextPage(results, currentState, lastUpdateTime);
+    if (documentCount == 0) {
       return;
     }
 
-    QueryTaskUtils.logQueryResults(this, results.documentLinks);
     URI destinationFactoryURI = buildDestinationFactoryURI(currentState);
+    for (Object document : results.documents.values()) {
+      try {
+        String documentId = extractId(document, currentState.sourceFactoryLink);
+        Object json = handleRenamedFields(
+            removeFactoryPathFromSelfLink(document, currentState.sourceFactoryLink), currentState);
+        upsertDocument(json, destinationFactoryURI, documentId, (throwable) -> {
+          if (throwable != null) {
+            failure.compareAndSet(null, throwable);
+          }
+          onOperationCompleted.run();
+        });
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+        onOperationCompleted.run();
+      }
+    }
+  }
 
-    long lastUpdateTimeOnPage = results.documents.values().stream()
-        .map(doc -> Utils.getJsonMapValue(doc, DOCUMENT_UPDATE_TIME_MICROS, Long.class))
-        .mapToLong(l -> l.longValue())
-        .max()
-        .orElse(0);
-    final long newLastUpdateTime = Math.max(lastUpdateTime, lastUpdateTimeOnPage);
-
-    ServiceUtils.logInfo(this, "Before storing, delete documents so that there are no dupes.");
-    OperationJoin
-        .create(results.documents.values().stream()
-            .map(document -> {
-              String documentId = extractId(document, currentState.sourceFactoryLink);
-              ServiceUtils.logInfo(this, "%s", "Removing: %s", documentId);
-              return buildDeleteOperation(destinationFactoryURI + "/" + documentId);
-            }))
-        .setCompletion((opers, execptions) -> {
-          if (null != execptions && !execptions.isEmpty()) {
-            // Ignore delete not found error
+  /**
+   * Posts the document to the destination factory, and replaces the existing document with a PUT if the post
+   * conflicts with it.
+   */
+  private void upsertDocument(Object document, URI factoryUri, String documentId, DocumentCompletion completion) {
+    Operation post = Operation
+        .createPost(factoryUri)
+        .setBody(document)
+        .forceRemote()
+        .setReferer(factoryUri)
+        .setCompletion((operation, throwable) -> {
+          if (throwable == null) {
+            completion.handle(null);
+            return;
+          }
+          if (operation.getStatusCode() != Operation.STATUS_CODE_CONFLICT) {
+            completion.handle(throwable);
+            return;
           }
 
-          ServiceUtils.logInfo(this, "Storing documents.");
-          OperationJoin
-              .create(results.documents.values().stream()
-                  .map(document -> {
-                    Object json = removeFactoryPathFromSelfLink(document, currentState.sourceFactoryLink);
-                    ServiceUtils.logInfo(this, "%s", "Storing: " + Utils.toJsonHtml(json));
-                    return buildPostOperation(json, destinationFactoryURI, currentState);
-                  }))
-              .setCompletion((ops, exs) -> {
-                if (null != exs && !exs.isEmpty()) {
-                  failTask(exs);
-                  return;
-                }
-                ServiceUtils.logInfo(this, "Stored " + results.documents.size() + " documents.");
-                continueWithNextPage(results, currentState, newLastUpdateTime);
-              })
-              .sendWith(this);
-        })
-        .sendWith(this);
+          URI documentUri = UriUtils.buildUri(factoryUri, documentId);
+          Operation put = Operation
+              .createPut(documentUri)
+              .setBody(document)
+              .forceRemote()
+              .setReferer(documentUri)
+              .setCompletion((putOperation, putThrowable) -> completion.handle(putThrowable));
+          sendRequest(put);
+        });
+    sendRequest(post);
   }
 
-  private Operation buildPostOperation(Object document, URI uri, State currentState) {
-    try {
-      Object documentWithRenamedFields = handleRenamedFields(document, currentState);
-      Operation postOp =  Operation
-          .createPost(uri)
-          .setUri(uri)
-          .setBody(documentWithRenamedFields)
-          .forceRemote()
-          .setReferer(uri);
-      return postOp;
-    } catch (Throwable ex) {
-      failTask(ex);
-    }
-    return null;
+  /**
+   * This interface is notified when the upsert of a single document completes.
+   */
+  private interface DocumentCompletion {
+    void handle(@Nullable Throwable throwable);
+  }
+
+  private Operation buildPageGetOperation(State currentState, String pageLink) {
+    return Operation
+        .createGet(UriUtils.buildUri(currentState.sourceIp, currentState.sourcePort, pageLink, null));
   }
 
   private String findDestinationServiceClassName(State currentState) {
@@ -363,33 +431,29 @@ public class CopyStateTaskService extends StatefulService {
   }
 
   private Object handleRenamedFields(Object document, State currentState) throws Throwable {
-    Object result = document;
-    if (currentState.destinationServiceClassName != null) {
-      ServiceUtils.logInfo(this, "Some fields are renamed for this servicedocument " + currentState
-          .destinationServiceClassName);
-      // Serialize original document into destination
-      Class<?> destinationDoc = Class.forName(currentState.destinationServiceClassName);
-      @SuppressWarnings("unchecked")
-      Service sd = ((Class < Service >) destinationDoc).newInstance();
-      ServiceDocument convertedServiceDocument = Utils.fromJson(document, sd.getStateType());
-      UpgradeUtils.handleRenamedField(document, convertedServiceDocument);
-      // Convert it back to json
-      result = Utils.toJson(convertedServiceDocument);
-      ServiceUtils.logInfo(this, "Json converted document with fields " + result.toString());
-    } else {
-      ServiceUtils.logInfo(this, "destinationServiceClassName is null");
+    if (currentState.destinationServiceClassName == null) {
+      return document;
     }
 
-    return result;
+    // Serialize original document into destination
+    Class<? extends ServiceDocument> destinationStateType = getDestinationStateType(
+        currentState.destinationServiceClassName);
+    ServiceDocument convertedServiceDocument = Utils.fromJson(document, destinationStateType);
+    UpgradeUtils.handleRenamedField(document, convertedServiceDocument);
+    // Convert it back to json
+    return Utils.toJson(convertedServiceDocument);
   }
 
-  private Operation buildDeleteOperation(String uriString) {
-    URI uri = UriUtils.buildUri(uriString);
-    return Operation
-        .createDelete(uri)
-        .setBody(new ServiceDocument())
-        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_QUEUING)
-        .setReferer(uri);
+  private static Class<? extends ServiceDocument> getDestinationStateType(String destinationServiceClassName)
+      throws Throwable {
+    Class<? extends ServiceDocument> stateType = destinationStateTypes.get(destinationServiceClassName);
+    if (stateType == null) {
+      @SuppressWarnings("unchecked")
+      Service sd = ((Class<Service>) Class.forName(destinationServiceClassName)).newInstance();
+      stateType = sd.getStateType();
+      destinationStateTypes.putIfAbsent(destinationServiceClassName, stateType);
+    }
+    return stateType;
   }
 
   private Object removeFactoryPathFromSelfLink(Object jsonObject, String factoryPath) {
@@ -467,9 +531,9 @@ public class CopyStateTaskService extends StatefulService {
     TaskUtils.sendSelfPatch(this, buildPatch(TaskState.TaskStage.FAILED, t));
   }
 
-  private void failTask(Map<Long, Throwable> exs) {
-    exs.values().forEach(e -> ServiceUtils.logSevere(this, e));
-    TaskUtils.sendSelfPatch(this, buildPatch(TaskState.TaskStage.FAILED, exs.values().iterator().next()));
+  private void finishTask(CopyProgress progress) {
+    ServiceUtils.logInfo(this, "Copied %d documents", progress.documentsCopied);
+    TaskUtils.sendSelfPatch(this, buildProgressPatch(TaskState.TaskStage.FINISHED, progress));
   }
 
   private State buildPatch(TaskState.TaskStage stage, @Nullable Throwable t) {
@@ -483,4 +547,41 @@ public class CopyStateTaskService extends StatefulService {
 
     return patchState;
   }
+
+  private State buildProgressPatch(TaskState.TaskStage stage, CopyProgress progress) {
+    State patchState = buildPatch(stage, null);
+    patchState.documentsCopied = progress.documentsCopied;
+    patchState.documentsPerSecond = progress.getDocumentsPerSecond();
+    if (stage == TaskState.TaskStage.FINISHED) {
+      patchState.lastDocumentUpdateTimeEpoc = progress.lastUpdateTime;
+    }
+    return patchState;
+  }
+
+  /**
+   * This class tracks the documents copied by a running task. Pages are copied one at a time, so it is only updated
+   * by one thread at a time.
+   */
+  private static class CopyProgress {
+    private final long startTimeMillis = System.currentTimeMillis();
+    private long documentsCopied;
+    private long lastUpdateTime;
+
+    private void add(ServiceDocumentQueryResult results) {
+      if (results.documents == null) {
+        return;
+      }
+      documentsCopied += results.documents.size();
+      for (Object document : results.documents.values()) {
+        Long updateTime = Utils.getJsonMapValue(document, DOCUMENT_UPDATE_TIME_MICROS, Long.class);
+        if (updateTime != null) {
+          lastUpdateTime = Math.max(lastUpdateTime, updateTime);
+        }
+      }
+    }
+
+    private double getDocumentsPerSecond() {
+      return documentsCopied * 1000.0 / Math.max(System.currentTimeMillis() - startTimeMillis, 1);
+    }
+  }
 }
@@ -26,10 +26,14 @@ import com.vmware.photon.controller.client.resource.VmApi;
 import com.vmware.photon.controller.cloudstore.dcp.entity.HostService;
 import com.vmware.photon.controller.common.dcp.ServiceHostUtils;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
+import com.vmware.photon.controller.common.dcp.TaskUtils;
 import com.vmware.photon.controller.deployer.dcp.ContainersConfig;
+import com.vmware.photon.controller.deployer.dcp.constant.DeployerDefaults;
+import com.vmware.photon.controller.deployer.dcp.task.CopyStateTaskFactoryService;
 import com.vmware.photon.controller.deployer.dcp.task.CopyStateTaskService;
 
 import com.google.common.util.concurrent.FutureCallback;
+import org.eclipse.jetty.util.BlockingArrayQueue;
 import static com.google.common.base.Preconditions.checkState;
 
 import javax.annotation.Nullable;
@@ -37,8 +41,11 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -98,6 +105,81 @@ public class MiscUtils {
     return createCopyStateStartState(localServers, remoteServers, destinationFactoryLink, sourceFactoryLink, 0);
   }
 
+  /**
+   * This method starts a {@link CopyStateTaskService} for each start state, keeping at most
+   * {@link DeployerDefaults#MAX_CONCURRENT_COPY_STATE_TASKS} of them running at once. The callback succeeds once all
+   * the tasks have finished, or fails with the errors of the tasks which did not finish.
+   */
+  public static void copyStates(Service service, List<CopyStateTaskService.State> startStates, int taskPollDelay,
+                                FutureCallback<Void> callback) {
+    if (startStates.isEmpty()) {
+      callback.onSuccess(null);
+      return;
+    }
+
+    final Queue<CopyStateTaskService.State> pendingStartStates = new ConcurrentLinkedQueue<>(startStates);
+    final AtomicInteger latch = new AtomicInteger(startStates.size());
+    final List<Throwable> errors = new BlockingArrayQueue<>();
+
+    FutureCallback<CopyStateTaskService.State> copyStateCallback = new FutureCallback<CopyStateTaskService.State>() {
+      @Override
+      public void onSuccess(@Nullable CopyStateTaskService.State result) {
+        switch (result.taskState.stage) {
+          case FINISHED:
+            break;
+          case FAILED:
+          case CANCELLED:
+            errors.add(new Throwable("service: " + result.documentSelfLink + " did not finish. "
+                + (result.taskState.failure != null ? result.taskState.failure.message : "")));
+            break;
+        }
+        onCompleted();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        errors.add(t);
+        onCompleted();
+      }
+
+      private void onCompleted() {
+        if (latch.decrementAndGet() != 0) {
+          startNextCopyStateTask(service, pendingStartStates, taskPollDelay, this);
+          return;
+        }
+
+        if (!errors.isEmpty()) {
+          callback.onFailure(ExceptionUtils.createMultiException(errors));
+        } else {
+          callback.onSuccess(null);
+        }
+      }
+    };
+
+    for (int i = 0; i < Math.min(DeployerDefaults.MAX_CONCURRENT_COPY_STATE_TASKS, startStates.size()); i++) {
+      startNextCopyStateTask(service, pendingStartStates, taskPollDelay, copyStateCallback);
+    }
+  }
+
+  private static void startNextCopyStateTask(Service service, Queue<CopyStateTaskService.State> pendingStartStates,
+                                             int taskPollDelay,
+                                             FutureCallback<CopyStateTaskService.State> callback) {
+    CopyStateTaskService.State startState = pendingStartStates.poll();
+    if (startState == null) {
+      return;
+    }
+
+    ServiceUtils.logInfo(service, "Copying state of factory %s", startState.sourceFactoryLink);
+    TaskUtils.startTaskAsync(
+        service,
+        CopyStateTaskFactoryService.SELF_LINK,
+        startState,
+        state -> TaskUtils.finalTaskStages.contains(state.taskState.stage),
+        CopyStateTaskService.State.class,
+        taskPollDelay,
+        callback);
+  }
+
   public static void getZookeeperQuorumFromSourceSystem(Service service, String loadBalancerAddress,
                                                         String deploymentId, Integer taskPollDelay,
                                                         FutureCallback<List<String>> callback)
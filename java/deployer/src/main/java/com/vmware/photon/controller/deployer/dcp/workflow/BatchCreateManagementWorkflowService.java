@@ -331,7 +331,7 @@ public class BatchCreateManagementWorkflowService extends StatefulService {
     };
     UploadImageTaskService.State startState = createUploadImageState(currentState);
 
-    TaskUtils.startTaskAsync(
+    TaskUtils.startTaskAsyncWithSubscription(
         this,
         UploadImageTaskFactoryService.SELF_LINK,
         startState,
@@ -456,7 +456,7 @@ public class BatchCreateManagementWorkflowService extends StatefulService {
     AllocateResourcesWorkflowService.State startState = new AllocateResourcesWorkflowService.State();
     startState.taskPollDelay = currentState.taskPollDelay;
 
-    TaskUtils.startTaskAsync(
+    TaskUtils.startTaskAsyncWithSubscription(
         this,
         AllocateResourcesWorkflowFactoryService.SELF_LINK,
         startState,
@@ -539,7 +539,7 @@ public class BatchCreateManagementWorkflowService extends StatefulService {
 
       CreateManagementVmWorkflowService.State startState = createVmWorkflowState(currentState, documentLink);
 
-      TaskUtils.startTaskAsync(
+      TaskUtils.startTaskAsyncWithSubscription(
           this,
           CreateManagementVmWorkflowFactoryService.SELF_LINK,
           startState,
@@ -589,7 +589,7 @@ public class BatchCreateManagementWorkflowService extends StatefulService {
     startState.isAuthEnabled = currentState.isAuthEnabled;
     startState.taskPollDelay = currentState.taskPollDelay;
 
-    TaskUtils.startTaskAsync(
+    TaskUtils.startTaskAsyncWithSubscription(
         this,
         CreateContainersWorkflowFactoryService.SELF_LINK,
         startState,
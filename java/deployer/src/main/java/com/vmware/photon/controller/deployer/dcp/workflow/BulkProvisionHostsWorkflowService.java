@@ -32,6 +32,7 @@ import com.vmware.photon.controller.common.dcp.validation.DefaultInteger;
 import com.vmware.photon.controller.common.dcp.validation.DefaultTaskState;
 import com.vmware.photon.controller.common.dcp.validation.Immutable;
 import com.vmware.photon.controller.common.dcp.validation.NotNull;
+import com.vmware.photon.controller.common.dcp.validation.Positive;
 import com.vmware.photon.controller.common.dcp.validation.WriteOnce;
 import com.vmware.photon.controller.deployer.dcp.DeployerDcpServiceHost;
 import com.vmware.photon.controller.deployer.dcp.task.DeleteVibTaskFactoryService;
@@ -47,7 +48,15 @@ import static com.google.common.base.Preconditions.checkState;
 
 import javax.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -75,6 +84,37 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
     }
   }
 
+  /**
+   * This class represents the throughput and latency of the child tasks of a sub-stage.
+   */
+  public static class StageStatistics {
+
+    /**
+     * This value represents the number of child tasks which finished in the sub-stage.
+     */
+    public Integer childTaskCount;
+
+    /**
+     * This value represents the time, in milliseconds, spent in the sub-stage.
+     */
+    public Long elapsedTimeMillis;
+
+    /**
+     * This value represents the number of child tasks finished per minute in the sub-stage.
+     */
+    public Double childTasksPerMinute;
+
+    /**
+     * This value represents the average time, in milliseconds, from starting a child task to its completion.
+     */
+    public Long averageChildLatencyMillis;
+
+    /**
+     * This value represents the longest time, in milliseconds, from starting a child task to its completion.
+     */
+    public Long maxChildLatencyMillis;
+  }
+
   /**
    * This class represents the document state associated with a {@link BulkProvisionHostsWorkflowService} instance.
    */
@@ -127,6 +167,20 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
     @Immutable
     public Integer taskPollDelay;
 
+    /**
+     * This value represents the maximum number of {@link ProvisionHostWorkflowService} tasks in flight at once. A
+     * new child task is started as each one completes.
+     */
+    @DefaultInteger(value = 16)
+    @Positive
+    @Immutable
+    public Integer maxConcurrentChildTasks;
+
+    /**
+     * This value represents the child task statistics of each completed sub-stage, keyed by sub-stage name.
+     */
+    public Map<String, StageStatistics> stageStatistics;
+
     /**
      * This value represents the relative path on the shared image data store to which the VIB was uploaded.
      */
@@ -292,6 +346,13 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
       startState.vibPath = patchState.vibPath;
     }
 
+    if (null != patchState.stageStatistics) {
+      if (null == startState.stageStatistics) {
+        startState.stageStatistics = new HashMap<>();
+      }
+      startState.stageStatistics.putAll(patchState.stageStatistics);
+    }
+
     return startState;
   }
 
@@ -342,6 +403,7 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
 
   private void processUploadVibSubStage(State currentState, String hostServiceLink) {
     final Service service = this;
+    final long stageStartTime = System.currentTimeMillis();
 
     FutureCallback<UploadVibTaskService.State> futureCallback = new FutureCallback<UploadVibTaskService.State>() {
       @Override
@@ -350,6 +412,8 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
           case FINISHED: {
             State patchState = buildPatch(TaskState.TaskStage.STARTED, TaskState.SubStage.PROVISION_HOSTS, null);
             patchState.vibPath = result.vibPath;
+            patchState.stageStatistics = buildStageStatistics(TaskState.SubStage.UPLOAD_VIB, stageStartTime,
+                Collections.singletonList(System.currentTimeMillis() - stageStartTime));
             TaskUtils.sendSelfPatch(service, patchState);
             break;
           }
@@ -373,7 +437,7 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
 
     UploadVibTaskService.State startState = createUploadVibTaskState(currentState, hostServiceLink);
 
-    TaskUtils.startTaskAsync(
+    TaskUtils.startTaskAsyncWithSubscription(
         this,
         UploadVibTaskFactoryService.SELF_LINK,
         startState,
@@ -423,55 +487,121 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
   }
 
   private void processHostQueryResults(State currentState, Set<String> documentLinks) {
+    final Queue<String> pendingHostServiceLinks = new ConcurrentLinkedQueue<>(documentLinks);
     final AtomicInteger pendingChildren = new AtomicInteger(documentLinks.size());
+    final AtomicBoolean stopped = new AtomicBoolean(false);
+    final List<Long> childLatencies = Collections.synchronizedList(new ArrayList<>());
+    final long stageStartTime = System.currentTimeMillis();
     final Service service = this;
 
+    int initialChildren = Math.min(currentState.maxConcurrentChildTasks, documentLinks.size());
+    ServiceUtils.logInfo(this, "Provisioning %d hosts with at most %d in flight", documentLinks.size(),
+        currentState.maxConcurrentChildTasks);
+
+    ChildTaskCallback childTaskCallback = new ChildTaskCallback() {
+      @Override
+      public void onChildFinished(long latency) {
+        childLatencies.add(latency);
+        if (0 == pendingChildren.decrementAndGet()) {
+          State patchState = buildPatch(TaskState.TaskStage.STARTED, TaskState.SubStage.DELETE_VIB, null);
+          patchState.stageStatistics = buildStageStatistics(TaskState.SubStage.PROVISION_HOSTS, stageStartTime,
+              childLatencies);
+          TaskUtils.sendSelfPatch(service, patchState);
+        } else if (!stopped.get()) {
+          startNextProvisionHostTask(currentState, pendingHostServiceLinks, this);
+        }
+      }
+
+      @Override
+      public void onChildStopped(ProvisionHostWorkflowService.State result) {
+        if (!stopped.compareAndSet(false, true)) {
+          return;
+        }
+
+        switch (result.taskState.stage) {
+          case FAILED:
+            State patchState = buildPatch(TaskState.TaskStage.FAILED, null, null);
+            patchState.taskState.failure = result.taskState.failure;
+            TaskUtils.sendSelfPatch(service, patchState);
+            break;
+          case CANCELLED:
+            sendStageProgressPatch(TaskState.TaskStage.CANCELLED, null);
+            break;
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        if (stopped.compareAndSet(false, true)) {
+          failTask(t);
+        }
+      }
+    };
+
+    for (int i = 0; i < initialChildren; i++) {
+      startNextProvisionHostTask(currentState, pendingHostServiceLinks, childTaskCallback);
+    }
+  }
+
+  /**
+   * This interface is notified of the result of each child task started by {@link #startNextProvisionHostTask}.
+   */
+  private interface ChildTaskCallback {
+    void onChildFinished(long latency);
+
+    void onChildStopped(ProvisionHostWorkflowService.State result);
+
+    void onFailure(Throwable t);
+  }
+
+  private void startNextProvisionHostTask(
+      State currentState,
+      Queue<String> pendingHostServiceLinks,
+      final ChildTaskCallback childTaskCallback) {
+
+    String hostServiceLink = pendingHostServiceLinks.poll();
+    if (null == hostServiceLink) {
+      return;
+    }
+
+    final long childStartTime = System.currentTimeMillis();
+
     FutureCallback<ProvisionHostWorkflowService.State> futureCallback =
         new FutureCallback<ProvisionHostWorkflowService.State>() {
           @Override
           public void onSuccess(@Nullable ProvisionHostWorkflowService.State result) {
             switch (result.taskState.stage) {
               case FINISHED:
-                if (0 == pendingChildren.decrementAndGet()) {
-                  sendStageProgressPatch(TaskState.TaskStage.STARTED, TaskState.SubStage.DELETE_VIB);
-                }
+                childTaskCallback.onChildFinished(System.currentTimeMillis() - childStartTime);
                 break;
               case FAILED:
-                State patchState = buildPatch(TaskState.TaskStage.FAILED, null, null);
-                patchState.taskState.failure = result.taskState.failure;
-                TaskUtils.sendSelfPatch(service, patchState);
-                break;
               case CANCELLED:
-                sendStageProgressPatch(TaskState.TaskStage.CANCELLED, null);
+                childTaskCallback.onChildStopped(result);
                 break;
             }
           }
 
           @Override
           public void onFailure(Throwable t) {
-            failTask(t);
+            childTaskCallback.onFailure(t);
           }
         };
 
-
-
     ProvisionHostWorkflowService.State startState = new ProvisionHostWorkflowService.State();
     startState.vibPath = currentState.vibPath;
     startState.deploymentServiceLink = currentState.deploymentServiceLink;
     startState.chairmanServerList = currentState.chairmanServerList;
     startState.taskPollDelay = currentState.taskPollDelay;
+    startState.hostServiceLink = hostServiceLink;
 
-    for (String hostServiceLink : documentLinks) {
-      startState.hostServiceLink = hostServiceLink;
-      TaskUtils.startTaskAsync(
-          this,
-          ProvisionHostWorkflowFactoryService.SELF_LINK,
-          startState,
-          (state) -> TaskUtils.finalTaskStages.contains(state.taskState.stage),
-          ProvisionHostWorkflowService.State.class,
-          currentState.taskPollDelay,
-          futureCallback);
-    }
+    TaskUtils.startTaskAsyncWithSubscription(
+        this,
+        ProvisionHostWorkflowFactoryService.SELF_LINK,
+        startState,
+        (state) -> TaskUtils.finalTaskStages.contains(state.taskState.stage),
+        ProvisionHostWorkflowService.State.class,
+        currentState.taskPollDelay,
+        futureCallback);
   }
 
   private void processDeleteVibSubStage(final State currentState) {
@@ -499,14 +629,19 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
 
   private void processDeleteVibSubStage(State currentState, String hostServiceLink) {
     final Service service = this;
+    final long stageStartTime = System.currentTimeMillis();
 
     FutureCallback<DeleteVibTaskService.State> futureCallback = new FutureCallback<DeleteVibTaskService.State>() {
       @Override
       public void onSuccess(@Nullable DeleteVibTaskService.State result) {
         switch (result.taskState.stage) {
-          case FINISHED:
-            sendStageProgressPatch(TaskState.TaskStage.FINISHED, null);
+          case FINISHED: {
+            State patchState = buildPatch(TaskState.TaskStage.FINISHED, null, null);
+            patchState.stageStatistics = buildStageStatistics(TaskState.SubStage.DELETE_VIB, stageStartTime,
+                Collections.singletonList(System.currentTimeMillis() - stageStartTime));
+            TaskUtils.sendSelfPatch(service, patchState);
             break;
+          }
           case FAILED:
             State patchState = buildPatch(TaskState.TaskStage.FAILED, null, null);
             patchState.taskState.failure = result.taskState.failure;
@@ -526,7 +661,7 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
 
     DeleteVibTaskService.State startState = createDeleteVibTaskState(currentState, hostServiceLink);
 
-    TaskUtils.startTaskAsync(
+    TaskUtils.startTaskAsyncWithSubscription(
         this,
         DeleteVibTaskFactoryService.SELF_LINK,
         startState,
@@ -544,6 +679,35 @@ public class BulkProvisionHostsWorkflowService extends StatefulService {
     return startState;
   }
 
+  @VisibleForTesting
+  protected static Map<String, StageStatistics> buildStageStatistics(
+      TaskState.SubStage subStage,
+      long stageStartTime,
+      List<Long> childLatencies) {
+
+    StageStatistics stageStatistics = new StageStatistics();
+    stageStatistics.elapsedTimeMillis = Math.max(System.currentTimeMillis() - stageStartTime, 0);
+    stageStatistics.averageChildLatencyMillis = 0L;
+    stageStatistics.maxChildLatencyMillis = 0L;
+
+    synchronized (childLatencies) {
+      stageStatistics.childTaskCount = childLatencies.size();
+      for (long latency : childLatencies) {
+        stageStatistics.averageChildLatencyMillis += latency;
+        stageStatistics.maxChildLatencyMillis = Math.max(stageStatistics.maxChildLatencyMillis, latency);
+      }
+    }
+
+    if (stageStatistics.childTaskCount > 0) {
+      stageStatistics.averageChildLatencyMillis /= stageStatistics.childTaskCount;
+    }
+
+    stageStatistics.childTasksPerMinute = stageStatistics.childTaskCount * 60000.0
+        / Math.max(stageStatistics.elapsedTimeMillis, 1);
+
+    return Collections.singletonMap(subStage.name(), stageStatistics);
+  }
+
   private void sendStageProgressPatch(TaskState.TaskStage stage, TaskState.SubStage subStage) {
     ServiceUtils.logInfo(this, "Sending self-patch to stage %s:%s", stage, subStage);
     TaskUtils.sendSelfPatch(this, buildPatch(stage, subStage, null));
@@ -49,10 +49,8 @@ import com.vmware.photon.controller.deployer.dcp.entity.ContainerTemplateService
 import com.vmware.photon.controller.deployer.dcp.entity.VmService;
 import com.vmware.photon.controller.deployer.dcp.task.AllocateClusterManagerResourcesTaskFactoryService;
 import com.vmware.photon.controller.deployer.dcp.task.AllocateClusterManagerResourcesTaskService;
-import com.vmware.photon.controller.deployer.dcp.task.CopyStateTaskFactoryService;
 import com.vmware.photon.controller.deployer.dcp.task.CopyStateTaskService;
 import com.vmware.photon.controller.deployer.dcp.util.ControlFlags;
-import com.vmware.photon.controller.deployer.dcp.util.ExceptionUtils;
 import com.vmware.photon.controller.deployer.dcp.util.HostUtils;
 import com.vmware.photon.controller.deployer.dcp.util.MiscUtils;
 import com.vmware.photon.controller.deployer.deployengine.ZookeeperClient;
@@ -60,7 +58,6 @@ import com.vmware.photon.controller.deployer.deployengine.ZookeeperClientFactory
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
-import org.eclipse.jetty.util.BlockingArrayQueue;
 import static com.google.common.base.Preconditions.checkState;
 
 import javax.annotation.Nullable;
@@ -73,7 +70,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -907,50 +903,23 @@ public class DeploymentWorkflowService extends StatefulService {
     Set<InetSocketAddress> remoteServers
         = zookeeperClient.getServers(currentState.zookeeperQuorum, DeployerModule.DEPLOYER_SERVICE_NAME);
 
-    final AtomicInteger latch = new AtomicInteger(DeployerDcpServiceHost.FACTORY_SERVICES.length);
-    final List<Throwable> errors = new BlockingArrayQueue<>();
+    List<CopyStateTaskService.State> startStates = new ArrayList<>();
     for (Class factoryClass : DeployerDcpServiceHost.FACTORY_SERVICES) {
-      CopyStateTaskService.State startState = MiscUtils.createCopyStateStartState(localServers, remoteServers,
-          MiscUtils.getSelfLink(factoryClass), null, 1);
-
-      TaskUtils.startTaskAsync(
-          this,
-          CopyStateTaskFactoryService.SELF_LINK,
-          startState,
-          state -> TaskUtils.finalTaskStages.contains(state.taskState.stage),
-          CopyStateTaskService.State.class,
-          currentState.taskPollDelay,
-          new FutureCallback<CopyStateTaskService.State>() {
-            @Override
-            public void onSuccess(@Nullable CopyStateTaskService.State result) {
-              switch (result.taskState.stage) {
-                case FINISHED:
-                  break;
-                case FAILED:
-                case CANCELLED:
-                  errors.add(new Throwable("service: " + result.documentSelfLink + " did not finish."));
-                  break;
-              }
-
-              if (latch.decrementAndGet() == 0) {
-                if (!errors.isEmpty()) {
-                  failTask(ExceptionUtils.createMultiException(errors));
-                } else {
-                  migrateCloudStore(currentState);
-                }
-              }
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-              errors.add(t);
-              if (latch.decrementAndGet() == 0) {
-                failTask(ExceptionUtils.createMultiException(errors));
-              }
-            }
-          }
-      );
+      startStates.add(MiscUtils.createCopyStateStartState(localServers, remoteServers,
+          MiscUtils.getSelfLink(factoryClass), null, 1));
     }
+
+    MiscUtils.copyStates(this, startStates, currentState.taskPollDelay, new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(@Nullable Void result) {
+        migrateCloudStore(currentState);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        failTask(t);
+      }
+    });
   }
 
   private void migrateCloudStore(State currentState) {
@@ -965,55 +934,23 @@ public class DeploymentWorkflowService extends StatefulService {
         = zookeeperClient.getServers(currentState.zookeeperQuorum, DeployerModule.CLOUDSTORE_SERVICE_NAME);
 
 
-    final AtomicInteger latch = new AtomicInteger(CloudStoreDcpHost.FACTORY_SERVICES.length);
-    final List<Throwable> errors = new BlockingArrayQueue<>();
+    List<CopyStateTaskService.State> startStates = new ArrayList<>();
     for (Class factoryClass : CloudStoreDcpHost.FACTORY_SERVICES) {
-      CopyStateTaskService.State startState = MiscUtils.createCopyStateStartState(localServers, remoteServers,
-          MiscUtils.getSelfLink(factoryClass), null);
-
-      TaskUtils.startTaskAsync(
-          this,
-          CopyStateTaskFactoryService.SELF_LINK,
-          startState,
-          state -> TaskUtils.finalTaskStages.contains(state.taskState.stage),
-          CopyStateTaskService.State.class,
-          currentState.taskPollDelay,
-          new FutureCallback<CopyStateTaskService.State>() {
-
-            @Override
-            public void onSuccess(@Nullable CopyStateTaskService.State result) {
-              switch (result.taskState.stage) {
-                case FINISHED:
-                  break;
-                case FAILED:
-                case CANCELLED:
-                  errors.add(new Throwable(
-                      "service: "
-                          + result.documentSelfLink
-                          + " did not finish. "
-                          + result.taskState.failure.message));
-                  break;
-              }
-
-              if (latch.decrementAndGet() == 0) {
-                if (!errors.isEmpty()) {
-                  failTask(ExceptionUtils.createMultiException(errors));
-                } else {
-                  updateDeploymentServiceState(remoteServers, currentState);
-                }
-              }
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-              errors.add(t);
-              if (latch.decrementAndGet() == 0) {
-                failTask(ExceptionUtils.createMultiException(errors));
-              }
-            }
-          }
-      );
+      startStates.add(MiscUtils.createCopyStateStartState(localServers, remoteServers,
+          MiscUtils.getSelfLink(factoryClass), null));
     }
+
+    MiscUtils.copyStates(this, startStates, currentState.taskPollDelay, new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(@Nullable Void result) {
+        updateDeploymentServiceState(remoteServers, currentState);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        failTask(t);
+      }
+    });
   }
 
   private void updateDeploymentServiceState(Set<InetSocketAddress> remoteCloudStoreServers, State currentState){
@@ -39,11 +39,9 @@ import com.vmware.photon.controller.common.dcp.validation.WriteOnce;
 import com.vmware.photon.controller.deployer.DeployerModule;
 import com.vmware.photon.controller.deployer.dcp.DeployerDcpServiceHost;
 import com.vmware.photon.controller.deployer.dcp.constant.ServicePortConstants;
-import com.vmware.photon.controller.deployer.dcp.task.CopyStateTaskFactoryService;
 import com.vmware.photon.controller.deployer.dcp.task.CopyStateTaskService;
 import com.vmware.photon.controller.deployer.dcp.task.MigrationStatusUpdateTriggerFactoryService;
 import com.vmware.photon.controller.deployer.dcp.util.ControlFlags;
-import com.vmware.photon.controller.deployer.dcp.util.ExceptionUtils;
 import com.vmware.photon.controller.deployer.dcp.util.HostUtils;
 import com.vmware.photon.controller.deployer.dcp.util.MiscUtils;
 import com.vmware.photon.controller.deployer.deployengine.ZookeeperClient;
@@ -51,17 +49,16 @@ import com.vmware.photon.controller.deployer.deployengine.ZookeeperClientFactory
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
-import org.eclipse.jetty.util.BlockingArrayQueue;
 import static com.google.common.base.Preconditions.checkState;
 
 import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class implements a DCP micro-service which performs the task of
@@ -432,53 +429,23 @@ public class FinalizeDeploymentMigrationWorkflowService extends StatefulService
         = zookeeperClient.getServers(currentState.sourceZookeeperQuorum, DeployerModule.CLOUDSTORE_SERVICE_NAME);
 
     Set<Map.Entry<String, String>> factoryMap = HostUtils.getDeployerContext(this).getFactoryLinkMapEntries();
-    final AtomicInteger latch = new AtomicInteger(factoryMap.size());
-    final List<Throwable> errors = new BlockingArrayQueue<>();
+    List<CopyStateTaskService.State> startStates = new ArrayList<>();
     for (Map.Entry<String, String> entry : factoryMap) {
-      ServiceUtils.logInfo(this, "Copying this factory: %s", entry.getKey());
-      CopyStateTaskService.State startState = MiscUtils.createCopyStateStartState(sourceServers, destinationServers,
-          entry.getValue(), entry.getKey());
-
-      TaskUtils.startTaskAsync(
-          this,
-          CopyStateTaskFactoryService.SELF_LINK,
-          startState,
-          state -> TaskUtils.finalTaskStages.contains(state.taskState.stage),
-          CopyStateTaskService.State.class,
-          currentState.taskPollDelay,
-          new FutureCallback<CopyStateTaskService.State>() {
-
-            @Override
-            public void onSuccess(@Nullable CopyStateTaskService.State result) {
-              switch (result.taskState.stage) {
-                case FINISHED:
-                  break;
-                case FAILED:
-                case CANCELLED:
-                  errors.add(new Throwable(
-                      "service: " + result.documentSelfLink + " did not finish. " + result.taskState.failure.message));
-                  break;
-              }
-
-              if (latch.decrementAndGet() == 0) {
-                if (!errors.isEmpty()) {
-                  failTask(ExceptionUtils.createMultiException(errors));
-                } else {
-                  stopMigrationUpdateService(currentState);
-                }
-              }
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-              errors.add(t);
-              if (latch.decrementAndGet() == 0) {
-                failTask(ExceptionUtils.createMultiException(errors));
-              }
-            }
-          }
-      );
+      startStates.add(MiscUtils.createCopyStateStartState(sourceServers, destinationServers,
+          entry.getValue(), entry.getKey()));
     }
+
+    MiscUtils.copyStates(this, startStates, currentState.taskPollDelay, new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(@Nullable Void result) {
+        stopMigrationUpdateService(currentState);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        failTask(t);
+      }
+    });
   }
 
   private void stopMigrationUpdateService(State currentState) {
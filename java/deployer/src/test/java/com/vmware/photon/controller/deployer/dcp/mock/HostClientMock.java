@@ -16,7 +16,7 @@ package com.vmware.photon.controller.deployer.dcp.mock;
 import com.vmware.photon.controller.agent.gen.ProvisionResponse;
 import com.vmware.photon.controller.agent.gen.ProvisionResultCode;
 import com.vmware.photon.controller.common.clients.HostClient;
-import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
+import com.vmware.photon.controller.common.clients.HostClientPoolRegistry;
 import com.vmware.photon.controller.common.thrift.ClientProxyFactory;
 import com.vmware.photon.controller.common.zookeeper.ZookeeperServerSetFactory;
 import com.vmware.photon.controller.host.gen.GetConfigResponse;
@@ -53,7 +53,7 @@ public class HostClientMock extends HostClient {
   private SetHostModeResultCode setHostModeResultCode;
 
   private HostClientMock(Builder builder) {
-    super(mock(ClientProxyFactory.class), mock(ClientPoolFactory.class), mock(ZookeeperServerSetFactory.class));
+    super(mock(ClientProxyFactory.class), mock(HostClientPoolRegistry.class), mock(ZookeeperServerSetFactory.class));
     this.getConfigResultCode = builder.getConfigResultCode;
     this.hostConfig = builder.hostConfig;
     this.getConfigFailure = builder.getConfigFailure;
@@ -50,6 +50,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.testng.Assert.fail;
 
@@ -435,6 +436,25 @@ public class CopyStateTaskServiceTest {
       assertThat(getDocumentLinks(destinationCluster).size(), is(DOCUMENT_COUNT));
     }
 
+    @Test(dataProvider = "hostCounts")
+    public void successCopyingMultiplePages(Integer sourceHostCount, Integer destinationHostCount) throws Throwable {
+      startClusters(sourceHostCount, destinationHostCount);
+
+      createDocuments(sourceCluster, DOCUMENT_COUNT);
+      copyStateTaskServiceState.queryResultLimit = 3;
+
+      CopyStateTaskService.State finalState = sourceCluster.callServiceAndWaitForState(
+          CopyStateTaskFactoryService.SELF_LINK,
+          copyStateTaskServiceState,
+          CopyStateTaskService.State.class,
+          (state) -> TaskUtils.finalTaskStages.contains(state.taskState.stage));
+
+      assertThat(finalState.taskState.stage, is(TaskState.TaskStage.FINISHED));
+      assertThat(finalState.documentsCopied, is((long) DOCUMENT_COUNT));
+      assertThat(finalState.documentsPerSecond, greaterThan(0.0));
+      assertThat(getDocumentLinks(destinationCluster).size(), is(DOCUMENT_COUNT));
+    }
+
     @Test(dataProvider = "hostCounts")
     public void failWhenDestinationUnreachable(Integer sourceHostCount, Integer destinationHostCount) throws Throwable {
       startClusters(sourceHostCount, destinationHostCount);
@@ -29,12 +29,16 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.fail;
 
+import java.net.URI;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * This class implements tests for {@link TaskUtilsTest}.
@@ -241,4 +245,144 @@ public class TaskUtilsTest {
       assertThat(count.get(), is(1));
     }
   }
+
+  /**
+   * This class tests the subscribeToProgress method.
+   */
+  public class SubscribeToProgress {
+
+    private AtomicReference<Consumer<Operation>> notificationConsumer;
+    private ServiceDocument document;
+    private AtomicInteger successCount;
+    private AtomicInteger failureCount;
+    private FutureCallback<ServiceDocument> futureCallback;
+
+    @BeforeMethod
+    public void setUp() {
+      service = mock(Service.class);
+      host = mock(ServiceHost.class);
+      when(service.getHost()).thenReturn(host);
+      when(host.getUri()).thenReturn(URI.create("http://localhost:0"));
+      operation = mock(Operation.class);
+
+      notificationConsumer = new AtomicReference<>();
+      document = new ServiceDocument();
+      document.documentSelfLink = "selfLink";
+      document.documentVersion = 0;
+      when(operation.getBody(any(Class.class))).thenReturn(document);
+      doAnswer(new Answer() {
+        @Override
+        public Object answer(InvocationOnMock invocation) throws Throwable {
+          ((Operation) invocation.getArguments()[0]).getCompletion().handle(operation, null);
+          return null;
+        }
+      }).when(service).sendRequest(any(Operation.class));
+
+      successCount = new AtomicInteger(0);
+      failureCount = new AtomicInteger(0);
+      futureCallback = new FutureCallback<ServiceDocument>() {
+        @Override
+        public void onSuccess(ServiceDocument result) {
+          successCount.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          failureCount.incrementAndGet();
+        }
+      };
+    }
+
+    private void mockSubscription(final Throwable subscriptionFailure) {
+      doAnswer(new Answer() {
+        @Override
+        public Object answer(InvocationOnMock invocation) throws Throwable {
+          notificationConsumer.set((Consumer<Operation>) invocation.getArguments()[1]);
+          ((Operation) invocation.getArguments()[0]).getCompletion().handle(operation, subscriptionFailure);
+          return URI.create("http://localhost:0/notificationTarget");
+        }
+      }).when(host).startSubscriptionService(any(Operation.class), any(Consumer.class));
+    }
+
+    @Test
+    public void successAfterNotification() {
+      mockSubscription(null);
+
+      TaskUtils.subscribeToProgress(service,
+          "selfLink",
+          (input) -> input.documentVersion > 0,
+          ServiceDocument.class,
+          0,
+          futureCallback);
+
+      assertThat(successCount.get(), is(0));
+      verify(service, times(1)).sendRequest(any(Operation.class));
+
+      document.documentVersion = 1;
+      Operation notification = mock(Operation.class);
+      when(notification.getAction()).thenReturn(Service.Action.PATCH);
+      notificationConsumer.get().accept(notification);
+
+      assertThat(successCount.get(), is(1));
+      assertThat(failureCount.get(), is(0));
+      verify(notification).complete();
+      verify(service, times(2)).sendRequest(any(Operation.class));
+      verify(host).stopSubscriptionService(any(Operation.class), any(URI.class));
+
+      notificationConsumer.get().accept(notification);
+      assertThat(successCount.get(), is(1));
+      verify(service, times(2)).sendRequest(any(Operation.class));
+    }
+
+    @Test
+    public void successWithoutNotification() {
+      mockSubscription(null);
+
+      TaskUtils.subscribeToProgress(service,
+          "selfLink",
+          (input) -> true,
+          ServiceDocument.class,
+          0,
+          futureCallback);
+
+      assertThat(successCount.get(), is(1));
+      verify(host).stopSubscriptionService(any(Operation.class), any(URI.class));
+    }
+
+    @Test
+    public void fallsBackToPollingWhenSubscriptionFails() {
+      mockSubscription(new RuntimeException());
+
+      TaskUtils.subscribeToProgress(service,
+          "selfLink",
+          (input) -> true,
+          ServiceDocument.class,
+          0,
+          futureCallback);
+
+      assertThat(successCount.get(), is(1));
+      assertThat(failureCount.get(), is(0));
+      verify(host, never()).stopSubscriptionService(any(Operation.class), any(URI.class));
+    }
+
+    @Test
+    public void invokesFailureWhenServiceIsDeleted() {
+      mockSubscription(null);
+
+      TaskUtils.subscribeToProgress(service,
+          "selfLink",
+          (input) -> false,
+          ServiceDocument.class,
+          0,
+          futureCallback);
+
+      Operation notification = mock(Operation.class);
+      when(notification.getAction()).thenReturn(Service.Action.DELETE);
+      notificationConsumer.get().accept(notification);
+
+      assertThat(successCount.get(), is(0));
+      assertThat(failureCount.get(), is(1));
+      verify(host).stopSubscriptionService(any(Operation.class), any(URI.class));
+    }
+  }
 }
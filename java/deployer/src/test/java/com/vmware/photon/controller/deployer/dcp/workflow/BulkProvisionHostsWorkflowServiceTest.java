@@ -52,7 +52,10 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.doReturn;
@@ -66,6 +69,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
 
@@ -102,6 +106,45 @@ public class BulkProvisionHostsWorkflowServiceTest {
     }
   }
 
+  /**
+   * This class implements tests for the buildStageStatistics method.
+   */
+  public class BuildStageStatisticsTest {
+
+    @Test
+    public void testStatistics() {
+      long stageStartTime = System.currentTimeMillis() - 1000;
+      Map<String, BulkProvisionHostsWorkflowService.StageStatistics> statistics =
+          BulkProvisionHostsWorkflowService.buildStageStatistics(
+              BulkProvisionHostsWorkflowService.TaskState.SubStage.PROVISION_HOSTS,
+              stageStartTime,
+              Arrays.asList(100L, 200L, 600L));
+
+      BulkProvisionHostsWorkflowService.StageStatistics stageStatistics = statistics.get(
+          BulkProvisionHostsWorkflowService.TaskState.SubStage.PROVISION_HOSTS.name());
+      assertThat(stageStatistics.childTaskCount, is(3));
+      assertThat(stageStatistics.averageChildLatencyMillis, is(300L));
+      assertThat(stageStatistics.maxChildLatencyMillis, is(600L));
+      assertThat(stageStatistics.elapsedTimeMillis, greaterThanOrEqualTo(1000L));
+      assertThat(stageStatistics.childTasksPerMinute, lessThanOrEqualTo(180.0));
+    }
+
+    @Test
+    public void testStatisticsWithoutChildTasks() {
+      Map<String, BulkProvisionHostsWorkflowService.StageStatistics> statistics =
+          BulkProvisionHostsWorkflowService.buildStageStatistics(
+              BulkProvisionHostsWorkflowService.TaskState.SubStage.PROVISION_HOSTS,
+              System.currentTimeMillis(),
+              Collections.emptyList());
+
+      BulkProvisionHostsWorkflowService.StageStatistics stageStatistics = statistics.get(
+          BulkProvisionHostsWorkflowService.TaskState.SubStage.PROVISION_HOSTS.name());
+      assertThat(stageStatistics.childTaskCount, is(0));
+      assertThat(stageStatistics.averageChildLatencyMillis, is(0L));
+      assertThat(stageStatistics.childTasksPerMinute, is(0.0));
+    }
+  }
+
   /**
    * This class implements tests for the handleStart method.
    */
@@ -632,6 +675,37 @@ public class BulkProvisionHostsWorkflowServiceTest {
       }
     }
 
+    @Test
+    public void testEndToEndSuccessWithOneChildTaskInFlight() throws Throwable {
+      MockHelper.mockHttpFileServiceClient(httpFileServiceClientFactory, true);
+      MockHelper.mockCreateScriptFile(deployerConfig.getDeployerContext(), DeployAgentTaskService.SCRIPT_NAME, true);
+      MockHelper.mockProvisionAgent(hostClientFactory, true);
+      createTestEnvironment(1);
+      createHostEntities(3, 0, 2);
+      startState.querySpecification = null;
+      startState.usageTag = UsageTag.MGMT.name();
+      startState.maxConcurrentChildTasks = 1;
+
+      try {
+        BulkProvisionHostsWorkflowService.State finalState =
+            testEnvironment.callServiceAndWaitForState(
+                BulkProvisionHostsWorkflowFactoryService.SELF_LINK,
+                startState,
+                BulkProvisionHostsWorkflowService.State.class,
+                (state) -> TaskUtils.finalTaskStages.contains(state.taskState.stage));
+
+        TestHelper.assertTaskStateFinished(finalState.taskState);
+        assertThat(finalState.stageStatistics.keySet(), containsInAnyOrder(
+            BulkProvisionHostsWorkflowService.TaskState.SubStage.UPLOAD_VIB.name(),
+            BulkProvisionHostsWorkflowService.TaskState.SubStage.PROVISION_HOSTS.name(),
+            BulkProvisionHostsWorkflowService.TaskState.SubStage.DELETE_VIB.name()));
+        assertThat(finalState.stageStatistics.get(
+            BulkProvisionHostsWorkflowService.TaskState.SubStage.PROVISION_HOSTS.name()).childTaskCount, is(5));
+      } finally {
+        startState.maxConcurrentChildTasks = null;
+      }
+    }
+
     @Test(enabled = false)
     public void testEndToEndFailNoMgmtHost() throws Throwable {
       MockHelper.mockHttpFileServiceClient(httpFileServiceClientFactory, true);
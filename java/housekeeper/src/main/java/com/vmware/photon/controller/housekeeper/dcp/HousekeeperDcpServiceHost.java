@@ -56,9 +56,14 @@ public class HousekeeperDcpServiceHost
   protected static final String IMAGE_DELETE_SCHEDULER_SERVICE =
       TaskSchedulerServiceFactory.SELF_LINK + "/image-delete";
 
+  /**
+   * Copies and deletes are started round-robin across the replication and cleanup workflows that created them.
+   */
   private static final Map<String, TaskSchedulerServiceStateBuilder.Config> TASK_SCHEDULERS = ImmutableMap.of(
-      IMAGE_COPY_SCHEDULER_SERVICE, new TaskSchedulerServiceStateBuilder.Config(ImageCopyService.class, 10),
-      IMAGE_DELETE_SCHEDULER_SERVICE, new TaskSchedulerServiceStateBuilder.Config(ImageDeleteService.class, 10)
+      IMAGE_COPY_SCHEDULER_SERVICE,
+      new TaskSchedulerServiceStateBuilder.Config(ImageCopyService.class, 10, "parentLink", null),
+      IMAGE_DELETE_SCHEDULER_SERVICE,
+      new TaskSchedulerServiceStateBuilder.Config(ImageDeleteService.class, 10, "parentLink", null)
   );
 
   private static final String TRIGGER_CLEANER_SERVICE_SUFFIX = "/singleton";
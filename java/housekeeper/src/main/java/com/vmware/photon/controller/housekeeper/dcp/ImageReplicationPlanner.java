@@ -0,0 +1,328 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.housekeeper.dcp;
+
+import com.vmware.dcp.common.TaskState.TaskStage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Class ImageReplicationPlanner plans the copies of an image replication as a tree. The first copies read from the
+ * source datastore, and every datastore the image has been copied to becomes a source for the following copies, so
+ * the source datastore and its hosts do not have to serve every copy. The number of copies running on a host, and the
+ * number of copies reading from or writing to a datastore, are limited. A failed copy is retried from a different
+ * source. This class is not thread safe.
+ */
+public class ImageReplicationPlanner {
+
+  /**
+   * Maximum number of copies attempted for a destination datastore.
+   */
+  public static final int MAX_COPY_ATTEMPTS = 3;
+
+  private static final Logger logger = LoggerFactory.getLogger(ImageReplicationPlanner.class);
+
+  private final String sourceDataStore;
+  private final Map<String, ImageReplicatorService.ReplicationEdge> edges = new LinkedHashMap<>();
+  private final int maxCopiesPerHost;
+  private final int maxCopiesPerDatastore;
+  private final Function<String, Set<String>> hostsForDatastore;
+  private final Map<String, Set<String>> hosts = new HashMap<>();
+
+  /**
+   * @param sourceDataStore       datastore the image was uploaded to
+   * @param plan                  copies planned so far, see {@link #createPlan(String, Collection)}
+   * @param maxCopiesPerHost      maximum number of copies running on a host
+   * @param maxCopiesPerDatastore maximum number of copies reading from or writing to a datastore
+   * @param hostsForDatastore     returns the addresses of the hosts connected to a datastore
+   */
+  public ImageReplicationPlanner(String sourceDataStore,
+                                 List<ImageReplicatorService.ReplicationEdge> plan,
+                                 int maxCopiesPerHost,
+                                 int maxCopiesPerDatastore,
+                                 Function<String, Set<String>> hostsForDatastore) {
+    checkArgument(maxCopiesPerHost > 0, "maxCopiesPerHost needs to be greater than 0");
+    checkArgument(maxCopiesPerDatastore > 0, "maxCopiesPerDatastore needs to be greater than 0");
+    this.sourceDataStore = sourceDataStore;
+    this.maxCopiesPerHost = maxCopiesPerHost;
+    this.maxCopiesPerDatastore = maxCopiesPerDatastore;
+    this.hostsForDatastore = hostsForDatastore;
+
+    for (ImageReplicatorService.ReplicationEdge edge : plan) {
+      edges.put(edge.destinationDataStore, copyOf(edge));
+    }
+  }
+
+  /**
+   * Creates the plan of a replication: one edge per destination datastore, waiting for a source. The source datastore
+   * already has the image.
+   *
+   * @param sourceDataStore
+   * @param destinationDataStores
+   * @return
+   */
+  public static List<ImageReplicatorService.ReplicationEdge> createPlan(String sourceDataStore,
+                                                                       Collection<String> destinationDataStores) {
+    List<ImageReplicatorService.ReplicationEdge> plan = new ArrayList<>();
+    for (String destination : destinationDataStores) {
+      ImageReplicatorService.ReplicationEdge edge = new ImageReplicatorService.ReplicationEdge();
+      edge.destinationDataStore = destination;
+      edge.attempts = 0;
+      edge.failedSources = new ArrayList<>();
+      edge.stage = destination.equals(sourceDataStore) ? TaskStage.FINISHED : TaskStage.CREATED;
+      plan.add(edge);
+    }
+
+    return plan;
+  }
+
+  /**
+   * Assigns a source, and a host when the hosts of the datastores are known, to the waiting edges which can start
+   * without exceeding the limits. Edges which cannot be copied from any source, now or later, are failed.
+   *
+   * @param nowMicros
+   * @return the edges to start copying
+   */
+  public List<ImageReplicatorService.ReplicationEdge> startCopies(long nowMicros) {
+    Map<String, Integer> datastoreCopies = new HashMap<>();
+    Map<String, Integer> hostCopies = new HashMap<>();
+    List<String> sources = new ArrayList<>();
+    sources.add(sourceDataStore);
+    boolean copiesRunning = false;
+    for (ImageReplicatorService.ReplicationEdge edge : edges.values()) {
+      if (edge.stage == TaskStage.STARTED) {
+        addCopy(edge, datastoreCopies, hostCopies);
+        copiesRunning = true;
+      } else if (edge.stage == TaskStage.FINISHED && !edge.destinationDataStore.equals(sourceDataStore)) {
+        sources.add(edge.destinationDataStore);
+      }
+    }
+
+    List<ImageReplicatorService.ReplicationEdge> started = new ArrayList<>();
+    for (ImageReplicatorService.ReplicationEdge edge : edges.values()) {
+      if (edge.stage != TaskStage.CREATED) {
+        continue;
+      }
+
+      String bestSource = null;
+      String bestHost = null;
+      boolean reachable = false;
+      for (String source : sources) {
+        if (edge.failedSources.contains(source)) {
+          continue;
+        }
+
+        Set<String> copyHosts = getCopyHosts(source, edge.destinationDataStore);
+        if (copyHosts != null && copyHosts.isEmpty()) {
+          continue;
+        }
+
+        reachable = true;
+        if (getCount(datastoreCopies, source) >= maxCopiesPerDatastore
+            || getCount(datastoreCopies, edge.destinationDataStore) >= maxCopiesPerDatastore) {
+          continue;
+        }
+
+        String host = null;
+        if (copyHosts != null) {
+          host = selectHost(copyHosts, hostCopies);
+          if (host == null) {
+            continue;
+          }
+        }
+
+        // Prefer the least busy source, and copies of the image over its original datastore
+        if (bestSource == null
+            || getCount(datastoreCopies, source) < getCount(datastoreCopies, bestSource)
+            || (getCount(datastoreCopies, source) == getCount(datastoreCopies, bestSource)
+            && bestSource.equals(sourceDataStore))) {
+          bestSource = source;
+          bestHost = host;
+        }
+      }
+
+      if (bestSource != null) {
+        edge.sourceDataStore = bestSource;
+        edge.host = bestHost;
+        edge.stage = TaskStage.STARTED;
+        edge.attempts++;
+        edge.startTimeMicros = nowMicros;
+        addCopy(edge, datastoreCopies, hostCopies);
+        copiesRunning = true;
+        started.add(edge);
+      } else if (!reachable && !copiesRunning) {
+        // No source is left, and no running copy can become one
+        logger.warn("No source left to copy to datastore {}", edge.destinationDataStore);
+        edge.stage = TaskStage.FAILED;
+        edge.endTimeMicros = nowMicros;
+      }
+    }
+
+    return started;
+  }
+
+  /**
+   * Records that the copy to a datastore finished. The datastore becomes a source for the following copies.
+   *
+   * @param destinationDataStore
+   * @param nowMicros
+   */
+  public void copyFinished(String destinationDataStore, long nowMicros) {
+    ImageReplicatorService.ReplicationEdge edge = edges.get(destinationDataStore);
+    edge.stage = TaskStage.FINISHED;
+    edge.endTimeMicros = nowMicros;
+  }
+
+  /**
+   * Records that the copy to a datastore failed. The copy is retried from another source, unless it has been attempted
+   * {@link #MAX_COPY_ATTEMPTS} times.
+   *
+   * @param destinationDataStore
+   * @param nowMicros
+   */
+  public void copyFailed(String destinationDataStore, long nowMicros) {
+    ImageReplicatorService.ReplicationEdge edge = edges.get(destinationDataStore);
+    edge.failedSources.add(edge.sourceDataStore);
+    if (edge.attempts >= MAX_COPY_ATTEMPTS) {
+      edge.stage = TaskStage.FAILED;
+      edge.endTimeMicros = nowMicros;
+    } else {
+      edge.stage = TaskStage.CREATED;
+    }
+  }
+
+  public ImageReplicatorService.ReplicationEdge getEdge(String destinationDataStore) {
+    return edges.get(destinationDataStore);
+  }
+
+  public List<ImageReplicatorService.ReplicationEdge> getPlan() {
+    return new ArrayList<>(edges.values());
+  }
+
+  public int getFinishedCount() {
+    return getCount(TaskStage.FINISHED);
+  }
+
+  public int getFailedCount() {
+    return getCount(TaskStage.FAILED);
+  }
+
+  /**
+   * Returns the hosts which can copy the image between two datastores. The source datastore of the replication is
+   * reachable from the hosts of every datastore.
+   *
+   * @param source
+   * @param destination
+   * @return the addresses of the hosts, or null if they are unknown
+   */
+  private Set<String> getCopyHosts(String source, String destination) {
+    Set<String> destinationHosts = getHosts(destination);
+    if (source.equals(sourceDataStore)) {
+      return destinationHosts;
+    }
+
+    Set<String> sourceHosts = getHosts(source);
+    if (destinationHosts == null || sourceHosts == null) {
+      // A copy is only known to be able to read the source datastore of the replication
+      return new HashSet<>();
+    }
+
+    Set<String> copyHosts = new HashSet<>(sourceHosts);
+    copyHosts.retainAll(destinationHosts);
+    return copyHosts;
+  }
+
+  private Set<String> getHosts(String datastore) {
+    if (!hosts.containsKey(datastore)) {
+      Set<String> datastoreHosts = null;
+      try {
+        datastoreHosts = hostsForDatastore.apply(datastore);
+      } catch (RuntimeException e) {
+        logger.warn("Failed to get the hosts of datastore {}", datastore, e);
+      }
+      hosts.put(datastore, datastoreHosts);
+    }
+
+    return hosts.get(datastore);
+  }
+
+  private String selectHost(Set<String> copyHosts, Map<String, Integer> hostCopies) {
+    String selected = null;
+    for (String host : copyHosts) {
+      int count = getCount(hostCopies, host);
+      if (count >= maxCopiesPerHost) {
+        continue;
+      }
+
+      if (selected == null
+          || count < getCount(hostCopies, selected)
+          || (count == getCount(hostCopies, selected) && host.compareTo(selected) < 0)) {
+        selected = host;
+      }
+    }
+
+    return selected;
+  }
+
+  private int getCount(TaskStage stage) {
+    int count = 0;
+    for (ImageReplicatorService.ReplicationEdge edge : edges.values()) {
+      if (edge.stage == stage) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  private static void addCopy(ImageReplicatorService.ReplicationEdge edge,
+                              Map<String, Integer> datastoreCopies,
+                              Map<String, Integer> hostCopies) {
+    datastoreCopies.merge(edge.sourceDataStore, 1, Integer::sum);
+    datastoreCopies.merge(edge.destinationDataStore, 1, Integer::sum);
+    if (edge.host != null) {
+      hostCopies.merge(edge.host, 1, Integer::sum);
+    }
+  }
+
+  private static int getCount(Map<String, Integer> counts, String key) {
+    Integer count = counts.get(key);
+    return count == null ? 0 : count;
+  }
+
+  private static ImageReplicatorService.ReplicationEdge copyOf(ImageReplicatorService.ReplicationEdge edge) {
+    ImageReplicatorService.ReplicationEdge copy = new ImageReplicatorService.ReplicationEdge();
+    copy.sourceDataStore = edge.sourceDataStore;
+    copy.destinationDataStore = edge.destinationDataStore;
+    copy.host = edge.host;
+    copy.stage = edge.stage;
+    copy.attempts = edge.attempts == null ? 0 : edge.attempts;
+    copy.failedSources = edge.failedSources == null ? new ArrayList<>() : new ArrayList<>(edge.failedSources);
+    copy.startTimeMicros = edge.startTimeMicros;
+    copy.endTimeMicros = edge.endTimeMicros;
+    return copy;
+  }
+}
@@ -27,6 +27,7 @@ import com.vmware.photon.controller.common.dcp.OperationUtils;
 import com.vmware.photon.controller.common.dcp.QueryTaskUtils;
 import com.vmware.photon.controller.common.dcp.ServiceUtils;
 import com.vmware.photon.controller.common.zookeeper.ZookeeperHostMonitor;
+import com.vmware.photon.controller.host.gen.HostConfig;
 import com.vmware.photon.controller.housekeeper.zookeeper.ZookeeperHostMonitorProvider;
 import com.vmware.photon.controller.resource.gen.Datastore;
 
@@ -35,14 +36,19 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Class ImageReplicatorService implements a service to propagate an image available on a single data store to all
  * data stores. The copy is performed by create ImageCopyService, TaskSchedulerService will move those to STARTED
- * stage, and wait for the copy to finish. Client will poll until task state is FINISH or FAIL. CANCELLED is not
- * supported.
+ * stage, and wait for the copy to finish. The copies are planned by {@link ImageReplicationPlanner} as a tree, each
+ * finished copy becoming a source for the following ones. Client will poll until task state is FINISH or FAIL.
+ * CANCELLED is not supported.
  */
 public class ImageReplicatorService extends StatefulService {
   /**
@@ -50,6 +56,16 @@ public class ImageReplicatorService extends StatefulService {
    */
   private static final int DEFAULT_QUERY_POLL_DELAY = 10000;
 
+  /**
+   * Default maximum number of copies running on a host.
+   */
+  private static final int DEFAULT_MAX_COPIES_PER_HOST = 4;
+
+  /**
+   * Default maximum number of copies reading from or writing to a datastore.
+   */
+  private static final int DEFAULT_MAX_COPIES_PER_DATASTORE = 4;
+
   /**
    * Default constructor.
    */
@@ -83,6 +99,14 @@ public class ImageReplicatorService extends StatefulService {
         s.queryPollDelay = DEFAULT_QUERY_POLL_DELAY;
       }
 
+      if (s.maxCopiesPerHost == null) {
+        s.maxCopiesPerHost = DEFAULT_MAX_COPIES_PER_HOST;
+      }
+
+      if (s.maxCopiesPerDatastore == null) {
+        s.maxCopiesPerDatastore = DEFAULT_MAX_COPIES_PER_DATASTORE;
+      }
+
       validateState(s);
       start.setBody(s).complete();
 
@@ -146,6 +170,12 @@ public class ImageReplicatorService extends StatefulService {
 
     checkState(current.documentExpirationTimeMicros > 0, "documentExpirationTimeMicros needs to be greater than 0");
 
+    checkNotNull(current.maxCopiesPerHost, "maxCopiesPerHost cannot be null");
+    checkState(current.maxCopiesPerHost > 0, "maxCopiesPerHost needs to be greater than 0");
+
+    checkNotNull(current.maxCopiesPerDatastore, "maxCopiesPerDatastore cannot be null");
+    checkState(current.maxCopiesPerDatastore > 0, "maxCopiesPerDatastore needs to be greater than 0");
+
     if (current.finishedCopies != null) {
       checkState(current.finishedCopies >= 0, "finishedCopies needs to be >= 0");
     }
@@ -242,6 +272,9 @@ public class ImageReplicatorService extends StatefulService {
       currentState.failedOrCanceledCopies = patchState.failedOrCanceledCopies;
     }
 
+    if (patchState.replicationPlan != null) {
+      currentState.replicationPlan = patchState.replicationPlan;
+    }
   }
 
   /**
@@ -310,8 +343,8 @@ public class ImageReplicatorService extends StatefulService {
 
   /**
    * This method queries the list of data stores available in this ESX cloud instance and, on query completion,
-   * creates a set of ImageCopyService instances and transitions the current service instance to the
-   * AWAIT_COMPLETION sub-state.
+   * plans the copies to those data stores, creates the ImageCopyService instances which can start from the source
+   * data store and transitions the current service instance to the AWAIT_COMPLETION sub-state.
    *
    * @param current
    */
@@ -319,13 +352,23 @@ public class ImageReplicatorService extends StatefulService {
     try {
       Set<Datastore> datastoreSet = getZookeeperHostMonitor().getAllDatastores();
       ServiceUtils.logInfo(this, "All target datastores: %s", Utils.toJson(datastoreSet));
-      triggerCopyServices(datastoreSet, current);
+
+      List<String> destinations = new ArrayList<>();
+      for (Datastore datastore : datastoreSet) {
+        destinations.add(datastore.getId());
+      }
+      ImageReplicationPlanner planner =
+          buildPlanner(current, ImageReplicationPlanner.createPlan(current.datastore, destinations));
+      triggerCopyServices(planner.startCopies(Utils.getNowMicrosUtc()), current);
 
       // move to next stage
       if (!current.isSelfProgressionDisabled) {
         State patch = ImageReplicatorService.this.buildPatch(
             TaskState.TaskStage.STARTED, TaskState.SubStage.AWAIT_COMPLETION, null);
         patch.dataStoreCount = datastoreSet.size();
+        patch.replicationPlan = planner.getPlan();
+        patch.finishedCopies = planner.getFinishedCount();
+        patch.failedOrCanceledCopies = planner.getFailedCount();
 
         sendSelfPatch(patch);
       }
@@ -360,6 +403,14 @@ public class ImageReplicatorService extends StatefulService {
       return;
     }
 
+    if (current.replicationPlan != null) {
+      // the plan is updated by a single query, which is issued again once its patch has been processed
+      if (patch.replicationPlan != null) {
+        getHost().schedule(() -> checkPlannedCopies(current), current.queryPollDelay, TimeUnit.MILLISECONDS);
+      }
+      return;
+    }
+
     // determine if we have already received answers from queries that check for completion
     // of ImageCopyService instances
     boolean isFirstCheck = current.finishedCopies == null
@@ -394,31 +445,48 @@ public class ImageReplicatorService extends StatefulService {
     return ((ZookeeperHostMonitorProvider) getHost()).getZookeeperHostMonitor();
   }
 
+  /**
+   * Builds the planner of the copies, which looks up the hosts of the datastores in zookeeper.
+   *
+   * @param current
+   * @param plan
+   * @return
+   */
+  private ImageReplicationPlanner buildPlanner(State current, List<ReplicationEdge> plan) {
+    return new ImageReplicationPlanner(current.datastore, plan, current.maxCopiesPerHost,
+        current.maxCopiesPerDatastore, datastore -> {
+          Set<String> hosts = new HashSet<>();
+          for (HostConfig hostConfig : getZookeeperHostMonitor().getHostsForDatastore(datastore)) {
+            hosts.add(hostConfig.getAddress().getHost());
+          }
+          return hosts;
+        });
+  }
+
   /**
    * This function creates a set of ImageCopyService instances parented to the current service instance.
    *
-   * @param targetDataStoreSet
+   * @param edges
    * @param current
-   * @return The number of batches created.
    */
-  private void triggerCopyServices(Set<Datastore> targetDataStoreSet, State current) {
-    if (targetDataStoreSet.isEmpty()) {
+  private void triggerCopyServices(List<ReplicationEdge> edges, State current) {
+    if (edges.isEmpty()) {
       ServiceUtils.logInfo(this, "No copies to trigger!");
       return;
     }
 
-    for (Datastore targetDataStore : targetDataStoreSet) {
-      triggerCopyService(current, targetDataStore.getId());
+    for (ReplicationEdge edge : edges) {
+      triggerCopyService(current, edge);
     }
   }
 
   /**
-   * Triggers an ImageCopyService for the datastore passed as a parameter.
+   * Triggers an ImageCopyService for the edge passed as a parameter.
    *
    * @param current
-   * @param datastore
+   * @param edge
    */
-  protected void triggerCopyService(final State current, String datastore) {
+  protected void triggerCopyService(final State current, ReplicationEdge edge) {
     // build completion handler
     Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
@@ -436,8 +504,9 @@ public class ImageReplicatorService extends StatefulService {
     // build start state
     ImageCopyService.State copyState = new ImageCopyService.State();
     copyState.image = current.image;
-    copyState.sourceDataStore = current.datastore;
-    copyState.destinationDataStore = datastore;
+    copyState.sourceDataStore = edge.sourceDataStore;
+    copyState.destinationDataStore = edge.destinationDataStore;
+    copyState.host = edge.host;
     copyState.parentLink = getSelfLink();
     copyState.documentExpirationTimeMicros = current.documentExpirationTimeMicros;
 
@@ -449,6 +518,69 @@ public class ImageReplicatorService extends StatefulService {
     this.sendRequest(copyOperation);
   }
 
+  /**
+   * Triggers a query to retrieve the "child" ImageCopyService instances, updates the plan with the copies which
+   * completed and creates the ImageCopyService instances which can start.
+   *
+   * @param current
+   */
+  private void checkPlannedCopies(final State current) {
+    Operation.CompletionHandler handler = new Operation.CompletionHandler() {
+      @Override
+      public void handle(Operation completedOp, Throwable failure) {
+        if (failure != null) {
+          failTask(failure);
+          return;
+        }
+
+        try {
+          List<ImageCopyService.State> copies = QueryTaskUtils.getQueryResultDocuments(
+              ImageCopyService.State.class, completedOp.getBody(QueryTask.class).results);
+          ImageReplicationPlanner planner = buildPlanner(current, current.replicationPlan);
+          long now = Utils.getNowMicrosUtc();
+          for (ImageCopyService.State copy : copies) {
+            ReplicationEdge edge = planner.getEdge(copy.destinationDataStore);
+            if (edge == null || edge.stage != TaskState.TaskStage.STARTED
+                || !copy.sourceDataStore.equals(edge.sourceDataStore)) {
+              // not the latest attempt of the copy
+              continue;
+            }
+
+            switch (copy.taskInfo.stage) {
+              case FINISHED:
+                planner.copyFinished(copy.destinationDataStore, now);
+                break;
+              case FAILED:
+              case CANCELLED:
+                ServiceUtils.logWarning(ImageReplicatorService.this, "Copy from %s to %s failed: %s",
+                    copy.sourceDataStore, copy.destinationDataStore, Utils.toJson(copy.taskInfo.failure));
+                planner.copyFailed(copy.destinationDataStore, now);
+                break;
+              default:
+                break;
+            }
+          }
+
+          triggerCopyServices(planner.startCopies(now), current);
+
+          State s = buildPatch(current.taskInfo.stage, current.taskInfo.subStage, null);
+          s.replicationPlan = planner.getPlan();
+          s.finishedCopies = planner.getFinishedCount();
+          s.failedOrCanceledCopies = planner.getFailedCount();
+          sendSelfPatch(s);
+        } catch (Throwable t) {
+          failTask(t);
+        }
+      }
+    };
+
+    QueryTask.QuerySpecification spec =
+        QueryTaskUtils.buildChildServiceQuerySpec(this.getSelfLink(), ImageCopyService.State.class);
+    spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+
+    this.sendQuery(spec, handler);
+  }
+
   /**
    * Triggers a query to retrieve the "child" ImageDeleteService instances in FINISHED state.
    *
@@ -659,5 +791,66 @@ public class ImageReplicatorService extends StatefulService {
      * Count of individual copies in FAILED or CANCELED state.
      */
     public Integer failedOrCanceledCopies;
+
+    /**
+     * Maximum number of copies running on a host.
+     */
+    public Integer maxCopiesPerHost;
+
+    /**
+     * Maximum number of copies reading from or writing to a datastore.
+     */
+    public Integer maxCopiesPerDatastore;
+
+    /**
+     * Copies of the image, one per datastore. With a plan, finishedCopies and failedOrCanceledCopies count the
+     * datastores the image was copied to and the datastores it could not be copied to.
+     */
+    public List<ReplicationEdge> replicationPlan;
+  }
+
+  /**
+   * Copy of the image to a datastore, from the source datastore or from a datastore it was already copied to.
+   */
+  public static class ReplicationEdge {
+    /**
+     * Datastore the image is copied from.
+     */
+    public String sourceDataStore;
+
+    /**
+     * Datastore the image is copied to.
+     */
+    public String destinationDataStore;
+
+    /**
+     * Host performing the copy, null to let ImageCopyService select one.
+     */
+    public String host;
+
+    /**
+     * CREATED while waiting for a source, STARTED while copying, then FINISHED or FAILED.
+     */
+    public TaskState.TaskStage stage;
+
+    /**
+     * Number of copies attempted.
+     */
+    public Integer attempts;
+
+    /**
+     * Sources the copy failed from.
+     */
+    public List<String> failedSources;
+
+    /**
+     * Time the last copy attempt started.
+     */
+    public Long startTimeMicros;
+
+    /**
+     * Time the copy finished or failed.
+     */
+    public Long endTimeMicros;
   }
 }
@@ -36,6 +36,8 @@ import com.vmware.photon.controller.housekeeper.dcp.mock.ZookeeperHostMonitorSuc
 import com.vmware.photon.controller.housekeeper.dcp.mock.hostclient.ErrorMockStartImageScan;
 import com.vmware.photon.controller.housekeeper.helpers.dcp.TestEnvironment;
 import com.vmware.photon.controller.housekeeper.helpers.dcp.TestHost;
+import com.vmware.photon.controller.resource.gen.Datastore;
+import com.vmware.photon.controller.resource.gen.InactiveImageDescriptor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,9 +53,12 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -1357,6 +1362,41 @@ public class ImageCleanerServiceTest {
       };
     }
 
+    /**
+     * Tests that the sweepers triggered by the cleaner delete the inactive images without filtering them against
+     * the reference images, so that a cleaner run does not query the cloud store for images.
+     *
+     * @param hostCount
+     * @throws Throwable
+     */
+    @Test(dataProvider = "hostCount")
+    public void testNoReferenceImagesQuery(int hostCount) throws Throwable {
+      zookeeperHostMonitor = new ZookeeperHostMonitorSuccessMock(
+          imageDataStoresCount,
+          ZookeeperHostMonitorSuccessMock.HOST_COUNT_DEFAULT,
+          dataStoreCount);
+
+      // every datastore has inactive images
+      HostClientMock hostClient = new HostClientMock();
+      for (Datastore datastore : zookeeperHostMonitor.getAllDatastores()) {
+        hostClient.setInactiveImages(datastore.getId(), createInactiveImages(5, request.imageDeleteWatermarkTime));
+      }
+      doReturn(hostClient).when(hostClientFactory).create();
+
+      machine = TestEnvironment.create(cloudStoreHelper, hostClientFactory, zookeeperHostMonitor, hostCount);
+
+      // Call Service.
+      ImageCleanerService.State response = machine.callServiceAndWaitForState(ImageCleanerServiceFactory.SELF_LINK,
+          request,
+          ImageCleanerService.State.class,
+          state -> state.taskInfo.stage == TaskState.TaskStage.FINISHED
+      );
+
+      assertThat(response.finishedDeletes, is(dataStoreCount));
+      verify(cloudStoreHelper, never()).queryEntities(
+          any(Service.class), any(QueryTask.QuerySpecification.class), any(Operation.CompletionHandler.class));
+    }
+
     /**
      * Test service fails since shared datastore is not found.
      *
@@ -1540,6 +1580,17 @@ public class ImageCleanerServiceTest {
       };
     }
 
+    private List<InactiveImageDescriptor> createInactiveImages(int inactiveImagesCount, long timestamp) {
+      List<InactiveImageDescriptor> inactiveImages = new ArrayList<>(inactiveImagesCount);
+      for (int i = 0; i < inactiveImagesCount; i++) {
+        InactiveImageDescriptor image = new InactiveImageDescriptor();
+        image.setImage_id("image-" + i);
+        image.setTimestamp(timestamp - 100);
+        inactiveImages.add(image);
+      }
+      return inactiveImages;
+    }
+
     private List<String> createReferenceImages(int referenceImagesCount) {
       List<String> referenceImages = new ArrayList<>(referenceImagesCount);
       for (int i = 0; i < referenceImagesCount; i++) {
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.housekeeper.dcp;
+
+import com.vmware.dcp.common.TaskState.TaskStage;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests {@link ImageReplicationPlanner}.
+ */
+public class ImageReplicationPlannerTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(ImageReplicationPlannerTest.class);
+
+  private static final String SOURCE = "image-datastore";
+
+  @Test
+  public void testCopiesStartFromSourceWithinLimits() {
+    Map<String, Set<String>> hosts = ImmutableMap.of(
+        "ds1", ImmutableSet.of("host1"),
+        "ds2", ImmutableSet.of("host1"),
+        "ds3", ImmutableSet.of("host2"));
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, Arrays.asList(SOURCE, "ds1", "ds2", "ds3")), 1, 4, hosts::get);
+
+    List<ImageReplicatorService.ReplicationEdge> started = planner.startCopies(1);
+    assertThat(getDestinations(started), contains("ds1", "ds3"));
+    for (ImageReplicatorService.ReplicationEdge edge : started) {
+      assertThat(edge.sourceDataStore, is(SOURCE));
+      assertThat(edge.stage, is(TaskStage.STARTED));
+      assertThat(edge.attempts, is(1));
+    }
+    assertThat(planner.getEdge("ds1").host, is("host1"));
+    assertThat(planner.getEdge("ds3").host, is("host2"));
+    assertThat(planner.getEdge("ds2").stage, is(TaskStage.CREATED));
+
+    // The source datastore already has the image
+    assertThat(planner.getEdge(SOURCE).stage, is(TaskStage.FINISHED));
+    assertThat(planner.getFinishedCount(), is(1));
+  }
+
+  @Test
+  public void testFinishedCopiesBecomeSources() {
+    Set<String> allHosts = ImmutableSet.of("host1", "host2");
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, Arrays.asList("ds1", "ds2", "ds3", "ds4")), 10, 2,
+        datastore -> allHosts);
+
+    assertThat(getDestinations(planner.startCopies(1)), contains("ds1", "ds2"));
+    assertThat(planner.startCopies(2), is(empty()));
+
+    planner.copyFinished("ds1", 3);
+    List<ImageReplicatorService.ReplicationEdge> started = planner.startCopies(4);
+    assertThat(getDestinations(started), contains("ds3", "ds4"));
+    // At the same load, the copy is preferred to the source datastore
+    assertThat(planner.getEdge("ds3").sourceDataStore, is("ds1"));
+    assertThat(planner.getEdge("ds4").sourceDataStore, is("ds1"));
+    assertThat(planner.getEdge("ds1").endTimeMicros, is(3L));
+    assertThat(planner.getEdge("ds3").startTimeMicros, is(4L));
+  }
+
+  @Test
+  public void testReplicasNeedCommonHost() {
+    Map<String, Set<String>> hosts = ImmutableMap.of(
+        "ds1", ImmutableSet.of("host1"),
+        "ds2", ImmutableSet.of("host2"));
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, Arrays.asList("ds1", "ds2")), 10, 1, hosts::get);
+
+    assertThat(getDestinations(planner.startCopies(1)), contains("ds1"));
+    planner.copyFinished("ds1", 2);
+
+    // ds1 is not reachable from host2, so ds2 waits for the source datastore
+    assertThat(getDestinations(planner.startCopies(3)), contains("ds2"));
+    assertThat(planner.getEdge("ds2").sourceDataStore, is(SOURCE));
+  }
+
+  @Test
+  public void testFailedCopyIsRetriedFromAnotherSource() {
+    Set<String> allHosts = ImmutableSet.of("host1");
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, Arrays.asList("ds1", "ds2")), 10, 10, datastore -> allHosts);
+
+    planner.startCopies(1);
+    planner.copyFinished("ds1", 2);
+    planner.copyFailed("ds2", 2);
+
+    ImageReplicatorService.ReplicationEdge edge = planner.getEdge("ds2");
+    assertThat(edge.stage, is(TaskStage.CREATED));
+    assertThat(edge.failedSources, contains(SOURCE));
+
+    assertThat(getDestinations(planner.startCopies(3)), contains("ds2"));
+    assertThat(edge.sourceDataStore, is("ds1"));
+    assertThat(edge.attempts, is(2));
+
+    planner.copyFailed("ds2", 4);
+    assertThat(planner.startCopies(5), is(empty()));
+    assertThat(edge.stage, is(TaskStage.FAILED));
+    assertThat(planner.getFailedCount(), is(1));
+    assertThat(planner.getFinishedCount(), is(1));
+  }
+
+  @Test
+  public void testCopyWaitsForRunningCopiesBeforeFailing() {
+    Set<String> allHosts = ImmutableSet.of("host1");
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, Arrays.asList("ds1", "ds2")), 10, 10, datastore -> allHosts);
+
+    planner.startCopies(1);
+    planner.copyFailed("ds1", 2);
+
+    // ds2 may still become a source for ds1
+    assertThat(planner.startCopies(3), is(empty()));
+    assertThat(planner.getEdge("ds1").stage, is(TaskStage.CREATED));
+
+    planner.copyFinished("ds2", 4);
+    assertThat(getDestinations(planner.startCopies(5)), contains("ds1"));
+    assertThat(planner.getEdge("ds1").sourceDataStore, is("ds2"));
+  }
+
+  @Test
+  public void testUnknownHostsCopyFromSource() {
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, Arrays.asList("ds1", "ds2")), 1, 10,
+        datastore -> {
+          throw new RuntimeException("GetHostsForDatastore error");
+        });
+
+    List<ImageReplicatorService.ReplicationEdge> started = planner.startCopies(1);
+    assertThat(getDestinations(started), contains("ds1", "ds2"));
+    for (ImageReplicatorService.ReplicationEdge edge : started) {
+      assertThat(edge.sourceDataStore, is(SOURCE));
+      assertThat(edge.host, nullValue());
+    }
+
+    planner.copyFinished("ds1", 2);
+    planner.copyFailed("ds2", 2);
+    assertThat(planner.startCopies(3), is(empty()));
+    assertThat(planner.getEdge("ds2").stage, is(TaskStage.FAILED));
+  }
+
+  @Test
+  public void testPlanIsCopied() {
+    List<ImageReplicatorService.ReplicationEdge> plan =
+        ImageReplicationPlanner.createPlan(SOURCE, Arrays.asList("ds1"));
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE, plan, 1, 1, datastore -> null);
+
+    planner.startCopies(1);
+    assertThat(plan.get(0).stage, is(TaskStage.CREATED));
+    assertThat(planner.getPlan().get(0).stage, is(TaskStage.STARTED));
+  }
+
+  /**
+   * Replicates an image to 100 datastores over simulated links, and compares the tree planned with the copies all
+   * reading from the source datastore, as replication used to. Every copy shares the bandwidth of the datastores it
+   * reads from and writes to, and of the host performing it.
+   */
+  @Test
+  public void testFanOutWithSimulatedBandwidth() {
+    int datastoreCount = 100;
+    int hostCount = 50;
+    Map<String, Set<String>> hosts = new HashMap<>();
+    List<String> destinations = new ArrayList<>();
+    for (int i = 0; i < datastoreCount; i++) {
+      String datastore = "ds" + i;
+      destinations.add(datastore);
+      hosts.put(datastore, ImmutableSet.of("host" + (i % hostCount), "host" + ((i + 1) % hostCount)));
+    }
+
+    SimulatedLinks links = new SimulatedLinks(100.0, 200.0, 1000.0);
+    double treeSeconds = links.replicate(new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, destinations), 4, 4, hosts::get));
+    // Without known hosts, every copy reads from the source datastore
+    double starSeconds = links.replicate(new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, destinations), 4, datastoreCount, datastore -> null));
+
+    logger.info("Replication to {} datastores: {}s as a tree, {}s from the source datastore",
+        datastoreCount, String.format("%.1f", treeSeconds), String.format("%.1f", starSeconds));
+    assertThat(treeSeconds, lessThan(starSeconds / 2));
+    assertThat(links.maxHostCopies, lessThanOrEqualTo(4));
+  }
+
+  @Test
+  public void testFanOutRoutesAroundFailedDatastore() {
+    Set<String> allHosts = ImmutableSet.of("host1", "host2");
+    List<String> destinations = Arrays.asList("ds1", "ds2", "ds3", "ds4", "ds5", "ds6");
+    ImageReplicationPlanner planner = new ImageReplicationPlanner(SOURCE,
+        ImageReplicationPlanner.createPlan(SOURCE, destinations), 4, 2, datastore -> allHosts);
+
+    SimulatedLinks links = new SimulatedLinks(100.0, 100.0, 100.0);
+    links.failedDatastores.add("ds2");
+    links.replicate(planner);
+
+    assertThat(planner.getEdge("ds2").stage, is(TaskStage.FAILED));
+    assertThat(planner.getFailedCount(), is(1));
+    assertThat(planner.getFinishedCount(), is(destinations.size() - 1));
+    for (ImageReplicatorService.ReplicationEdge edge : planner.getPlan()) {
+      assertThat(edge.sourceDataStore, not("ds2"));
+    }
+  }
+
+  private static List<String> getDestinations(List<ImageReplicatorService.ReplicationEdge> edges) {
+    List<String> destinations = new ArrayList<>();
+    for (ImageReplicatorService.ReplicationEdge edge : edges) {
+      destinations.add(edge.destinationDataStore);
+    }
+    return destinations;
+  }
+
+  /**
+   * Simulates the copies of a replication: each copy progresses at the bandwidth of the most contended of its source
+   * datastore, destination datastore and host, shared equally among the copies using them. Copies to a failed
+   * datastore fail when they complete.
+   */
+  private static class SimulatedLinks {
+    private final double imageMb;
+    private final double datastoreMbps;
+    private final double hostMbps;
+    private final Set<String> failedDatastores = new HashSet<>();
+    private int maxHostCopies;
+
+    private SimulatedLinks(double datastoreMbps, double hostMbps, double imageMb) {
+      this.datastoreMbps = datastoreMbps;
+      this.hostMbps = hostMbps;
+      this.imageMb = imageMb;
+    }
+
+    /**
+     * @return the time for the replication to complete, in seconds
+     */
+    private double replicate(ImageReplicationPlanner planner) {
+      Map<String, Double> remainingMb = new HashMap<>();
+      double seconds = 0;
+      startCopies(planner, seconds, remainingMb);
+      while (!remainingMb.isEmpty()) {
+        Map<String, Integer> linkCopies = new HashMap<>();
+        for (String destination : remainingMb.keySet()) {
+          for (String link : getLinks(planner.getEdge(destination))) {
+            linkCopies.merge(link, 1, Integer::sum);
+          }
+        }
+        for (Map.Entry<String, Integer> entry : linkCopies.entrySet()) {
+          if (entry.getKey().startsWith("host:")) {
+            maxHostCopies = Math.max(maxHostCopies, entry.getValue());
+          }
+        }
+
+        // Advance to the next completed copy
+        Map<String, Double> rates = new HashMap<>();
+        double step = Double.MAX_VALUE;
+        for (Map.Entry<String, Double> entry : remainingMb.entrySet()) {
+          double rate = Double.MAX_VALUE;
+          for (String link : getLinks(planner.getEdge(entry.getKey()))) {
+            double bandwidth = link.startsWith("host:") ? hostMbps : datastoreMbps;
+            rate = Math.min(rate, bandwidth / linkCopies.get(link));
+          }
+          rates.put(entry.getKey(), rate);
+          step = Math.min(step, entry.getValue() / rate);
+        }
+
+        seconds += step;
+        long nowMicros = (long) (seconds * 1000000);
+        for (String destination : new ArrayList<>(remainingMb.keySet())) {
+          double remaining = remainingMb.get(destination) - rates.get(destination) * step;
+          if (remaining > 1e-6) {
+            remainingMb.put(destination, remaining);
+            continue;
+          }
+
+          remainingMb.remove(destination);
+          if (failedDatastores.contains(destination)) {
+            planner.copyFailed(destination, nowMicros);
+          } else {
+            planner.copyFinished(destination, nowMicros);
+          }
+        }
+
+        startCopies(planner, seconds, remainingMb);
+      }
+
+      for (ImageReplicatorService.ReplicationEdge edge : planner.getPlan()) {
+        assertThat(edge.stage, is(failedDatastores.contains(edge.destinationDataStore)
+            ? TaskStage.FAILED : TaskStage.FINISHED));
+      }
+      return seconds;
+    }
+
+    private void startCopies(ImageReplicationPlanner planner, double seconds, Map<String, Double> remainingMb) {
+      for (ImageReplicatorService.ReplicationEdge edge : planner.startCopies((long) (seconds * 1000000))) {
+        remainingMb.put(edge.destinationDataStore, imageMb);
+      }
+    }
+
+    private static List<String> getLinks(ImageReplicatorService.ReplicationEdge edge) {
+      List<String> links = new ArrayList<>();
+      links.add("datastore:" + edge.sourceDataStore);
+      links.add("datastore:" + edge.destinationDataStore);
+      if (edge.host != null) {
+        links.add("host:" + edge.host);
+      }
+      return links;
+    }
+  }
+}
@@ -1119,6 +1119,11 @@ public class ImageReplicatorServiceTest {
       assertThat(response.dataStoreCount, notNullValue());
       assertThat(response.finishedCopies, is(response.dataStoreCount));
       assertTrue(response.failedOrCanceledCopies == null || response.failedOrCanceledCopies == 0);
+      assertThat(response.replicationPlan.size(), is(response.dataStoreCount));
+      for (ImageReplicatorService.ReplicationEdge edge : response.replicationPlan) {
+        assertThat(edge.stage, is(ImageReplicatorService.TaskState.TaskStage.FINISHED));
+        assertThat(edge.attempts, is(1));
+      }
 
       // Check stats.
       ServiceStats stats = machine.getOwnerServiceStats(response);
@@ -14,7 +14,7 @@
 package com.vmware.photon.controller.housekeeper.dcp.mock;
 
 import com.vmware.photon.controller.common.clients.HostClient;
-import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
+import com.vmware.photon.controller.common.clients.HostClientPoolRegistry;
 import com.vmware.photon.controller.common.thrift.ClientProxyFactory;
 import com.vmware.photon.controller.common.zookeeper.ZookeeperServerSetFactory;
 import com.vmware.photon.controller.host.gen.CopyImageResponse;
@@ -84,7 +84,7 @@ public class HostClientMock extends HostClient {
   private Map<String, List<String>> imageListForGetImagesRequest;
 
   public HostClientMock() {
-    super(mock(ClientProxyFactory.class), mock(ClientPoolFactory.class), mock(ZookeeperServerSetFactory.class));
+    super(mock(ClientProxyFactory.class), mock(HostClientPoolRegistry.class), mock(ZookeeperServerSetFactory.class));
     state = Collections.synchronizedMap(new HashMap<>());
     copyImageResultCode = CopyImageResultCode.OK;
     getImagesResultCode = GetImagesResultCode.OK;
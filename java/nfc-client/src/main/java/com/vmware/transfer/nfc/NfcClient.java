@@ -13,6 +13,8 @@
 
 package com.vmware.transfer.nfc;
 
+import com.vmware.transfer.streamVmdk.GrainReader;
+import com.vmware.transfer.streamVmdk.ParallelStreamVmdkReader;
 import com.vmware.transfer.streamVmdk.StreamVmdkReader;
 import com.vmware.transfer.streamVmdk.VmdkFormatException;
 
@@ -115,6 +117,12 @@ public class NfcClient implements AutoCloseable {
   protected NfcClient() {
   }
 
+  @VisibleForTesting
+  protected NfcClient(ReadableByteChannel input, WritableByteChannel output) {
+    this.input = input;
+    this.output = output;
+  }
+
   public NfcClient(HostServiceTicket ticket, int timeoutMs) throws IOException {
     checkArgument(ticket != null, "Null ticket passed to NfcClient().");
     logger.debug("Connecting to {} on {}:{}", ticket.getService(), ticket.getHost(),
@@ -193,14 +201,38 @@ public class NfcClient implements AutoCloseable {
       String filePath,
       InputStream inputStream)
       throws IOException, VmdkFormatException {
+    return putStreamOptimizedDisk(filePath, inputStream, 1);
+  }
+
+  /**
+   * Upload image to remote datastore as a disk, inflating its grains on a pool of threads while the previous grains
+   * are sent. The uploaded disk is the same as with {@link #putStreamOptimizedDisk(String, InputStream)}.
+   *
+   * @param filePath       image datastore path
+   * @param inputStream    input stream of image
+   * @param inflateThreads number of threads inflating grains, 1 inflates them on the calling thread
+   * @return number of bytes uploaded
+   */
+  public long putStreamOptimizedDisk(
+      String filePath,
+      InputStream inputStream,
+      int inflateThreads)
+      throws IOException, VmdkFormatException {
+    checkArgument(inflateThreads > 0, "inflateThreads must be positive");
     StreamVmdkReader disk = getStreamVmdkReader(inputStream);
 
     DiskWriter writer = null;
+    ParallelStreamVmdkReader parallelDisk = null;
     try {
       writer = putDisk(filePath, disk.getAdapterType(), disk.getCapacityInSectors());
       writer.writeDdb(disk.getDdb());
+      GrainReader grains = disk;
+      if (inflateThreads > 1) {
+        parallelDisk = new ParallelStreamVmdkReader(disk, inflateThreads);
+        grains = parallelDisk;
+      }
       byte[] grain = new byte[disk.getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE];
-      int grainSize = disk.getNextGrain(grain);
+      int grainSize = grains.getNextGrain(grain);
       int grainCount = 0;
       while (grainSize >= 0) {
         grainCount++;
@@ -211,12 +243,12 @@ public class NfcClient implements AutoCloseable {
               grainSize);
         }
         if (grainSize > 0) {
-          long lba = disk.getCurrentLba();
+          long lba = grains.getCurrentLba();
           for (int offset = 0; offset < grainSize; offset += SparseUtil.DISKLIB_SECTOR_SIZE) {
             writer.writeGrain(lba++, grain, offset);
           }
         }
-        grainSize = disk.getNextGrain(grain);
+        grainSize = grains.getNextGrain(grain);
       }
       logger.debug("NfcClient putStreamOptimizedDisk for file {} write complete on grain count/size {}/{}", filePath,
           grainCount, grainSize);
@@ -227,6 +259,9 @@ public class NfcClient implements AutoCloseable {
       logger.error("Remote host closed connection while uploading to datastore (could be of out of space): {}", e);
       throw e;
     } finally {
+      if (parallelDisk != null) {
+        parallelDisk.close();
+      }
       if (writer != null) {
         writer.close();
       }
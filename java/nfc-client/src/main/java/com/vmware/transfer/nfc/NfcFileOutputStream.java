@@ -17,16 +17,27 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * NfcFileOutputStream implements a stream used to write a file to a NFC server.
+ * <p>
+ * Written data is coalesced into FILE_DATA messages of up to {@link NfcClient#MAX_XFER_SIZE} bytes, which are sent
+ * when full, on {@link #flush()} and on {@link #close()}. Each message, including its NFC and FILE_DATA headers, is
+ * assembled in a direct buffer taken from a small pool shared by all the streams.
  */
 public class NfcFileOutputStream extends OutputStream {
-  private static final byte[] EOF_MARKER = new byte[0];
+  private static final int FILE_DATA_HDR_SIZE = 8;
+  private static final int DATA_OFFSET = NfcClient.NFC_MESSAGE_SIZE + FILE_DATA_HDR_SIZE;
+  private static final int BUFFER_SIZE = DATA_OFFSET + NfcClient.MAX_XFER_SIZE;
+  private static final int MAX_POOLED_BUFFERS = 8;
+
+  private static final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
 
   private final NfcClient nfcClient;
-  private final ByteBuffer nfcMessage;
-  private final ByteBuffer fileDataHdr;
+  private ByteBuffer buffer;
+  private int bufferedLength;
 
   // when autoClose set to true, after finish streaming the file, close NfcClient.
   private final boolean autoClose;
@@ -37,15 +48,19 @@ public class NfcFileOutputStream extends OutputStream {
 
   public NfcFileOutputStream(NfcClient nfcClient, boolean autoClose) {
     this.nfcClient = nfcClient;
-    nfcMessage = nfcClient.newNfcMsg(NfcClient.NFC_FILE_DATA);
-    fileDataHdr = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    this.buffer = acquireBuffer();
+    this.buffer.put(nfcClient.newNfcMsg(NfcClient.NFC_FILE_DATA).array());
+    this.buffer.putInt(NfcClient.FILE_DATA_HDR_MAGIC);
     this.autoClose = autoClose;
   }
 
   @Override
   public void write(int b) throws IOException {
-    byte[] data = {(byte) b};
-    write(data);
+    ensureOpen();
+    if (bufferedLength == NfcClient.MAX_XFER_SIZE) {
+      sendFileData();
+    }
+    buffer.put(DATA_OFFSET + bufferedLength++, (byte) b);
   }
 
   @Override
@@ -54,39 +69,87 @@ public class NfcFileOutputStream extends OutputStream {
   }
 
   /**
-   * Write data. FILE_DATA message is sent immediately, so caller should buffer as necessary.
+   * Write data. Data is buffered until a full FILE_DATA message can be sent.
    */
+  @Override
   public void write(byte[] data, int offset, int length) throws IOException {
     assert data.length >= offset + length;
+    ensureOpen();
     while (length > 0) {
-      int toWrite = Math.min(length, NfcClient.MAX_XFER_SIZE);
-      writeInt(data, offset, toWrite);
-      offset += toWrite;
-      length -= toWrite;
+      if (bufferedLength == NfcClient.MAX_XFER_SIZE) {
+        sendFileData();
+      }
+      int toCopy = Math.min(length, NfcClient.MAX_XFER_SIZE - bufferedLength);
+      buffer.position(DATA_OFFSET + bufferedLength);
+      buffer.put(data, offset, toCopy);
+      bufferedLength += toCopy;
+      offset += toCopy;
+      length -= toCopy;
     }
   }
 
-  private void writeInt(byte[] data, int offset, int length) throws IOException {
-    assert data.length >= offset + length;
-    assert length <= NfcClient.MAX_XFER_SIZE;
-    fileDataHdr.clear();
-    fileDataHdr.putInt(NfcClient.FILE_DATA_HDR_MAGIC);
-    fileDataHdr.putInt(length);
-    fileDataHdr.flip();
-    ByteBuffer dataBuffer = ByteBuffer.wrap(data, offset, length);
-    nfcClient.sendNfcMsg(nfcMessage);
-    nfcClient.writeFully(fileDataHdr);
-    nfcClient.writeFully(dataBuffer);
+  /**
+   * Send the buffered data as a FILE_DATA message.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (bufferedLength > 0) {
+      sendFileData();
+    }
   }
 
   @Override
   public void close() throws IOException {
-    writeInt(EOF_MARKER, 0, 0);
-    // Receive completion message from server
-    ByteBuffer reply = this.nfcClient.readNfcResponse();
-    this.nfcClient.validateReplyCode(reply, NfcClient.NFC_PUTFILE_DONE);
+    if (buffer == null) {
+      return;
+    }
+
+    try {
+      flush();
+      // An empty FILE_DATA message marks the end of the file
+      sendFileData();
+      // Receive completion message from server
+      ByteBuffer reply = this.nfcClient.readNfcResponse();
+      this.nfcClient.validateReplyCode(reply, NfcClient.NFC_PUTFILE_DONE);
+    } finally {
+      releaseBuffer(buffer);
+      buffer = null;
+    }
+
     if (autoClose) {
       this.nfcClient.close();
     }
   }
+
+  /**
+   * The buffer goes back to the pool on close and may already be used by another stream.
+   */
+  private void ensureOpen() throws IOException {
+    if (buffer == null) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private void sendFileData() throws IOException {
+    buffer.putInt(NfcClient.NFC_MESSAGE_SIZE + 4, bufferedLength);
+    buffer.position(0);
+    buffer.limit(DATA_OFFSET + bufferedLength);
+    nfcClient.writeFully(buffer);
+    buffer.limit(buffer.capacity());
+    bufferedLength = 0;
+  }
+
+  private static ByteBuffer acquireBuffer() {
+    ByteBuffer pooled = bufferPool.poll();
+    if (pooled == null) {
+      return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    pooled.clear();
+    return pooled;
+  }
+
+  private static void releaseBuffer(ByteBuffer released) {
+    bufferPool.offer(released);
+  }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.streamVmdk;
+
+import java.io.IOException;
+
+/**
+ * GrainReader returns the inflated grains of a stream-optimized VMDK in stream order.
+ */
+public interface GrainReader {
+
+  /**
+   * Reads the next grain.
+   *
+   * @param grain buffer of at least the grain size of the disk, receives the inflated grain
+   * @return size of the inflated grain, 0 for a progress marker, or -1 at the end of the stream
+   */
+  int getNextGrain(byte[] grain) throws VmdkFormatException, IOException;
+
+  /**
+   * @return LBA of the grain returned by the last call to {@link #getNextGrain(byte[])}
+   */
+  long getCurrentLba();
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.streamVmdk;
+
+import com.vmware.transfer.nfc.SparseUtil;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Inflater;
+
+/**
+ * ParallelStreamVmdkReader reads the grains of a stream-optimized VMDK on a reader thread and inflates them on a pool
+ * of worker threads, while the caller consumes the grains in stream order. At most a bounded number of grains are
+ * read ahead of the caller, so memory use does not depend on the size of the disk.
+ * <p/>
+ * The grains returned are the same, in the same order, as the ones returned by the {@link StreamVmdkReader} itself.
+ */
+public class ParallelStreamVmdkReader implements GrainReader, AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(ParallelStreamVmdkReader.class);
+
+  // Grains read ahead of the caller, per inflate thread
+  private static final int GRAINS_PER_THREAD = 4;
+
+  private final StreamVmdkReader disk;
+  private final int grainBytes;
+  private final ExecutorService inflatePool;
+  private final Thread readerThread;
+  private final BlockingQueue<CompletableFuture<InflatedGrain>> grains;
+  private final Queue<StreamVmdkReader.CompressedGrain> freeCompressedGrains = new ConcurrentLinkedQueue<>();
+  private final Queue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+  // Inflaters not in use by an inflate task, guarded by itself
+  private final Deque<Inflater> freeInflaters = new ArrayDeque<>();
+  private long currentLba;
+  private boolean endOfStream;
+  private volatile boolean closed;
+  // The grain the caller waits for, completed exceptionally on close so that the caller does not wait forever
+  private volatile CompletableFuture<InflatedGrain> pendingGrain;
+
+  public ParallelStreamVmdkReader(StreamVmdkReader disk, int inflateThreads) {
+    this.disk = disk;
+    this.grainBytes = disk.getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE;
+    this.currentLba = disk.getCurrentLba();
+    this.grains = new ArrayBlockingQueue<>(inflateThreads * GRAINS_PER_THREAD);
+    this.inflatePool = Executors.newFixedThreadPool(inflateThreads,
+        new ThreadFactoryBuilder().setNameFormat("StreamVmdkInflate-%d").setDaemon(true).build());
+    this.readerThread = new ThreadFactoryBuilder().setNameFormat("StreamVmdkReader-%d").setDaemon(true).build()
+        .newThread(this::readGrains);
+    this.readerThread.start();
+  }
+
+  @Override
+  public int getNextGrain(byte[] grain) throws VmdkFormatException, IOException {
+    if (endOfStream) {
+      return -1;
+    }
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+
+    InflatedGrain next;
+    try {
+      pendingGrain = grains.take();
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      next = pendingGrain.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading grains");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof GrainInflateException) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof VmdkFormatException) {
+        throw (VmdkFormatException) cause;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      pendingGrain = null;
+    }
+
+    if (next == null) {
+      endOfStream = true;
+      return -1;
+    }
+
+    currentLba = next.lba;
+    if (next.data != null) {
+      System.arraycopy(next.data, 0, grain, 0, next.size);
+      freeBuffers.offer(next.data);
+    }
+    return next.size;
+  }
+
+  @Override
+  public long getCurrentLba() {
+    return currentLba;
+  }
+
+  /**
+   * Stops reading and inflating grains. A caller blocked in {@link #getNextGrain(byte[])} is woken up with an
+   * IOException, the inflaters are ended once their inflate task is done.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    readerThread.interrupt();
+    inflatePool.shutdownNow();
+
+    // Grains queued for tasks the pool dropped never complete
+    IOException closedException = new IOException("Stream closed");
+    CompletableFuture<InflatedGrain> grain;
+    while ((grain = grains.poll()) != null) {
+      grain.completeExceptionally(closedException);
+    }
+    CompletableFuture<InflatedGrain> closedGrain = new CompletableFuture<>();
+    closedGrain.completeExceptionally(closedException);
+    grains.offer(closedGrain);
+    grain = pendingGrain;
+    if (grain != null) {
+      grain.completeExceptionally(closedException);
+    }
+
+    synchronized (freeInflaters) {
+      for (Inflater inflater : freeInflaters) {
+        inflater.end();
+      }
+      freeInflaters.clear();
+    }
+  }
+
+  /**
+   * Reads the grains from the stream and queues them for inflation, in stream order. The end of the stream is
+   * queued as a null grain.
+   */
+  private void readGrains() {
+    try {
+      while (true) {
+        StreamVmdkReader.CompressedGrain compressedGrain = freeCompressedGrains.poll();
+        if (compressedGrain == null) {
+          compressedGrain = new StreamVmdkReader.CompressedGrain();
+        }
+
+        int cmpSize = disk.readNextGrain(compressedGrain);
+        if (cmpSize < 0) {
+          grains.put(CompletableFuture.completedFuture(null));
+          return;
+        }
+
+        if (cmpSize == 0) {
+          grains.put(CompletableFuture.completedFuture(new InflatedGrain(compressedGrain.getLba(), null, 0)));
+          freeCompressedGrains.offer(compressedGrain);
+          continue;
+        }
+
+        final StreamVmdkReader.CompressedGrain toInflate = compressedGrain;
+        grains.put(CompletableFuture.supplyAsync(() -> inflate(toInflate), inflatePool));
+      }
+    } catch (InterruptedException e) {
+      logger.debug("Stopped reading grains");
+    } catch (Throwable t) {
+      CompletableFuture<InflatedGrain> failure = new CompletableFuture<>();
+      failure.completeExceptionally(t);
+      try {
+        grains.put(failure);
+      } catch (InterruptedException e) {
+        // The caller stopped consuming grains
+        logger.debug("Failed to read grains", t);
+      }
+    }
+  }
+
+  private InflatedGrain inflate(StreamVmdkReader.CompressedGrain compressedGrain) {
+    byte[] buffer = freeBuffers.poll();
+    if (buffer == null) {
+      buffer = new byte[grainBytes];
+    }
+
+    Inflater inflater = acquireInflater();
+    try {
+      int size = StreamVmdkReader.inflate(compressedGrain, buffer, inflater);
+      return new InflatedGrain(compressedGrain.getLba(), buffer, size);
+    } catch (VmdkFormatException e) {
+      throw new GrainInflateException(e);
+    } finally {
+      releaseInflater(inflater);
+      freeCompressedGrains.offer(compressedGrain);
+    }
+  }
+
+  /**
+   * Takes a free inflater, there are at most as many inflaters as inflate threads.
+   */
+  private Inflater acquireInflater() {
+    synchronized (freeInflaters) {
+      Inflater inflater = freeInflaters.poll();
+      return inflater != null ? inflater : new Inflater();
+    }
+  }
+
+  /**
+   * Returns an inflater to the free inflaters, or ends it when the reader is closed.
+   */
+  private void releaseInflater(Inflater inflater) {
+    synchronized (freeInflaters) {
+      if (closed) {
+        inflater.end();
+      } else {
+        freeInflaters.push(inflater);
+      }
+    }
+  }
+
+  /**
+   * An inflated grain, or a progress marker when it has no data.
+   */
+  private static class InflatedGrain {
+    private final long lba;
+    private final byte[] data;
+    private final int size;
+
+    private InflatedGrain(long lba, byte[] data, int size) {
+      this.lba = lba;
+      this.data = data;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Carries a {@link VmdkFormatException} out of an inflate task.
+   */
+  private static class GrainInflateException extends RuntimeException {
+    private GrainInflateException(VmdkFormatException cause) {
+      super(cause);
+    }
+  }
+}
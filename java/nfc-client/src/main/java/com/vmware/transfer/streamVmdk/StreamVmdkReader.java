@@ -31,8 +31,11 @@ import java.util.zip.Inflater;
 /**
  * StreamVmdkReader reads stream-optimized VMDKs. Used for converting disks
  * during upload to ESX via NFC.
+ * <p/>
+ * Grains can be read without being inflated with {@link #readNextGrain(CompressedGrain)}, and inflated later, on any
+ * thread, with {@link #inflate(CompressedGrain, byte[], Inflater)}.
  */
-public class StreamVmdkReader {
+public class StreamVmdkReader implements GrainReader {
   // TODO(jandersen): NIO
   private DataInputStream input;
   private long capacity;
@@ -40,6 +43,9 @@ public class StreamVmdkReader {
   private long currentLba;
   private String adapterType;
   private Map<String, String> ddb;
+  private final CompressedGrain compressedGrain = new CompressedGrain();
+  // Reset and reused for every grain, ended at the end of the stream or on close
+  private Inflater inflater;
 
   public StreamVmdkReader(InputStream input) throws VmdkFormatException, IOException {
     this.input = new DataInputStream(input);
@@ -156,7 +162,28 @@ public class StreamVmdkReader {
     return (int) grainSize;
   }
 
+  @Override
   public int getNextGrain(byte[] grain) throws VmdkFormatException, IOException {
+    int cmpSize = readNextGrain(compressedGrain);
+    if (cmpSize < 0) {
+      endInflater();
+    }
+    if (cmpSize <= 0) {
+      return cmpSize;
+    }
+    if (inflater == null) {
+      inflater = new Inflater();
+    }
+    return inflate(compressedGrain, grain, inflater);
+  }
+
+  /**
+   * Read the next grain without inflating it.
+   *
+   * @param compressedGrain receives the compressed grain and its LBA, its buffer is grown as needed
+   * @return compressed size of the grain, 0 for a progress marker, or -1 at the end of the stream
+   */
+  public int readNextGrain(CompressedGrain compressedGrain) throws VmdkFormatException, IOException {
     byte[] headerBytes = new byte[12];
     readFully(headerBytes);
     ByteBuffer header = ByteBuffer.wrap(headerBytes);
@@ -165,7 +192,7 @@ public class StreamVmdkReader {
     int cmpSize = header.getInt();
 
     // Sanity check
-    if (cmpSize > grain.length * 3) {
+    if (cmpSize > grainSize * SparseUtil.DISKLIB_SECTOR_SIZE * 3) {
       throw new VmdkFormatException("Disk format error: Invalid grain size");
     }
 
@@ -184,6 +211,8 @@ public class StreamVmdkReader {
       if (type == SparseUtil.GRAIN_MARKER_PROGRESS) {
         // Update current LBA, and let the caller know something's happening.
         currentLba = value;
+        compressedGrain.lba = value;
+        compressedGrain.size = 0;
         return 0;
       }
       // Some other metadata grain (GT/GD). Skip to next grain and retry from there.
@@ -198,17 +227,12 @@ public class StreamVmdkReader {
       cmpSize = header.getInt();
     }
     assert cmpSize > 0;
-    byte[] cmpBytes = new byte[cmpSize];
-    readFully(cmpBytes);
-    Inflater inf = new Inflater();
-    inf.setInput(cmpBytes);
-    int grainSize = -1;
-    try {
-      grainSize = inf.inflate(grain);
-    } catch (DataFormatException e) {
-      throw new VmdkFormatException("Zlib error: " + e.getMessage(), e);
+    if (compressedGrain.data.length < cmpSize) {
+      compressedGrain.data = new byte[cmpSize];
     }
-    inf.end();
+    readFully(compressedGrain.data, cmpSize);
+    compressedGrain.lba = sector;
+    compressedGrain.size = cmpSize;
 
     long totalGrainSize = 12 + cmpSize;
     long paddingSize = ((totalGrainSize + 512 - 1) / 512) * 512 - totalGrainSize;
@@ -216,22 +240,71 @@ public class StreamVmdkReader {
       paddingSize -= input.skip(paddingSize);
     }
     currentLba = sector;
-    return grainSize;
+    return cmpSize;
+  }
+
+  /**
+   * Inflate a grain read by {@link #readNextGrain(CompressedGrain)}. Safe to call from multiple threads as long as
+   * they use different inflaters.
+   *
+   * @param compressedGrain grain to inflate
+   * @param grain           buffer of at least the grain size of the disk, receives the inflated grain
+   * @param inf             inflater owned by the caller, it is reset before use
+   * @return size of the inflated grain
+   */
+  public static int inflate(CompressedGrain compressedGrain, byte[] grain, Inflater inf) throws VmdkFormatException {
+    inf.reset();
+    inf.setInput(compressedGrain.data, 0, compressedGrain.size);
+    try {
+      return inf.inflate(grain);
+    } catch (DataFormatException e) {
+      throw new VmdkFormatException("Zlib error: " + e.getMessage(), e);
+    }
   }
 
   private void readFully(byte[] buffer) throws IOException, VmdkFormatException {
+    readFully(buffer, buffer.length);
+  }
+
+  private void readFully(byte[] buffer, int length) throws IOException, VmdkFormatException {
     try {
-      input.readFully(buffer);
+      input.readFully(buffer, 0, length);
     } catch (EOFException e) {
       throw new VmdkFormatException("Unexpected end of file", e);
     }
   }
 
+  @Override
   public long getCurrentLba() {
     return currentLba;
   }
 
   public void close() throws IOException {
+    endInflater();
     input.close();
   }
+
+  private void endInflater() {
+    if (inflater != null) {
+      inflater.end();
+      inflater = null;
+    }
+  }
+
+  /**
+   * A grain read from the stream and not inflated yet.
+   */
+  public static class CompressedGrain {
+    private byte[] data = new byte[0];
+    private int size;
+    private long lba;
+
+    public int getSize() {
+      return size;
+    }
+
+    public long getLba() {
+      return lba;
+    }
+  }
 }
@@ -53,6 +53,9 @@ public class StreamVmdkWriter {
   private ByteBuffer currentGrainTable;
   private ByteBuffer grainDirectory;
   private ByteBuffer grainHeader;
+  // Reused for every data grain
+  private final Deflater deflater = new Deflater();
+  private byte[] compressed;
 
   public StreamVmdkWriter(final OutputStream output, long capacitySectors) {
     this.output = new DataOutputStream(output);
@@ -104,9 +107,11 @@ public class StreamVmdkWriter {
          * approximate it conservatively as 2**-9 == .195% + 13.
          */
     int maxSize = grain.length + (grain.length >> 9) + 13;
-    byte[] compressed = new byte[maxSize];
+    if (compressed == null || compressed.length < maxSize) {
+      compressed = new byte[maxSize];
+    }
 
-    Deflater deflater = new Deflater();
+    deflater.reset();
     deflater.setInput(grain);
     deflater.finish();
     int cmpSize = deflater.deflate(compressed, 0, maxSize, Deflater.SYNC_FLUSH);
@@ -173,6 +178,7 @@ public class StreamVmdkWriter {
   }
 
   public void close() throws IOException {
+    deflater.end();
     output.close();
   }
 
@@ -13,6 +13,7 @@
 
 package com.vmware.transfer.nfc;
 
+import com.vmware.transfer.streamVmdk.ParallelStreamVmdkReaderTest;
 import com.vmware.transfer.streamVmdk.StreamVmdkReader;
 
 import org.mockito.InOrder;
@@ -31,7 +32,12 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -69,4 +75,32 @@ public class NfcClientTest extends PowerMockTestCase {
     inOrder.verify(writer).close();
     inOrder.verify(nfcClient).abort();
   }
+
+  @Test
+  public void testPutStreamOptimizedDiskInParallel() throws Exception {
+    byte[] disk = ParallelStreamVmdkReaderTest.createDisk(256);
+
+    byte[] expected = putStreamOptimizedDisk(disk, 1);
+    for (int threads : new int[]{2, 4, Runtime.getRuntime().availableProcessors()}) {
+      assertThat(Arrays.equals(putStreamOptimizedDisk(disk, threads), expected), is(true));
+    }
+  }
+
+  /**
+   * Uploads the disk to a client which answers the end of the disk with NFC_PUTFILE_DONE.
+   *
+   * @return the bytes sent by the client
+   */
+  private static byte[] putStreamOptimizedDisk(byte[] disk, int inflateThreads) throws Exception {
+    ByteBuffer reply = ByteBuffer.allocate(NfcClient.NFC_MESSAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    reply.putInt(NfcClient.NFC_PUTFILE_DONE);
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    NfcClient nfcClient = new NfcClient(Channels.newChannel(new ByteArrayInputStream(reply.array())),
+        Channels.newChannel(sent));
+
+    long bytes = nfcClient.putStreamOptimizedDisk("image destination path", new ByteArrayInputStream(disk),
+        inflateThreads);
+    assertThat(bytes, is(256L * SparseUtil.DEFAULT_GRAIN_SIZE_BYTES));
+    return sent.toByteArray();
+  }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.nfc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests {@link NfcFileOutputStream}.
+ */
+public class NfcFileOutputStreamTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(NfcFileOutputStreamTest.class);
+
+  @Test
+  public void testSingleByteWritesAreCoalesced() throws Exception {
+    byte[] data = randomBytes(2 * NfcClient.MAX_XFER_SIZE + 10);
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    try (NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(Channels.newChannel(sent)))) {
+      for (byte b : data) {
+        outputStream.write(b);
+      }
+    }
+
+    List<byte[]> messages = parseFileDataMessages(sent.toByteArray());
+    assertThat(getLengths(messages), contains(NfcClient.MAX_XFER_SIZE, NfcClient.MAX_XFER_SIZE, 10, 0));
+    assertThat(Arrays.equals(concat(messages), data), is(true));
+  }
+
+  @Test
+  public void testLargeWritesAreSplit() throws Exception {
+    byte[] data = randomBytes(NfcClient.MAX_XFER_SIZE + 100);
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    try (NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(Channels.newChannel(sent)))) {
+      outputStream.write(data, 0, 50);
+      outputStream.write(data, 50, data.length - 50);
+    }
+
+    List<byte[]> messages = parseFileDataMessages(sent.toByteArray());
+    assertThat(getLengths(messages), contains(NfcClient.MAX_XFER_SIZE, 100, 0));
+    assertThat(Arrays.equals(concat(messages), data), is(true));
+  }
+
+  @Test
+  public void testFlushSendsBufferedData() throws Exception {
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    try (NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(Channels.newChannel(sent)))) {
+      outputStream.write(new byte[]{1, 2, 3});
+      outputStream.flush();
+      outputStream.flush();
+      outputStream.write(4);
+    }
+
+    List<byte[]> messages = parseFileDataMessages(sent.toByteArray());
+    assertThat(getLengths(messages), contains(3, 1, 0));
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Stream closed")
+  public void testWriteByteAfterClose() throws Exception {
+    NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(new CountingChannel()));
+    outputStream.close();
+    outputStream.write(1);
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Stream closed")
+  public void testWriteBytesAfterClose() throws Exception {
+    NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(new CountingChannel()));
+    outputStream.close();
+    outputStream.write(new byte[]{1, 2, 3});
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Stream closed")
+  public void testFlushAfterClose() throws Exception {
+    NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(new CountingChannel()));
+    outputStream.close();
+    outputStream.flush();
+  }
+
+  @Test
+  public void testCloseTwice() throws Exception {
+    CountingChannel channel = new CountingChannel();
+    NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(channel));
+    outputStream.close();
+    outputStream.close();
+    assertThat(channel.bytes, is((long) NfcClient.NFC_MESSAGE_SIZE + 8));
+  }
+
+  /**
+   * Compares sending every byte in its own FILE_DATA message, as uploads used to, with bulk writes.
+   */
+  @Test
+  public void testThroughput() throws Exception {
+    int perByteSize = 256 * 1024;
+    CountingChannel perByteChannel = new CountingChannel();
+    long start = System.nanoTime();
+    try (NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(perByteChannel))) {
+      for (int i = 0; i < perByteSize; i++) {
+        outputStream.write(i);
+        outputStream.flush();
+      }
+    }
+    double perByteMbps = getMbps(perByteSize, System.nanoTime() - start);
+
+    int bulkSize = 64 * 1024 * 1024;
+    byte[] chunk = randomBytes(1024 * 1024);
+    CountingChannel bulkChannel = new CountingChannel();
+    start = System.nanoTime();
+    try (NfcFileOutputStream outputStream = new NfcFileOutputStream(loopbackClient(bulkChannel))) {
+      for (int written = 0; written < bulkSize; written += chunk.length) {
+        outputStream.write(chunk);
+      }
+    }
+    double bulkMbps = getMbps(bulkSize, System.nanoTime() - start);
+
+    logger.info("NFC upload throughput: {} MB/s per byte, {} MB/s bulk",
+        String.format("%.1f", perByteMbps), String.format("%.1f", bulkMbps));
+
+    int messageSize = NfcClient.NFC_MESSAGE_SIZE + 8;
+    assertThat(perByteChannel.bytes, is((long) (perByteSize + 1) * messageSize + perByteSize));
+    assertThat(bulkChannel.bytes, is((long) (bulkSize / NfcClient.MAX_XFER_SIZE + 1) * messageSize + bulkSize));
+    assertThat(bulkMbps, greaterThan(perByteMbps));
+  }
+
+  /**
+   * Creates a client which sends to the given channel and answers the end of the file with NFC_PUTFILE_DONE.
+   */
+  private static NfcClient loopbackClient(WritableByteChannel output) {
+    ByteBuffer reply = ByteBuffer.allocate(NfcClient.NFC_MESSAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    reply.putInt(NfcClient.NFC_PUTFILE_DONE);
+    return new NfcClient(Channels.newChannel(new ByteArrayInputStream(reply.array())), output);
+  }
+
+  private static List<byte[]> parseFileDataMessages(byte[] sent) {
+    ByteBuffer buffer = ByteBuffer.wrap(sent).order(ByteOrder.LITTLE_ENDIAN);
+    List<byte[]> messages = new ArrayList<>();
+    while (buffer.hasRemaining()) {
+      assertThat(buffer.getInt(buffer.position()), is(NfcClient.NFC_FILE_DATA));
+      buffer.position(buffer.position() + NfcClient.NFC_MESSAGE_SIZE);
+      assertThat(buffer.getInt(), is(NfcClient.FILE_DATA_HDR_MAGIC));
+      byte[] data = new byte[buffer.getInt()];
+      buffer.get(data);
+      messages.add(data);
+    }
+    return messages;
+  }
+
+  private static List<Integer> getLengths(List<byte[]> messages) {
+    List<Integer> lengths = new ArrayList<>();
+    for (byte[] message : messages) {
+      lengths.add(message.length);
+    }
+    return lengths;
+  }
+
+  private static byte[] concat(List<byte[]> messages) {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    for (byte[] message : messages) {
+      data.write(message, 0, message.length);
+    }
+    return data.toByteArray();
+  }
+
+  private static byte[] randomBytes(int size) {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  private static double getMbps(long bytes, long elapsedNanos) {
+    return bytes / (1024.0 * 1024.0) / (Math.max(elapsedNanos, 1) / 1e9);
+  }
+
+  /**
+   * Channel which discards the data written to it.
+   */
+  private static class CountingChannel implements WritableByteChannel {
+    private long bytes;
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      int written = src.remaining();
+      src.position(src.limit());
+      bytes += written;
+      return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.streamVmdk;
+
+import com.vmware.transfer.nfc.SparseUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link ParallelStreamVmdkReader}.
+ */
+public class ParallelStreamVmdkReaderTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelStreamVmdkReaderTest.class);
+
+  @Test
+  public void testGrainsMatchSerialReader() throws Exception {
+    byte[] disk = createDisk(64);
+
+    StreamVmdkReader serial = new StreamVmdkReader(new ByteArrayInputStream(disk));
+    try (ParallelStreamVmdkReader parallel =
+             new ParallelStreamVmdkReader(new StreamVmdkReader(new ByteArrayInputStream(disk)), 4)) {
+      byte[] expected = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+      byte[] actual = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+      int grains = 0;
+      int size;
+      do {
+        size = serial.getNextGrain(expected);
+        assertThat(parallel.getNextGrain(actual), is(size));
+        assertThat(parallel.getCurrentLba(), is(serial.getCurrentLba()));
+        if (size > 0) {
+          assertThat(Arrays.equals(actual, expected), is(true));
+          grains++;
+        }
+      } while (size >= 0);
+
+      assertThat(grains, is(32));
+      assertThat(parallel.getNextGrain(actual), is(-1));
+    }
+  }
+
+  @Test(expectedExceptions = VmdkFormatException.class)
+  public void testCorruptGrain() throws Exception {
+    byte[] disk = createDisk(8);
+    // Break the zlib header of the first data grain, which follows the header and descriptor grain
+    disk[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES + SparseUtil.STREAMED_GRAIN_HEADER_SIZE] = (byte) 0xff;
+    disk[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES + SparseUtil.STREAMED_GRAIN_HEADER_SIZE + 1] = (byte) 0xff;
+
+    try (ParallelStreamVmdkReader parallel =
+             new ParallelStreamVmdkReader(new StreamVmdkReader(new ByteArrayInputStream(disk)), 2)) {
+      byte[] grain = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+      while (parallel.getNextGrain(grain) >= 0) {
+      }
+    }
+  }
+
+  @Test
+  public void testCloseWakesUpBlockedCaller() throws Exception {
+    // Only the header and descriptor arrive, reading the first grain blocks like a stalled socket
+    byte[] disk = createDisk(8);
+    CountDownLatch stalled = new CountDownLatch(1);
+    InputStream input = new StalledInputStream(Arrays.copyOf(disk, SparseUtil.DEFAULT_GRAIN_SIZE_BYTES), stalled);
+
+    ParallelStreamVmdkReader parallel = new ParallelStreamVmdkReader(new StreamVmdkReader(input), 2);
+    try {
+      CompletableFuture<Integer> read = CompletableFuture.supplyAsync(() -> {
+        try {
+          return parallel.getNextGrain(new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES]);
+        } catch (IOException | VmdkFormatException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      Thread.sleep(100);
+      assertThat(read.isDone(), is(false));
+
+      parallel.close();
+      try {
+        read.get(5, TimeUnit.SECONDS);
+        fail("getNextGrain should have failed once the reader was closed");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause().getCause(), instanceOf(IOException.class));
+      }
+    } finally {
+      stalled.countDown();
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Stream closed")
+  public void testReadAfterClose() throws Exception {
+    byte[] disk = createDisk(8);
+    ParallelStreamVmdkReader parallel =
+        new ParallelStreamVmdkReader(new StreamVmdkReader(new ByteArrayInputStream(disk)), 2);
+    parallel.close();
+    parallel.getNextGrain(new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES]);
+  }
+
+  /**
+   * Measures the inflate throughput for an increasing number of threads. The inflated grains must not depend on the
+   * number of threads.
+   */
+  @Test
+  public void testThroughput() throws Exception {
+    byte[] disk = createDisk(2048);
+    int capacityMb = 2048 * SparseUtil.DEFAULT_GRAIN_SIZE_BYTES / (1024 * 1024);
+    int cores = Runtime.getRuntime().availableProcessors();
+
+    byte[] expectedDigest = null;
+    for (int threads : new int[]{1, 2, 4, cores}) {
+      long start = System.nanoTime();
+      byte[] digest = readDisk(disk, threads);
+      double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+      logger.info("Inflated {} MB with {} thread(s) on {} core(s): {} MB/s", capacityMb, threads, cores,
+          String.format("%.1f", capacityMb / seconds));
+
+      if (expectedDigest == null) {
+        expectedDigest = digest;
+      }
+      assertThat(Arrays.equals(digest, expectedDigest), is(true));
+    }
+  }
+
+  /**
+   * Creates a stream-optimized disk whose data grains alternate between compressible data and zeros, which are not
+   * written to the stream.
+   *
+   * @param grains number of grains of the disk
+   * @return the disk
+   */
+  public static byte[] createDisk(int grains) throws IOException {
+    ByteArrayOutputStream disk = new ByteArrayOutputStream();
+    StreamVmdkWriter writer = new StreamVmdkWriter(disk, (long) grains * SparseUtil.DEFAULT_GRAIN_SIZE);
+    Map<String, String> ddb = new LinkedHashMap<>();
+    ddb.put("adapterType", "lsilogic");
+    writer.writeHeader(1, ddb);
+
+    Random random = new Random(grains);
+    byte[] grain = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+    for (int i = 0; i < grains; i++) {
+      long sector = (long) i * SparseUtil.DEFAULT_GRAIN_SIZE;
+      if (i % 2 == 0) {
+        for (int j = 0; j < grain.length; j++) {
+          grain[j] = (byte) random.nextInt(16);
+        }
+        writer.writeDataGrain(sector, grain);
+      } else {
+        writer.writeProgressGrain(sector);
+      }
+    }
+
+    writer.writeTrailer();
+    writer.close();
+    return disk.toByteArray();
+  }
+
+  private static byte[] readDisk(byte[] disk, int threads) throws Exception {
+    MessageDigest digest = MessageDigest.getInstance("SHA-1");
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(disk));
+    byte[] grain = new byte[reader.getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE];
+    ParallelStreamVmdkReader parallel = threads > 1 ? new ParallelStreamVmdkReader(reader, threads) : null;
+    try {
+      GrainReader grains = parallel != null ? parallel : reader;
+      int size;
+      while ((size = grains.getNextGrain(grain)) >= 0) {
+        if (size > 0) {
+          digest.update(ByteBuffer.allocate(8).putLong(grains.getCurrentLba()).array());
+          digest.update(grain, 0, size);
+        }
+      }
+    } finally {
+      if (parallel != null) {
+        parallel.close();
+      }
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Returns its data, then blocks without reacting to interrupts until released, then reports the end of the stream.
+   */
+  private static class StalledInputStream extends InputStream {
+    private final ByteArrayInputStream data;
+    private final CountDownLatch released;
+
+    private StalledInputStream(byte[] data, CountDownLatch released) {
+      this.data = new ByteArrayInputStream(data);
+      this.released = released;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = data.read();
+      if (value >= 0) {
+        return value;
+      }
+      while (true) {
+        try {
+          released.await();
+          return -1;
+        } catch (InterruptedException e) {
+          // Like a socket read, ignore the interrupt
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.rootscheduler.strategy;
+
+import com.vmware.photon.controller.common.thrift.ClientPool;
+import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
+import com.vmware.photon.controller.common.thrift.ClientPoolOptions;
+import com.vmware.photon.controller.common.thrift.ClientProxy;
+import com.vmware.photon.controller.common.thrift.ClientProxyFactory;
+import com.vmware.photon.controller.common.thrift.ServerSet;
+import com.vmware.photon.controller.common.thrift.StaticServerSetFactory;
+import com.vmware.photon.controller.rootscheduler.Config;
+import com.vmware.photon.controller.rootscheduler.service.ManagedScheduler;
+import com.vmware.photon.controller.scheduler.gen.Scheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link WeightedSampler} based child selection of {@link RandomStrategy}
+ * with the linear interval walk it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RandomStrategyBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  private int children;
+
+  @Param({"4", "32"})
+  private int fanout;
+
+  private List<ManagedScheduler> schedulers;
+  private Map<ManagedScheduler, Integer> noOverrides;
+  private Map<ManagedScheduler, Integer> overrides;
+  private RandomStrategy strategy;
+  private RandomStrategy precomputedStrategy;
+  private LinearWalk linearWalk;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    StaticServerSetFactory serverSetFactory = mock(StaticServerSetFactory.class);
+    ClientPoolFactory<Scheduler.AsyncClient> clientPoolFactory = mock(ClientPoolFactory.class);
+    ClientProxyFactory<Scheduler.AsyncClient> clientProxyFactory = mock(ClientProxyFactory.class);
+    ServerSet serverSet = mock(ServerSet.class);
+    ClientPool<Scheduler.AsyncClient> clientPool = mock(ClientPool.class);
+    ClientProxy<Scheduler.AsyncClient> clientProxy = mock(ClientProxy.class);
+    when(serverSetFactory.create(any(InetSocketAddress[].class))).thenReturn(serverSet);
+    when(clientPoolFactory.create(any(ServerSet.class), any(ClientPoolOptions.class))).thenReturn(clientPool);
+    when(clientProxyFactory.create(clientPool)).thenReturn(clientProxy);
+
+    Random random = new Random(12358);
+    schedulers = new ArrayList<>();
+    overrides = new HashMap<>();
+    noOverrides = new HashMap<>();
+    for (int i = 0; i < children; i++) {
+      ManagedScheduler scheduler = new ManagedScheduler("scheduler_" + i,
+          InetSocketAddress.createUnresolved("host_" + i, 8835), "owner_" + i,
+          new Config(), serverSetFactory, clientPoolFactory, clientProxyFactory);
+      scheduler.setWeight(1 + random.nextInt(32));
+      schedulers.add(scheduler);
+      // Constraint adjusted weights for a quarter of the children
+      if (i % 4 == 0) {
+        overrides.put(scheduler, 1 + random.nextInt(3));
+      }
+    }
+
+    strategy = new RandomStrategy();
+    precomputedStrategy = new RandomStrategy();
+    precomputedStrategy.setChildren(schedulers);
+    linearWalk = new LinearWalk();
+  }
+
+  @Benchmark
+  public List<ManagedScheduler> linearWalk() {
+    return linearWalk.randomSelect(schedulers, fanout, noOverrides);
+  }
+
+  @Benchmark
+  public List<ManagedScheduler> weightedSampler() {
+    return strategy.randomSelect(schedulers, fanout, noOverrides);
+  }
+
+  @Benchmark
+  public List<ManagedScheduler> weightedSamplerPrecomputed() {
+    return precomputedStrategy.randomSelect(schedulers, fanout, noOverrides);
+  }
+
+  @Benchmark
+  public List<ManagedScheduler> linearWalkWithOverrides() {
+    return linearWalk.randomSelect(schedulers, fanout, overrides);
+  }
+
+  @Benchmark
+  public List<ManagedScheduler> weightedSamplerWithOverrides() {
+    return precomputedStrategy.randomSelect(schedulers, fanout, overrides);
+  }
+
+  /**
+   * The interval walk previously used by {@link RandomStrategy}, kept as the baseline.
+   */
+  private static class LinearWalk {
+    private final Random random = new Random(12358);
+
+    List<ManagedScheduler> randomSelect(List<ManagedScheduler> inCandidates, int targetCount,
+                                        Map<ManagedScheduler, Integer> weightOverrideMap) {
+      List<ManagedScheduler> candidates = new ArrayList<>(inCandidates);
+      List<ManagedScheduler> selected = new ArrayList<>();
+      int totalWeight = 0;
+      for (ManagedScheduler candidate : candidates) {
+        totalWeight += getSchedulerWeight(candidate, weightOverrideMap);
+      }
+
+      while (selected.size() < targetCount) {
+        ManagedScheduler selectedScheduler = selectFromCandidates(candidates, weightOverrideMap, totalWeight);
+        if (selectedScheduler == null) {
+          break;
+        }
+        candidates.remove(selectedScheduler);
+        selected.add(selectedScheduler);
+        totalWeight -= getSchedulerWeight(selectedScheduler, weightOverrideMap);
+      }
+      return selected;
+    }
+
+    private ManagedScheduler selectFromCandidates(List<ManagedScheduler> candidates,
+                                                  Map<ManagedScheduler, Integer> weightOverrideMap,
+                                                  int totalWeight) {
+      if (totalWeight == 0) {
+        return null;
+      }
+
+      int randomInt = random.nextInt(totalWeight);
+      int startInterval = 0;
+      for (ManagedScheduler candidate : candidates) {
+        int endInterval = startInterval + getSchedulerWeight(candidate, weightOverrideMap);
+        if (randomInt >= startInterval && randomInt < endInterval) {
+          return candidate;
+        }
+        startInterval = endInterval;
+      }
+      return null;
+    }
+
+    private int getSchedulerWeight(ManagedScheduler scheduler, Map<ManagedScheduler, Integer> weightOverrideMap) {
+      if (weightOverrideMap.size() == 0) {
+        return scheduler.getWeight();
+      }
+      Integer counter = weightOverrideMap.get(scheduler);
+      return counter != null ? counter : scheduler.getWeight();
+    }
+  }
+}
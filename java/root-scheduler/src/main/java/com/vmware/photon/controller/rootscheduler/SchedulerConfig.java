@@ -62,6 +62,10 @@ public class SchedulerConfig {
   @JsonProperty("utilization_transfer_ratio")
   private double utilizationTransferRatio = 9.0;
 
+  @Min(0)
+  @JsonProperty("place_quorum_score")
+  private double placeQuorumScore = 0.0;
+
   public long getPlaceTimeoutMs() {
     return placeTimeoutMs;
   }
@@ -133,4 +137,12 @@ public class SchedulerConfig {
   public void setUtilizationTransferRatio(double utilizationTransferRatio) {
     this.utilizationTransferRatio = utilizationTransferRatio;
   }
+
+  public double getPlaceQuorumScore() {
+    return placeQuorumScore;
+  }
+
+  public void setPlaceQuorumScore(double placeQuorumScore) {
+    this.placeQuorumScore = placeQuorumScore;
+  }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.rootscheduler.service;
+
+import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
+import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Collects the placement responses of a single fan-out done on behalf of a group of
+ * identical place requests.
+ * <p/>
+ * Every agent can only take one resource of the group since each reservation bumps the
+ * generation of the agent, so the collector completes once enough distinct agents
+ * responded OK, all the placement schedulers responded or the place timeout expired.
+ * The result holds at most one OK response per agent, best score first. If no agent responded
+ * OK the result holds a single error response, picked from the error codes of the responses.
+ */
+class PlaceBatchCollector {
+
+  private static final Logger logger = LoggerFactory.getLogger(PlaceBatchCollector.class);
+
+  private final double utilizationTransferRatio;
+  private final int schedulerCount;
+  private final int groupSize;
+  private final int quorum;
+  private final long startTime;
+  private final SettableFuture<List<PlaceResponse>> result = SettableFuture.create();
+  private final List<Future<?>> pending = new ArrayList<>();
+  private final List<PlaceResponse> okResponses = new ArrayList<>();
+  private final Set<String> agents = new HashSet<>();
+  private final Set<PlaceResultCode> returnCode = EnumSet.noneOf(PlaceResultCode.class);
+
+  private int responseCount;
+
+  PlaceBatchCollector(double utilizationTransferRatio, int schedulerCount, int groupSize, int quorum) {
+    this.utilizationTransferRatio = utilizationTransferRatio;
+    this.schedulerCount = schedulerCount;
+    this.groupSize = groupSize;
+    this.quorum = Math.max(quorum, groupSize);
+    this.startTime = System.currentTimeMillis();
+  }
+
+  public ListenableFuture<List<PlaceResponse>> getResult() {
+    return result;
+  }
+
+  public synchronized void addPending(Future<?> future) {
+    if (result.isDone()) {
+      future.cancel(false);
+      return;
+    }
+    pending.add(future);
+  }
+
+  public synchronized void onResponse(PlaceResponse response) {
+    if (result.isDone()) {
+      logger.debug("Ignoring late placement response {}", response);
+      return;
+    }
+
+    if (response.getResult() != PlaceResultCode.OK) {
+      returnCode.add(response.getResult());
+    } else if (agents.add(response.getAgent_id())) {
+      okResponses.add(response);
+    }
+
+    responseCount++;
+    checkDone();
+  }
+
+  public synchronized void onFailure() {
+    if (result.isDone()) {
+      return;
+    }
+
+    responseCount++;
+    checkDone();
+  }
+
+  /**
+   * Called when the fast place window expires, completes the placement if every request
+   * of the group can already be placed on a distinct agent.
+   */
+  public synchronized void onInitialTimeout() {
+    if (!result.isDone() && agents.size() >= groupSize) {
+      complete();
+    }
+  }
+
+  public synchronized void onTimeout() {
+    if (result.isDone()) {
+      return;
+    }
+
+    logger.warn("{} agent(s) responded OK for a group of {} in {} ms", agents.size(), groupSize,
+        System.currentTimeMillis() - startTime);
+    complete();
+  }
+
+  private void checkDone() {
+    if (agents.size() >= quorum || responseCount >= schedulerCount) {
+      complete();
+    }
+  }
+
+  private void complete() {
+    logger.debug("{} out of {} scheduler(s) responded in {} ms, {} distinct agent(s) OK", responseCount,
+        schedulerCount, System.currentTimeMillis() - startTime, agents.size());
+
+    List<PlaceResponse> responses = new ArrayList<>(okResponses);
+    Collections.sort(responses, new Comparator<PlaceResponse>() {
+      @Override
+      public int compare(PlaceResponse r1, PlaceResponse r2) {
+        return Double.compare(PlaceResponseCollector.score(utilizationTransferRatio, r2),
+            PlaceResponseCollector.score(utilizationTransferRatio, r1));
+      }
+    });
+    if (responses.isEmpty()) {
+      responses.add(PlaceResponseCollector.pickErrorResponse(returnCode,
+          String.format("No scheduler responded OK in %d ms out of %d placement scheduler(s)",
+              System.currentTimeMillis() - startTime, schedulerCount)));
+    }
+    result.set(responses);
+
+    for (Future<?> future : pending) {
+      future.cancel(false);
+    }
+    pending.clear();
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.rootscheduler.service;
+
+import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
+import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
+import com.vmware.photon.controller.scheduler.gen.Score;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Collects placement responses from the managed schedulers of a single place request.
+ * <p/>
+ * Instead of gathering every response and sorting them once the fan-out times out, the
+ * collector keeps the best response seen so far and completes its result future as soon
+ * as one of the following happens:
+ * <ul>
+ * <li>a quorum of good enough responses (OK with a score of at least the quorum score) arrived;</li>
+ * <li>all the placement schedulers responded;</li>
+ * <li>the fast place window expired and a quorum of OK responses arrived;</li>
+ * <li>the place timeout expired.</li>
+ * </ul>
+ * Once the result is set all the pending scheduler responses are cancelled and any late
+ * response is ignored. OK responses from excluded agents are counted as failed responses.
+ */
+class PlaceResponseCollector {
+
+  private static final Logger logger = LoggerFactory.getLogger(PlaceResponseCollector.class);
+
+  private final double utilizationTransferRatio;
+  private final int schedulerCount;
+  private final int quorum;
+  private final double quorumScore;
+  private final long initialPlaceTimeout;
+  private final long startTime;
+  private final Set<String> excludedAgents;
+  private final SettableFuture<PlaceResponse> result = SettableFuture.create();
+  private final List<Future<?>> pending = new ArrayList<>();
+  private final Map<PlaceResultCode, Integer> responses = new EnumMap<>(PlaceResultCode.class);
+  private final Set<PlaceResultCode> returnCode = EnumSet.noneOf(PlaceResultCode.class);
+
+  private PlaceResponse bestResponse;
+  private double bestScore;
+  private int responseCount;
+  private int okCount;
+  private int goodCount;
+
+  PlaceResponseCollector(double utilizationTransferRatio,
+                         int schedulerCount,
+                         int quorum,
+                         double quorumScore,
+                         long initialPlaceTimeout) {
+    this(utilizationTransferRatio, schedulerCount, quorum, quorumScore, initialPlaceTimeout,
+        Collections.<String>emptySet());
+  }
+
+  PlaceResponseCollector(double utilizationTransferRatio,
+                         int schedulerCount,
+                         int quorum,
+                         double quorumScore,
+                         long initialPlaceTimeout,
+                         Set<String> excludedAgents) {
+    this.utilizationTransferRatio = utilizationTransferRatio;
+    this.schedulerCount = schedulerCount;
+    this.quorum = quorum;
+    this.quorumScore = quorumScore;
+    this.initialPlaceTimeout = initialPlaceTimeout;
+    this.excludedAgents = excludedAgents;
+    this.startTime = System.currentTimeMillis();
+  }
+
+  public ListenableFuture<PlaceResponse> getResult() {
+    return result;
+  }
+
+  /**
+   * Registers a future that should be cancelled once the result is known, this is used
+   * for the scheduler responses still in flight and for the pending timeouts.
+   *
+   * @param future
+   */
+  public synchronized void addPending(Future<?> future) {
+    if (result.isDone()) {
+      future.cancel(false);
+      return;
+    }
+    pending.add(future);
+  }
+
+  public synchronized void onResponse(PlaceResponse response) {
+    if (result.isDone()) {
+      logger.debug("Ignoring late placement response {}", response);
+      return;
+    }
+
+    PlaceResultCode code = response.getResult();
+    if (code == PlaceResultCode.OK && excludedAgents.contains(response.getAgent_id())) {
+      logger.debug("Ignoring placement response from excluded agent {}", response.getAgent_id());
+      responseCount++;
+      checkDone();
+      return;
+    }
+
+    responses.put(code, responses.containsKey(code) ? responses.get(code) + 1 : 1);
+
+    if (code == PlaceResultCode.OK) {
+      okCount++;
+      double score = score(utilizationTransferRatio, response);
+      if (bestResponse == null || score > bestScore) {
+        bestResponse = response;
+        bestScore = score;
+      }
+      if (score >= quorumScore) {
+        goodCount++;
+      }
+    } else {
+      returnCode.add(code);
+    }
+
+    responseCount++;
+    checkDone();
+  }
+
+  public synchronized void onFailure() {
+    if (result.isDone()) {
+      return;
+    }
+
+    responseCount++;
+    checkDone();
+  }
+
+  /**
+   * Called when the fast place window expires, completes the placement if enough schedulers
+   * responded OK.
+   */
+  public synchronized void onInitialTimeout() {
+    if (result.isDone()) {
+      return;
+    }
+
+    if (okCount >= quorum) {
+      complete();
+      return;
+    }
+
+    logger.warn("{} scheduler(s) responded OK in {} ms (need at least {}), waiting for the remaining responses",
+        okCount, initialPlaceTimeout, quorum);
+  }
+
+  public synchronized void onTimeout() {
+    if (result.isDone()) {
+      return;
+    }
+
+    logger.warn("{} schedulers(s) responded OK in {} ms. Proceeding to select best match",
+        okCount, System.currentTimeMillis() - startTime);
+    complete();
+  }
+
+  static double score(double utilizationTransferRatio, PlaceResponse placeResponse) {
+    Score score = placeResponse.getScore();
+    return (utilizationTransferRatio * score.getUtilization() + score.getTransfer()) / (utilizationTransferRatio + 1);
+  }
+
+  private void checkDone() {
+    if (goodCount >= quorum || responseCount >= schedulerCount) {
+      complete();
+    }
+  }
+
+  private void complete() {
+    logger.debug("{} out of {} scheduler(s) responded in {} ms", responseCount, schedulerCount,
+        System.currentTimeMillis() - startTime);
+    for (Map.Entry<PlaceResultCode, Integer> responsesCount : responses.entrySet()) {
+      logger.debug("PlaceResultCode: {} - Count: {}", responsesCount.getKey(), responsesCount.getValue());
+    }
+
+    PlaceResponse response = bestResponse;
+    if (response == null) {
+      response = pickErrorResponse();
+    }
+
+    logger.info("Returning bestResponse: {} in roughly {} ms", response, System.currentTimeMillis() - startTime);
+    result.set(response);
+
+    for (Future<?> future : pending) {
+      future.cancel(false);
+    }
+    pending.clear();
+  }
+
+  private PlaceResponse pickErrorResponse() {
+    return pickErrorResponse(returnCode,
+        String.format("%d scheduler responded OK in %d ms out of %d placement scheduler(s)",
+            okCount, initialPlaceTimeout, schedulerCount));
+  }
+
+  /**
+   * Picks the response returned when no scheduler responded OK, the most specific of the error codes the
+   * schedulers responded with.
+   *
+   * @param returnCode error codes the schedulers responded with
+   * @param error      error message of the SYSTEM_ERROR response returned when no specific error code is known
+   * @return
+   */
+  static PlaceResponse pickErrorResponse(Set<PlaceResultCode> returnCode, String error) {
+    if (returnCode.contains(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE)) {
+      return new PlaceResponse(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE);
+    } else if (returnCode.contains(PlaceResultCode.NOT_ENOUGH_MEMORY_RESOURCE)) {
+      return new PlaceResponse(PlaceResultCode.NOT_ENOUGH_MEMORY_RESOURCE);
+    } else if (returnCode.contains((PlaceResultCode.NOT_ENOUGH_DATASTORE_CAPACITY))) {
+      return new PlaceResponse(PlaceResultCode.NOT_ENOUGH_DATASTORE_CAPACITY);
+    } else if (returnCode.contains(PlaceResultCode.NO_SUCH_RESOURCE)) {
+      return new PlaceResponse(PlaceResultCode.NO_SUCH_RESOURCE);
+    } else if (returnCode.contains(PlaceResultCode.INVALID_SCHEDULER)) {
+      return new PlaceResponse(PlaceResultCode.INVALID_SCHEDULER);
+    }
+
+    PlaceResponse response = new PlaceResponse(PlaceResultCode.SYSTEM_ERROR);
+    response.setError(error);
+    return response;
+  }
+}
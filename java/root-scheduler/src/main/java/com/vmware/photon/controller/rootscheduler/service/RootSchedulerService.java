@@ -29,6 +29,8 @@ import com.vmware.photon.controller.scheduler.gen.ConfigureResultCode;
 import com.vmware.photon.controller.scheduler.gen.FindRequest;
 import com.vmware.photon.controller.scheduler.gen.FindResponse;
 import com.vmware.photon.controller.scheduler.gen.FindResultCode;
+import com.vmware.photon.controller.scheduler.gen.PlaceBatchRequest;
+import com.vmware.photon.controller.scheduler.gen.PlaceBatchResponse;
 import com.vmware.photon.controller.scheduler.gen.PlaceRequest;
 import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
 import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
@@ -47,10 +49,13 @@ import org.slf4j.MDC;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Root scheduler service.
@@ -87,6 +92,10 @@ public class RootSchedulerService implements RootScheduler.Iface, ServiceNodeEve
     initRequestId(placeRequest.getTracing_info());
   }
 
+  private static void initRequestId(PlaceBatchRequest placeBatchRequest) {
+    initRequestId(placeBatchRequest.getTracing_info());
+  }
+
   private static void initRequestId(FindRequest findRequest) {
     initRequestId(findRequest.getTracing_info());
   }
@@ -223,9 +232,11 @@ public class RootSchedulerService implements RootScheduler.Iface, ServiceNodeEve
 
     PlaceResponse placeResponse = null;
     try {
-      placeResponse = schedulerManager.place(request);
+      placeResponse = schedulerManager.place(request).get();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.error("Place failure", e);
     }
 
     if (placeResponse != null) {
@@ -235,6 +246,32 @@ public class RootSchedulerService implements RootScheduler.Iface, ServiceNodeEve
     return new PlaceResponse(PlaceResultCode.SYSTEM_ERROR);
   }
 
+  @Override
+  public PlaceBatchResponse place_batch(PlaceBatchRequest request) throws TException {
+    initRequestId(request);
+
+    if (!leader) {
+      return createPlaceBatchResponse(request, PlaceResultCode.NOT_LEADER);
+    }
+
+    logger.info("Place batch request: {}", request);
+
+    PlaceBatchResponse placeBatchResponse = null;
+    try {
+      placeBatchResponse = schedulerManager.placeBatch(request).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.error("Place batch failure", e);
+    }
+
+    if (placeBatchResponse != null) {
+      return placeBatchResponse;
+    }
+
+    return createPlaceBatchResponse(request, PlaceResultCode.SYSTEM_ERROR);
+  }
+
   @Override
   public FindResponse find(FindRequest request) throws TException {
     initRequestId(request);
@@ -264,6 +301,14 @@ public class RootSchedulerService implements RootScheduler.Iface, ServiceNodeEve
     return response;
   }
 
+  private static PlaceBatchResponse createPlaceBatchResponse(PlaceBatchRequest request, PlaceResultCode result) {
+    List<PlaceResponse> responses = new ArrayList<>(request.getRequestsSize());
+    for (int i = 0; i < request.getRequestsSize(); i++) {
+      responses.add(new PlaceResponse(result));
+    }
+    return new PlaceBatchResponse(responses);
+  }
+
   @Override
   public synchronized void onJoin() {
     logger.info("Is now the root scheduler leader");
@@ -17,28 +17,33 @@ import com.vmware.photon.controller.resource.gen.Disk;
 import com.vmware.photon.controller.resource.gen.Resource;
 import com.vmware.photon.controller.resource.gen.ResourceConstraint;
 import com.vmware.photon.controller.resource.gen.ResourceConstraintType;
+import com.vmware.photon.controller.resource.gen.ResourcePlacement;
 import com.vmware.photon.controller.roles.gen.ChildInfo;
 import com.vmware.photon.controller.roles.gen.SchedulerRole;
 import com.vmware.photon.controller.rootscheduler.Config;
 import com.vmware.photon.controller.rootscheduler.SchedulerFactory;
+import com.vmware.photon.controller.rootscheduler.strategy.ConstraintIndex;
 import com.vmware.photon.controller.rootscheduler.strategy.Strategy;
 import com.vmware.photon.controller.scheduler.gen.ConfigureRequest;
 import com.vmware.photon.controller.scheduler.gen.FindRequest;
 import com.vmware.photon.controller.scheduler.gen.FindResponse;
 import com.vmware.photon.controller.scheduler.gen.FindResultCode;
+import com.vmware.photon.controller.scheduler.gen.PlaceBatchRequest;
+import com.vmware.photon.controller.scheduler.gen.PlaceBatchResponse;
 import com.vmware.photon.controller.scheduler.gen.PlaceParams;
 import com.vmware.photon.controller.scheduler.gen.PlaceRequest;
 import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
 import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
-import com.vmware.photon.controller.scheduler.gen.Score;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Ordering;
-import com.google.common.primitives.Doubles;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,15 +52,17 @@ import org.slf4j.MDC;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
@@ -66,22 +73,13 @@ public class SchedulerManager {
 
   private static final Logger logger = LoggerFactory.getLogger(SchedulerManager.class);
 
-  private final Ordering<PlaceResponse> scoreOrdering = new Ordering<PlaceResponse>() {
-    @Override
-    public int compare(PlaceResponse left, PlaceResponse right) {
-      return Doubles.compare(score(left), score(right));
-    }
-  };
-
-  private double score(PlaceResponse placeResponse) {
-    double ratio = this.config.getRoot().getUtilizationTransferRatio();
-    Score score = placeResponse.getScore();
-    return (ratio * score.getUtilization() + score.getTransfer()) / (ratio + 1);
-  }
+  private static final ResourceConstraint MANAGEMENT_ONLY_CONSTRAINT =
+      new ResourceConstraint(ResourceConstraintType.MANAGEMENT_ONLY, ImmutableList.of(""));
 
   private final SchedulerFactory schedulerFactory;
   private final Config config;
   private final Strategy placementStrategy;
+  private final ScheduledExecutorService timeoutExecutor;
   @VisibleForTesting
   ImmutableMap<String, ManagedScheduler> managedSchedulers;
   @VisibleForTesting
@@ -90,10 +88,12 @@ public class SchedulerManager {
   @Inject
   public SchedulerManager(SchedulerFactory schedulerFactory,
                           Config config,
-                          Strategy placementStrategy) {
+                          Strategy placementStrategy,
+                          ScheduledExecutorService timeoutExecutor) {
     this.schedulerFactory = schedulerFactory;
     this.config = config;
     this.placementStrategy = placementStrategy;
+    this.timeoutExecutor = timeoutExecutor;
 
     managedSchedulers = ImmutableMap.of();
   }
@@ -125,6 +125,7 @@ public class SchedulerManager {
       logger.debug("Root scheduler configured with no children");
       stopHealthChecker();
       managedSchedulers = ImmutableMap.of();
+      placementStrategy.setChildren(managedSchedulers.values());
       return;
     }
 
@@ -156,6 +157,7 @@ public class SchedulerManager {
       newChildren.put(childScheduler.getOwner_host(), managedScheduler);
     }
     managedSchedulers = ImmutableMap.copyOf(newChildren);
+    placementStrategy.setChildren(managedSchedulers.values());
     logger.info("Now managing {}", managedSchedulers.values());
 
     stopHealthChecker();
@@ -175,14 +177,28 @@ public class SchedulerManager {
 
   /**
    * Tries to issue a place request to all managed schedulers and picks the appropriate one to return to caller.
+   * <p/>
+   * The returned future completes as soon as a quorum of good enough responses arrived, all the placement
+   * schedulers responded or the place timeout expired, whichever happens first. The calling thread is never
+   * blocked waiting for the responses.
    *
    * @param request Placement request
-   * @return Place response or null if no one responded.
-   * @throws InterruptedException
+   * @return Future place response.
    */
-  public PlaceResponse place(PlaceRequest request) throws InterruptedException {
-    long startTime = System.currentTimeMillis();
+  public ListenableFuture<PlaceResponse> place(PlaceRequest request) {
+    return place(request, Collections.<String>emptySet());
+  }
 
+  /**
+   * Places a resource on an agent that is not one of the excluded agents, OK responses from excluded
+   * agents are ignored.
+   *
+   * @param request Placement request
+   * @param excludedAgents Agents that can't take the resource
+   * @return Future place response.
+   */
+  @VisibleForTesting
+  ListenableFuture<PlaceResponse> place(PlaceRequest request, Set<String> excludedAgents) {
     PlaceParams rootPlaceParams = request.getRootSchedulerParams();
     if (rootPlaceParams == null) {
       rootPlaceParams = config.getRootPlaceParams();
@@ -193,7 +209,7 @@ public class SchedulerManager {
      */
     if (getManagedSchedulersMap().isEmpty()) {
       logger.error("Place failure, root scheduler has no children");
-      return new PlaceResponse(PlaceResultCode.SYSTEM_ERROR);
+      return Futures.immediateFuture(new PlaceResponse(PlaceResultCode.SYSTEM_ERROR));
     }
 
     Collection<ManagedScheduler> placementSchedulers = getPlacementSchedulers(request, rootPlaceParams);
@@ -204,7 +220,7 @@ public class SchedulerManager {
     if (placementSchedulers.isEmpty()) {
       assert (hasResourceConstraints(request));
       logger.warn("Place failure, constraints cannot be satisfied for request: {}", request);
-      return new PlaceResponse(PlaceResultCode.NO_SUCH_RESOURCE);
+      return Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NO_SUCH_RESOURCE));
     }
 
     /*
@@ -220,110 +236,338 @@ public class SchedulerManager {
     int fastPlaceResponseMinCount = (int) (rootPlaceParams.getFastPlaceResponseRatio() * placementSchedulers.size());
     fastPlaceResponseMinCount = Math.max(fastPlaceResponseMinCount, rootPlaceParams.getFastPlaceResponseMinCount());
 
-    final List<PlaceResponse> okResponses = Collections.synchronizedList(new ArrayList<PlaceResponse>());
-    final Map<PlaceResultCode, Integer> responses = Collections.synchronizedMap(new HashMap<PlaceResultCode,
-        Integer>());
-
-    final CountDownLatch done = new CountDownLatch(placementSchedulers.size());
-
-    final HashSet<PlaceResultCode> returnCode = new HashSet<>();
-
     long initialPlaceTimeout = Math.round(rootPlaceParams.getTimeout() *
         rootPlaceParams.getFastPlaceResponseTimeoutRatio());
 
+    final PlaceResponseCollector collector = new PlaceResponseCollector(
+        config.getRoot().getUtilizationTransferRatio(),
+        placementSchedulers.size(),
+        fastPlaceResponseMinCount,
+        config.getRoot().getPlaceQuorumScore(),
+        initialPlaceTimeout,
+        excludedAgents);
+
     logger.info("Running {} placement scheduler(s) for placement with timeout {} ms",
                 placementSchedulers.size(), initialPlaceTimeout);
     for (final ManagedScheduler scheduler : placementSchedulers) {
+      ListenableFuture<PlaceResponse> future = scheduler.place(request, rootPlaceParams.getTimeout());
+      collector.addPending(future);
       Futures.addCallback(
-        scheduler.place(request, rootPlaceParams.getTimeout()),
+        future,
         new MdcContextCallback<PlaceResponse>() {
           @Override
           public void onSuccessWithContext(PlaceResponse response) {
             logger.info("Received a placement response from {}: {}", scheduler, response);
-
-            PlaceResultCode result = response.getResult();
-
-            if (result == PlaceResultCode.OK) {
-              okResponses.add(response);
-            } else {
-              returnCode.add(result);
-            }
-
-            responses.put(result,
-                responses.containsKey(result) ? responses.get(result) + 1 : 1);
-            done.countDown();
+            collector.onResponse(response);
           }
 
           @Override
           public void onFailureWithContext(Throwable t) {
+            if (collector.getResult().isDone()) {
+              // Stragglers are cancelled once the placement is complete.
+              return;
+            }
             logger.warn("Failed to get a placement response from {}: {}", scheduler.getId(), t);
-            done.countDown();
+            collector.onFailure();
           }
       });
     }
 
-    done.await(initialPlaceTimeout, TimeUnit.MILLISECONDS);
+    collector.addPending(timeoutExecutor.schedule(new MdcContextRunnable() {
+      @Override
+      public void runWithContext() {
+        collector.onInitialTimeout();
+      }
+    }, initialPlaceTimeout, TimeUnit.MILLISECONDS));
 
-    if (okResponses.size() < fastPlaceResponseMinCount) {
-      long timeoutMs = rootPlaceParams.getTimeout() - initialPlaceTimeout;
-      logger.warn("{} scheduler(s) responded OK in {} ms (need at least {}), waiting for another {} ms",
-          okResponses.size(), initialPlaceTimeout, fastPlaceResponseMinCount, timeoutMs);
-      done.await(timeoutMs, TimeUnit.MILLISECONDS);
+    collector.addPending(timeoutExecutor.schedule(new MdcContextRunnable() {
+      @Override
+      public void runWithContext() {
+        collector.onTimeout();
+      }
+    }, rootPlaceParams.getTimeout(), TimeUnit.MILLISECONDS));
+
+    return collector.getResult();
+  }
+
+  /**
+   * Places a batch of resources.
+   * <p/>
+   * Requests asking for the same resource shape (same flavors, disks and constraints) are grouped together and
+   * each group is placed with a single fan-out sized for the whole group, instead of one fan-out per request.
+   * Every agent that responded OK takes at most one resource of the group, best score first, and the requests
+   * that could not be assigned that way fall back to individual placements, one after the other. An individual
+   * placement prefers agents not chosen for the group yet, but falls back to any agent rather than failing. If no
+   * agent responded OK to the group fan-out, every request of the group gets the error of the fan-out.
+   *
+   * @param request Batch placement request
+   * @return Future batch place response, with one response per request in the order of the requests.
+   */
+  public ListenableFuture<PlaceBatchResponse> placeBatch(PlaceBatchRequest request) {
+    final List<PlaceRequest> requests = request.getRequests();
+    List<ListenableFuture<PlaceResponse>> futures =
+        new ArrayList<>(Collections.<ListenableFuture<PlaceResponse>>nCopies(requests.size(), null));
+
+    Map<PlaceRequest, List<Integer>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < requests.size(); i++) {
+      PlaceRequest shape = getShape(requests.get(i));
+      List<Integer> group = groups.get(shape);
+      if (group == null) {
+        group = new ArrayList<>();
+        groups.put(shape, group);
+      }
+      group.add(i);
     }
-    // Log if we still haven't reached the minimum for fast placement
-    if (okResponses.size() < fastPlaceResponseMinCount) {
-      logger.warn("{} schedulers(s) responded OK in {} ms. Proceeding to select best match",
-          okResponses.size(), rootPlaceParams.getTimeout());
+
+    logger.info("Placing {} request(s) in {} group(s)", requests.size(), groups.size());
+    for (List<Integer> group : groups.values()) {
+      if (group.size() == 1) {
+        futures.set(group.get(0), place(requests.get(group.get(0))));
+      } else {
+        placeGroup(requests, group, futures);
+      }
     }
 
-    // Whoever responded before the timeout gets to participate in placement.
-    // Need to synchronize access to okResponse, b/c some responses might still be coming in
-    // in case if initial place timeout yielded a satisfactory number of schedulers.
-    PlaceResponse bestResponse;
+    return Futures.transform(Futures.allAsList(futures), new Function<List<PlaceResponse>, PlaceBatchResponse>() {
+      @Override
+      public PlaceBatchResponse apply(List<PlaceResponse> responses) {
+        return new PlaceBatchResponse(responses);
+      }
+    });
+  }
 
-    logger.debug("{} scheduler(s) responded in {} ms ultimately", responses.size(), initialPlaceTimeout);
-    for (Map.Entry<PlaceResultCode, Integer> responsesCount : responses.entrySet()) {
-      logger.debug("PlaceResultCode: {} - Count: {}", responsesCount.getKey(), responsesCount.getValue());
+  private void placeGroup(final List<PlaceRequest> requests,
+                          final List<Integer> group,
+                          final List<ListenableFuture<PlaceResponse>> futures) {
+    final PlaceRequest representative = requests.get(group.get(0));
+    PlaceParams rootPlaceParams = representative.getRootSchedulerParams();
+    if (rootPlaceParams == null) {
+      rootPlaceParams = config.getRootPlaceParams();
+    }
+
+    if (getManagedSchedulersMap().isEmpty()) {
+      logger.error("Place failure, root scheduler has no children");
+      setAll(group, futures, Futures.immediateFuture(new PlaceResponse(PlaceResultCode.SYSTEM_ERROR)));
+      return;
+    }
+
+    // Scale the fan-out with the size of the group, every agent takes at most one resource
+    PlaceParams groupPlaceParams = new PlaceParams(rootPlaceParams);
+    groupPlaceParams.setMinFanoutCount(rootPlaceParams.getMinFanoutCount() * group.size());
+    groupPlaceParams.setMaxFanoutCount(rootPlaceParams.getMaxFanoutCount() * group.size());
+
+    Collection<ManagedScheduler> placementSchedulers = getPlacementSchedulers(representative, groupPlaceParams);
+    if (placementSchedulers.isEmpty()) {
+      logger.warn("Place failure, constraints cannot be satisfied for request: {}", representative);
+      setAll(group, futures, Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NO_SUCH_RESOURCE)));
+      return;
+    }
+
+    PlaceRequest groupRequest = new PlaceRequest(representative);
+    if (groupRequest.getLeafSchedulerParams() == null) {
+      groupRequest.setLeafSchedulerParams(config.getLeafPlaceParams());
     }
 
-    //noinspection SynchronizationOnLocalVariableOrMethodParameter
-    synchronized (okResponses) {
-      bestResponse = pickBestResponse(okResponses);
+    int fastPlaceResponseMinCount = (int) (rootPlaceParams.getFastPlaceResponseRatio() * placementSchedulers.size());
+    fastPlaceResponseMinCount = Math.max(fastPlaceResponseMinCount, rootPlaceParams.getFastPlaceResponseMinCount());
+
+    long initialPlaceTimeout = Math.round(rootPlaceParams.getTimeout() *
+        rootPlaceParams.getFastPlaceResponseTimeoutRatio());
+
+    final PlaceBatchCollector collector = new PlaceBatchCollector(
+        config.getRoot().getUtilizationTransferRatio(),
+        placementSchedulers.size(),
+        group.size(),
+        fastPlaceResponseMinCount);
+
+    logger.info("Running {} placement scheduler(s) for a group of {} request(s) with timeout {} ms",
+        placementSchedulers.size(), group.size(), initialPlaceTimeout);
+    for (final ManagedScheduler scheduler : placementSchedulers) {
+      ListenableFuture<PlaceResponse> future = scheduler.place(groupRequest, rootPlaceParams.getTimeout());
+      collector.addPending(future);
+      Futures.addCallback(
+        future,
+        new MdcContextCallback<PlaceResponse>() {
+          @Override
+          public void onSuccessWithContext(PlaceResponse response) {
+            logger.info("Received a placement response from {}: {}", scheduler, response);
+            collector.onResponse(response);
+          }
+
+          @Override
+          public void onFailureWithContext(Throwable t) {
+            if (collector.getResult().isDone()) {
+              return;
+            }
+            logger.warn("Failed to get a placement response from {}: {}", scheduler.getId(), t);
+            collector.onFailure();
+          }
+      });
     }
 
-    if (bestResponse == null) {
-      if (returnCode.contains(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE)) {
-        bestResponse = new PlaceResponse(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE);
-      } else if (returnCode.contains(PlaceResultCode.NOT_ENOUGH_MEMORY_RESOURCE)) {
-        bestResponse = new PlaceResponse(PlaceResultCode.NOT_ENOUGH_MEMORY_RESOURCE);
-      } else if (returnCode.contains((PlaceResultCode.NOT_ENOUGH_DATASTORE_CAPACITY))) {
-        bestResponse = new PlaceResponse(PlaceResultCode.NOT_ENOUGH_DATASTORE_CAPACITY);
-      } else if (returnCode.contains(PlaceResultCode.NO_SUCH_RESOURCE)) {
-        bestResponse = new PlaceResponse(PlaceResultCode.NO_SUCH_RESOURCE);
-      } else if (returnCode.contains(PlaceResultCode.INVALID_SCHEDULER)) {
-        bestResponse = new PlaceResponse(PlaceResultCode.INVALID_SCHEDULER);
+    collector.addPending(timeoutExecutor.schedule(new MdcContextRunnable() {
+      @Override
+      public void runWithContext() {
+        collector.onInitialTimeout();
       }
+    }, initialPlaceTimeout, TimeUnit.MILLISECONDS));
 
-      if (bestResponse == null) {
-        bestResponse = new PlaceResponse(PlaceResultCode.SYSTEM_ERROR);
-        bestResponse.setError(
-                String.format("%d scheduler responded OK in %d ms out of %d placement scheduler(s)",
-                        okResponses.size(), initialPlaceTimeout, placementSchedulers.size()));
+    collector.addPending(timeoutExecutor.schedule(new MdcContextRunnable() {
+      @Override
+      public void runWithContext() {
+        collector.onTimeout();
       }
+    }, rootPlaceParams.getTimeout(), TimeUnit.MILLISECONDS));
+
+    final ListenableFuture<List<PlaceResponse>> groupResult = Futures.transform(collector.getResult(),
+        new AsyncFunction<List<PlaceResponse>, List<PlaceResponse>>() {
+          @Override
+          public ListenableFuture<List<PlaceResponse>> apply(List<PlaceResponse> responses) {
+            if (responses.get(0).getResult() != PlaceResultCode.OK) {
+              // Individual placements of the same shape would fail the same way
+              List<PlaceResponse> errors = new ArrayList<>();
+              for (int i = 0; i < group.size(); i++) {
+                errors.add(new PlaceResponse(responses.get(0)));
+              }
+              return Futures.immediateFuture(errors);
+            }
+
+            List<PlaceResponse> assigned = new ArrayList<>();
+            Set<String> agents = new HashSet<>();
+            for (int i = 0; i < responses.size() && i < group.size(); i++) {
+              PlaceResponse response = assignResponse(responses.get(i), representative.getResource(),
+                  requests.get(group.get(i)).getResource());
+              assigned.add(response);
+              agents.add(response.getAgent_id());
+            }
+            return placeRemaining(requests, group, assigned, agents);
+          }
+        });
+
+    for (int i = 0; i < group.size(); i++) {
+      final int position = i;
+      futures.set(group.get(i), Futures.transform(groupResult, new Function<List<PlaceResponse>, PlaceResponse>() {
+        @Override
+        public PlaceResponse apply(List<PlaceResponse> responses) {
+          return responses.get(position);
+        }
+      }));
     }
+  }
+
+  /**
+   * Places the requests of the group that didn't get an agent from the group fan-out, one at a time so that
+   * every placement can exclude the agents chosen for the group so far. A request that can't be placed on
+   * another agent is placed again without excluding any agent, so that an agent can take several resources of
+   * the group rather than leaving them unplaced.
+   *
+   * @param requests
+   * @param group
+   * @param assigned
+   * @param chosenAgents
+   * @return
+   */
+  private ListenableFuture<List<PlaceResponse>> placeRemaining(final List<PlaceRequest> requests,
+                                                               final List<Integer> group,
+                                                               final List<PlaceResponse> assigned,
+                                                               final Set<String> chosenAgents) {
+    if (assigned.size() >= group.size()) {
+      return Futures.immediateFuture(assigned);
+    }
+
+    final PlaceRequest request = requests.get(group.get(assigned.size()));
+    logger.info("No distinct agent left for request {} of the group, placing it individually", assigned.size());
+    ListenableFuture<PlaceResponse> response = Futures.transform(place(request, ImmutableSet.copyOf(chosenAgents)),
+        new AsyncFunction<PlaceResponse, PlaceResponse>() {
+          @Override
+          public ListenableFuture<PlaceResponse> apply(PlaceResponse response) {
+            if (response.getResult() == PlaceResultCode.OK) {
+              return Futures.immediateFuture(response);
+            }
 
-    long endTime = System.currentTimeMillis();
-    logger.info("Returning bestResponse: {} in roughly {} ms", bestResponse, (endTime - startTime));
-    return bestResponse;
+            logger.info("No other agent can take request {} of the group, placing it on any agent", assigned.size());
+            return place(request);
+          }
+        });
+
+    return Futures.transform(response, new AsyncFunction<PlaceResponse, List<PlaceResponse>>() {
+      @Override
+      public ListenableFuture<List<PlaceResponse>> apply(PlaceResponse response) {
+        assigned.add(response);
+        if (response.getResult() == PlaceResultCode.OK) {
+          chosenAgents.add(response.getAgent_id());
+        }
+        return placeRemaining(requests, group, assigned, chosenAgents);
+      }
+    });
   }
 
-  private PlaceResponse pickBestResponse(List<PlaceResponse> responses) {
-    if (responses.isEmpty()) {
-      return null;
+  /**
+   * Returns the key used to group place requests, that is the request without anything that identifies
+   * the resource being placed.
+   *
+   * @param request
+   * @return
+   */
+  private static PlaceRequest getShape(PlaceRequest request) {
+    PlaceRequest shape = new PlaceRequest(request);
+    shape.unsetTracing_info();
+    Resource resource = shape.getResource();
+    if (resource == null) {
+      return shape;
+    }
+    if (resource.isSetVm()) {
+      resource.getVm().unsetId();
+      resource.getVm().unsetEnvironment();
+    }
+    if (resource.isSetDisks()) {
+      for (Disk disk : resource.getDisks()) {
+        disk.unsetId();
+      }
+    }
+    return shape;
+  }
+
+  /**
+   * Copies a placement response computed for a resource of the group, the placements are remapped from the
+   * VM and disks of the representative resource to the ones of the target resource.
+   *
+   * @param response
+   * @param representative
+   * @param target
+   * @return
+   */
+  private static PlaceResponse assignResponse(PlaceResponse response, Resource representative, Resource target) {
+    PlaceResponse result = new PlaceResponse(response);
+    if (!result.isSetPlacementList() || representative == null || target == null) {
+      return result;
+    }
+
+    Map<String, String> ids = new HashMap<>();
+    if (representative.isSetVm() && target.isSetVm()) {
+      ids.put(representative.getVm().getId(), target.getVm().getId());
+    }
+    if (representative.isSetDisks() && target.isSetDisks()) {
+      for (int i = 0; i < representative.getDisksSize() && i < target.getDisksSize(); i++) {
+        ids.put(representative.getDisks().get(i).getId(), target.getDisks().get(i).getId());
+      }
     }
 
-    responses = scoreOrdering.reverse().sortedCopy(responses);
-    return responses.get(0);
+    for (ResourcePlacement placement : result.getPlacementList().getPlacements()) {
+      String id = ids.get(placement.getResource_id());
+      if (id != null) {
+        placement.setResource_id(id);
+      }
+    }
+    return result;
+  }
+
+  private static void setAll(List<Integer> group,
+                             List<ListenableFuture<PlaceResponse>> futures,
+                             ListenableFuture<PlaceResponse> future) {
+    for (int index : group) {
+      futures.set(index, future);
+    }
   }
 
   public FindResponse find(FindRequest request) throws InterruptedException {
@@ -395,19 +639,28 @@ public class SchedulerManager {
 
   @VisibleForTesting
   public Collection<ManagedScheduler> getPlacementSchedulers(PlaceRequest request, PlaceParams placeParams) {
-    // Filter out management only hosts
-    Set<ManagedScheduler> nonManagementLeafs = new HashSet();
-    ResourceConstraint mgmtConst = new ResourceConstraint(ResourceConstraintType.MANAGEMENT_ONLY,
-            ImmutableList.of(""));
-    for (ManagedScheduler scheduler : getActiveSchedulers()) {
-      if (scheduler.getResources().contains(mgmtConst)) {
-        continue;
-      } else {
-        nonManagementLeafs.add(scheduler);
+    Collection<ManagedScheduler> activeSchedulers = getActiveSchedulers();
+    List<ManagedScheduler> activeSchedulerList = null;
+
+    // Filter out management only hosts, use the resource index when available
+    ConstraintIndex index = placementStrategy.getConstraintIndex();
+    if (index != null) {
+      BitSet candidates = index.toBitSet(activeSchedulers);
+      if (candidates != null) {
+        index.exclude(candidates, ResourceConstraintType.MANAGEMENT_ONLY, "");
+        activeSchedulerList = index.toList(candidates);
       }
     }
-    // Make a copy
-    List<ManagedScheduler> activeSchedulerList = new ArrayList<>(nonManagementLeafs);
+
+    if (activeSchedulerList == null) {
+      activeSchedulerList = new ArrayList<>();
+      for (ManagedScheduler scheduler : activeSchedulers) {
+        if (scheduler.getResources() == null || !scheduler.getResources().contains(MANAGEMENT_ONLY_CONSTRAINT)) {
+          activeSchedulerList.add(scheduler);
+        }
+      }
+    }
+
     return placementStrategy.filterChildren(placeParams, activeSchedulerList,
         getResourceConstraints(request));
   }
@@ -440,8 +693,7 @@ public class SchedulerManager {
         diskConstraints = resource.getDisks().get(0).getResource_constraints();
       } else if (diskCount > 1) {
           /*
-           * This should not occur until we enable batch scheduling,
-           * we print a warning message and do the union of all
+           * A resource with several disks, do the union of all
            * the constraints.
            */
         List<Disk> disks = resource.getDisks();
@@ -490,8 +742,7 @@ public class SchedulerManager {
         return resource.getDisks().get(0).isSetResource_constraints();
       } else if (diskCount > 1) {
           /*
-           * This should not occur until we enable batch scheduling,
-           * we print a warning message and do the union of all
+           * A resource with several disks, do the union of all
            * the constraints.
            */
         List<Disk> disks = resource.getDisks();
@@ -541,4 +792,27 @@ public class SchedulerManager {
 
     public abstract void onFailureWithContext(Throwable throwable);
   }
+
+  private abstract static class MdcContextRunnable implements Runnable {
+
+    private final Map contextMap;
+
+    private MdcContextRunnable() {
+      contextMap = MDC.getCopyOfContextMap();
+    }
+
+    @Override
+    public final void run() {
+      try {
+        if (contextMap != null) {
+          MDC.setContextMap(contextMap);
+        }
+        runWithContext();
+      } finally {
+        MDC.clear();
+      }
+    }
+
+    public abstract void runWithContext();
+  }
 }
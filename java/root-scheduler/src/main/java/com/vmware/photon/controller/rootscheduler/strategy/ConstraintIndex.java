@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.rootscheduler.strategy;
+
+import com.vmware.photon.controller.resource.gen.ResourceConstraint;
+import com.vmware.photon.controller.resource.gen.ResourceConstraintType;
+import com.vmware.photon.controller.rootscheduler.service.ManagedScheduler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from the resources reported for the children of the
+ * current node to the children that have access to them.
+ * <p/>
+ * Every child gets an ordinal and every (resource type, value) pair maps
+ * to the set of ordinals of the children reporting it, so filtering the
+ * children by constraints is done with bit set operations instead of
+ * scanning the resources of every child. The index is immutable, it is
+ * rebuilt when the children are reconfigured.
+ */
+public class ConstraintIndex {
+
+  private static final BitSet EMPTY = new BitSet();
+
+  private final List<ManagedScheduler> schedulers;
+  private final Map<ManagedScheduler, Integer> ordinals;
+  private final Map<ResourceConstraintType, Map<String, BitSet>> postings;
+  private final Map<ResourceConstraintType, BitSet> types;
+
+  public ConstraintIndex(Collection<ManagedScheduler> children) {
+    schedulers = Collections.unmodifiableList(new ArrayList<>(children));
+    ordinals = new IdentityHashMap<>();
+    postings = new EnumMap<>(ResourceConstraintType.class);
+    types = new EnumMap<>(ResourceConstraintType.class);
+
+    for (int ordinal = 0; ordinal < schedulers.size(); ordinal++) {
+      ManagedScheduler scheduler = schedulers.get(ordinal);
+      ordinals.put(scheduler, ordinal);
+
+      Set<ResourceConstraint> resources = scheduler.getResources();
+      if (resources == null) {
+        continue;
+      }
+
+      for (ResourceConstraint resource : resources) {
+        BitSet typeSet = types.get(resource.getType());
+        if (typeSet == null) {
+          typeSet = new BitSet(schedulers.size());
+          types.put(resource.getType(), typeSet);
+        }
+        typeSet.set(ordinal);
+
+        Map<String, BitSet> values = postings.get(resource.getType());
+        if (values == null) {
+          values = new HashMap<>();
+          postings.put(resource.getType(), values);
+        }
+        if (resource.getValues() == null) {
+          continue;
+        }
+        for (String value : resource.getValues()) {
+          BitSet valueSet = values.get(value);
+          if (valueSet == null) {
+            valueSet = new BitSet(schedulers.size());
+            values.put(value, valueSet);
+          }
+          valueSet.set(ordinal);
+        }
+      }
+    }
+  }
+
+  public int size() {
+    return schedulers.size();
+  }
+
+  /**
+   * @param scheduler
+   * @return the ordinal of the scheduler or -1 if it is not indexed
+   */
+  public int getOrdinal(ManagedScheduler scheduler) {
+    Integer ordinal = ordinals.get(scheduler);
+    return ordinal == null ? -1 : ordinal;
+  }
+
+  public ManagedScheduler get(int ordinal) {
+    return schedulers.get(ordinal);
+  }
+
+  /**
+   * Converts a collection of children to the set of their ordinals.
+   *
+   * @param children
+   * @return the set of ordinals or null if some of the children are not indexed
+   */
+  public BitSet toBitSet(Collection<ManagedScheduler> children) {
+    BitSet result = new BitSet(schedulers.size());
+    for (ManagedScheduler scheduler : children) {
+      Integer ordinal = ordinals.get(scheduler);
+      if (ordinal == null) {
+        return null;
+      }
+      result.set(ordinal);
+    }
+    return result;
+  }
+
+  public List<ManagedScheduler> toList(BitSet set) {
+    List<ManagedScheduler> result = new ArrayList<>(set.cardinality());
+    for (int ordinal = set.nextSetBit(0); ordinal >= 0; ordinal = set.nextSetBit(ordinal + 1)) {
+      result.add(schedulers.get(ordinal));
+    }
+    return result;
+  }
+
+  /**
+   * Removes from the given set the children reporting a resource.
+   *
+   * @param set
+   * @param type
+   * @param value
+   */
+  public void exclude(BitSet set, ResourceConstraintType type, String value) {
+    set.andNot(getPostings(type, value));
+  }
+
+  /**
+   * Returns the children that can satisfy the given constraints.
+   * <p/>
+   * Positive constraints are matched exactly, a child matches if it reports
+   * any of the values of the constraint. Negative constraints only require
+   * the child to report resources of the constraint type, the children still
+   * need to be validated against them, see {@link #isExact(Set)}.
+   *
+   * @param constraintSet
+   * @return the set of matching ordinals
+   */
+  public BitSet match(Set<ResourceConstraint> constraintSet) {
+    BitSet result = new BitSet(schedulers.size());
+    result.set(0, schedulers.size());
+
+    for (ResourceConstraint constraint : constraintSet) {
+      if (constraint.isNegative()) {
+        BitSet typeSet = types.get(constraint.getType());
+        result.and(typeSet == null ? EMPTY : typeSet);
+      } else {
+        List<String> values = constraint.getValues();
+        if (values == null || values.isEmpty()) {
+          result.clear();
+        } else if (values.size() == 1) {
+          result.and(getPostings(constraint.getType(), values.get(0)));
+        } else {
+          BitSet union = new BitSet(schedulers.size());
+          for (String value : values) {
+            union.or(getPostings(constraint.getType(), value));
+          }
+          result.and(union);
+        }
+      }
+
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @param constraintSet
+   * @return true if {@link #match(Set)} returns exactly the children satisfying the constraints
+   */
+  public static boolean isExact(Set<ResourceConstraint> constraintSet) {
+    for (ResourceConstraint constraint : constraintSet) {
+      if (constraint.isNegative()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private BitSet getPostings(ResourceConstraintType type, String value) {
+    Map<String, BitSet> values = postings.get(type);
+    if (values == null) {
+      return EMPTY;
+    }
+    BitSet result = values.get(value);
+    return result == null ? EMPTY : result;
+  }
+}
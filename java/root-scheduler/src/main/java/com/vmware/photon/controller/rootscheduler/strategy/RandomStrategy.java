@@ -21,7 +21,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -36,6 +39,8 @@ public class RandomStrategy extends Strategy {
 
   private Random random = new Random(12358);
 
+  private volatile ChildrenSampler children = new ChildrenSampler(Collections.<ManagedScheduler>emptyList());
+
   @Override
   public void init(int seed) {
     random.setSeed(seed);
@@ -91,6 +96,17 @@ public class RandomStrategy extends Strategy {
     return randomSelect(candidates, Math.min(fanoutCount, candidates.size()), weightOverrideMap);
   }
 
+  /**
+   * Precomputes the weighted sampler for the whole set of children.
+   * The children are recreated whenever the configuration is applied,
+   * so the sampler is always rebuilt.
+   */
+  @Override
+  public void setChildren(Collection<ManagedScheduler> schedulers) {
+    super.setChildren(schedulers);
+    children = new ChildrenSampler(schedulers);
+  }
+
   /**
    * This method is used to randomly select a subset of the
    * child schedulers. Each child scheduler is assigned a weight
@@ -105,6 +121,11 @@ public class RandomStrategy extends Strategy {
    * higher the probability for that scheduler to be selected.
    * When a scheduler is selected it is removed from the list
    * of candidates and the process re-applied to the reduced list.
+   * <p/>
+   * The intervals are kept in a {@link WeightedSampler}, so every
+   * selection and removal is O(log n) instead of a linear walk. When
+   * the candidates are all the children and no weight is overridden
+   * the sampler precomputed by {@link #setChildren} is reused.
    *
    * @param inCandidates
    * @param targetCount
@@ -114,58 +135,36 @@ public class RandomStrategy extends Strategy {
   List<ManagedScheduler> randomSelect(
       List<ManagedScheduler> inCandidates, int targetCount,
       Map<ManagedScheduler, Integer> weightOverrideMap) {
-    // Copy the candidate list
-    List<ManagedScheduler> candidates = new ArrayList<>(inCandidates);
-    List<ManagedScheduler> selected = new ArrayList<>();
-    Integer totalWeight = 0;
-    for (ManagedScheduler candidate : candidates) {
-      totalWeight += getSchedulerWeight(candidate, weightOverrideMap);
+    List<ManagedScheduler> indexed;
+    WeightedSampler sampler;
+
+    ChildrenSampler current = children;
+    if (weightOverrideMap.isEmpty() && current.covers(inCandidates)) {
+      indexed = current.schedulers;
+      sampler = current.sampler.copy();
+    } else {
+      indexed = inCandidates;
+      int[] weights = new int[inCandidates.size()];
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] = getSchedulerWeight(inCandidates.get(i), weightOverrideMap);
+      }
+      sampler = new WeightedSampler(weights);
     }
 
-    int selectedCount = 0;
-    while (selectedCount < targetCount) {
-      // get a random index
-      ManagedScheduler selectedScheduler =
-          selectFromCandidates(candidates, weightOverrideMap, totalWeight);
-      if (selectedScheduler == null) {
+    List<ManagedScheduler> selected = new ArrayList<>();
+    while (selected.size() < targetCount) {
+      int index = sampler.sample(random);
+      if (index < 0) {
         // No more good candidates
         break;
       }
-      candidates.remove(selectedScheduler);
-      selected.add(selectedScheduler);
-      totalWeight -= getSchedulerWeight(selectedScheduler, weightOverrideMap);
-      selectedCount++;
+      sampler.remove(index);
+      selected.add(indexed.get(index));
     }
 
     return selected;
   }
 
-  ManagedScheduler selectFromCandidates(
-      List<ManagedScheduler> candidates,
-      Map<ManagedScheduler, Integer> weightOverrideMap,
-      int totalWeight) {
-
-    if (totalWeight == 0) {
-      return null;
-    }
-
-    // Get Random number
-    int randomInt = random.nextInt(totalWeight);
-    int startInterval = 0;
-
-    for (ManagedScheduler candidate : candidates) {
-      int candidateWeight = getSchedulerWeight(candidate, weightOverrideMap);
-      int endInterval = startInterval + candidateWeight;
-
-      if (randomInt >= startInterval && randomInt < endInterval) {
-        return candidate;
-      }
-      // Move to next interval
-      startInterval = endInterval;
-    }
-    return null;
-  }
-
   /**
    * Get the weight for a selected scheduler,
    * if there is weightOverrideMap look for the
@@ -197,4 +196,40 @@ public class RandomStrategy extends Strategy {
     //          collect(Collectors.toSet());
     return ids;
   }
+
+  /**
+   * Weighted sampler precomputed over all the children.
+   */
+  private static class ChildrenSampler {
+    private final List<ManagedScheduler> schedulers;
+    private final Map<ManagedScheduler, Integer> ordinals;
+    private final WeightedSampler sampler;
+
+    private ChildrenSampler(Collection<ManagedScheduler> children) {
+      schedulers = new ArrayList<>(children);
+      int[] weights = new int[schedulers.size()];
+      ordinals = new IdentityHashMap<>();
+      for (int i = 0; i < weights.length; i++) {
+        ManagedScheduler scheduler = schedulers.get(i);
+        weights[i] = scheduler.getWeight();
+        ordinals.put(scheduler, i);
+      }
+      sampler = new WeightedSampler(weights);
+    }
+
+    /**
+     * Checks whether the candidates are all the children this sampler was built for.
+     */
+    private boolean covers(List<ManagedScheduler> candidates) {
+      if (candidates.isEmpty() || candidates.size() != schedulers.size()) {
+        return false;
+      }
+      for (ManagedScheduler candidate : candidates) {
+        if (!ordinals.containsKey(candidate)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
@@ -20,6 +20,8 @@ import com.vmware.photon.controller.rootscheduler.service.ManagedScheduler;
 import com.vmware.photon.controller.scheduler.gen.PlaceParams;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +35,7 @@ import java.util.Set;
  */
 public abstract class Strategy {
 
+  private volatile ConstraintIndex constraintIndex;
 
   /**
    * Method used to initialize a strategy.
@@ -42,6 +45,29 @@ public abstract class Strategy {
 
   public abstract void init(int value);
 
+  /**
+   * This method is called every time the set of children
+   * of the current node is reconfigured. Strategies can
+   * use it to precompute per-children state that does
+   * not change between placement requests.
+   *
+   * The base implementation indexes the resources of the
+   * children, strategies overriding it must call it.
+   *
+   * @param schedulers all the children of the current node
+   */
+  public void setChildren(Collection<ManagedScheduler> schedulers) {
+    constraintIndex = new ConstraintIndex(schedulers);
+  }
+
+  /**
+   * @return the resource index of the children or null if
+   * the children have not been set
+   */
+  public ConstraintIndex getConstraintIndex() {
+    return constraintIndex;
+  }
+
   /**
    * This method is called to select the subset
    * of the children of the current node to which
@@ -82,7 +108,33 @@ public abstract class Strategy {
 
     List<ManagedScheduler> result = new ArrayList<>();
 
+    /**
+     * Use the resource index to discard the children that
+     * cannot satisfy the constraints without looking at their
+     * resources. If there are no negative constraints the
+     * index lookup is exact and the remaining children do not
+     * need to be validated.
+     */
+    ConstraintIndex index = constraintIndex;
+    BitSet matching = null;
+    boolean exact = false;
+    if (index != null) {
+      matching = index.match(constraintSet);
+      exact = ConstraintIndex.isExact(constraintSet);
+    }
+
     for (ManagedScheduler scheduler : schedulers) {
+      int ordinal = matching == null ? -1 : index.getOrdinal(scheduler);
+      if (ordinal >= 0) {
+        if (!matching.get(ordinal)) {
+          continue;
+        }
+        if (exact) {
+          result.add(scheduler);
+          continue;
+        }
+      }
+
       int matchCount =
           validateConstraints(scheduler.getResources(), constraintSet);
       if (matchCount > 0) {
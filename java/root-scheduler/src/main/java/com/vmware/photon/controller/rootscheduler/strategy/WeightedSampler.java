@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.rootscheduler.strategy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Weighted sampling without replacement backed by a Fenwick (binary indexed) tree.
+ * <p/>
+ * The tree is built in O(n) from the weights, each pick is O(log n) and removing a
+ * picked element is O(log n). Given the same random number the selected element is
+ * the same one a linear walk over the intervals [0, sum(weights)] would select, so the
+ * sampler is a drop-in replacement for the interval walk done by {@link RandomStrategy}.
+ * <p/>
+ * Instances are not thread safe, a shared sampler should be copied before removing
+ * elements from it.
+ */
+public class WeightedSampler {
+
+  private final int[] weights;
+  private final long[] tree;
+  private final int mask;
+  private long totalWeight;
+
+  public WeightedSampler(int[] weights) {
+    this.weights = Arrays.copyOf(weights, weights.length);
+    this.tree = new long[weights.length + 1];
+
+    for (int i = 0; i < weights.length; i++) {
+      if (weights[i] < 0) {
+        throw new IllegalArgumentException("Negative weight " + weights[i] + " at index " + i);
+      }
+      tree[i + 1] += weights[i];
+      int parent = (i + 1) + Integer.lowestOneBit(i + 1);
+      if (parent <= weights.length) {
+        tree[parent] += tree[i + 1];
+      }
+      totalWeight += weights[i];
+    }
+
+    this.mask = weights.length == 0 ? 0 : Integer.highestOneBit(weights.length);
+  }
+
+  private WeightedSampler(WeightedSampler other) {
+    this.weights = Arrays.copyOf(other.weights, other.weights.length);
+    this.tree = Arrays.copyOf(other.tree, other.tree.length);
+    this.mask = other.mask;
+    this.totalWeight = other.totalWeight;
+  }
+
+  public WeightedSampler copy() {
+    return new WeightedSampler(this);
+  }
+
+  public int size() {
+    return weights.length;
+  }
+
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  public int getWeight(int index) {
+    return weights[index];
+  }
+
+  /**
+   * Changes the weight of an element.
+   *
+   * @param index
+   * @param weight
+   */
+  public void setWeight(int index, int weight) {
+    if (weight < 0) {
+      throw new IllegalArgumentException("Negative weight " + weight + " at index " + index);
+    }
+
+    long delta = (long) weight - weights[index];
+    if (delta == 0) {
+      return;
+    }
+
+    weights[index] = weight;
+    totalWeight += delta;
+    for (int i = index + 1; i < tree.length; i += Integer.lowestOneBit(i)) {
+      tree[i] += delta;
+    }
+  }
+
+  /**
+   * Removes an element from the sampler, it will never be selected again.
+   *
+   * @param index
+   */
+  public void remove(int index) {
+    setWeight(index, 0);
+  }
+
+  /**
+   * Returns the index of the element whose interval contains the given value.
+   *
+   * @param value a value in [0, totalWeight)
+   * @return the selected index
+   */
+  public int find(long value) {
+    if (value < 0 || value >= totalWeight) {
+      throw new IllegalArgumentException("Value " + value + " out of range [0, " + totalWeight + ")");
+    }
+
+    int position = 0;
+    for (int step = mask; step != 0; step >>= 1) {
+      int next = position + step;
+      if (next < tree.length && tree[next] <= value) {
+        position = next;
+        value -= tree[next];
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Randomly selects an element, the probability of an element being selected is
+   * directly proportional to its weight.
+   *
+   * @param random
+   * @return the selected index or -1 if all the weights are 0
+   */
+  public int sample(Random random) {
+    if (totalWeight == 0) {
+      return -1;
+    }
+
+    if (totalWeight <= Integer.MAX_VALUE) {
+      return find(random.nextInt((int) totalWeight));
+    }
+    return find((long) (random.nextDouble() * totalWeight));
+  }
+}
@@ -17,6 +17,9 @@ import com.vmware.photon.controller.resource.gen.Disk;
 import com.vmware.photon.controller.resource.gen.Resource;
 import com.vmware.photon.controller.resource.gen.ResourceConstraint;
 import com.vmware.photon.controller.resource.gen.ResourceConstraintType;
+import com.vmware.photon.controller.resource.gen.ResourcePlacement;
+import com.vmware.photon.controller.resource.gen.ResourcePlacementList;
+import com.vmware.photon.controller.resource.gen.ResourcePlacementType;
 import com.vmware.photon.controller.resource.gen.Vm;
 import com.vmware.photon.controller.roles.gen.ChildInfo;
 import com.vmware.photon.controller.roles.gen.Roles;
@@ -29,6 +32,7 @@ import com.vmware.photon.controller.scheduler.gen.ConfigureRequest;
 import com.vmware.photon.controller.scheduler.gen.FindRequest;
 import com.vmware.photon.controller.scheduler.gen.FindResponse;
 import com.vmware.photon.controller.scheduler.gen.FindResultCode;
+import com.vmware.photon.controller.scheduler.gen.PlaceBatchRequest;
 import com.vmware.photon.controller.scheduler.gen.PlaceParams;
 import com.vmware.photon.controller.scheduler.gen.PlaceRequest;
 import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
@@ -38,6 +42,8 @@ import com.vmware.photon.controller.scheduler.gen.Score;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Matchers;
@@ -72,6 +78,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 
 /**
@@ -96,6 +104,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
   private ManagedScheduler sched12;
   private String hostPrefix;
   private Config config;
+  private ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
 
   @Captor
   private ArgumentCaptor<List<ManagedScheduler>> captorSchedulers;
@@ -107,7 +116,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     config.initRootPlaceParams();
 
     hostPrefix = "hostOf-";
-    manager = spy(new SchedulerManager(schedulerFactory, config, new RandomStrategy()));
+    manager = spy(new SchedulerManager(schedulerFactory, config, new RandomStrategy(), executor));
     manager.healthChecker = healthChecker;
 
     when(foo.getWeight()).thenReturn(8);
@@ -195,7 +204,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
 
     RandomStrategy randomStrategy = mock(RandomStrategy.class);
 
-    manager = spy(new SchedulerManager(schedulerFactory, config, randomStrategy));
+    manager = spy(new SchedulerManager(schedulerFactory, config, randomStrategy, executor));
 
     ChildInfo c1 = new ChildInfo("foo", "foo", 1024);
     ChildInfo c2 = new ChildInfo("bar", "bar", 1024);
@@ -398,7 +407,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
   }
 
   @Test
-  public void testPlaceScore() throws InterruptedException, IOException {
+  public void testPlaceScore() throws Exception {
     verifyPlaceScore(getPlaceResponse("foo", 51, 0), getPlaceResponse("bar", 50, 0));
     verifyPlaceScore(getPlaceResponse("foo", 51, 100), getPlaceResponse("bar", 50, 100));
     verifyPlaceScore(getPlaceResponse("foo", 50, 11), getPlaceResponse("bar", 51, 0));
@@ -409,13 +418,11 @@ public class SchedulerManagerTest extends PowerMockTestCase {
 
   }
 
-  private void verifyPlaceScore(PlaceResponse best, PlaceResponse other) throws IOException,
-      InterruptedException {
+  private void verifyPlaceScore(PlaceResponse best, PlaceResponse other) throws Exception {
     verifyPlaceScore(best, other, null);
   }
 
-  private void verifyPlaceScore(PlaceResponse best, PlaceResponse other, Double ratio) throws IOException,
-      InterruptedException {
+  private void verifyPlaceScore(PlaceResponse best, PlaceResponse other, Double ratio) throws Exception {
     if (ratio != null) {
       config.getRoot().setUtilizationTransferRatio(ratio);
     }
@@ -428,12 +435,12 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, testTimeout)).thenReturn(Futures.immediateFuture(other));
     when(healthChecker.getActiveSchedulers()).
             thenReturn(ImmutableSet.<String>of(hostName(best.getAgent_id()), hostName(other.getAgent_id())));
-    PlaceResponse response = manager.place(request);
+    PlaceResponse response = manager.place(request).get();
     assertThat(response.getAgent_id(), is(best.getAgent_id()));
   }
 
   @Test
-  public void testPlaceError() throws InterruptedException, IOException {
+  public void testPlaceError() throws Exception {
     ConfigureRequest configuration = getConfigureRequest("foo");
 
     manager.applyConfiguration(configuration);
@@ -442,14 +449,187 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(foo.place(request, testTimeout)).
         thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.SYSTEM_ERROR)));
     when(healthChecker.getActiveSchedulers()).thenReturn(ImmutableSet.<String>of(hostName("foo")));
-    PlaceResponse response = manager.place(request);
+    PlaceResponse response = manager.place(request).get();
     assertThat(response, is(notNullValue()));
     assertThat(response.getResult(), is(PlaceResultCode.SYSTEM_ERROR));
     assertThat(response.getError(), is("0 scheduler responded OK in 15000 ms out of 1 placement scheduler(s)"));
   }
 
+  @Test
+  public void testPlaceQuorumCancelsStragglers() throws Exception {
+    ConfigureRequest configuration = getConfigureRequest("foo", "bar", "baz");
+
+    manager.applyConfiguration(configuration);
+    config.getRootPlaceParams().setFanoutRatio(1.0);
+    config.getRootPlaceParams().setMaxFanoutCount(3);
+
+    PlaceRequest request = new PlaceRequest();
+    SettableFuture<PlaceResponse> straggler = SettableFuture.create();
+    when(foo.place(request, testTimeout)).thenReturn(Futures.immediateFuture(getPlaceResponse("foo", 50, 0)));
+    when(bar.place(request, testTimeout)).thenReturn(Futures.immediateFuture(getPlaceResponse("bar", 60, 0)));
+    when(baz.place(request, testTimeout)).thenReturn(straggler);
+    when(healthChecker.getActiveSchedulers()).
+        thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar"), hostName("baz")));
+
+    ListenableFuture<PlaceResponse> future = manager.place(request);
+    assertThat(future.isDone(), is(true));
+    assertThat(future.get().getAgent_id(), is("bar"));
+    assertThat(straggler.isCancelled(), is(true));
+  }
+
+  @Test
+  public void testPlaceQuorumScore() throws Exception {
+    ConfigureRequest configuration = getConfigureRequest("foo", "bar", "baz");
+
+    manager.applyConfiguration(configuration);
+    config.getRoot().setPlaceQuorumScore(50);
+    config.getRootPlaceParams().setFanoutRatio(1.0);
+    config.getRootPlaceParams().setMaxFanoutCount(3);
+
+    PlaceRequest request = new PlaceRequest();
+    SettableFuture<PlaceResponse> straggler = SettableFuture.create();
+    when(foo.place(request, testTimeout)).thenReturn(Futures.immediateFuture(getPlaceResponse("foo", 50, 0)));
+    when(bar.place(request, testTimeout)).thenReturn(Futures.immediateFuture(getPlaceResponse("bar", 60, 0)));
+    when(baz.place(request, testTimeout)).thenReturn(straggler);
+    when(healthChecker.getActiveSchedulers()).
+        thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar"), hostName("baz")));
+
+    // Only one response is good enough, the placement waits for the straggler
+    ListenableFuture<PlaceResponse> future = manager.place(request);
+    assertThat(future.isDone(), is(false));
+
+    straggler.set(getPlaceResponse("baz", 70, 0));
+    assertThat(future.isDone(), is(true));
+    assertThat(future.get().getAgent_id(), is("baz"));
+  }
+  @Test
+  public void testPlaceBatchSpreadsGroupAcrossAgents() throws Exception {
+    ConfigureRequest configuration = getConfigureRequest("foo", "bar", "baz");
+
+    manager.applyConfiguration(configuration);
+    config.getRootPlaceParams().setFanoutRatio(1.0);
+    config.getRootPlaceParams().setMaxFanoutCount(2);
+    config.getRootPlaceParams().setFastPlaceResponseMinCount(3);
+
+    when(foo.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(getBatchPlaceResponse("foo", 50, "vm0")));
+    // bar and baz can only take a VM after the group fan-out
+    when(bar.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE)))
+        .thenReturn(Futures.immediateFuture(getBatchPlaceResponse("bar", 40, "vm1")));
+    when(baz.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE)))
+        .thenReturn(Futures.immediateFuture(getBatchPlaceResponse("baz", 30, "vm2")));
+    when(healthChecker.getActiveSchedulers()).
+        thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar"), hostName("baz")));
+
+    PlaceBatchRequest request = new PlaceBatchRequest(ImmutableList.of(
+        new PlaceRequest(getVmResource("vm0", "small")),
+        new PlaceRequest(getVmResource("vm1", "small")),
+        new PlaceRequest(getVmResource("vm2", "small"))));
+    List<PlaceResponse> responses = manager.placeBatch(request).get().getResponses();
+
+    // Only one agent can take a VM of the group, the other two are placed individually on other agents
+    verify(manager, times(2)).place(any(PlaceRequest.class), Matchers.anySetOf(String.class));
+    assertThat(responses.size(), is(3));
+    List<String> agents = new ArrayList<>();
+    for (PlaceResponse response : responses) {
+      assertThat(response.getResult(), is(PlaceResultCode.OK));
+      agents.add(response.getAgent_id());
+    }
+    assertThat(responses.get(0).getAgent_id(), is("foo"));
+    assertThat(agents, containsInAnyOrder("foo", "bar", "baz"));
+  }
+
+  @Test
+  public void testPlaceBatchFallbackWithoutDistinctAgent() throws Exception {
+    ConfigureRequest configuration = getConfigureRequest("foo", "bar");
+
+    manager.applyConfiguration(configuration);
+    config.getRootPlaceParams().setFanoutRatio(1.0);
+    config.getRootPlaceParams().setMaxFanoutCount(2);
+
+    when(foo.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(getBatchPlaceResponse("foo", 50, "vm0")));
+    when(bar.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE)));
+    when(healthChecker.getActiveSchedulers()).
+        thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar")));
+
+    PlaceBatchRequest request = new PlaceBatchRequest(ImmutableList.of(
+        new PlaceRequest(getVmResource("vm0", "small")),
+        new PlaceRequest(getVmResource("vm1", "small"))));
+    List<PlaceResponse> responses = manager.placeBatch(request).get().getResponses();
+
+    // foo already took a VM of the group and no other agent can take the second VM, so foo takes both
+    verify(manager, times(2)).place(any(PlaceRequest.class), Matchers.anySetOf(String.class));
+    assertThat(responses.size(), is(2));
+    for (PlaceResponse response : responses) {
+      assertThat(response.getResult(), is(PlaceResultCode.OK));
+      assertThat(response.getAgent_id(), is("foo"));
+    }
+  }
+
+  @Test
+  public void testPlaceBatchGroupError() throws Exception {
+    ConfigureRequest configuration = getConfigureRequest("foo", "bar");
+
+    manager.applyConfiguration(configuration);
+    config.getRootPlaceParams().setFanoutRatio(1.0);
+    config.getRootPlaceParams().setMaxFanoutCount(2);
+
+    when(foo.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_MEMORY_RESOURCE)));
+    when(bar.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE)));
+    when(healthChecker.getActiveSchedulers()).
+        thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar")));
+
+    PlaceBatchRequest request = new PlaceBatchRequest(ImmutableList.of(
+        new PlaceRequest(getVmResource("vm0", "small")),
+        new PlaceRequest(getVmResource("vm1", "small")),
+        new PlaceRequest(getVmResource("vm2", "small"))));
+    List<PlaceResponse> responses = manager.placeBatch(request).get().getResponses();
+
+    // No agent can take a VM of the group, so no individual placement is attempted
+    verify(manager, never()).place(any(PlaceRequest.class), Matchers.anySetOf(String.class));
+    assertThat(responses.size(), is(3));
+    for (PlaceResponse response : responses) {
+      assertThat(response.getResult(), is(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE));
+    }
+  }
+
+  @Test
+  public void testPlaceBatchDistinctShapes() throws Exception {
+    ConfigureRequest configuration = getConfigureRequest("foo", "bar", "baz");
+
+    manager.applyConfiguration(configuration);
+    config.getRootPlaceParams().setFanoutRatio(1.0);
+    config.getRootPlaceParams().setMaxFanoutCount(3);
+
+    when(foo.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(getPlaceResponse("foo", 50, 0)));
+    when(bar.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(getPlaceResponse("bar", 60, 0)));
+    when(baz.place(any(PlaceRequest.class), eq(testTimeout)))
+        .thenReturn(Futures.immediateFuture(getPlaceResponse("baz", 70, 0)));
+    when(healthChecker.getActiveSchedulers()).
+        thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar"), hostName("baz")));
+
+    PlaceBatchRequest request = new PlaceBatchRequest(ImmutableList.of(
+        new PlaceRequest(getVmResource("vm0", "small")),
+        new PlaceRequest(getVmResource("vm1", "large"))));
+    List<PlaceResponse> responses = manager.placeBatch(request).get().getResponses();
+
+    verify(manager, times(2)).place(any(PlaceRequest.class));
+    assertThat(responses.size(), is(2));
+    assertThat(responses.get(0).getAgent_id(), is("baz"));
+    assertThat(responses.get(1).getAgent_id(), is("baz"));
+  }
+
+
   @Test(dataProvider = "useLocalPlaceParams")
-  public void testPlaceMissingScheduler(boolean useLocalPlaceParams) throws InterruptedException, IOException {
+  public void testPlaceMissingScheduler(boolean useLocalPlaceParams) throws Exception {
     configAndVerifySchedulersWithResources(1);
     PlaceRequest placeRequest = new PlaceRequest();
 
@@ -464,7 +644,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     placeParams.setFanoutRatio(100.0);
     when(healthChecker.getActiveSchedulers()).
             thenReturn(ImmutableSet.<String>of(hostName("sched10"), hostName("sched11")));
-    manager.place(placeRequest);
+    manager.place(placeRequest).get();
 
     verify(manager).getPlacementSchedulers(placeRequest, placeParams);
     verify(sched10).place(placeRequest, testTimeout);
@@ -473,7 +653,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
   }
 
   @Test(dataProvider = "useLocalPlaceParams")
-  public void testPlaceResurrectedScheduler(boolean useLocalPlaceParams) throws InterruptedException, IOException {
+  public void testPlaceResurrectedScheduler(boolean useLocalPlaceParams) throws Exception {
     configAndVerifySchedulersWithResources(1);
     PlaceRequest placeRequest = new PlaceRequest();
 
@@ -490,7 +670,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     placeParams.setFanoutRatio(100.0);
     when(healthChecker.getActiveSchedulers()).
             thenReturn(ImmutableSet.<String>of(hostName("sched10"), hostName("sched11"), hostName("sched12")));
-    manager.place(placeRequest);
+    manager.place(placeRequest).get();
 
     verify(manager).getPlacementSchedulers(placeRequest, placeParams);
     verify(sched10).place(placeRequest, timeout);
@@ -499,7 +679,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
   }
 
   @Test(dataProvider = "useLocalPlaceParams")
-  public void testPlaceInvalidScheduler(boolean useLocalPlaceParams) throws InterruptedException, IOException {
+  public void testPlaceInvalidScheduler(boolean useLocalPlaceParams) throws Exception {
     ConfigureRequest configuration = getConfigureRequest("foo");
 
     manager.applyConfiguration(configuration);
@@ -511,7 +691,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(foo.place(request, timeout)).thenReturn(
         Futures.immediateFuture(new PlaceResponse(PlaceResultCode.INVALID_SCHEDULER)));
     when(healthChecker.getActiveSchedulers()).thenReturn(ImmutableSet.<String>of(hostName("foo")));
-    PlaceResponse response = manager.place(request);
+    PlaceResponse response = manager.place(request).get();
     assertThat(response, is(notNullValue()));
     assertThat(response.getResult(), is(PlaceResultCode.INVALID_SCHEDULER));
   }
@@ -531,7 +711,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, timeout))
             .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.INVALID_SCHEDULER)));
     when(healthChecker.getActiveSchedulers()).thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar")));
-    PlaceResponse response = manager.place(request);
+    PlaceResponse response = manager.place(request).get();
     assertThat(response.getResult(), is(PlaceResultCode.INVALID_SCHEDULER));
 
     when(foo.place(request, timeout))
@@ -539,7 +719,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, timeout))
         .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE)));
 
-    response = manager.place(request);
+    response = manager.place(request).get();
     assertThat(response.getResult(), is(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE));
 
     when(foo.place(request, timeout))
@@ -547,7 +727,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, timeout))
             .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_MEMORY_RESOURCE)));
 
-    response = manager.place(request);
+    response = manager.place(request).get();
     assertThat(response.getResult(), is(PlaceResultCode.NOT_ENOUGH_CPU_RESOURCE));
 
     when(foo.place(request, timeout))
@@ -555,7 +735,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, timeout))
             .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NOT_ENOUGH_DATASTORE_CAPACITY)));
 
-    response = manager.place(request);
+    response = manager.place(request).get();
     assertThat(response.getResult(), is(PlaceResultCode.NOT_ENOUGH_MEMORY_RESOURCE));
 
     when(foo.place(request, timeout))
@@ -563,7 +743,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, timeout))
             .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NO_SUCH_RESOURCE)));
 
-    response = manager.place(request);
+    response = manager.place(request).get();
     assertThat(response.getResult(), is(PlaceResultCode.NOT_ENOUGH_DATASTORE_CAPACITY));
 
     when(foo.place(request, timeout))
@@ -571,7 +751,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, timeout))
             .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.NO_SUCH_RESOURCE)));
 
-    response = manager.place(request);
+    response = manager.place(request).get();
     assertThat(response.getResult(), is(PlaceResultCode.NO_SUCH_RESOURCE));
   }
 
@@ -591,7 +771,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(bar.place(request, timeout))
         .thenReturn(Futures.immediateFuture(new PlaceResponse(PlaceResultCode.RESOURCE_CONSTRAINT)));
     when(healthChecker.getActiveSchedulers()).thenReturn(ImmutableSet.<String>of(hostName("foo"), hostName("bar")));
-    PlaceResponse response = manager.place(request);
+    PlaceResponse response = manager.place(request).get();
     assertThat(response.getResult(), is(PlaceResultCode.OK));
     assertThat(response.getAgent_id(), is("a"));
   }
@@ -617,7 +797,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
         .thenReturn(Futures.immediateFuture(getPlaceResponse("sched12", 100, 90)));
     when(healthChecker.getActiveSchedulers()).
             thenReturn(ImmutableSet.<String>of(hostName("sched10"), hostName("sched11"), hostName("sched12")));
-    manager.place(placeRequest);
+    manager.place(placeRequest).get();
 
     verify(manager).getPlacementSchedulers(placeRequest, placeParams);
     verify(sched10).place(placeRequest, timeout);
@@ -648,7 +828,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
 
     // Try 1000 times
     for (int i = 0; i < 1000; i++) {
-      PlaceResponse response = manager.place(placeRequest);
+      PlaceResponse response = manager.place(placeRequest).get();
 
       assertThat(response.getResult(), is(PlaceResultCode.OK));
       assertThat(response.getAgent_id(), startsWith("sched1"));
@@ -676,7 +856,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(sched12.place(placeRequest, timeout))
         .thenReturn(Futures.immediateFuture(getPlaceResponse("sched12", 100, 90)));
     when(healthChecker.getActiveSchedulers()).thenReturn(ImmutableSet.<String>of("sched10", "sched11", "sched12"));
-    PlaceResponse response = manager.place(placeRequest);
+    PlaceResponse response = manager.place(placeRequest).get();
 
     verify(manager).getPlacementSchedulers(placeRequest, placeParams);
     verify(sched10, never()).place(placeRequest, timeout);
@@ -707,7 +887,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
         .thenReturn(Futures.immediateFuture(getPlaceResponse("sched12", 100, 90)));
     when(healthChecker.getActiveSchedulers())
             .thenReturn(ImmutableSet.<String>of(hostName("sched10"), hostName("sched11"), hostName("sched12")));
-    manager.place(placeRequest);
+    manager.place(placeRequest).get();
 
     verify(manager).getPlacementSchedulers(placeRequest, placeParams);
     verify(sched10).place(placeRequest, timeout);
@@ -738,7 +918,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
             .thenReturn(ImmutableSet.<String>of(hostName("sched10"), hostName("sched11")));
     // Try 1000 times
     for (int i = 0; i < 1000; i++) {
-      PlaceResponse response = manager.place(placeRequest);
+      PlaceResponse response = manager.place(placeRequest).get();
 
       assertThat(response.getResult(), is(PlaceResultCode.OK));
       assertThat(response.getAgent_id(), startsWith("sched1"));
@@ -766,7 +946,7 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     when(sched12.place(placeRequest, timeout))
         .thenReturn(Futures.immediateFuture(getPlaceResponse("sched12", 100, 90)));
     when(healthChecker.getActiveSchedulers()).thenReturn(ImmutableSet.<String>of("sched10", "sched11", "sched12"));
-    PlaceResponse response = manager.place(placeRequest);
+    PlaceResponse response = manager.place(placeRequest).get();
 
     verify(manager).getPlacementSchedulers(placeRequest, placeParams);
     verify(sched10, never()).place(placeRequest, timeout);
@@ -866,6 +1046,22 @@ public class SchedulerManagerTest extends PowerMockTestCase {
     return result;
   }
 
+  private PlaceResponse getBatchPlaceResponse(String agentId, int utilization, String vmId) {
+    PlaceResponse result = getPlaceResponse(agentId, utilization, 0);
+    result.setPlacementList(new ResourcePlacementList(ImmutableList.of(
+        new ResourcePlacement(ResourcePlacementType.VM, vmId, "datastore-" + agentId))));
+    return result;
+  }
+
+  private Resource getVmResource(String vmId, String flavor) {
+    Vm vm = new Vm();
+    vm.setId(vmId);
+    vm.setFlavor(flavor);
+    Resource resource = new Resource();
+    resource.setVm(vm);
+    return resource;
+  }
+
   private FindResponse getFindOkResponse(String agentId) {
     FindResponse result = new FindResponse();
     result.setResult(FindResultCode.OK);
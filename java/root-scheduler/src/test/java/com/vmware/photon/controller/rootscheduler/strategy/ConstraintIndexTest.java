@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.rootscheduler.strategy;
+
+import com.vmware.photon.controller.resource.gen.ResourceConstraint;
+import com.vmware.photon.controller.resource.gen.ResourceConstraintType;
+import com.vmware.photon.controller.rootscheduler.service.ManagedScheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests {@link ConstraintIndex}.
+ */
+public class ConstraintIndexTest {
+
+  private ManagedScheduler sched0;
+  private ManagedScheduler sched1;
+  private ManagedScheduler sched2;
+  private ConstraintIndex index;
+
+  @BeforeMethod
+  public void setUp() {
+    sched0 = createScheduler(
+        new ResourceConstraint(ResourceConstraintType.DATASTORE, ImmutableList.of("ds0", "ds1")),
+        new ResourceConstraint(ResourceConstraintType.NETWORK, ImmutableList.of("nw0")),
+        new ResourceConstraint(ResourceConstraintType.HOST, ImmutableList.of("h0", "h1")));
+    sched1 = createScheduler(
+        new ResourceConstraint(ResourceConstraintType.DATASTORE, ImmutableList.of("ds1")),
+        new ResourceConstraint(ResourceConstraintType.NETWORK, ImmutableList.of("nw1")),
+        new ResourceConstraint(ResourceConstraintType.HOST, ImmutableList.of("h2")),
+        new ResourceConstraint(ResourceConstraintType.MANAGEMENT_ONLY, ImmutableList.of("")));
+    sched2 = mock(ManagedScheduler.class);
+    when(sched2.getResources()).thenReturn(null);
+
+    index = new ConstraintIndex(ImmutableList.of(sched0, sched1, sched2));
+  }
+
+  @Test
+  public void testMatchPositiveConstraints() {
+    assertThat(index.toList(index.match(constraints(
+        new ResourceConstraint(ResourceConstraintType.DATASTORE, ImmutableList.of("ds1"))))),
+        contains(sched0, sched1));
+
+    assertThat(index.toList(index.match(constraints(
+        new ResourceConstraint(ResourceConstraintType.DATASTORE, ImmutableList.of("ds1")),
+        new ResourceConstraint(ResourceConstraintType.NETWORK, ImmutableList.of("nw1"))))),
+        contains(sched1));
+
+    assertThat(index.toList(index.match(constraints(
+        new ResourceConstraint(ResourceConstraintType.NETWORK, ImmutableList.of("nw0", "nw1"))))),
+        contains(sched0, sched1));
+
+    assertThat(index.match(constraints(
+        new ResourceConstraint(ResourceConstraintType.AVAILABILITY_ZONE, ImmutableList.of("az0")))).isEmpty(),
+        is(true));
+  }
+
+  @Test
+  public void testMatchNegativeConstraints() {
+    ResourceConstraint negative = new ResourceConstraint(ResourceConstraintType.HOST, ImmutableList.of("h2"));
+    negative.setNegative(true);
+    Set<ResourceConstraint> constraints = constraints(negative);
+
+    // Negative constraints only filter on the resource type
+    assertThat(index.toList(index.match(constraints)), contains(sched0, sched1));
+    assertThat(ConstraintIndex.isExact(constraints), is(false));
+  }
+
+  @Test
+  public void testExclude() {
+    BitSet candidates = index.toBitSet(ImmutableList.of(sched0, sched1, sched2));
+    index.exclude(candidates, ResourceConstraintType.MANAGEMENT_ONLY, "");
+    List<ManagedScheduler> result = index.toList(candidates);
+    assertThat(result, contains(sched0, sched2));
+  }
+
+  @Test
+  public void testToBitSetUnknownScheduler() {
+    assertThat(index.toBitSet(ImmutableList.of(sched0, mock(ManagedScheduler.class))), is(nullValue()));
+    assertThat(index.getOrdinal(mock(ManagedScheduler.class)), is(-1));
+  }
+
+  private ManagedScheduler createScheduler(ResourceConstraint... resources) {
+    ManagedScheduler scheduler = mock(ManagedScheduler.class);
+    when(scheduler.getResources()).thenReturn(new HashSet<>(ImmutableSet.copyOf(resources)));
+    return scheduler;
+  }
+
+  private Set<ResourceConstraint> constraints(ResourceConstraint... constraints) {
+    return new HashSet<>(ImmutableSet.copyOf(constraints));
+  }
+}
@@ -41,8 +41,10 @@ import static org.mockito.Mockito.when;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -219,6 +221,56 @@ public class RandomStrategyTest extends PowerMockTestCase {
     assertThat(selectedSchedulers.size(), is(applyPlacementRatio(schedulers.size())));
   }
 
+  @Test
+  public void testSuccessfulFilterChildrenPrecomputed() throws Exception {
+    placementStrategy.setChildren(schedulers);
+    placeParams.setMaxFanoutCount(8);
+    placeParams.setFanoutRatio(0.25);
+    for (int index = 0; index < 100; index++) {
+      List<ManagedScheduler> selectedSchedulers =
+          placementStrategy.filterChildren(placeParams, schedulers, null);
+      assertThat(selectedSchedulers.size(), is(8));
+      assertThat(new HashSet<>(selectedSchedulers).size(), is(8));
+    }
+
+    // Candidates not matching the children fall back to a per request sampler
+    List<ManagedScheduler> selectedSchedulers =
+        placementStrategy.filterChildren(placeParams, schedulersOddCount, null);
+    assertThat(selectedSchedulers.size(), is(applyPlacementRatio(schedulersOddCount.size())));
+    assertThat(schedulersOddCount.containsAll(selectedSchedulers), is(true));
+  }
+
+  @Test
+  public void testIndexedConstraintsMatchUnindexed() throws Exception {
+    RandomStrategy indexedStrategy = new RandomStrategy();
+    indexedStrategy.setChildren(schedulers);
+    RandomStrategy unindexedStrategy = new RandomStrategy();
+
+    ResourceConstraint negativeConstraint = new ResourceConstraint(ResourceConstraintType.HOST,
+        ImmutableList.of("host_0", "host_32", "host_1"));
+    negativeConstraint.setNegative(true);
+
+    List<Set<ResourceConstraint>> constraintSets = new ArrayList<>();
+    constraintSets.add(new HashSet<>(ImmutableList.of(
+        new ResourceConstraint(ResourceConstraintType.DATASTORE, ImmutableList.of("datastore_3")))));
+    constraintSets.add(new HashSet<>(ImmutableList.of(
+        new ResourceConstraint(ResourceConstraintType.DATASTORE, ImmutableList.of("datastore_7")),
+        new ResourceConstraint(ResourceConstraintType.NETWORK, ImmutableList.of("network_7")))));
+    constraintSets.add(new HashSet<>(ImmutableList.of(
+        new ResourceConstraint(ResourceConstraintType.NETWORK, ImmutableList.of("network_0")),
+        negativeConstraint)));
+    constraintSets.add(new HashSet<>(ImmutableList.of(
+        new ResourceConstraint(ResourceConstraintType.DATASTORE, ImmutableList.of("datastore_8")))));
+
+    for (Set<ResourceConstraint> constraints : constraintSets) {
+      Map<ManagedScheduler, Integer> indexedOverrides = new HashMap<>();
+      Map<ManagedScheduler, Integer> unindexedOverrides = new HashMap<>();
+      assertThat(indexedStrategy.applyConstraints(schedulers, constraints, indexedOverrides),
+          is(unindexedStrategy.applyConstraints(schedulers, constraints, unindexedOverrides)));
+      assertThat(indexedOverrides, is(unindexedOverrides));
+    }
+  }
+
   @Test
   public void testSuccessfulFilterChildrenWithEmptyConstraints() throws Exception {
     List<ManagedScheduler> selectedSchedulers =
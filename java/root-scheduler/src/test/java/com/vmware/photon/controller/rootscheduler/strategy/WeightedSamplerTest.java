@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.rootscheduler.strategy;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Random;
+
+/**
+ * Tests {@link WeightedSampler}.
+ */
+public class WeightedSamplerTest {
+
+  @Test
+  public void testFindMatchesIntervalWalk() {
+    Random random = new Random(12358);
+    int[] weights = new int[257];
+    for (int i = 0; i < weights.length; i++) {
+      // Leave some zero weights in
+      weights[i] = random.nextInt(5) == 0 ? 0 : random.nextInt(32);
+    }
+
+    WeightedSampler sampler = new WeightedSampler(weights);
+    long total = 0;
+    for (int weight : weights) {
+      total += weight;
+    }
+    assertThat(sampler.getTotalWeight(), is(total));
+
+    for (long value = 0; value < total; value++) {
+      assertThat(sampler.find(value), is(intervalWalk(weights, value)));
+    }
+  }
+
+  @Test
+  public void testRemove() {
+    int[] weights = {1, 8, 16, 32, 0, 4};
+    WeightedSampler sampler = new WeightedSampler(weights);
+
+    sampler.remove(3);
+    weights[3] = 0;
+    assertThat(sampler.getTotalWeight(), is(29L));
+    for (long value = 0; value < sampler.getTotalWeight(); value++) {
+      assertThat(sampler.find(value), is(intervalWalk(weights, value)));
+    }
+
+    sampler.setWeight(4, 10);
+    weights[4] = 10;
+    assertThat(sampler.getTotalWeight(), is(39L));
+    for (long value = 0; value < sampler.getTotalWeight(); value++) {
+      assertThat(sampler.find(value), is(intervalWalk(weights, value)));
+    }
+  }
+
+  @Test
+  public void testCopy() {
+    WeightedSampler sampler = new WeightedSampler(new int[]{1, 2, 3});
+    WeightedSampler copy = sampler.copy();
+    copy.remove(2);
+
+    assertThat(copy.getTotalWeight(), is(3L));
+    assertThat(sampler.getTotalWeight(), is(6L));
+    assertThat(sampler.find(5), is(2));
+  }
+
+  @Test
+  public void testSampleWithoutReplacement() {
+    WeightedSampler sampler = new WeightedSampler(new int[]{3, 0, 7, 1});
+    Random random = new Random(1);
+    boolean[] picked = new boolean[sampler.size()];
+
+    for (int i = 0; i < 3; i++) {
+      int index = sampler.sample(random);
+      assertThat(picked[index], is(false));
+      assertThat(index == 1, is(false));
+      picked[index] = true;
+      sampler.remove(index);
+    }
+
+    assertThat(sampler.sample(random), is(-1));
+  }
+
+  @Test
+  public void testEmpty() {
+    WeightedSampler sampler = new WeightedSampler(new int[0]);
+    assertThat(sampler.sample(new Random()), is(-1));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeWeight() {
+    new WeightedSampler(new int[]{1, -1});
+  }
+
+  private int intervalWalk(int[] weights, long value) {
+    long start = 0;
+    for (int i = 0; i < weights.length; i++) {
+      long end = start + weights[i];
+      if (value >= start && value < end) {
+        return i;
+      }
+      start = end;
+    }
+    return -1;
+  }
+}
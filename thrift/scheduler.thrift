@@ -110,6 +110,17 @@ struct PlaceResponse {
   99: optional tracing.TracingInfo tracing_info
 }
 
+// Place a batch of resources, only supported by the root scheduler
+struct PlaceBatchRequest {
+  1: required list<PlaceRequest> requests
+  99: optional tracing.TracingInfo tracing_info
+}
+
+struct PlaceBatchResponse {
+  // One response per request, in the order of the requests
+  1: required list<PlaceResponse> responses
+}
+
 // Find a resource
 struct FindRequest {
   1: required resource.Locator locator